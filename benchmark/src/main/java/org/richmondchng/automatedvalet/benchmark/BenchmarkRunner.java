@@ -0,0 +1,43 @@
+package org.richmondchng.automatedvalet.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Run benchmarks with the GC profiler, so allocation per operation is reported next to throughput.
+ *
+ * Accepts the same arguments as the JMH command line, e.g. a benchmark name pattern, or -p lotCount=100000.
+ *
+ * @author richmondchng
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Main method.
+     * @param args JMH command line arguments
+     * @throws CommandLineOptionException if arguments are invalid
+     * @throws RunnerException if benchmark fails
+     * @throws IOException if help cannot be printed
+     */
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if(commandLineOptions.shouldHelp()) {
+            commandLineOptions.showHelp();
+            return;
+        }
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class);
+        if(commandLineOptions.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package org.richmondchng.automatedvalet.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * Write instruction files for parsing benchmarks.
+ *
+ * Vehicles enter with increasing timestamps, and the longest parked vehicle exits whenever the number of parked
+ * vehicles reaches the number of lots, so that every line is a valid instruction.
+ *
+ * @author richmondchng
+ */
+final class InstructionFileWriter {
+
+    private static final long START_TIMESTAMP = 1613541902L;
+
+    private InstructionFileWriter() {
+    }
+
+    /**
+     * Write file of about the target size.
+     * @param file file to write
+     * @param targetBytes approximate file size
+     * @param numberOfLots number of lots for each vehicle type
+     * @return number of instruction lines written, excluding the first line
+     * @throws IOException if file cannot be written
+     */
+    static long write(final Path file, final long targetBytes, final int numberOfLots) throws IOException {
+        final Random random = new Random(42L);
+        final Deque<String> parked = new ArrayDeque<>();
+        long bytes = 0;
+        long lines = 0;
+        long timestamp = START_TIMESTAMP;
+        long nextVehicle = 0;
+        try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            final String config = numberOfLots + " " + numberOfLots;
+            writer.write(config);
+            writer.newLine();
+            bytes += config.length() + 1;
+            while(bytes < targetBytes) {
+                timestamp += 1 + random.nextInt(60);
+                final String line;
+                if(parked.size() >= numberOfLots || (!parked.isEmpty() && random.nextBoolean())) {
+                    line = "Exit " + parked.pollFirst() + " " + timestamp;
+                } else {
+                    final String vehicleNumber = String.format("SG%07dA", nextVehicle++);
+                    parked.addLast(vehicleNumber);
+                    line = "Enter " + (random.nextBoolean() ? "car" : "motorcycle") + " " + vehicleNumber + " "
+                            + timestamp;
+                }
+                writer.write(line);
+                writer.newLine();
+                bytes += line.length() + 1;
+                lines++;
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,111 @@
+package org.richmondchng.automatedvalet.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.richmondchng.automatedvalet.file.FileInstructionReader;
+import org.richmondchng.automatedvalet.file.InstructionSource;
+import org.richmondchng.automatedvalet.file.ParserMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end parse throughput of instruction files, for each parser mode.
+ *
+ * A file of the configured size is generated into a temporary directory before measuring. Besides files per
+ * second, the megabytes and lines counters report MB/s and lines/s. With the GC profiler, gc.alloc.rate.norm
+ * divided by the lines per file (printed at setup) is the allocation per line.
+ *
+ * @author richmondchng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ParserThroughputBenchmark {
+
+    private static final int NUMBER_OF_LOTS = 1000;
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    @Param({"16", "256"})
+    private int fileSizeMb;
+
+    @Param({"SCANNER", "MAPPED", "PARALLEL"})
+    private ParserMode parserMode;
+
+    private Path directory;
+    private Path file;
+    private long fileBytes;
+    private long fileLines;
+
+    /**
+     * Bytes and lines parsed, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public double megabytes;
+        public long lines;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("valet-benchmark");
+        file = directory.resolve("instructions.txt");
+        fileLines = InstructionFileWriter.write(file, fileSizeMb * 1024L * 1024L, NUMBER_OF_LOTS);
+        fileBytes = Files.size(file);
+        System.out.println();
+        System.out.println("Generated " + fileBytes + " bytes, " + fileLines + " instruction lines");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Read whole file into a list of instructions.
+     */
+    @Benchmark
+    public Object readInstructions(final Counters counters) throws IOException {
+        final Object result = FileInstructionReader.readInstructions(file.toString(), parserMode);
+        count(counters);
+        return result;
+    }
+
+    /**
+     * Read instructions one at a time, without keeping them.
+     */
+    @Benchmark
+    public void streamInstructions(final Counters counters, final Blackhole blackhole) throws IOException {
+        try (final InstructionSource source = FileInstructionReader.openInstructions(file.toString(), parserMode)) {
+            while(source.hasNext()) {
+                blackhole.consume(source.next());
+            }
+        }
+        count(counters);
+    }
+
+    private void count(final Counters counters) {
+        counters.megabytes += fileBytes / BYTES_PER_MEGABYTE;
+        counters.lines += fileLines;
+    }
+}
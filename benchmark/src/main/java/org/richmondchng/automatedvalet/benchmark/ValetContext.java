@@ -0,0 +1,63 @@
+package org.richmondchng.automatedvalet.benchmark;
+
+import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.data.id.SequenceSessionIdGenerator;
+import org.richmondchng.automatedvalet.data.repository.ParkedVehicleRepository;
+import org.richmondchng.automatedvalet.data.repository.ParkedVehicleRepositoryImpl;
+import org.richmondchng.automatedvalet.data.repository.ParkingFeeRepositoryImpl;
+import org.richmondchng.automatedvalet.data.repository.ParkingLotRepositoryImpl;
+import org.richmondchng.automatedvalet.data.storage.ParkedVehicleDataStorage;
+import org.richmondchng.automatedvalet.data.storage.ParkedVehicleHistoryDataStorage;
+import org.richmondchng.automatedvalet.data.storage.ParkingFeeDataStorage;
+import org.richmondchng.automatedvalet.data.storage.ParkingLotDataStorage;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.service.ParkingFeeService;
+import org.richmondchng.automatedvalet.service.ParkingValetService;
+
+import java.util.Map;
+
+/**
+ * Application context for benchmarks, wired the same way as ContextConfig, except that the size of the exited
+ * parking history is bounded so that it does not grow while measuring.
+ *
+ * @author richmondchng
+ */
+final class ValetContext {
+
+    static final int CAR_FEE_PER_HOUR = 2;
+    static final int MOTORCYCLE_FEE_PER_HOUR = 1;
+
+    private final ParkingValetService parkingValetService;
+    private final ParkingFeeService parkingFeeService;
+    private final ParkingValetController parkingValetController;
+
+    /**
+     * Constructor.
+     * @param numberOfLots number of lots for each vehicle type
+     * @param historySize maximum number of exited parking sessions kept
+     */
+    ValetContext(final int numberOfLots, final int historySize) {
+        final ParkedVehicleRepository parkedVehicleRepository = new ParkedVehicleRepositoryImpl(
+                new ParkedVehicleDataStorage(new ParkedVehicleHistoryDataStorage(historySize),
+                        new SequenceSessionIdGenerator()));
+        this.parkingValetService = new ParkingValetService(new ParkingLotRepositoryImpl(new ParkingLotDataStorage(
+                Map.of(VehicleType.CAR, numberOfLots, VehicleType.MOTORCYCLE, numberOfLots))),
+                parkedVehicleRepository);
+        this.parkingFeeService = new ParkingFeeService(new ParkingFeeRepositoryImpl(new ParkingFeeDataStorage(
+                Map.of(VehicleType.CAR, CAR_FEE_PER_HOUR, VehicleType.MOTORCYCLE, MOTORCYCLE_FEE_PER_HOUR))),
+                parkedVehicleRepository);
+        this.parkingValetController = new ParkingValetController(parkingValetService, parkingFeeService);
+    }
+
+    ParkingValetService getParkingValetService() {
+        return parkingValetService;
+    }
+
+    ParkingFeeService getParkingFeeService() {
+        return parkingFeeService;
+    }
+
+    ParkingValetController getParkingValetController() {
+        return parkingValetController;
+    }
+}
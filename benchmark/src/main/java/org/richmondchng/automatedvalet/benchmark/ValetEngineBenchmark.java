@@ -0,0 +1,107 @@
+package org.richmondchng.automatedvalet.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.model.parking.ParkingDetails;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.service.ParkingFeeService;
+import org.richmondchng.automatedvalet.service.ParkingValetService;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the valet engine hot paths: controller enter and exit, service park and remove, and fee calculation.
+ *
+ * Before measuring, the history is filled with exited parking sessions, and car lots are occupied up to the
+ * occupancy ratio. Each measured operation leaves the occupancy unchanged, and the bounded history keeps its size.
+ *
+ * @author richmondchng
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValetEngineBenchmark {
+
+    private static final LocalDateTime TIME_IN = LocalDateTime.of(2021, 2, 17, 14, 5, 2);
+    private static final LocalDateTime TIME_OUT = TIME_IN.plusHours(2).plusMinutes(30);
+    private static final String VEHICLE_NUMBER = "SGX1234A";
+
+    @Param({"1000", "1000000"})
+    private int lotCount;
+
+    @Param({"0.5", "0.99"})
+    private double occupancy;
+
+    @Param({"1000", "1000000"})
+    private int historySize;
+
+    private ParkingValetController parkingValetController;
+    private ParkingValetService parkingValetService;
+    private ParkingFeeService parkingFeeService;
+    // exited parking session for fee calculation
+    private ParkingDetails exitedParkingDetails;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final ValetContext context = new ValetContext(lotCount, historySize);
+        parkingValetController = context.getParkingValetController();
+        parkingValetService = context.getParkingValetService();
+        parkingFeeService = context.getParkingFeeService();
+
+        // fill history with motorcycles, so car lots are not affected
+        for(int index = 0; index < historySize; index++) {
+            final String vehicleNumber = "HIS" + index;
+            parkingValetController.enterParking(VehicleType.MOTORCYCLE, vehicleNumber, TIME_IN);
+            parkingValetController.exitParking(vehicleNumber, TIME_OUT);
+        }
+        // occupy car lots, leave at least one lot available
+        final int parked = Math.min(lotCount - 1, (int) (lotCount * occupancy));
+        for(int index = 0; index < parked; index++) {
+            parkingValetController.enterParking(VehicleType.CAR, "OCC" + index, TIME_IN);
+        }
+        parkingValetService.parkVehicle(VehicleType.MOTORCYCLE, VEHICLE_NUMBER, TIME_IN);
+        exitedParkingDetails = parkingValetService.removeVehicle(VEHICLE_NUMBER, TIME_OUT);
+    }
+
+    /**
+     * Vehicle enters and exits through the controller, including fee calculation.
+     */
+    @Benchmark
+    public void controllerEnterExit(final Blackhole blackhole) {
+        blackhole.consume(parkingValetController.enterParking(VehicleType.CAR, VEHICLE_NUMBER, TIME_IN));
+        blackhole.consume(parkingValetController.exitParking(VEHICLE_NUMBER, TIME_OUT));
+    }
+
+    /**
+     * Vehicle is parked and removed through the service, without fee calculation.
+     */
+    @Benchmark
+    public void serviceParkRemove(final Blackhole blackhole) {
+        blackhole.consume(parkingValetService.parkVehicle(VehicleType.CAR, VEHICLE_NUMBER, TIME_IN));
+        blackhole.consume(parkingValetService.removeVehicle(VEHICLE_NUMBER, TIME_OUT));
+    }
+
+    /**
+     * Fee calculation of an exited parking session.
+     */
+    @Benchmark
+    public long calculateParkingFee() {
+        return parkingFeeService.calculateParkingFee(exitedParkingDetails);
+    }
+}
@@ -1,17 +1,30 @@
 package org.richmondchng.automatedvalet;
 
+import org.richmondchng.automatedvalet.config.ApplicationArguments;
 import org.richmondchng.automatedvalet.config.ContextConfig;
 import org.richmondchng.automatedvalet.config.ParkingLotConfiguration;
 import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.data.archive.SessionArchiveWriter;
+import org.richmondchng.automatedvalet.data.journal.JournalConfiguration;
+import org.richmondchng.automatedvalet.data.journal.ParkedVehicleJournal;
+import org.richmondchng.automatedvalet.data.occupancy.LotOccupancyTable;
+import org.richmondchng.automatedvalet.data.repository.jdbc.ValetDatabase;
+import org.richmondchng.automatedvalet.data.storage.ParkedVehicleHistoryDataStorage;
 import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
 import org.richmondchng.automatedvalet.dto.response.ParkedDTO;
 import org.richmondchng.automatedvalet.dto.response.ParkingFeeDTO;
+import org.richmondchng.automatedvalet.engine.ExecutionMode;
+import org.richmondchng.automatedvalet.engine.PartitionedInstructionRunner;
+import org.richmondchng.automatedvalet.engine.PipelinedInstructionRunner;
 import org.richmondchng.automatedvalet.file.FileInstructionReader;
-import org.richmondchng.automatedvalet.file.FileInstructionsDTO;
+import org.richmondchng.automatedvalet.file.InstructionSource;
+import org.richmondchng.automatedvalet.file.ParserMode;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.output.OutputWriter;
 
-import java.io.FileNotFoundException;
-import java.text.MessageFormat;
+import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.sql.SQLException;
 
 /**
  * Main class.
@@ -20,37 +33,123 @@ import java.text.MessageFormat;
 public class AutomatedValet {
 
     /**
-     * Main class. This should take 1 parameter which is the file path.
+     * Main class. The first parameter is the file path, followed by optional parameters.
+     * <ul>
+     *     <li>--parser=scanner|mapped|parallel, how the file is parsed, default is scanner</li>
+     *     <li>--output=file, write output to file instead of standard output</li>
+     *     <li>--flush-bytes=n, number of output bytes buffered before writing, default is 65536</li>
+     *     <li>--flush-millis=n, maximum milliseconds output is buffered, default is 0 to flush by size only</li>
+     *     <li>--mode=serial|pipeline|partitioned, how instructions are processed, default is serial</li>
+     *     <li>--batch-size=n, number of instructions handed over at a time, default is 1024 for pipeline and 4096
+     *     for partitioned</li>
+     *     <li>--journal=directory, record parking sessions in journal directory, and restore sessions from it on
+     *     start</li>
+     *     <li>--journal-sync-records=n, number of journal records before the journal is forced to disk, default is
+     *     256</li>
+     *     <li>--journal-sync-millis=n, maximum milliseconds a journal record waits to be forced to disk, default is 0
+     *     to force by records only</li>
+     *     <li>--journal-segment-bytes=n, size of a journal segment file, default is 67108864</li>
+     *     <li>--journal-snapshot-records=n, number of journal records between snapshots, default is 1000000, 0 to
+     *     snapshot on exit only</li>
+     *     <li>--occupancy-table=file, record occupied lots in memory mapped file, and restore parked vehicles from it on
+     *     start, cannot be used with --journal</li>
+     *     <li>--database=file, keep parking lots, fees and parking sessions in embedded database file, instead of
+     *     memory, cannot be used with --journal or --occupancy-table</li>
+     *     <li>--database-batch-size=n, number of database writes committed together, default is 256</li>
+     *     <li>--archive=file, append exited parking sessions to columnar archive file instead of keeping them all in
+     *     memory, cannot be used with --journal or --database</li>
+     *     <li>--archive-history-records=n, number of exited parking sessions kept in memory before they are archived,
+     *     default is 4096</li>
+     * </ul>
      * @param args should include file path to data.
-     * @throws FileNotFoundException if file is invalid
+     * @throws IOException if file is invalid
+     * @throws SQLException if database cannot be opened
      */
-    public static void main(final String[] args) throws FileNotFoundException {
-        if(args == null || args.length != 1) {
-            throw new RuntimeException("Missing file parameter");
-        }
-        final String filePath = args[0];
-        // read file into instructions
-        final FileInstructionsDTO instructions = FileInstructionReader.readInstructions(filePath);
-
-        // build context
-        final AutomatedValet automatedValet = new AutomatedValet(
-                instructions.getNumberOfLots().get(VehicleType.CAR), 2,
-                instructions.getNumberOfLots().get(VehicleType.MOTORCYCLE), 1);
-        for(ValetInstruction instruction : instructions.getInstructions()) {
-            switch (instruction.getAction()) {
-                case ENTER:
-                    System.out.println(automatedValet.enterParking(instruction));
+    public static void main(final String[] args) throws IOException, SQLException {
+        final ApplicationArguments arguments = new ApplicationArguments(args, "parser", "output", "flush-bytes",
+                "flush-millis", "mode", "batch-size", "journal", "occupancy-table", "database", "database-batch-size",
+                "archive", "archive-history-records", "journal-sync-records", "journal-sync-millis",
+                "journal-segment-bytes", "journal-snapshot-records");
+        final ParserMode parserMode = ParserMode.getParserMode(arguments.getOption("parser", ParserMode.SCANNER.name()));
+        final String outputPath = arguments.getOption("output", null);
+        final int flushBytes = Integer.valueOf(arguments.getOption("flush-bytes",
+                String.valueOf(OutputWriter.DEFAULT_FLUSH_BYTES)));
+        final long flushMillis = Long.valueOf(arguments.getOption("flush-millis", "0"));
+        final ExecutionMode executionMode = ExecutionMode.getExecutionMode(arguments.getOption("mode",
+                ExecutionMode.SERIAL.name()));
+        final String batchSize = arguments.getOption("batch-size", null);
+        final String journalPath = arguments.getOption("journal", null);
+        final String occupancyTablePath = arguments.getOption("occupancy-table", null);
+        final String databasePath = arguments.getOption("database", null);
+        final int databaseBatchSize = Integer.valueOf(arguments.getOption("database-batch-size",
+                String.valueOf(ValetDatabase.DEFAULT_BATCH_SIZE)));
+        final String archivePath = arguments.getOption("archive", null);
+        final int archiveHistoryRecords = Integer.valueOf(arguments.getOption("archive-history-records",
+                String.valueOf(ParkedVehicleHistoryDataStorage.DEFAULT_ARCHIVE_RECORDS)));
+        final JournalConfiguration journalDefaults = JournalConfiguration.builder().build();
+        final JournalConfiguration journalConfiguration = JournalConfiguration.builder()
+                .syncRecords(Integer.valueOf(arguments.getOption("journal-sync-records",
+                        String.valueOf(journalDefaults.getSyncRecords()))))
+                .syncMillis(Long.valueOf(arguments.getOption("journal-sync-millis",
+                        String.valueOf(journalDefaults.getSyncMillis()))))
+                .segmentBytes(Long.valueOf(arguments.getOption("journal-segment-bytes",
+                        String.valueOf(journalDefaults.getSegmentBytes()))))
+                .snapshotRecords(Long.valueOf(arguments.getOption("journal-snapshot-records",
+                        String.valueOf(journalDefaults.getSnapshotRecords()))))
+                .build();
+
+        // instructions are parsed one at a time as they are processed
+        try (final ParkedVehicleJournal journal = journalPath == null ? null
+                : ParkedVehicleJournal.open(journalPath, journalConfiguration);
+             final InstructionSource instructions = FileInstructionReader.openInstructions(arguments.getFilePath(),
+                parserMode);
+             final LotOccupancyTable occupancyTable = occupancyTablePath == null ? null
+                     : LotOccupancyTable.open(occupancyTablePath, instructions.getNumberOfLots());
+             final ValetDatabase database = databasePath == null ? null
+                     : ValetDatabase.open(databasePath, databaseBatchSize);
+             final SessionArchiveWriter archive = archivePath == null ? null : SessionArchiveWriter.open(archivePath);
+             final OutputWriter output = outputPath == null
+                     ? OutputWriter.toStandardOutput(flushBytes, flushMillis)
+                     : OutputWriter.toFile(outputPath, flushBytes, flushMillis)) {
+            // build context
+            final AutomatedValet automatedValet = new AutomatedValet(
+                    instructions.getNumberOfLots().get(VehicleType.CAR), 2,
+                    instructions.getNumberOfLots().get(VehicleType.MOTORCYCLE), 1, journal, occupancyTable, database,
+                    archive, archiveHistoryRecords);
+            switch (executionMode) {
+                case PIPELINE:
+                    new PipelinedInstructionRunner<>(batchSize == null ? PipelinedInstructionRunner.DEFAULT_BATCH_SIZE
+                            : Integer.valueOf(batchSize), PipelinedInstructionRunner.DEFAULT_QUEUE_BATCHES)
+                            .run(instructions, automatedValet::process, AutomatedValet::writeResult, output);
                     break;
-                case EXIT:
-                    System.out.println(automatedValet.exitParking(instruction));
+                case PARTITIONED:
+                    new PartitionedInstructionRunner<>(batchSize == null
+                            ? PartitionedInstructionRunner.DEFAULT_BATCH_SIZE : Integer.valueOf(batchSize))
+                            .run(instructions, automatedValet::process, AutomatedValet::writeResult, output);
                     break;
+                case SERIAL:
+                    while(instructions.hasNext()) {
+                        final ValetInstruction instruction = instructions.next();
+                        switch (instruction.getAction()) {
+                            case ENTER:
+                                automatedValet.enterParking(instruction, output);
+                                break;
+                            case EXIT:
+                                automatedValet.exitParking(instruction, output);
+                                break;
+                        }
+                    }
+                    break;
+            }
+            if(archive != null) {
+                automatedValet.archiveHistory();
             }
         }
     }
 
-    private static final String VEHICLE_PARKED = "Accept {0}";
+    private static final String VEHICLE_PARKED = "Accept ";
     private static final String VEHICLE_NOT_PARKED = "Reject";
-    private static final String VEHICLE_EXIT = "{0} {1}";   // 0 = label, 1 = fee per hour
+    private final ContextConfig contextConfig;
     private final ParkingValetController parkingValetController;
 
     /**
@@ -59,12 +158,20 @@ public class AutomatedValet {
      * @param feePerHourCar fee per hour for car
      * @param numMotorcycleLots number of lots for motorcycle
      * @param feePerHourMotorcycle fee per hour for motorcycle
+     * @param journal journal of parking sessions, or null
+     * @param occupancyTable occupancy table of parking lots, or null
+     * @param database embedded database, or null
+     * @param archive archive of exited parking sessions, or null
+     * @param historyRecords number of exited parking sessions kept in memory when archive is supplied
      */
-    private AutomatedValet(final int numCarLots, final int feePerHourCar, final int numMotorcycleLots, final int feePerHourMotorcycle) {
-        this(new ParkingLotConfiguration[]{
+    private AutomatedValet(final int numCarLots, final int feePerHourCar, final int numMotorcycleLots,
+                           final int feePerHourMotorcycle, final ParkedVehicleJournal journal,
+                           final LotOccupancyTable occupancyTable, final ValetDatabase database,
+                           final SessionArchiveWriter archive, final int historyRecords) {
+        this(contextConfig(new ParkingLotConfiguration[]{
                 new ParkingLotConfiguration(VehicleType.CAR, numCarLots, feePerHourCar),
                 new ParkingLotConfiguration(VehicleType.MOTORCYCLE, numMotorcycleLots, feePerHourMotorcycle)
-        });
+        }, journal, occupancyTable, database, archive, historyRecords));
     }
 
     /**
@@ -72,11 +179,78 @@ public class AutomatedValet {
      * @param configurations array of parking lot configuration
      */
     AutomatedValet(final ParkingLotConfiguration[] configurations) {
-        final ContextConfig contextConfig = new ContextConfig(configurations);
+        this(configurations, null, null);
+    }
+
+    /**
+     * Constructor. Insert parking configurations, and restore parking sessions from journal.
+     * @param configurations array of parking lot configuration
+     * @param journal journal of parking sessions, or null
+     */
+    AutomatedValet(final ParkingLotConfiguration[] configurations, final ParkedVehicleJournal journal) {
+        this(configurations, journal, null);
+    }
+
+    /**
+     * Constructor. Insert parking configurations, and restore parking sessions from journal or occupancy table.
+     * @param configurations array of parking lot configuration
+     * @param journal journal of parking sessions, or null
+     * @param occupancyTable occupancy table of parking lots, or null
+     */
+    AutomatedValet(final ParkingLotConfiguration[] configurations, final ParkedVehicleJournal journal,
+                   final LotOccupancyTable occupancyTable) {
+        this(new ContextConfig(configurations, journal, occupancyTable));
+    }
+
+    /**
+     * Constructor. Insert parking configurations, and keep parking sessions in embedded database.
+     * @param configurations array of parking lot configuration
+     * @param database embedded database
+     */
+    AutomatedValet(final ParkingLotConfiguration[] configurations, final ValetDatabase database) {
+        this(new ContextConfig(configurations, database));
+    }
+
+    /**
+     * Constructor. Insert parking configurations, and move older exited parking sessions to archive.
+     * @param configurations array of parking lot configuration
+     * @param archive archive of exited parking sessions
+     * @param historyRecords number of exited parking sessions kept in memory
+     */
+    AutomatedValet(final ParkingLotConfiguration[] configurations, final SessionArchiveWriter archive,
+                   final int historyRecords) {
+        this(new ContextConfig(configurations, null, null, archive, historyRecords));
+    }
+
+    private AutomatedValet(final ContextConfig contextConfig) {
+        this.contextConfig = contextConfig;
         // get controller
         parkingValetController = contextConfig.parkingValetController();
     }
 
+    private static ContextConfig contextConfig(final ParkingLotConfiguration[] configurations,
+                                               final ParkedVehicleJournal journal,
+                                               final LotOccupancyTable occupancyTable, final ValetDatabase database,
+                                               final SessionArchiveWriter archive, final int historyRecords) {
+        if(database == null) {
+            return new ContextConfig(configurations, journal, occupancyTable, archive, historyRecords);
+        }
+        if(journal != null || occupancyTable != null) {
+            throw new InvalidParameterException("Database cannot be used with journal or occupancy table");
+        }
+        if(archive != null) {
+            throw new InvalidParameterException("Database and archive cannot be used together");
+        }
+        return new ContextConfig(configurations, database);
+    }
+
+    /**
+     * Move exited parking sessions still kept in memory to the archive.
+     */
+    void archiveHistory() {
+        contextConfig.archiveHistory();
+    }
+
     /**
      * Accept instruction to park vehicle.
      * @param valetInstruction instruction
@@ -84,15 +258,26 @@ public class AutomatedValet {
      */
     public String enterParking(final ValetInstruction valetInstruction) {
         final ParkedDTO result = parkingValetController.enterParking(valetInstruction.getVehicleType(),
-                valetInstruction.getLicensePlate(), valetInstruction.getTimestamp());
+                valetInstruction.getLicensePlate(), valetInstruction.getTimestampSeconds());
         if(result.isAccepted()) {
             // build output string
-            return MessageFormat.format(VEHICLE_PARKED, result.getLotNumber());
+            return VEHICLE_PARKED + result.getLotNumber();
         }
         // reject
         return VEHICLE_NOT_PARKED;
     }
 
+    /**
+     * Accept instruction to park vehicle, and write output line.
+     * @param valetInstruction instruction
+     * @param output output writer
+     * @throws IOException if output cannot be written
+     */
+    public void enterParking(final ValetInstruction valetInstruction, final OutputWriter output) throws IOException {
+        writeParked(parkingValetController.enterParking(valetInstruction.getVehicleType(),
+                valetInstruction.getLicensePlate(), valetInstruction.getTimestampSeconds()), output);
+    }
+
     /**
      * Accept instruction to exit vehicle
      * @param valetInstruction instruction
@@ -100,8 +285,65 @@ public class AutomatedValet {
      */
     public String exitParking(final ValetInstruction valetInstruction) {
         final ParkingFeeDTO result = parkingValetController.exitParking(valetInstruction.getLicensePlate(),
-                valetInstruction.getTimestamp());
-        // build output string
-        return MessageFormat.format(VEHICLE_EXIT, result.getLabel(), result.getParkingFee());
+                valetInstruction.getTimestampSeconds());
+        // build output string, label then fee
+        return result.getLabel() + ' ' + result.getParkingFee();
+    }
+
+    /**
+     * Accept instruction to exit vehicle, and write output line.
+     * @param valetInstruction instruction
+     * @param output output writer
+     * @throws IOException if output cannot be written
+     */
+    public void exitParking(final ValetInstruction valetInstruction, final OutputWriter output) throws IOException {
+        writeParkingFee(parkingValetController.exitParking(valetInstruction.getLicensePlate(),
+                valetInstruction.getTimestampSeconds()), output);
+    }
+
+    /**
+     * Process instruction without writing output.
+     * @param valetInstruction instruction
+     * @return ParkedDTO for enter, ParkingFeeDTO for exit
+     */
+    Object process(final ValetInstruction valetInstruction) {
+        switch (valetInstruction.getAction()) {
+            case ENTER:
+                return parkingValetController.enterParking(valetInstruction.getVehicleType(),
+                        valetInstruction.getLicensePlate(), valetInstruction.getTimestampSeconds());
+            case EXIT:
+                return parkingValetController.exitParking(valetInstruction.getLicensePlate(),
+                        valetInstruction.getTimestampSeconds());
+            default:
+                throw new IllegalArgumentException("Not a valid action: " + valetInstruction.getAction());
+        }
+    }
+
+    /**
+     * Write output line of a processed instruction.
+     * @param result ParkedDTO or ParkingFeeDTO
+     * @param output output writer
+     * @throws IOException if output cannot be written
+     */
+    static void writeResult(final Object result, final OutputWriter output) throws IOException {
+        if(result instanceof ParkedDTO) {
+            writeParked((ParkedDTO) result, output);
+        } else {
+            writeParkingFee((ParkingFeeDTO) result, output);
+        }
+    }
+
+    private static void writeParked(final ParkedDTO result, final OutputWriter output) throws IOException {
+        if(result.isAccepted()) {
+            output.append(VEHICLE_PARKED).append(result.getLotNumber());
+        } else {
+            output.append(VEHICLE_NOT_PARKED);
+        }
+        output.endLine();
+    }
+
+    private static void writeParkingFee(final ParkingFeeDTO result, final OutputWriter output) throws IOException {
+        output.append(result.getLabel()).append(" ").append(result.getParkingFee());
+        output.endLine();
     }
 }
@@ -0,0 +1,77 @@
+package org.richmondchng.automatedvalet;
+
+import org.richmondchng.automatedvalet.config.ApplicationArguments;
+import org.richmondchng.automatedvalet.generator.ArrivalCurve;
+import org.richmondchng.automatedvalet.generator.DwellTimeDistribution;
+import org.richmondchng.automatedvalet.generator.WorkloadConfiguration;
+import org.richmondchng.automatedvalet.generator.WorkloadSimulator;
+import org.richmondchng.automatedvalet.generator.WorkloadSummary;
+import org.richmondchng.automatedvalet.output.OutputWriter;
+
+import java.io.IOException;
+
+/**
+ * Main class to generate instruction files of simulated gate traffic.
+ * @author richmondchng
+ */
+public class WorkloadGenerator {
+
+    /**
+     * Main class. The first parameter is the file to write, followed by optional parameters.
+     * <ul>
+     *     <li>--car-lots=n, number of car lots, default is 100</li>
+     *     <li>--motorcycle-lots=n, number of motorcycle lots, default is 50</li>
+     *     <li>--instructions=n, number of instruction lines, default is 1000000</li>
+     *     <li>--arrivals-per-hour=n, average arrivals per hour over a day, default is 60</li>
+     *     <li>--arrival-curve=flat|commuter|mall, arrival rate over the hours of a day, default is flat</li>
+     *     <li>--dwell-minutes=n, mean minutes a vehicle stays, default is 120</li>
+     *     <li>--dwell-distribution=fixed|uniform|exponential|lognormal, default is exponential</li>
+     *     <li>--motorcycle-ratio=n, fraction of plates that are motorcycles, default is 0.3</li>
+     *     <li>--plates=n, number of distinct license plates, default is 10000</li>
+     *     <li>--seed=n, random seed, default is 1</li>
+     *     <li>--start=n, epoch seconds of the first arrival, default is 1613541902</li>
+     * </ul>
+     * @param args should include file path to write.
+     * @throws IOException if file cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        final ApplicationArguments arguments = new ApplicationArguments(args, "car-lots", "motorcycle-lots",
+                "instructions", "arrivals-per-hour", "arrival-curve", "dwell-minutes", "dwell-distribution",
+                "motorcycle-ratio", "plates", "seed", "start");
+        final WorkloadConfiguration defaults = WorkloadConfiguration.builder().build();
+        final WorkloadConfiguration configuration = WorkloadConfiguration.builder()
+                .numberOfCarLots(Integer.valueOf(arguments.getOption("car-lots",
+                        String.valueOf(defaults.getNumberOfCarLots()))))
+                .numberOfMotorcycleLots(Integer.valueOf(arguments.getOption("motorcycle-lots",
+                        String.valueOf(defaults.getNumberOfMotorcycleLots()))))
+                .numberOfInstructions(Long.valueOf(arguments.getOption("instructions",
+                        String.valueOf(defaults.getNumberOfInstructions()))))
+                .arrivalsPerHour(Double.valueOf(arguments.getOption("arrivals-per-hour",
+                        String.valueOf(defaults.getArrivalsPerHour()))))
+                .arrivalCurve(ArrivalCurve.getArrivalCurve(arguments.getOption("arrival-curve",
+                        defaults.getArrivalCurve().name())))
+                .meanDwellMinutes(Double.valueOf(arguments.getOption("dwell-minutes",
+                        String.valueOf(defaults.getMeanDwellMinutes()))))
+                .dwellTimeDistribution(DwellTimeDistribution.getDwellTimeDistribution(arguments.getOption(
+                        "dwell-distribution", defaults.getDwellTimeDistribution().name())))
+                .motorcycleRatio(Double.valueOf(arguments.getOption("motorcycle-ratio",
+                        String.valueOf(defaults.getMotorcycleRatio()))))
+                .numberOfPlates(Integer.valueOf(arguments.getOption("plates",
+                        String.valueOf(defaults.getNumberOfPlates()))))
+                .seed(Long.valueOf(arguments.getOption("seed", String.valueOf(defaults.getSeed()))))
+                .startTimestamp(Long.valueOf(arguments.getOption("start",
+                        String.valueOf(defaults.getStartTimestamp()))))
+                .build();
+
+        final WorkloadSummary summary;
+        try (final OutputWriter output = OutputWriter.toFile(arguments.getFilePath(),
+                OutputWriter.DEFAULT_FLUSH_BYTES, 0L)) {
+            summary = new WorkloadSimulator(configuration).generate(output);
+        }
+        System.out.println("Instructions " + summary.getNumberOfInstructions()
+                + ", accepted " + summary.getAccepted()
+                + ", rejected " + summary.getRejected()
+                + ", exited " + summary.getExited()
+                + ", still parked " + summary.getStillParked());
+    }
+}
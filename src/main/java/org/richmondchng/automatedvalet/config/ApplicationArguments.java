@@ -0,0 +1,68 @@
+package org.richmondchng.automatedvalet.config;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line arguments of the application.
+ *
+ * The file path is the first argument. Options follow the file path in the form --name=value, only supported
+ * options are accepted.
+ *
+ * @author richmondchng
+ */
+public class ApplicationArguments {
+
+    private static final String OPTION_PREFIX = "--";
+
+    private final String filePath;
+    private final Map<String, String> options;
+
+    /**
+     * Constructor. Parse command line arguments.
+     * @param args command line arguments
+     * @param supportedOptions names of supported options, without --
+     */
+    public ApplicationArguments(final String[] args, final String... supportedOptions) {
+        if(args == null || args.length < 1 || args[0].startsWith(OPTION_PREFIX)) {
+            throw new RuntimeException("Missing file parameter");
+        }
+        this.filePath = args[0];
+        this.options = new HashMap<>();
+        final Set<String> supported = new HashSet<>(Arrays.asList(supportedOptions));
+        for(int index = 1; index < args.length; index++) {
+            final String arg = args[index];
+            final int separator = arg.indexOf('=');
+            if(!arg.startsWith(OPTION_PREFIX) || separator <= OPTION_PREFIX.length()) {
+                throw new RuntimeException("Invalid option: " + arg + ", expected --name=value");
+            }
+            final String name = arg.substring(OPTION_PREFIX.length(), separator);
+            if(!supported.contains(name)) {
+                throw new InvalidParameterException("Unknown option: " + OPTION_PREFIX + name);
+            }
+            options.put(name, arg.substring(separator + 1));
+        }
+    }
+
+    /**
+     * Get file path.
+     * @return file path
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Get option value.
+     * @param name option name, without --
+     * @param defaultValue value if option is not supplied
+     * @return option value
+     */
+    public String getOption(final String name, final String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+}
@@ -1,19 +1,33 @@
 package org.richmondchng.automatedvalet.config;
 
 import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.data.archive.SessionArchiveWriter;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.data.id.SequenceSessionIdGenerator;
+import org.richmondchng.automatedvalet.data.id.SessionIdGenerator;
+import org.richmondchng.automatedvalet.data.journal.ParkedVehicleJournal;
+import org.richmondchng.automatedvalet.data.journal.RecoveredSessions;
+import org.richmondchng.automatedvalet.data.occupancy.LotOccupancyTable;
 import org.richmondchng.automatedvalet.data.repository.ParkedVehicleRepository;
 import org.richmondchng.automatedvalet.data.repository.ParkedVehicleRepositoryImpl;
 import org.richmondchng.automatedvalet.data.repository.ParkingFeeRepository;
 import org.richmondchng.automatedvalet.data.repository.ParkingFeeRepositoryImpl;
 import org.richmondchng.automatedvalet.data.repository.ParkingLotRepository;
 import org.richmondchng.automatedvalet.data.repository.ParkingLotRepositoryImpl;
+import org.richmondchng.automatedvalet.data.repository.jdbc.JdbcParkedVehicleRepository;
+import org.richmondchng.automatedvalet.data.repository.jdbc.JdbcParkingFeeRepository;
+import org.richmondchng.automatedvalet.data.repository.jdbc.JdbcParkingLotRepository;
+import org.richmondchng.automatedvalet.data.repository.jdbc.ValetDatabase;
 import org.richmondchng.automatedvalet.data.storage.ParkedVehicleDataStorage;
+import org.richmondchng.automatedvalet.data.storage.ParkedVehicleHistoryDataStorage;
 import org.richmondchng.automatedvalet.data.storage.ParkingFeeDataStorage;
 import org.richmondchng.automatedvalet.data.storage.ParkingLotDataStorage;
+import org.richmondchng.automatedvalet.engine.SingleWriterValetEngine;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 import org.richmondchng.automatedvalet.service.ParkingFeeService;
 import org.richmondchng.automatedvalet.service.ParkingValetService;
 
+import java.security.InvalidParameterException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,13 +41,97 @@ import java.util.Map;
 public class ContextConfig {
 
     private final ParkingLotConfiguration[] configurations;
+    // null when parking sessions are not journaled
+    private final ParkedVehicleJournal journal;
+    // null when lot occupancy is not persisted
+    private final LotOccupancyTable occupancyTable;
+    // null when repositories are in-memory
+    private final ValetDatabase database;
+    // null when exited parking sessions are kept in memory only
+    private final SessionArchiveWriter archive;
+    // exited parking sessions kept in memory before they are archived
+    private final int historyRecords;
+    // history of the last controller created, for archiving
+    private ParkedVehicleHistoryDataStorage historyDataStorage;
 
     /**
      * Constructor.
      * @param parkingLotConfigurations array of parking lot configurations
      */
     public ContextConfig(final ParkingLotConfiguration[] parkingLotConfigurations) {
+        this(parkingLotConfigurations, null, null);
+    }
+
+    /**
+     * Constructor. Parking sessions recovered from the journal are restored into the controller, and every change is
+     * recorded in the journal. Only one controller should be created from a journal.
+     * @param parkingLotConfigurations array of parking lot configurations
+     * @param journal journal of parking sessions, or null
+     */
+    public ContextConfig(final ParkingLotConfiguration[] parkingLotConfigurations,
+                         final ParkedVehicleJournal journal) {
+        this(parkingLotConfigurations, journal, null);
+    }
+
+    /**
+     * Constructor. Vehicles parked in the occupied lots of the occupancy table are restored into the controller, and
+     * every lot that is occupied or released is recorded in the table. Journal and occupancy table cannot be used
+     * together, only one controller should be created from either.
+     * @param parkingLotConfigurations array of parking lot configurations
+     * @param journal journal of parking sessions, or null
+     * @param occupancyTable occupancy table of parking lots, or null
+     */
+    public ContextConfig(final ParkingLotConfiguration[] parkingLotConfigurations,
+                         final ParkedVehicleJournal journal, final LotOccupancyTable occupancyTable) {
+        this(parkingLotConfigurations, journal, occupancyTable, null, 0);
+    }
+
+    /**
+     * Constructor. Only the latest exited parking sessions are kept in memory, older sessions are moved to the
+     * archive. Journal and archive cannot be used together, because the journal restores exited sessions that are
+     * already archived.
+     * @param parkingLotConfigurations array of parking lot configurations
+     * @param journal journal of parking sessions, or null
+     * @param occupancyTable occupancy table of parking lots, or null
+     * @param archive archive of exited parking sessions, or null
+     * @param historyRecords number of exited parking sessions kept in memory when archive is supplied
+     */
+    public ContextConfig(final ParkingLotConfiguration[] parkingLotConfigurations,
+                         final ParkedVehicleJournal journal, final LotOccupancyTable occupancyTable,
+                         final SessionArchiveWriter archive, final int historyRecords) {
+        if(journal != null && occupancyTable != null) {
+            throw new InvalidParameterException("Journal and occupancy table cannot be used together");
+        }
+        if(journal != null && archive != null) {
+            throw new InvalidParameterException("Journal and archive cannot be used together");
+        }
+        if(archive != null && historyRecords < 1) {
+            throw new InvalidParameterException("History records must be positive");
+        }
+        this.configurations = parkingLotConfigurations;
+        this.journal = journal;
+        this.occupancyTable = occupancyTable;
+        this.database = null;
+        this.archive = archive;
+        this.historyRecords = historyRecords;
+    }
+
+    /**
+     * Constructor. Repositories are backed by the tables of an embedded database, which keeps parked vehicles and
+     * occupied lots across restarts.
+     * @param parkingLotConfigurations array of parking lot configurations
+     * @param database embedded database
+     */
+    public ContextConfig(final ParkingLotConfiguration[] parkingLotConfigurations, final ValetDatabase database) {
+        if(database == null) {
+            throw new InvalidParameterException("Database cannot be null");
+        }
         this.configurations = parkingLotConfigurations;
+        this.journal = null;
+        this.occupancyTable = null;
+        this.database = database;
+        this.archive = null;
+        this.historyRecords = 0;
     }
 
     /**
@@ -41,14 +139,30 @@ public class ContextConfig {
      * @return ParkingValetController
      */
     public ParkingValetController parkingValetController() {
-        // data storage
-        final ParkingLotDataStorage parkingLotDataStorage = parkingLotDataStorage(configurations);
-        final ParkedVehicleDataStorage parkedVehicleDataStorage = parkedVehicleDataStorage();
-        final ParkingFeeDataStorage parkingFeeDataStorage = parkingFeeDataStorage(configurations);
         // repository
-        final ParkingLotRepository parkingLotRepository = parkingLotRepository(parkingLotDataStorage);
-        final ParkedVehicleRepository parkedVehicleRepository = parkedVehicleRepository(parkedVehicleDataStorage);
-        final ParkingFeeRepository parkingFeeRepository = parkingFeeRepository(parkingFeeDataStorage);
+        final ParkingLotRepository parkingLotRepository;
+        final ParkedVehicleRepository parkedVehicleRepository;
+        final ParkingFeeRepository parkingFeeRepository;
+        if(database != null) {
+            parkingLotRepository = new JdbcParkingLotRepository(database, numberOfLots(configurations));
+            parkedVehicleRepository = new JdbcParkedVehicleRepository(database, sessionIdGenerator());
+            parkingFeeRepository = new JdbcParkingFeeRepository(database, feePerHours(configurations));
+        } else {
+            // data storage
+            final ParkingLotDataStorage parkingLotDataStorage = parkingLotDataStorage(configurations);
+            final ParkedVehicleHistoryDataStorage parkedVehicleHistoryDataStorage = parkedVehicleHistoryDataStorage();
+            historyDataStorage = parkedVehicleHistoryDataStorage;
+            final ParkedVehicleDataStorage parkedVehicleDataStorage = parkedVehicleDataStorage(
+                    parkedVehicleHistoryDataStorage, sessionIdGenerator());
+            final ParkingFeeDataStorage parkingFeeDataStorage = parkingFeeDataStorage(configurations);
+            if(journal != null) {
+                recoverSessions(journal.getRecoveredSessions(), parkingLotDataStorage,
+                        parkedVehicleHistoryDataStorage, parkedVehicleDataStorage);
+            }
+            parkingLotRepository = parkingLotRepository(parkingLotDataStorage);
+            parkedVehicleRepository = parkedVehicleRepository(parkedVehicleDataStorage);
+            parkingFeeRepository = parkingFeeRepository(parkingFeeDataStorage);
+        }
         // service
         final ParkingValetService parkingValetService = parkingValetService(parkingLotRepository, parkedVehicleRepository);
         final ParkingFeeService parkingFeeService = parkingFeeService(parkingFeeRepository, parkedVehicleRepository);
@@ -56,6 +170,27 @@ public class ContextConfig {
         return new ParkingValetController(parkingValetService, parkingFeeService);
     }
 
+    /**
+     * Move exited parking sessions still kept in memory by the last controller created to the archive.
+     */
+    public void archiveHistory() {
+        if(archive == null) {
+            throw new IllegalStateException("Archive is not supplied");
+        }
+        if(historyDataStorage != null) {
+            historyDataStorage.archiveAll();
+        }
+    }
+
+    /**
+     * Create single writer engine over a new controller. Engine must be closed after use.
+     * @param capacity number of slots in ring buffer, a power of two
+     * @return SingleWriterValetEngine
+     */
+    public SingleWriterValetEngine singleWriterValetEngine(final int capacity) {
+        return new SingleWriterValetEngine(parkingValetController(), capacity);
+    }
+
     /**
      * Create ParkingValetService.
      * @param parkingLotRepository ParkingLotRepository
@@ -111,19 +246,78 @@ public class ContextConfig {
      * @return ParkingLotDataStorage
      */
     private ParkingLotDataStorage parkingLotDataStorage(final ParkingLotConfiguration[] details) {
+        return new ParkingLotDataStorage(numberOfLots(details), occupancyTable);
+    }
+
+    /**
+     * Get number of lots by vehicle type.
+     * @param details configurations of parking lots
+     * @return map of vehicle type to number of lots
+     */
+    private Map<VehicleType, Integer> numberOfLots(final ParkingLotConfiguration[] details) {
         final Map<VehicleType, Integer> map = new HashMap<>();
         for(ParkingLotConfiguration detail : details) {
             map.put(detail.getVehicleType(), detail.getNumberOfLots());
         }
-        return new ParkingLotDataStorage(map);
+        return map;
     }
 
     /**
      * Create ParkedVehicleDataStorage.
+     * @param parkedVehicleHistoryDataStorage ParkedVehicleHistoryDataStorage
+     * @param sessionIdGenerator SessionIdGenerator
      * @return ParkedVehicleDataStorage
      */
-    private ParkedVehicleDataStorage parkedVehicleDataStorage() {
-        return new ParkedVehicleDataStorage();
+    private ParkedVehicleDataStorage parkedVehicleDataStorage(
+            final ParkedVehicleHistoryDataStorage parkedVehicleHistoryDataStorage,
+            final SessionIdGenerator sessionIdGenerator) {
+        return new ParkedVehicleDataStorage(parkedVehicleHistoryDataStorage, sessionIdGenerator, journal,
+                occupancyTable);
+    }
+
+    /**
+     * Create SessionIdGenerator. Ids continue after the last Id in the database, journal or occupancy table.
+     * @return SessionIdGenerator
+     */
+    private SessionIdGenerator sessionIdGenerator() {
+        if(database != null) {
+            return new SequenceSessionIdGenerator(database.getLastId());
+        }
+        if(occupancyTable != null) {
+            return new SequenceSessionIdGenerator(occupancyTable.getLastId());
+        }
+        return new SequenceSessionIdGenerator(journal == null ? 0L : journal.getRecoveredSessions().getLastId());
+    }
+
+    /**
+     * Restore parking sessions recovered from journal, and occupy the lots of vehicles still parked.
+     * @param recoveredSessions RecoveredSessions
+     * @param parkingLotDataStorage ParkingLotDataStorage
+     * @param parkedVehicleHistoryDataStorage ParkedVehicleHistoryDataStorage
+     * @param parkedVehicleDataStorage ParkedVehicleDataStorage
+     */
+    private void recoverSessions(final RecoveredSessions recoveredSessions,
+                                 final ParkingLotDataStorage parkingLotDataStorage,
+                                 final ParkedVehicleHistoryDataStorage parkedVehicleHistoryDataStorage,
+                                 final ParkedVehicleDataStorage parkedVehicleDataStorage) {
+        for(ParkedVehicleEntity exitedVehicle : recoveredSessions.getExitedVehicles()) {
+            parkedVehicleHistoryDataStorage.append(exitedVehicle);
+        }
+        for(ParkedVehicleEntity parkedVehicle : recoveredSessions.getParkedVehicles()) {
+            parkingLotDataStorage.occupyLot(parkedVehicle.getVehicleType(), parkedVehicle.getLotNumber());
+            parkedVehicleDataStorage.restoreParkedVehicle(parkedVehicle);
+        }
+    }
+
+    /**
+     * Create ParkedVehicleHistoryDataStorage.
+     * @return ParkedVehicleHistoryDataStorage
+     */
+    private ParkedVehicleHistoryDataStorage parkedVehicleHistoryDataStorage() {
+        if(archive != null) {
+            return new ParkedVehicleHistoryDataStorage(historyRecords, archive);
+        }
+        return new ParkedVehicleHistoryDataStorage();
     }
 
     /**
@@ -132,10 +326,19 @@ public class ContextConfig {
      * @return ParkingFeeDataStorage
      */
     private ParkingFeeDataStorage parkingFeeDataStorage(final ParkingLotConfiguration[] details) {
+        return new ParkingFeeDataStorage(feePerHours(details));
+    }
+
+    /**
+     * Get parking fee per hour by vehicle type.
+     * @param details configurations of parking lots
+     * @return map of vehicle type to parking fee per hour
+     */
+    private Map<VehicleType, Integer> feePerHours(final ParkingLotConfiguration[] details) {
         final Map<VehicleType, Integer> map = new HashMap<>();
         for(ParkingLotConfiguration detail : details) {
             map.put(detail.getVehicleType(), detail.getFeePerHours());
         }
-        return new ParkingFeeDataStorage(map);
+        return map;
     }
 }
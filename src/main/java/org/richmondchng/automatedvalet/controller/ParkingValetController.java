@@ -1,14 +1,23 @@
 package org.richmondchng.automatedvalet.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
 import org.richmondchng.automatedvalet.dto.response.ParkedDTO;
 import org.richmondchng.automatedvalet.dto.response.ParkingFeeDTO;
+import org.richmondchng.automatedvalet.dto.response.ValetResultDTO;
+import org.richmondchng.automatedvalet.dto.response.ValetResultStatus;
 import org.richmondchng.automatedvalet.model.parking.ParkingDetails;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 import org.richmondchng.automatedvalet.service.ParkingFeeService;
 import org.richmondchng.automatedvalet.service.ParkingValetService;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
+import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Parking valet controller.
@@ -29,6 +38,17 @@ public class ParkingValetController {
      * @return ParkedDTO with parking lot details
      */
     public ParkedDTO enterParking(final VehicleType vehicle, final String vehicleNumber, final LocalDateTime timestamp) {
+        return enterParking(vehicle, vehicleNumber, TimeUtil.toSeconds(timestamp));
+    }
+
+    /**
+     * Vehicle entering parking.
+     * @param vehicle Vehicle Type
+     * @param vehicleNumber vehicle number
+     * @param timestamp time stamp entering parking, in seconds since epoch
+     * @return ParkedDTO with parking lot details
+     */
+    public ParkedDTO enterParking(final VehicleType vehicle, final String vehicleNumber, final long timestamp) {
 
         final ParkingDetails parkingDetails = parkingValetService.parkVehicle(vehicle, vehicleNumber, timestamp);
         if(parkingDetails != null) {
@@ -46,6 +66,16 @@ public class ParkingValetController {
      * @return ParkingFeeDTO with parking fee details.
      */
     public ParkingFeeDTO exitParking(final String vehicleNumber, final LocalDateTime timestamp) {
+        return exitParking(vehicleNumber, TimeUtil.toSeconds(timestamp));
+    }
+
+    /**
+     * Vehicle exiting parking.
+     * @param vehicleNumber vehicle number
+     * @param timestamp time stamp exiting parking, in seconds since epoch
+     * @return ParkingFeeDTO with parking fee details.
+     */
+    public ParkingFeeDTO exitParking(final String vehicleNumber, final long timestamp) {
         // this returns none-null object
         // exception will be thrown if parking details is incorrect
         final ParkingDetails parkingDetails = parkingValetService.removeVehicle(vehicleNumber, timestamp);
@@ -54,4 +84,81 @@ public class ParkingValetController {
         return new ParkingFeeDTO(parkingDetails.getLabel(), parkingFees);
     }
 
+    /**
+     * Vehicles entering parking, in one pass.
+     * @param instructions enter instructions
+     * @return ValetResultDTO of each instruction, in the same order
+     */
+    public List<ValetResultDTO> enterParkingBatch(final List<ValetInstruction> instructions) {
+        if(instructions == null) {
+            throw new InvalidParameterException("Instructions are required");
+        }
+        final List<ValetResultDTO> results = new ArrayList<>(instructions.size());
+        for(ValetInstruction instruction : instructions) {
+            try {
+                checkAction(instruction, ValetAction.ENTER);
+                final ParkingDetails parkingDetails = parkingValetService.parkVehicle(instruction.getVehicleType(),
+                        instruction.getLicensePlate(), instruction.getTimestampSeconds());
+                results.add(parkingDetails != null
+                        ? new ValetResultDTO(ValetResultStatus.ACCEPTED, parkingDetails.getLabel(), 0, null)
+                        : new ValetResultDTO(ValetResultStatus.REJECTED, null, 0, null));
+            } catch(RuntimeException e) {
+                results.add(new ValetResultDTO(ValetResultStatus.ERROR, null, 0, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Vehicles exiting parking, in one pass. Parking fees of all exited vehicles are calculated together. If that
+     * fails, the parking fee of each vehicle is calculated on its own, so only the vehicles that failed are errors.
+     * @param instructions exit instructions
+     * @return ValetResultDTO of each instruction, in the same order
+     */
+    public List<ValetResultDTO> exitParkingBatch(final List<ValetInstruction> instructions) {
+        if(instructions == null) {
+            throw new InvalidParameterException("Instructions are required");
+        }
+        final ValetResultDTO[] results = new ValetResultDTO[instructions.size()];
+        final List<ParkingDetails> exited = new ArrayList<>(instructions.size());
+        final int[] exitedIndexes = new int[instructions.size()];
+        for(int index = 0; index < results.length; index++) {
+            final ValetInstruction instruction = instructions.get(index);
+            try {
+                checkAction(instruction, ValetAction.EXIT);
+                exitedIndexes[exited.size()] = index;
+                exited.add(parkingValetService.removeVehicle(instruction.getLicensePlate(),
+                        instruction.getTimestampSeconds()));
+            } catch(RuntimeException e) {
+                results[index] = new ValetResultDTO(ValetResultStatus.ERROR, null, 0, e);
+            }
+        }
+        List<Long> parkingFees;
+        try {
+            parkingFees = parkingFeeService.calculateParkingFees(exited);
+        } catch(RuntimeException e) {
+            // vehicles have exited, calculate parking fee of each vehicle to find the ones that failed
+            parkingFees = null;
+        }
+        for(int item = 0; item < exited.size(); item++) {
+            final ParkingDetails parkingDetails = exited.get(item);
+            try {
+                final long parkingFee = parkingFees != null ? parkingFees.get(item)
+                        : parkingFeeService.calculateParkingFee(parkingDetails);
+                results[exitedIndexes[item]] = new ValetResultDTO(ValetResultStatus.ACCEPTED,
+                        parkingDetails.getLabel(), parkingFee, null);
+            } catch(RuntimeException e) {
+                results[exitedIndexes[item]] = new ValetResultDTO(ValetResultStatus.ERROR,
+                        parkingDetails.getLabel(), 0, e);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private static void checkAction(final ValetInstruction instruction, final ValetAction action) {
+        if(instruction == null || instruction.getAction() != action) {
+            throw new InvalidParameterException("Not a valid action: " + (instruction == null ? null
+                    : instruction.getAction()));
+        }
+    }
 }
@@ -0,0 +1,148 @@
+package org.richmondchng.automatedvalet.data.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout of the archive of exited parking sessions.
+ *
+ * The archive is a sequence of blocks. A block header holds the number of sessions, the lowest and highest time out
+ * in seconds since epoch, the body length and a CRC32 checksum of the body. The body holds one column after another,
+ * each prefixed by its length so that a reader can skip columns it does not need:
+ * <ol>
+ *     <li>Id, as the difference from the previous Id</li>
+ *     <li>vehicle type, one byte per session</li>
+ *     <li>lot number</li>
+ *     <li>time in, as the difference in seconds from the previous time in</li>
+ *     <li>time out, the same as time in</li>
+ *     <li>parking fee</li>
+ *     <li>vehicle number, as an index into a dictionary of the distinct vehicle numbers of the block</li>
+ * </ol>
+ * Numbers are written as variable length integers, 7 bits per byte, and differences are zigzag encoded first so that
+ * small negative differences stay short.
+ *
+ * @author richmondchng
+ */
+final class ArchiveFormat {
+
+    // "VSAR"
+    static final int MAGIC = 0x56534152;
+    // magic, number of sessions, lowest and highest time out, body length, checksum
+    static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES
+            + Integer.BYTES;
+
+    static final int COLUMN_ID = 0;
+    static final int COLUMN_VEHICLE_TYPE = 1;
+    static final int COLUMN_LOT_NUMBER = 2;
+    static final int COLUMN_TIME_IN = 3;
+    static final int COLUMN_TIME_OUT = 4;
+    static final int COLUMN_PARKING_FEE = 5;
+    static final int COLUMN_VEHICLE_NUMBER = 6;
+    static final int NUMBER_OF_COLUMNS = 7;
+
+    private ArchiveFormat() {
+        // constants and helpers only
+    }
+
+    /**
+     * Position and header of a block.
+     */
+    static final class Block {
+        final long position;
+        final int numberOfSessions;
+        final long minTimeOut;
+        final long maxTimeOut;
+        final int bodyLength;
+        final int checksum;
+
+        private Block(final long position, final ByteBuffer header) {
+            this.position = position;
+            this.numberOfSessions = header.getInt();
+            this.minTimeOut = header.getLong();
+            this.maxTimeOut = header.getLong();
+            this.bodyLength = header.getInt();
+            this.checksum = header.getInt();
+        }
+    }
+
+    /**
+     * Read headers of every complete block. Reading stops at a block that is cut short, which is what a crash in the
+     * middle of a write leaves behind.
+     * @param channel archive file
+     * @return blocks in file order
+     * @throws IOException if file cannot be read
+     */
+    static List<Block> readBlocks(final FileChannel channel) throws IOException {
+        final List<Block> blocks = new ArrayList<>();
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        final long size = channel.size();
+        long position = 0L;
+        while(position + HEADER_BYTES <= size) {
+            header.clear();
+            while(header.hasRemaining() && channel.read(header, position + header.position()) >= 0) {
+                // read whole header
+            }
+            header.flip();
+            if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                break;
+            }
+            final Block block = new Block(position, header);
+            if(block.numberOfSessions < 1 || block.bodyLength < 0
+                    || position + HEADER_BYTES + block.bodyLength > size) {
+                break;
+            }
+            blocks.add(block);
+            position += HEADER_BYTES + block.bodyLength;
+        }
+        return blocks;
+    }
+
+    /**
+     * Get end of the last complete block.
+     * @param blocks blocks in file order
+     * @return length of the archive up to the last complete block
+     */
+    static long validLength(final List<Block> blocks) {
+        if(blocks.isEmpty()) {
+            return 0L;
+        }
+        final Block last = blocks.get(blocks.size() - 1);
+        return last.position + HEADER_BYTES + last.bodyLength;
+    }
+
+    static void putVarLong(final ByteArrayOutputStream out, final long value) {
+        long remaining = value;
+        while((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    static long getVarLong(final ByteBuffer buffer) {
+        long value = 0L;
+        int shift = 0;
+        byte b;
+        do {
+            if(shift > 63) {
+                throw new IllegalStateException("Variable length integer is too long");
+            }
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+
+    static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
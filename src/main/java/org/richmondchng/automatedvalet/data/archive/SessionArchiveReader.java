@@ -0,0 +1,261 @@
+package org.richmondchng.automatedvalet.data.archive;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.text.MessageFormat;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads exited parking sessions from a columnar archive file written by SessionArchiveWriter.
+ *
+ * Block headers are read on open. A scan skips every block whose time out range is outside of the requested range
+ * without reading it, and fee totals decode only the time out and parking fee columns.
+ *
+ * Not safe to use from multiple threads.
+ *
+ * @author richmondchng
+ */
+public class SessionArchiveReader implements Closeable {
+
+    private static final VehicleType[] VEHICLE_TYPES = VehicleType.values();
+
+    private final FileChannel channel;
+    private final List<ArchiveFormat.Block> blocks;
+    private final CRC32 checksum = new CRC32();
+
+    /**
+     * Constructor. Open archive file to read.
+     * @param path archive file
+     * @throws IOException if archive cannot be opened
+     */
+    public SessionArchiveReader(final Path path) throws IOException {
+        if(path == null) {
+            throw new InvalidParameterException("Path cannot be null");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.blocks = ArchiveFormat.readBlocks(channel);
+        } catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get number of sessions in the archive.
+     * @return number of sessions
+     */
+    public long getNumberOfSessions() {
+        long numberOfSessions = 0L;
+        for(ArchiveFormat.Block block : blocks) {
+            numberOfSessions += block.numberOfSessions;
+        }
+        return numberOfSessions;
+    }
+
+    /**
+     * Read sessions that exited in the range, in archive order.
+     * @param from time out from, inclusive
+     * @param to time out to, exclusive
+     * @param consumer receives each ParkedVehicleEntity
+     * @throws IllegalStateException if a block is corrupted
+     */
+    public void scan(final LocalDateTime from, final LocalDateTime to, final Consumer<ParkedVehicleEntity> consumer) {
+        validateRange(from, to);
+        scan(toSecondsRoundedUp(from), toSecondsRoundedUp(to), consumer);
+    }
+
+    /**
+     * Read sessions that exited in the range, in archive order.
+     * @param fromSeconds time out from, in seconds since epoch, inclusive
+     * @param toSeconds time out to, in seconds since epoch, exclusive
+     * @param consumer receives each ParkedVehicleEntity
+     * @throws IllegalStateException if a block is corrupted
+     */
+    public void scan(final long fromSeconds, final long toSeconds, final Consumer<ParkedVehicleEntity> consumer) {
+        validateRange(fromSeconds, toSeconds);
+        if(consumer == null) {
+            throw new InvalidParameterException("Consumer cannot be null");
+        }
+        for(ArchiveFormat.Block block : blocks) {
+            if(!overlaps(block, fromSeconds, toSeconds)) {
+                continue;
+            }
+            final int numberOfSessions = block.numberOfSessions;
+            final ByteBuffer[] columns = columns(readBody(block));
+
+            final long[] ids = getDeltaColumn(columns[ArchiveFormat.COLUMN_ID], numberOfSessions);
+            final ByteBuffer vehicleTypes = columns[ArchiveFormat.COLUMN_VEHICLE_TYPE];
+            final ByteBuffer lotNumbers = columns[ArchiveFormat.COLUMN_LOT_NUMBER];
+            final long[] timeIns = getDeltaColumn(columns[ArchiveFormat.COLUMN_TIME_IN], numberOfSessions);
+            final long[] timeOuts = getDeltaColumn(columns[ArchiveFormat.COLUMN_TIME_OUT], numberOfSessions);
+            final ByteBuffer parkingFees = columns[ArchiveFormat.COLUMN_PARKING_FEE];
+            final ByteBuffer vehicleNumbers = columns[ArchiveFormat.COLUMN_VEHICLE_NUMBER];
+            final String[] dictionary = new String[(int) ArchiveFormat.getVarLong(vehicleNumbers)];
+            for(int entry = 0; entry < dictionary.length; entry++) {
+                final byte[] bytes = new byte[(int) ArchiveFormat.getVarLong(vehicleNumbers)];
+                vehicleNumbers.get(bytes);
+                dictionary[entry] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            for(int index = 0; index < numberOfSessions; index++) {
+                final VehicleType vehicleType = VEHICLE_TYPES[vehicleTypes.get()];
+                final int lotNumber = (int) ArchiveFormat.getVarLong(lotNumbers);
+                final long parkingFee = ArchiveFormat.unzigzag(ArchiveFormat.getVarLong(parkingFees));
+                final String vehicleNumber = dictionary[(int) ArchiveFormat.getVarLong(vehicleNumbers)];
+                if(timeOuts[index] < fromSeconds || timeOuts[index] >= toSeconds) {
+                    continue;
+                }
+                consumer.accept(ParkedVehicleEntity.builder()
+                        .id(ids[index])
+                        .vehicleType(vehicleType)
+                        .vehicleNumber(vehicleNumber)
+                        .lotNumber(lotNumber)
+                        .timeInSeconds(timeIns[index])
+                        .timeOutSeconds(timeOuts[index])
+                        .parkingFee(parkingFee)
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * Sum parking fees of sessions that exited in the range.
+     * @param from time out from, inclusive
+     * @param to time out to, exclusive
+     * @return total parking fee
+     * @throws IllegalStateException if a block is corrupted
+     */
+    public long sumParkingFees(final LocalDateTime from, final LocalDateTime to) {
+        validateRange(from, to);
+        return sumParkingFees(toSecondsRoundedUp(from), toSecondsRoundedUp(to));
+    }
+
+    /**
+     * Sum parking fees of sessions that exited in the range.
+     * @param fromSeconds time out from, in seconds since epoch, inclusive
+     * @param toSeconds time out to, in seconds since epoch, exclusive
+     * @return total parking fee
+     * @throws IllegalStateException if a block is corrupted
+     */
+    public long sumParkingFees(final long fromSeconds, final long toSeconds) {
+        validateRange(fromSeconds, toSeconds);
+        long total = 0L;
+        for(ArchiveFormat.Block block : blocks) {
+            if(!overlaps(block, fromSeconds, toSeconds)) {
+                continue;
+            }
+            final ByteBuffer[] columns = columns(readBody(block));
+            final ByteBuffer parkingFees = columns[ArchiveFormat.COLUMN_PARKING_FEE];
+            if(block.minTimeOut >= fromSeconds && block.maxTimeOut < toSeconds) {
+                // whole block is in range, time out column is not needed
+                for(int index = 0; index < block.numberOfSessions; index++) {
+                    total += ArchiveFormat.unzigzag(ArchiveFormat.getVarLong(parkingFees));
+                }
+                continue;
+            }
+            final long[] timeOuts = getDeltaColumn(columns[ArchiveFormat.COLUMN_TIME_OUT], block.numberOfSessions);
+            for(int index = 0; index < block.numberOfSessions; index++) {
+                final long parkingFee = ArchiveFormat.unzigzag(ArchiveFormat.getVarLong(parkingFees));
+                if(timeOuts[index] >= fromSeconds && timeOuts[index] < toSeconds) {
+                    total += parkingFee;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Close the archive.
+     * @throws IOException if archive cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void validateRange(final LocalDateTime from, final LocalDateTime to) {
+        if(from == null || to == null) {
+            throw new InvalidParameterException("Time range cannot be null");
+        }
+    }
+
+    private static void validateRange(final long fromSeconds, final long toSeconds) {
+        if(toSeconds < fromSeconds) {
+            throw new InvalidParameterException("Time range is invalid");
+        }
+    }
+
+    /**
+     * Archive keeps whole seconds, a session is at or after a time with nanoseconds only from the next second.
+     */
+    private static long toSecondsRoundedUp(final LocalDateTime time) {
+        return TimeUtil.convertLocalDateTimeToSeconds(time) + (time.getNano() == 0 ? 0 : 1);
+    }
+
+    private static boolean overlaps(final ArchiveFormat.Block block, final long fromSeconds, final long toSeconds) {
+        return block.maxTimeOut >= fromSeconds && block.minTimeOut < toSeconds;
+    }
+
+    private ByteBuffer readBody(final ArchiveFormat.Block block) {
+        final ByteBuffer body = ByteBuffer.allocate(block.bodyLength);
+        try {
+            final long position = block.position + ArchiveFormat.HEADER_BYTES;
+            while(body.hasRemaining()) {
+                if(channel.read(body, position + body.position()) < 0) {
+                    throw new IllegalStateException(MessageFormat.format("Archive block at {0} is corrupted",
+                            String.valueOf(block.position)));
+                }
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checksum.reset();
+        checksum.update(body.array(), 0, block.bodyLength);
+        if((int) checksum.getValue() != block.checksum) {
+            throw new IllegalStateException(MessageFormat.format("Archive block at {0} is corrupted",
+                    String.valueOf(block.position)));
+        }
+        body.flip();
+        return body;
+    }
+
+    /**
+     * Split block body into columns, each column is a view of the body without copying.
+     */
+    private static ByteBuffer[] columns(final ByteBuffer body) {
+        final ByteBuffer[] columns = new ByteBuffer[ArchiveFormat.NUMBER_OF_COLUMNS];
+        for(int column = 0; column < ArchiveFormat.NUMBER_OF_COLUMNS; column++) {
+            final int length = (int) ArchiveFormat.getVarLong(body);
+            final ByteBuffer view = body.slice();
+            view.limit(length);
+            columns[column] = view;
+            body.position(body.position() + length);
+        }
+        return columns;
+    }
+
+    private static long[] getDeltaColumn(final ByteBuffer column, final int numberOfSessions) {
+        final long[] values = new long[numberOfSessions];
+        long previous = 0L;
+        for(int index = 0; index < numberOfSessions; index++) {
+            previous += ArchiveFormat.unzigzag(ArchiveFormat.getVarLong(column));
+            values[index] = previous;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,290 @@
+package org.richmondchng.automatedvalet.data.archive;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Appends exited parking sessions to a columnar archive file.
+ *
+ * Sessions are collected column by column, and written as one block once the block is full, and on close. Each block
+ * is encoded on its own, see ArchiveFormat, so an archive can be appended to after a restart. A block cut short by a
+ * crash is dropped when the archive is opened again. Once a block cannot be written, the sessions of that block are
+ * dropped and no session is accepted after it, so the archive never has a gap before later blocks.
+ *
+ * Safe to use from multiple threads.
+ *
+ * @author richmondchng
+ */
+public class SessionArchiveWriter implements Closeable {
+
+    public static final int DEFAULT_BLOCK_SESSIONS = 4096;
+
+    private final FileChannel channel;
+    private final int blockSessions;
+    private final CRC32 checksum = new CRC32();
+
+    // columns of the current block
+    private final long[] ids;
+    private final byte[] vehicleTypes;
+    private final int[] lotNumbers;
+    private final long[] timeIns;
+    private final long[] timeOuts;
+    private final long[] parkingFees;
+    private final String[] vehicleNumbers;
+    private int numberOfSessions;
+    private boolean closed;
+    // write or force that failed, no session is accepted after it
+    private IOException failure;
+
+    /**
+     * Constructor. Open archive file to append to, or create it if it does not exist.
+     * @param path archive file
+     * @param blockSessions number of sessions in a block
+     * @throws IOException if archive cannot be opened
+     */
+    public SessionArchiveWriter(final Path path, final int blockSessions) throws IOException {
+        if(path == null) {
+            throw new InvalidParameterException("Path cannot be null");
+        }
+        if(blockSessions < 1) {
+            throw new InvalidParameterException("Block sessions must be positive");
+        }
+        this.blockSessions = blockSessions;
+        this.ids = new long[blockSessions];
+        this.vehicleTypes = new byte[blockSessions];
+        this.lotNumbers = new int[blockSessions];
+        this.timeIns = new long[blockSessions];
+        this.timeOuts = new long[blockSessions];
+        this.parkingFees = new long[blockSessions];
+        this.vehicleNumbers = new String[blockSessions];
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            // drop a block cut short by a crash, new blocks follow the last complete one
+            final long validLength = ArchiveFormat.validLength(ArchiveFormat.readBlocks(channel));
+            channel.truncate(validLength);
+            channel.position(validLength);
+        } catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open archive file.
+     * @param filePath archive file path
+     * @return SessionArchiveWriter
+     * @throws IOException if archive cannot be opened
+     */
+    public static SessionArchiveWriter open(final String filePath) throws IOException {
+        return new SessionArchiveWriter(Path.of(filePath), DEFAULT_BLOCK_SESSIONS);
+    }
+
+    /**
+     * Append exited parking session.
+     * @param parkedVehicleEntity ParkedVehicleEntity with time in and time out
+     * @throws UncheckedIOException if archive cannot be written
+     * @throws IllegalStateException if archive is closed, or an earlier write failed
+     */
+    public synchronized void append(final ParkedVehicleEntity parkedVehicleEntity) {
+        if(parkedVehicleEntity == null || parkedVehicleEntity.getId() == null) {
+            throw new InvalidParameterException("ParkedVehicleEntity with Id is required");
+        }
+        if(parkedVehicleEntity.getTimeInSeconds() == TimeUtil.NO_TIME || !parkedVehicleEntity.hasExited()) {
+            throw new InvalidParameterException("Exited session requires time in and time out");
+        }
+        ensureOpen();
+        ids[numberOfSessions] = parkedVehicleEntity.getId();
+        vehicleTypes[numberOfSessions] = (byte) parkedVehicleEntity.getVehicleType().ordinal();
+        lotNumbers[numberOfSessions] = parkedVehicleEntity.getLotNumber();
+        timeIns[numberOfSessions] = parkedVehicleEntity.getTimeInSeconds();
+        timeOuts[numberOfSessions] = parkedVehicleEntity.getTimeOutSeconds();
+        parkingFees[numberOfSessions] = parkedVehicleEntity.getParkingFee();
+        vehicleNumbers[numberOfSessions] = parkedVehicleEntity.getVehicleNumber();
+        numberOfSessions++;
+        if(numberOfSessions == blockSessions) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Write the current block, even if it is not full, and force the archive to disk.
+     * @throws UncheckedIOException if archive cannot be written
+     * @throws IllegalStateException if archive is closed, or an earlier write failed
+     */
+    public synchronized void flush() {
+        ensureOpen();
+        writeBlock();
+        try {
+            channel.force(false);
+        } catch(IOException e) {
+            fail(e, -1L);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the current block, and close the archive. Nothing is written if an earlier write failed.
+     * @throws IOException if archive cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        try {
+            if(failure == null) {
+                flush();
+            }
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private void writeBlock() {
+        if(numberOfSessions == 0) {
+            return;
+        }
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(numberOfSessions * 16);
+        final ByteArrayOutputStream column = new ByteArrayOutputStream(numberOfSessions * 4);
+        long previous = 0L;
+        for(int index = 0; index < numberOfSessions; index++) {
+            ArchiveFormat.putVarLong(column, ArchiveFormat.zigzag(ids[index] - previous));
+            previous = ids[index];
+        }
+        putColumn(body, column);
+        column.write(vehicleTypes, 0, numberOfSessions);
+        putColumn(body, column);
+        for(int index = 0; index < numberOfSessions; index++) {
+            ArchiveFormat.putVarLong(column, lotNumbers[index]);
+        }
+        putColumn(body, column);
+        putTimeColumn(body, column, timeIns);
+        putTimeColumn(body, column, timeOuts);
+        for(int index = 0; index < numberOfSessions; index++) {
+            ArchiveFormat.putVarLong(column, ArchiveFormat.zigzag(parkingFees[index]));
+        }
+        putColumn(body, column);
+        putVehicleNumberColumn(body, column);
+
+        long minTimeOut = Long.MAX_VALUE;
+        long maxTimeOut = Long.MIN_VALUE;
+        for(int index = 0; index < numberOfSessions; index++) {
+            minTimeOut = Math.min(minTimeOut, timeOuts[index]);
+            maxTimeOut = Math.max(maxTimeOut, timeOuts[index]);
+        }
+        final byte[] bodyBytes = body.toByteArray();
+        checksum.reset();
+        checksum.update(bodyBytes);
+        final ByteBuffer block = ByteBuffer.allocate(ArchiveFormat.HEADER_BYTES + bodyBytes.length);
+        block.putInt(ArchiveFormat.MAGIC);
+        block.putInt(numberOfSessions);
+        block.putLong(minTimeOut);
+        block.putLong(maxTimeOut);
+        block.putInt(bodyBytes.length);
+        block.putInt((int) checksum.getValue());
+        block.put(bodyBytes);
+        block.flip();
+        long start = -1L;
+        try {
+            start = channel.position();
+            while(block.hasRemaining()) {
+                channel.write(block);
+            }
+        } catch(IOException e) {
+            fail(e, start);
+            throw new UncheckedIOException(e);
+        }
+        clearBlock();
+    }
+
+    private void clearBlock() {
+        for(int index = 0; index < numberOfSessions; index++) {
+            vehicleNumbers[index] = null;
+        }
+        numberOfSessions = 0;
+    }
+
+    /**
+     * Record the first failure, drop the current block, and drop a block that was not completely written.
+     * @param e failure
+     * @param length archive length before the block, or -1 if nothing was written
+     */
+    private void fail(final IOException e, final long length) {
+        if(failure == null) {
+            failure = e;
+        }
+        clearBlock();
+        if(length < 0) {
+            return;
+        }
+        try {
+            channel.truncate(length);
+            channel.position(length);
+        } catch(IOException | RuntimeException suppressed) {
+            // channel may be closed by the failure, block is dropped when the archive is opened again
+            e.addSuppressed(suppressed);
+        }
+    }
+
+    private void ensureOpen() {
+        if(closed) {
+            throw new IllegalStateException("Archive is closed");
+        }
+        if(failure != null) {
+            throw new IllegalStateException("Archive has failed", failure);
+        }
+    }
+
+    private void putTimeColumn(final ByteArrayOutputStream body, final ByteArrayOutputStream column,
+                               final long[] times) {
+        long previous = 0L;
+        for(int index = 0; index < numberOfSessions; index++) {
+            ArchiveFormat.putVarLong(column, ArchiveFormat.zigzag(times[index] - previous));
+            previous = times[index];
+        }
+        putColumn(body, column);
+    }
+
+    private void putVehicleNumberColumn(final ByteArrayOutputStream body, final ByteArrayOutputStream column) {
+        final Map<String, Integer> dictionary = new HashMap<>();
+        final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        final ByteArrayOutputStream indexes = new ByteArrayOutputStream(numberOfSessions);
+        for(int index = 0; index < numberOfSessions; index++) {
+            Integer entry = dictionary.get(vehicleNumbers[index]);
+            if(entry == null) {
+                entry = dictionary.size();
+                dictionary.put(vehicleNumbers[index], entry);
+                final byte[] bytes = vehicleNumbers[index].getBytes(StandardCharsets.UTF_8);
+                ArchiveFormat.putVarLong(entries, bytes.length);
+                entries.write(bytes, 0, bytes.length);
+            }
+            ArchiveFormat.putVarLong(indexes, entry);
+        }
+        ArchiveFormat.putVarLong(column, dictionary.size());
+        column.writeBytes(entries.toByteArray());
+        column.writeBytes(indexes.toByteArray());
+        putColumn(body, column);
+    }
+
+    private static void putColumn(final ByteArrayOutputStream body, final ByteArrayOutputStream column) {
+        ArchiveFormat.putVarLong(body, column.size());
+        body.writeBytes(column.toByteArray());
+        column.reset();
+    }
+}
@@ -5,12 +5,15 @@ import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * Entity representing a parked vehicle.
+ *
+ * Time in and time out are kept as seconds since epoch, TimeUtil.NO_TIME when not recorded.
+ *
  * @author richmondchng
  */
 @Data
@@ -18,11 +21,77 @@ import java.util.UUID;
 @Setter
 @Builder
 public class ParkedVehicleEntity {
-    private UUID id;
+    private Long id;
     private VehicleType vehicleType;
     private String vehicleNumber;
     private int lotNumber;
-    private LocalDateTime timeIn;
-    private LocalDateTime timeOut;
+    @Builder.Default
+    private long timeInSeconds = TimeUtil.NO_TIME;
+    @Builder.Default
+    private long timeOutSeconds = TimeUtil.NO_TIME;
     private long parkingFee;
+
+    /**
+     * Get time in.
+     * @return LocalDateTime, or null if not recorded
+     */
+    public LocalDateTime getTimeIn() {
+        return TimeUtil.toLocalDateTime(timeInSeconds);
+    }
+
+    /**
+     * Set time in.
+     * @param timeIn LocalDateTime, or null
+     */
+    public void setTimeIn(final LocalDateTime timeIn) {
+        this.timeInSeconds = TimeUtil.toSeconds(timeIn);
+    }
+
+    /**
+     * Get time out.
+     * @return LocalDateTime, or null if not recorded
+     */
+    public LocalDateTime getTimeOut() {
+        return TimeUtil.toLocalDateTime(timeOutSeconds);
+    }
+
+    /**
+     * Set time out.
+     * @param timeOut LocalDateTime, or null
+     */
+    public void setTimeOut(final LocalDateTime timeOut) {
+        this.timeOutSeconds = TimeUtil.toSeconds(timeOut);
+    }
+
+    /**
+     * Check if time out is recorded.
+     * @return true if vehicle has exited
+     */
+    public boolean hasExited() {
+        return timeOutSeconds != TimeUtil.NO_TIME;
+    }
+
+    /**
+     * Builder, also accepts LocalDateTime time in and time out.
+     */
+    public static class ParkedVehicleEntityBuilder {
+
+        /**
+         * Set time in.
+         * @param timeIn LocalDateTime, or null
+         * @return builder
+         */
+        public ParkedVehicleEntityBuilder timeIn(final LocalDateTime timeIn) {
+            return timeInSeconds(TimeUtil.toSeconds(timeIn));
+        }
+
+        /**
+         * Set time out.
+         * @param timeOut LocalDateTime, or null
+         * @return builder
+         */
+        public ParkedVehicleEntityBuilder timeOut(final LocalDateTime timeOut) {
+            return timeOutSeconds(TimeUtil.toSeconds(timeOut));
+        }
+    }
 }
@@ -18,4 +18,6 @@ import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 public class ParkingLotEntity {
     private VehicleType vehicleType;
     private int lotNumber;
+    // display label e.g. CarLot1, shared by all copies
+    private String label;
 }
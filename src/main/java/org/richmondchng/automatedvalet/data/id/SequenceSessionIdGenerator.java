@@ -0,0 +1,37 @@
+package org.richmondchng.automatedvalet.data.id;
+
+import java.security.InvalidParameterException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session Id generator using a running sequence number, starting from 1.
+ *
+ * @author richmondchng
+ */
+public class SequenceSessionIdGenerator implements SessionIdGenerator {
+
+    private final AtomicLong sequence;
+
+    /**
+     * Constructor. First Id is 1.
+     */
+    public SequenceSessionIdGenerator() {
+        this(0L);
+    }
+
+    /**
+     * Constructor.
+     * @param lastId last Id issued, next Id is lastId + 1
+     */
+    public SequenceSessionIdGenerator(final long lastId) {
+        if(lastId < 0) {
+            throw new InvalidParameterException("Last Id cannot be negative");
+        }
+        this.sequence = new AtomicLong(lastId);
+    }
+
+    @Override
+    public long nextId() {
+        return sequence.incrementAndGet();
+    }
+}
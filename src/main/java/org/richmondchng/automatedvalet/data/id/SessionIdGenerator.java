@@ -0,0 +1,17 @@
+package org.richmondchng.automatedvalet.data.id;
+
+/**
+ * Generator of parking session Ids.
+ *
+ * Ids are positive and increase with every call, so records can be sorted by Id in the order they were created.
+ *
+ * @author richmondchng
+ */
+public interface SessionIdGenerator {
+
+    /**
+     * Get the next session Id.
+     * @return session Id
+     */
+    long nextId();
+}
@@ -0,0 +1,50 @@
+package org.richmondchng.automatedvalet.data.id;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session Id generator where Ids are ordered by creation time.
+ *
+ * The high bits hold milliseconds since 2021-01-01T00:00:00Z, the lowest 16 bits hold a sequence within the same
+ * millisecond. If the clock does not move forward, the previous Id is incremented instead, so Ids never go backwards.
+ *
+ * @author richmondchng
+ */
+public class TimeOrderedSessionIdGenerator implements SessionIdGenerator {
+
+    // 2021-01-01T00:00:00Z
+    private static final long CUSTOM_EPOCH_MILLIS = 1609459200000L;
+    private static final int SEQUENCE_BITS = 16;
+
+    private final Clock clock;
+    private final AtomicLong lastId;
+
+    /**
+     * Constructor. Use system UTC clock.
+     */
+    public TimeOrderedSessionIdGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Constructor.
+     * @param clock clock
+     */
+    public TimeOrderedSessionIdGenerator(final Clock clock) {
+        this.clock = clock;
+        this.lastId = new AtomicLong(0L);
+    }
+
+    @Override
+    public long nextId() {
+        final long timeBasedId = (clock.millis() - CUSTOM_EPOCH_MILLIS) << SEQUENCE_BITS;
+        while(true) {
+            final long last = lastId.get();
+            final long next = Math.max(last + 1, timeBasedId);
+            if(lastId.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.richmondchng.automatedvalet.data.journal;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Clock;
+
+/**
+ * Configuration of a parked vehicle journal.
+ *
+ * @author richmondchng
+ */
+@Getter
+@Builder
+public class JournalConfiguration {
+    // number of records appended before the journal is forced to disk, 1 to force every record
+    @Builder.Default
+    private int syncRecords = 256;
+    // maximum milliseconds a record is kept before the journal is forced, 0 to force by records only
+    @Builder.Default
+    private long syncMillis = 0L;
+    // size of a segment file before records go to the next segment
+    @Builder.Default
+    private long segmentBytes = 64L * 1024 * 1024;
+    // number of records appended before the next snapshot, 0 to snapshot only when asked and on close
+    @Builder.Default
+    private long snapshotRecords = 1000000L;
+    // clock for sync interval
+    @Builder.Default
+    private Clock clock = Clock.systemUTC();
+}
@@ -0,0 +1,161 @@
+package org.richmondchng.automatedvalet.data.journal;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+
+/**
+ * Layout of journal segments and snapshots.
+ *
+ * A segment is a sequence of records, each written as its length, a CRC32 checksum and the record bytes. A record
+ * starts with its type and session Id. Park records and snapshot entries hold the same vehicle fields. Time is written
+ * as the epoch seconds kept by the parking session, without converting it.
+ *
+ * @author richmondchng
+ */
+final class JournalFormat {
+
+    static final byte RECORD_PARK = 1;
+    static final byte RECORD_EXIT = 2;
+    static final byte RECORD_FEE = 3;
+    // record length and checksum
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    static final int MAX_VEHICLE_NUMBER_BYTES = 256;
+    // park record is the longest: type, Id, vehicle type, lot number, time in, vehicle number
+    static final int MAX_RECORD_BYTES = 1 + Long.BYTES + 1 + Integer.BYTES + Long.BYTES + Short.BYTES
+            + MAX_VEHICLE_NUMBER_BYTES;
+    static final int BUFFER_BYTES = 64 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+    private static final String FILE_NUMBER_FORMAT = "%020d";
+
+    private JournalFormat() {
+        // constants and helpers only
+    }
+
+    /**
+     * Get segment file.
+     * @param directory journal directory
+     * @param segmentNumber segment number
+     * @return segment path
+     */
+    static Path segmentPath(final Path directory, final long segmentNumber) {
+        return directory.resolve(SEGMENT_PREFIX + String.format(FILE_NUMBER_FORMAT, segmentNumber) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Get snapshot file. A snapshot is followed by the segment with the same number.
+     * @param directory journal directory
+     * @param segmentNumber number of the first segment after the snapshot
+     * @return snapshot path
+     */
+    static Path snapshotPath(final Path directory, final long segmentNumber) {
+        return directory.resolve(SNAPSHOT_PREFIX + String.format(FILE_NUMBER_FORMAT, segmentNumber)
+                + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Get segment number from segment file name.
+     * @param path file
+     * @return segment number, or -1 if not a segment
+     */
+    static long segmentNumber(final Path path) {
+        return fileNumber(path, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Get segment number from snapshot file name.
+     * @param path file
+     * @return number of the first segment after the snapshot, or -1 if not a snapshot
+     */
+    static long snapshotNumber(final Path path) {
+        return fileNumber(path, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    }
+
+    private static long fileNumber(final Path path, final String prefix, final String suffix) {
+        final String fileName = path.getFileName().toString();
+        if(!fileName.startsWith(prefix) || !fileName.endsWith(suffix)
+                || fileName.length() != prefix.length() + 20 + suffix.length()) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - suffix.length()));
+        } catch(NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Encode vehicle number.
+     * @param vehicleNumber vehicle number
+     * @return UTF-8 bytes
+     */
+    static byte[] encodeVehicleNumber(final String vehicleNumber) {
+        final byte[] bytes = vehicleNumber.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > MAX_VEHICLE_NUMBER_BYTES) {
+            throw new InvalidParameterException("Vehicle number is too long");
+        }
+        return bytes;
+    }
+
+    /**
+     * Put vehicle fields of a parking session: vehicle type, lot number, time in and vehicle number.
+     * @param buffer buffer
+     * @param parkedVehicleEntity parking session
+     * @param vehicleNumber encoded vehicle number
+     */
+    static void putVehicle(final ByteBuffer buffer, final ParkedVehicleEntity parkedVehicleEntity,
+                           final byte[] vehicleNumber) {
+        buffer.put((byte) parkedVehicleEntity.getVehicleType().ordinal());
+        buffer.putInt(parkedVehicleEntity.getLotNumber());
+        buffer.putLong(parkedVehicleEntity.getTimeInSeconds());
+        buffer.putShort((short) vehicleNumber.length);
+        buffer.put(vehicleNumber);
+    }
+
+    /**
+     * Get vehicle fields of a parking session.
+     * @param buffer buffer
+     * @param parkedVehicleEntity parking session to set fields of
+     */
+    static void getVehicle(final ByteBuffer buffer, final ParkedVehicleEntity parkedVehicleEntity) {
+        parkedVehicleEntity.setVehicleType(VehicleType.values()[buffer.get()]);
+        parkedVehicleEntity.setLotNumber(buffer.getInt());
+        parkedVehicleEntity.setTimeInSeconds(buffer.getLong());
+        final byte[] vehicleNumber = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(vehicleNumber);
+        parkedVehicleEntity.setVehicleNumber(new String(vehicleNumber, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Make sure a number of bytes can be read from a buffer in read mode, reading more from the channel if needed.
+     * @param channel channel
+     * @param buffer buffer
+     * @param bytes number of bytes, not more than the buffer capacity
+     * @return false if the channel ends first
+     * @throws IOException if channel cannot be read
+     */
+    static boolean fill(final FileChannel channel, final ByteBuffer buffer, final int bytes) throws IOException {
+        if(buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while(buffer.position() < bytes) {
+            if(channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
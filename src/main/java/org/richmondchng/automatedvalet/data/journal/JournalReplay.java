@@ -0,0 +1,152 @@
+package org.richmondchng.automatedvalet.data.journal;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Parking sessions rebuilt from a snapshot and the journal segments after it.
+ *
+ * Each record only sets its own fields, so a record may come before the park record of the same session when two gates
+ * append at the same time.
+ *
+ * @author richmondchng
+ */
+final class JournalReplay {
+
+    private final Map<Long, ParkedVehicleEntity> sessions = new LinkedHashMap<>();
+    private final Set<Long> exitedIds = new LinkedHashSet<>();
+    // sessions that exited before the snapshot, with park record after it
+    private final Set<Long> exitedBeforePark = new HashSet<>();
+    private long lastId;
+
+    /**
+     * Add vehicle still parked at the snapshot.
+     * @param parkedVehicle ParkedVehicleEntity
+     */
+    void addParkedVehicle(final ParkedVehicleEntity parkedVehicle) {
+        sessions.put(parkedVehicle.getId(), parkedVehicle);
+        updateLastId(parkedVehicle.getId());
+    }
+
+    /**
+     * Add session that exited before the snapshot, without park record yet.
+     * @param id session Id
+     */
+    void addExitedBeforePark(final long id) {
+        exitedBeforePark.add(id);
+    }
+
+    void updateLastId(final long id) {
+        lastId = Math.max(lastId, id);
+    }
+
+    /**
+     * Apply records of a segment from the start.
+     * @param channel segment file
+     * @return length of the segment up to the last complete record
+     * @throws IOException if segment cannot be read
+     */
+    long readSegment(final FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(JournalFormat.BUFFER_BYTES);
+        final CRC32 checksum = new CRC32();
+        // empty, ready to read from
+        buffer.flip();
+        channel.position(0L);
+        long validLength = 0L;
+        while(JournalFormat.fill(channel, buffer, JournalFormat.HEADER_BYTES)) {
+            final int length = buffer.getInt(buffer.position());
+            final int expected = buffer.getInt(buffer.position() + Integer.BYTES);
+            if(length < 1 || length > JournalFormat.MAX_RECORD_BYTES
+                    || !JournalFormat.fill(channel, buffer, JournalFormat.HEADER_BYTES + length)) {
+                break;
+            }
+            final int recordStart = buffer.position() + JournalFormat.HEADER_BYTES;
+            checksum.reset();
+            checksum.update(buffer.array(), recordStart, length);
+            if((int) checksum.getValue() != expected) {
+                break;
+            }
+            buffer.position(recordStart);
+            apply(buffer);
+            buffer.position(recordStart + length);
+            validLength += JournalFormat.HEADER_BYTES + length;
+        }
+        return validLength;
+    }
+
+    private void apply(final ByteBuffer record) {
+        final byte recordType = record.get();
+        final long id = record.getLong();
+        updateLastId(id);
+        final ParkedVehicleEntity session = sessions.computeIfAbsent(id,
+                key -> ParkedVehicleEntity.builder().id(key).build());
+        switch (recordType) {
+            case JournalFormat.RECORD_PARK:
+                JournalFormat.getVehicle(record, session);
+                break;
+            case JournalFormat.RECORD_EXIT:
+                session.setTimeOutSeconds(record.getLong());
+                exitedIds.add(id);
+                break;
+            case JournalFormat.RECORD_FEE:
+                session.setParkingFee(record.getLong());
+                break;
+            default:
+                throw new IllegalStateException("Journal record type " + recordType + " is invalid");
+        }
+    }
+
+    /**
+     * Get sessions exited without park record, their park record may still follow.
+     * @return session Ids
+     */
+    Set<Long> getExitedBeforePark() {
+        final Set<Long> ids = new HashSet<>();
+        for(Long id : exitedBeforePark) {
+            final ParkedVehicleEntity session = sessions.get(id);
+            if(session == null || session.getVehicleNumber() == null) {
+                ids.add(id);
+            }
+        }
+        for(Long id : exitedIds) {
+            if(sessions.get(id).getVehicleNumber() == null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    RecoveredSessions toRecoveredSessions() {
+        final List<ParkedVehicleEntity> parkedVehicles = new ArrayList<>();
+        for(ParkedVehicleEntity session : sessions.values()) {
+            if(session.getVehicleNumber() != null && !session.hasExited()
+                    && !exitedBeforePark.contains(session.getId())) {
+                parkedVehicles.add(session);
+            }
+        }
+        final List<ParkedVehicleEntity> exitedVehicles = new ArrayList<>(exitedIds.size());
+        for(Long id : exitedIds) {
+            final ParkedVehicleEntity session = sessions.get(id);
+            // park record of the session was lost with a torn record
+            if(session.getVehicleNumber() != null) {
+                exitedVehicles.add(session);
+            }
+        }
+        return RecoveredSessions.builder()
+                .parkedVehicles(parkedVehicles)
+                .exitedVehicles(exitedVehicles)
+                .lastId(lastId)
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package org.richmondchng.automatedvalet.data.journal;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of open parking sessions, written between two journal segments.
+ *
+ * A snapshot holds the last session Id, every vehicle still parked with its lot, and the Ids of sessions whose exit
+ * was journaled before their park record. It ends with a CRC32 checksum of the whole file. A snapshot is written to a
+ * temporary file and renamed when complete, so a crash never leaves a partial snapshot behind.
+ *
+ * @author richmondchng
+ */
+final class JournalSnapshot {
+
+    // "VSN2", time in is written as epoch seconds only
+    private static final int MAGIC = 0x56534E32;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private JournalSnapshot() {
+        // static helpers only
+    }
+
+    /**
+     * Write snapshot.
+     * @param path snapshot file
+     * @param lastId highest session Id journaled before the snapshot
+     * @param parkedVehicles vehicles still parked
+     * @param exitedBeforePark Ids of sessions exited before their park record was journaled
+     * @throws IOException if snapshot cannot be written
+     */
+    static void write(final Path path, final long lastId, final Collection<ParkedVehicleEntity> parkedVehicles,
+                      final Collection<Long> exitedBeforePark) throws IOException {
+        final Path temporaryPath = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+        try (final FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(JournalFormat.BUFFER_BYTES);
+            final CRC32 checksum = new CRC32();
+            buffer.putInt(MAGIC);
+            buffer.putLong(lastId);
+            buffer.putInt(parkedVehicles.size());
+            for(ParkedVehicleEntity parkedVehicle : parkedVehicles) {
+                if(buffer.remaining() < JournalFormat.MAX_RECORD_BYTES) {
+                    write(channel, buffer, checksum);
+                }
+                buffer.putLong(parkedVehicle.getId());
+                JournalFormat.putVehicle(buffer, parkedVehicle,
+                        JournalFormat.encodeVehicleNumber(parkedVehicle.getVehicleNumber()));
+            }
+            if(buffer.remaining() < Integer.BYTES) {
+                write(channel, buffer, checksum);
+            }
+            buffer.putInt(exitedBeforePark.size());
+            for(Long id : exitedBeforePark) {
+                if(buffer.remaining() < Long.BYTES) {
+                    write(channel, buffer, checksum);
+                }
+                buffer.putLong(id);
+            }
+            write(channel, buffer, checksum);
+            buffer.putInt((int) checksum.getValue());
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Read snapshot into replay.
+     * @param path snapshot file
+     * @param replay replay to start from the snapshot
+     * @throws IOException if snapshot cannot be read
+     * @throws IllegalStateException if snapshot is corrupted
+     */
+    static void read(final Path path, final JournalReplay replay) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(JournalFormat.BUFFER_BYTES);
+            final CRC32 checksum = new CRC32();
+            // empty, ready to read from
+            buffer.flip();
+            require(channel, buffer, Integer.BYTES + Long.BYTES + Integer.BYTES, path);
+            int start = buffer.position();
+            if(buffer.getInt() != MAGIC) {
+                throw corrupted(path);
+            }
+            final long lastId = buffer.getLong();
+            final int numberOfParkedVehicles = buffer.getInt();
+            checksum.update(buffer.array(), start, buffer.position() - start);
+            replay.updateLastId(lastId);
+            for(int index = 0; index < numberOfParkedVehicles; index++) {
+                // entry is usually shorter than the maximum, a truncated entry underflows the buffer
+                JournalFormat.fill(channel, buffer, Long.BYTES + JournalFormat.MAX_RECORD_BYTES);
+                start = buffer.position();
+                final ParkedVehicleEntity parkedVehicle = ParkedVehicleEntity.builder().id(buffer.getLong()).build();
+                JournalFormat.getVehicle(buffer, parkedVehicle);
+                checksum.update(buffer.array(), start, buffer.position() - start);
+                replay.addParkedVehicle(parkedVehicle);
+            }
+            require(channel, buffer, Integer.BYTES, path);
+            start = buffer.position();
+            final int numberOfExitedBeforePark = buffer.getInt();
+            checksum.update(buffer.array(), start, buffer.position() - start);
+            for(int index = 0; index < numberOfExitedBeforePark; index++) {
+                require(channel, buffer, Long.BYTES, path);
+                start = buffer.position();
+                replay.addExitedBeforePark(buffer.getLong());
+                checksum.update(buffer.array(), start, buffer.position() - start);
+            }
+            require(channel, buffer, Integer.BYTES, path);
+            if(buffer.getInt() != (int) checksum.getValue() || buffer.hasRemaining()
+                    || channel.position() != channel.size()) {
+                throw corrupted(path);
+            }
+        } catch(BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw corrupted(path);
+        }
+    }
+
+    private static void write(final FileChannel channel, final ByteBuffer buffer, final CRC32 checksum)
+            throws IOException {
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void require(final FileChannel channel, final ByteBuffer buffer, final int bytes, final Path path)
+            throws IOException {
+        if(!JournalFormat.fill(channel, buffer, bytes)) {
+            throw corrupted(path);
+        }
+    }
+
+    private static IllegalStateException corrupted(final Path path) {
+        return new IllegalStateException("Snapshot " + path.getFileName() + " is corrupted");
+    }
+}
@@ -0,0 +1,589 @@
+package org.richmondchng.automatedvalet.data.journal;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal of changes to parking sessions, used to rebuild parked vehicles after a crash.
+ *
+ * Each change is one record: park (vehicle, lot and time in), exit (time out) or fee (parking fee). Records are
+ * collected in a buffer and written to the current segment file in blocks; the file is forced to disk after a number
+ * of records, or on the first record after an interval, and the thread that reaches the limit waits until its record
+ * is on disk. Threads that reach the limit while the file is being forced share the next force instead of forcing one
+ * at a time. When a segment reaches its size, records go to the next segment.
+ *
+ * After a number of records, the journal starts a new segment and writes a snapshot of the sessions still open at
+ * that point: vehicles parked with their lots, and the last session Id. The journal keeps its own copy of open
+ * sessions for this, so the snapshot matches the segment boundary exactly while gates keep appending. Segments before
+ * the snapshot are then deleted. A snapshot is also taken on close. A snapshot that cannot be written, or segments
+ * that cannot be deleted, do not fail the record that started the snapshot once that record is on disk: the segments
+ * are still complete, the failure is kept for getLastSnapshotFailure, and the next snapshot tries again.
+ *
+ * When a record cannot be written or forced to disk, the journal fails: records that are not on disk yet are dropped
+ * and the segment is truncated to its length at the last force, so that a change undone by the caller is not written
+ * later, and every later record is refused. Records dropped this way are lost as they would be in a crash.
+ *
+ * When the journal is opened, the latest snapshot is loaded and only the segments after it are replayed into
+ * RecoveredSessions. Replay of the last segment stops at the first incomplete or corrupted record, which is what a
+ * crash in the middle of a write leaves behind, and the segment is truncated there so that new records follow the
+ * last complete one. Exited sessions are only recovered from the segments after the snapshot.
+ *
+ * Safe to use from multiple threads.
+ *
+ * @author richmondchng
+ */
+public class ParkedVehicleJournal implements Closeable {
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final int syncRecords;
+    private final long syncMillis;
+    private final long segmentBytes;
+    private final long snapshotRecords;
+    private final Clock clock;
+    private final ByteBuffer buffer;
+    private final CRC32 checksum;
+    private final RecoveredSessions recoveredSessions;
+    // one thread forces the file at a time, while other threads keep appending records
+    private final Object syncLock = new Object();
+    private final AtomicBoolean snapshotInProgress = new AtomicBoolean();
+
+    // guarded by this
+    private FileChannel channel;
+    private long segmentNumber;
+    // bytes of current segment, including buffered records
+    private long segmentLength;
+    // bytes of current segment forced to disk
+    private long syncedLength;
+    private long appendedRecords;
+    private long writtenRecords;
+    private int unsyncedRecords;
+    private long lastSyncMillis;
+    private long recordsSinceSnapshot;
+    private long lastId;
+    // sessions still open as of the last appended record, Id to vehicle
+    private final Map<Long, ParkedVehicleEntity> openSessions = new HashMap<>();
+    // exit appended before park record, by two gates at the same time
+    private final Set<Long> exitedBeforePark = new HashSet<>();
+    private boolean closed;
+    // write or force that failed, no record is accepted after it
+    private IOException failure;
+    // snapshot or new segment that failed after the record that started it was on disk
+    private volatile Exception lastSnapshotFailure;
+    // number of records on disk
+    private volatile long syncedRecords;
+
+    /**
+     * Constructor. Open journal directory, or create it if it does not exist, and recover parking sessions from the
+     * latest snapshot and the segments after it.
+     * @param directory journal directory
+     * @param configuration JournalConfiguration
+     * @throws IOException if journal cannot be read
+     */
+    public ParkedVehicleJournal(final Path directory, final JournalConfiguration configuration) throws IOException {
+        if(directory == null) {
+            throw new InvalidParameterException("Directory cannot be null");
+        }
+        if(configuration == null) {
+            throw new InvalidParameterException("Configuration cannot be null");
+        }
+        if(configuration.getSyncRecords() < 1) {
+            throw new InvalidParameterException("Sync records must be positive");
+        }
+        if(configuration.getSyncMillis() < 0) {
+            throw new InvalidParameterException("Sync millis cannot be negative");
+        }
+        if(configuration.getSegmentBytes() < JournalFormat.BUFFER_BYTES) {
+            throw new InvalidParameterException("Segment bytes must be at least " + JournalFormat.BUFFER_BYTES);
+        }
+        if(configuration.getSnapshotRecords() < 0) {
+            throw new InvalidParameterException("Snapshot records cannot be negative");
+        }
+        if(configuration.getClock() == null) {
+            throw new InvalidParameterException("Clock cannot be null");
+        }
+        this.directory = directory;
+        this.syncRecords = configuration.getSyncRecords();
+        this.syncMillis = configuration.getSyncMillis();
+        this.segmentBytes = configuration.getSegmentBytes();
+        this.snapshotRecords = configuration.getSnapshotRecords();
+        this.clock = configuration.getClock();
+        this.buffer = ByteBuffer.allocate(JournalFormat.BUFFER_BYTES);
+        this.checksum = new CRC32();
+        this.lastSyncMillis = clock.millis();
+        this.recoveredSessions = recover();
+    }
+
+    /**
+     * Open journal directory.
+     * @param directoryPath journal directory path
+     * @param configuration JournalConfiguration
+     * @return ParkedVehicleJournal
+     * @throws IOException if journal cannot be read
+     */
+    public static ParkedVehicleJournal open(final String directoryPath, final JournalConfiguration configuration)
+            throws IOException {
+        return new ParkedVehicleJournal(Path.of(directoryPath), configuration);
+    }
+
+    /**
+     * Get parking sessions recovered when the journal was opened.
+     * @return RecoveredSessions
+     */
+    public RecoveredSessions getRecoveredSessions() {
+        return recoveredSessions;
+    }
+
+    /**
+     * Get failure of the last snapshot or new segment started by a record after that record was on disk.
+     * @return failure, or null if the last one succeeded
+     */
+    public Exception getLastSnapshotFailure() {
+        return lastSnapshotFailure;
+    }
+
+    /**
+     * Record vehicle parked: vehicle type, vehicle number, lot number and time in of a session.
+     * @param parkedVehicleEntity ParkedVehicleEntity with Id
+     * @throws UncheckedIOException if journal cannot be written
+     */
+    public void recordPark(final ParkedVehicleEntity parkedVehicleEntity) {
+        if(parkedVehicleEntity == null || parkedVehicleEntity.getId() == null) {
+            throw new InvalidParameterException("ParkedVehicleEntity with Id is required");
+        }
+        final byte[] vehicleNumber = JournalFormat.encodeVehicleNumber(parkedVehicleEntity.getVehicleNumber());
+        final long id = parkedVehicleEntity.getId();
+        final long record;
+        final long syncTo;
+        synchronized(this) {
+            final int start = beginRecord(JournalFormat.RECORD_PARK, id);
+            JournalFormat.putVehicle(buffer, parkedVehicleEntity, vehicleNumber);
+            syncTo = endRecord(start);
+            record = appendedRecords;
+            lastId = Math.max(lastId, id);
+            if(!exitedBeforePark.remove(id)) {
+                openSessions.put(id, ParkedVehicleEntity.builder()
+                        .id(id)
+                        .vehicleType(parkedVehicleEntity.getVehicleType())
+                        .vehicleNumber(parkedVehicleEntity.getVehicleNumber())
+                        .lotNumber(parkedVehicleEntity.getLotNumber())
+                        .timeInSeconds(parkedVehicleEntity.getTimeInSeconds())
+                        .build());
+            }
+        }
+        afterRecord(record, syncTo);
+    }
+
+    /**
+     * Record vehicle exited.
+     * @param id session Id
+     * @param timeOutSeconds time out, in seconds since epoch
+     * @throws UncheckedIOException if journal cannot be written
+     */
+    public void recordExit(final long id, final long timeOutSeconds) {
+        final long record;
+        final long syncTo;
+        synchronized(this) {
+            final int start = beginRecord(JournalFormat.RECORD_EXIT, id);
+            buffer.putLong(timeOutSeconds);
+            syncTo = endRecord(start);
+            record = appendedRecords;
+            if(openSessions.remove(id) == null) {
+                exitedBeforePark.add(id);
+            }
+        }
+        afterRecord(record, syncTo);
+    }
+
+    /**
+     * Record parking fee charged.
+     * @param id session Id
+     * @param parkingFee parking fee
+     * @throws UncheckedIOException if journal cannot be written
+     */
+    public void recordFee(final long id, final long parkingFee) {
+        final long record;
+        final long syncTo;
+        synchronized(this) {
+            final int start = beginRecord(JournalFormat.RECORD_FEE, id);
+            buffer.putLong(parkingFee);
+            syncTo = endRecord(start);
+            record = appendedRecords;
+        }
+        afterRecord(record, syncTo);
+    }
+
+    /**
+     * Write every record appended so far, and force the file to disk.
+     * @throws IOException if journal cannot be written
+     */
+    public void sync() throws IOException {
+        final long records;
+        synchronized(this) {
+            records = appendedRecords;
+        }
+        sync(records);
+    }
+
+    /**
+     * Start a new segment, write a snapshot of the sessions open at that point, and delete older segments and
+     * snapshots. Returns at once if another thread is taking a snapshot.
+     * @throws IOException if snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        if(!snapshotInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final long firstSegment;
+            final long snapshotLastId;
+            final List<ParkedVehicleEntity> parkedVehicles;
+            final List<Long> exitedIds;
+            synchronized(syncLock) {
+                synchronized(this) {
+                    ensureOpen();
+                    nextSegment();
+                    firstSegment = segmentNumber;
+                    snapshotLastId = lastId;
+                    // entries are never changed after they are added
+                    parkedVehicles = new ArrayList<>(openSessions.values());
+                    exitedIds = new ArrayList<>(exitedBeforePark);
+                    recordsSinceSnapshot = 0L;
+                }
+            }
+            JournalSnapshot.write(JournalFormat.snapshotPath(directory, firstSegment), snapshotLastId,
+                    parkedVehicles, exitedIds);
+            deleteBefore(firstSegment);
+            lastSnapshotFailure = null;
+        } finally {
+            snapshotInProgress.set(false);
+        }
+    }
+
+    /**
+     * Take a snapshot if records were appended since the last one, then write and force remaining records, and close
+     * file.
+     * @throws IOException if journal cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        final boolean takeSnapshot;
+        synchronized(this) {
+            if(closed) {
+                return;
+            }
+            takeSnapshot = recordsSinceSnapshot > 0L && failure == null;
+        }
+        try {
+            if(takeSnapshot) {
+                snapshot();
+            }
+        } finally {
+            synchronized(syncLock) {
+                synchronized(this) {
+                    if(!closed) {
+                        closed = true;
+                        try {
+                            if(failure == null) {
+                                writeBuffer();
+                                channel.force(false);
+                            }
+                        } finally {
+                            channel.close();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load latest snapshot, replay segments after it, and open the last segment for appending.
+     */
+    private RecoveredSessions recover() throws IOException {
+        Files.createDirectories(directory);
+        final TreeSet<Long> segmentNumbers = new TreeSet<>();
+        final TreeSet<Long> snapshotNumbers = new TreeSet<>();
+        try (final Stream<Path> files = Files.list(directory)) {
+            for(Path file : (Iterable<Path>) files::iterator) {
+                if(file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                    // snapshot not completed before a crash
+                    Files.delete(file);
+                } else if(JournalFormat.segmentNumber(file) >= 0) {
+                    segmentNumbers.add(JournalFormat.segmentNumber(file));
+                } else if(JournalFormat.snapshotNumber(file) >= 0) {
+                    snapshotNumbers.add(JournalFormat.snapshotNumber(file));
+                }
+            }
+        }
+        final JournalReplay replay = new JournalReplay();
+        final long firstSegment = snapshotNumbers.isEmpty() ? 1L : snapshotNumbers.last();
+        if(!snapshotNumbers.isEmpty()) {
+            JournalSnapshot.read(JournalFormat.snapshotPath(directory, firstSegment), replay);
+        }
+        long expectedSegment = firstSegment;
+        long validLength = 0L;
+        for(Long number : segmentNumbers.tailSet(firstSegment)) {
+            if(number != expectedSegment) {
+                throw new IllegalStateException("Journal segment " + expectedSegment + " is missing");
+            }
+            try (final FileChannel segment = FileChannel.open(JournalFormat.segmentPath(directory, number),
+                    StandardOpenOption.READ)) {
+                validLength = replay.readSegment(segment);
+                if(validLength != segment.size() && number != segmentNumbers.last()) {
+                    // only the segment written at the time of a crash can be torn
+                    throw new IllegalStateException("Journal segment " + number + " is corrupted");
+                }
+            }
+            expectedSegment = number + 1;
+        }
+        final RecoveredSessions recovered = replay.toRecoveredSessions();
+        for(ParkedVehicleEntity parkedVehicle : recovered.getParkedVehicles()) {
+            openSessions.put(parkedVehicle.getId(), ParkedVehicleEntity.builder()
+                    .id(parkedVehicle.getId())
+                    .vehicleType(parkedVehicle.getVehicleType())
+                    .vehicleNumber(parkedVehicle.getVehicleNumber())
+                    .lotNumber(parkedVehicle.getLotNumber())
+                    .timeInSeconds(parkedVehicle.getTimeInSeconds())
+                    .build());
+        }
+        exitedBeforePark.addAll(replay.getExitedBeforePark());
+        lastId = recovered.getLastId();
+
+        segmentNumber = Math.max(firstSegment, expectedSegment - 1);
+        channel = FileChannel.open(JournalFormat.segmentPath(directory, segmentNumber), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // drop a record torn by a crash
+            channel.truncate(validLength);
+            channel.position(validLength);
+            segmentLength = validLength;
+            syncedLength = validLength;
+            // segments and snapshots left by a snapshot that was interrupted before deleting them
+            deleteBefore(firstSegment);
+        } catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return recovered;
+    }
+
+    /**
+     * Start record, writing the header after the record is complete.
+     * @return buffer position of the record
+     */
+    private int beginRecord(final byte recordType, final long id) {
+        ensureOpen();
+        if(buffer.remaining() < JournalFormat.HEADER_BYTES + JournalFormat.MAX_RECORD_BYTES) {
+            try {
+                writeBuffer();
+            } catch(IOException e) {
+                fail(e);
+                throw new UncheckedIOException(e);
+            }
+        }
+        final int start = buffer.position();
+        buffer.position(start + JournalFormat.HEADER_BYTES);
+        buffer.put(recordType);
+        buffer.putLong(id);
+        return start;
+    }
+
+    /**
+     * Complete record.
+     * @return number of records to force to disk before returning, or 0 if the record does not wait
+     */
+    private long endRecord(final int start) {
+        final int length = buffer.position() - start - JournalFormat.HEADER_BYTES;
+        checksum.reset();
+        checksum.update(buffer.array(), start + JournalFormat.HEADER_BYTES, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + Integer.BYTES, (int) checksum.getValue());
+        segmentLength += JournalFormat.HEADER_BYTES + length;
+        appendedRecords++;
+        recordsSinceSnapshot++;
+        if(++unsyncedRecords >= syncRecords
+                || (syncMillis > 0 && clock.millis() - lastSyncMillis >= syncMillis)) {
+            unsyncedRecords = 0;
+            lastSyncMillis = clock.millis();
+            return appendedRecords;
+        }
+        return 0L;
+    }
+
+    /**
+     * Wait for record to be on disk if needed, then take a snapshot or start a new segment if one is due. Once the
+     * record is on disk, a failed snapshot or new segment is kept instead of thrown, so that the caller does not undo a
+     * change the journal already holds.
+     * @param record number of the record
+     * @param syncTo number of records to force to disk, or 0 if the record does not wait
+     */
+    private void afterRecord(final long record, final long syncTo) {
+        final boolean snapshotDue;
+        final boolean segmentFull;
+        synchronized(this) {
+            snapshotDue = snapshotRecords > 0 && recordsSinceSnapshot >= snapshotRecords;
+            segmentFull = segmentLength >= segmentBytes;
+        }
+        try {
+            if(syncTo > 0L) {
+                sync(syncTo);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            if(snapshotDue) {
+                snapshot();
+            } else if(segmentFull) {
+                synchronized(syncLock) {
+                    synchronized(this) {
+                        // another thread may have started the next segment already
+                        if(!closed && segmentLength >= segmentBytes) {
+                            nextSegment();
+                        }
+                    }
+                }
+            }
+        } catch(IOException | RuntimeException e) {
+            if(syncedRecords < record) {
+                // record was dropped with the records not on disk yet
+                throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+            }
+            lastSnapshotFailure = e;
+        }
+    }
+
+    private void sync(final long records) throws IOException {
+        if(syncedRecords >= records) {
+            return;
+        }
+        synchronized(syncLock) {
+            if(syncedRecords >= records) {
+                // forced by another thread while waiting
+                return;
+            }
+            final FileChannel segment;
+            final long written;
+            final long length;
+            synchronized(this) {
+                ensureOpen();
+                try {
+                    writeBuffer();
+                } catch(IOException e) {
+                    fail(e);
+                    throw e;
+                }
+                segment = channel;
+                written = writtenRecords;
+                length = segmentLength;
+            }
+            // other threads append to the buffer while the file is forced, segments only change under sync lock
+            try {
+                segment.force(false);
+            } catch(IOException e) {
+                synchronized(this) {
+                    fail(e);
+                }
+                throw e;
+            }
+            synchronized(this) {
+                syncedLength = length;
+            }
+            syncedRecords = written;
+        }
+    }
+
+    /**
+     * Force and close current segment, and open the next one. Called holding sync lock and this.
+     */
+    private void nextSegment() throws IOException {
+        try {
+            writeBuffer();
+            channel.force(false);
+            syncedLength = segmentLength;
+            syncedRecords = writtenRecords;
+            channel.close();
+            segmentNumber++;
+            channel = FileChannel.open(JournalFormat.segmentPath(directory, segmentNumber),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch(IOException e) {
+            fail(e);
+            throw e;
+        }
+        segmentLength = 0L;
+        syncedLength = 0L;
+    }
+
+    /**
+     * Delete segments and snapshots before a segment number.
+     */
+    private void deleteBefore(final long firstSegment) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            for(Path file : (Iterable<Path>) files::iterator) {
+                final long number = Math.max(JournalFormat.segmentNumber(file), JournalFormat.snapshotNumber(file));
+                if(number >= 0 && number < firstSegment) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // guarded by this
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        writtenRecords = appendedRecords;
+    }
+
+    /**
+     * Refuse every later record, drop records that are not on disk and truncate the segment to its length at the
+     * last force. Called holding this.
+     */
+    private void fail(final IOException e) {
+        if(failure == null) {
+            failure = e;
+        }
+        buffer.clear();
+        try {
+            channel.truncate(syncedLength);
+        } catch(IOException | RuntimeException suppressed) {
+            // channel may be closed by the failure, records after the last force are dropped on recovery if torn
+            e.addSuppressed(suppressed);
+        }
+    }
+
+    // guarded by this
+    private void ensureOpen() {
+        if(closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if(failure != null) {
+            throw new IllegalStateException("Journal has failed", failure);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.richmondchng.automatedvalet.data.journal;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+
+import java.util.List;
+
+/**
+ * Parking sessions rebuilt from a journal on startup.
+ *
+ * @author richmondchng
+ */
+@Getter
+@Builder
+public class RecoveredSessions {
+    // vehicles still parked, in the order they entered
+    private final List<ParkedVehicleEntity> parkedVehicles;
+    // exited parking sessions, in the order they exited
+    private final List<ParkedVehicleEntity> exitedVehicles;
+    // highest session Id recorded, 0 if none
+    private final long lastId;
+}
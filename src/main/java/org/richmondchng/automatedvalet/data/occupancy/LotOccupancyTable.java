@@ -0,0 +1,335 @@
+package org.richmondchng.automatedvalet.data.occupancy;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Occupancy of every parking lot, kept in a memory mapped file.
+ *
+ * The file starts with a header page holding the number of lots of each vehicle type and the last session Id,
+ * followed by one fixed width slot per lot, in order of vehicle type and lot number. A slot holds an occupied flag,
+ * and the session Id, time in and vehicle number of the vehicle parked in the lot. Vehicle numbers longer than the
+ * slot continue in an overflow area of the same lot after the last slot, which is only touched by long vehicle
+ * numbers. Writes go to the page cache, so they survive the application stopping without being forced to disk; the
+ * file is forced to disk on close.
+ *
+ * A slot is filled before its occupied flag is set, and the flag is cleared before the slot is reused, so a slot that
+ * is flagged as occupied always holds a whole session. Restarting only maps the file again: vehicles still parked are
+ * read from the occupied slots, without replaying any history.
+ *
+ * Safe to use from multiple threads, as long as a lot is only written by the session that occupies it.
+ *
+ * @author richmondchng
+ */
+public class LotOccupancyTable implements Closeable {
+
+    // "VLOT"
+    private static final int MAGIC = 0x564C4F54;
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 4096;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOT_BYTES_OFFSET = 8;
+    private static final int NUMBER_OF_TYPES_OFFSET = 12;
+    private static final int LAST_ID_OFFSET = 16;
+    // vehicle type ordinal and number of lots of each type
+    private static final int TYPES_OFFSET = 24;
+
+    // slot fits in a cache line: occupied flag, vehicle number length, session Id, time in seconds, vehicle number
+    static final int SLOT_BYTES = 64;
+    private static final int SLOT_VEHICLE_NUMBER_BYTES = 32;
+    // rest of a long vehicle number, same limit as the journal and the database
+    static final int MAX_VEHICLE_NUMBER_BYTES = 256;
+    static final int OVERFLOW_BYTES = MAX_VEHICLE_NUMBER_BYTES - SLOT_VEHICLE_NUMBER_BYTES;
+    private static final int OCCUPIED_OFFSET = 0;
+    private static final int VEHICLE_NUMBER_LENGTH_OFFSET = 2;
+    private static final int ID_OFFSET = 8;
+    private static final int TIME_IN_SECONDS_OFFSET = 16;
+    private static final int VEHICLE_NUMBER_OFFSET = 32;
+    private static final byte FREE = 0;
+    private static final byte OCCUPIED = 1;
+
+    private static final String ERROR_LOT_NUMBER_IS_INVALID = "Lot number {0} is invalid";
+    private static final String ERROR_TABLE_DOES_NOT_MATCH =
+            "Occupancy table {0} does not match parking lot configuration";
+
+    private final Path path;
+    private final MappedByteBuffer table;
+    // first slot and number of lots of each vehicle type
+    private final Map<VehicleType, Integer> firstSlots;
+    private final Map<VehicleType, Integer> numberOfLots;
+    // offset of the overflow area of the first lot
+    private final int overflowOffset;
+    private volatile boolean closed;
+
+    /**
+     * Constructor. Map the occupancy table file, or create it with all lots free if it does not exist.
+     * @param path occupancy table file
+     * @param configurations map containing key-value pair describing number of lots by vehicle type
+     * @throws IOException if file cannot be mapped
+     * @throws IllegalStateException if file was created for a different number of lots
+     */
+    public LotOccupancyTable(final Path path, final Map<VehicleType, Integer> configurations) throws IOException {
+        if(path == null) {
+            throw new InvalidParameterException("Path cannot be null");
+        }
+        if(configurations == null) {
+            throw new InvalidParameterException("Configurations is null");
+        }
+        this.path = path;
+        this.firstSlots = new EnumMap<>(VehicleType.class);
+        this.numberOfLots = new EnumMap<>(VehicleType.class);
+        long numberOfSlots = 0L;
+        // EnumMap keeps vehicle types in order
+        for(Map.Entry<VehicleType, Integer> configuration : new EnumMap<>(configurations).entrySet()) {
+            if(configuration.getValue() < 0) {
+                throw new InvalidParameterException("Number of lots cannot be negative");
+            }
+            firstSlots.put(configuration.getKey(), (int) numberOfSlots);
+            numberOfLots.put(configuration.getKey(), configuration.getValue());
+            numberOfSlots += configuration.getValue();
+        }
+        final long size = HEADER_BYTES + numberOfSlots * (SLOT_BYTES + OVERFLOW_BYTES);
+        if(size > Integer.MAX_VALUE) {
+            throw new InvalidParameterException("Number of lots is too large");
+        }
+        if(TYPES_OFFSET + numberOfLots.size() * 2 * Integer.BYTES > HEADER_BYTES) {
+            throw new InvalidParameterException("Too many vehicle types");
+        }
+        this.overflowOffset = (int) (HEADER_BYTES + numberOfSlots * SLOT_BYTES);
+        final boolean exists = Files.exists(path) && Files.size(path) > 0;
+        if(exists && Files.size(path) != size) {
+            throw new IllegalStateException(MessageFormat.format(ERROR_TABLE_DOES_NOT_MATCH, path.getFileName()));
+        }
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // mapping stays valid after the channel is closed, and extends a new file with zeros
+            this.table = channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+        }
+        if(exists) {
+            checkHeader();
+        } else {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Open occupancy table file.
+     * @param filePath occupancy table file path
+     * @param configurations map containing key-value pair describing number of lots by vehicle type
+     * @return LotOccupancyTable
+     * @throws IOException if file cannot be mapped
+     */
+    public static LotOccupancyTable open(final String filePath, final Map<VehicleType, Integer> configurations)
+            throws IOException {
+        return new LotOccupancyTable(Path.of(filePath), configurations);
+    }
+
+    /**
+     * Get the highest session Id that has occupied a lot.
+     * @return last session Id, or 0 if no lot was occupied
+     */
+    public synchronized long getLastId() {
+        return table.getLong(LAST_ID_OFFSET);
+    }
+
+    /**
+     * Record vehicle parked in its lot.
+     * @param parkedVehicleEntity ParkedVehicleEntity with Id
+     */
+    public void occupy(final ParkedVehicleEntity parkedVehicleEntity) {
+        if(parkedVehicleEntity == null || parkedVehicleEntity.getId() == null) {
+            throw new InvalidParameterException("ParkedVehicleEntity with Id is required");
+        }
+        final byte[] vehicleNumber = encodeVehicleNumber(parkedVehicleEntity.getVehicleNumber());
+        final int slot = slotOffset(parkedVehicleEntity.getVehicleType(), parkedVehicleEntity.getLotNumber());
+        checkOpen();
+        // the same session may be written again, e.g. when time in is changed
+        if(table.get(slot + OCCUPIED_OFFSET) == OCCUPIED
+                && table.getLong(slot + ID_OFFSET) != parkedVehicleEntity.getId()) {
+            table.put(slot + OCCUPIED_OFFSET, FREE);
+        }
+        table.putLong(slot + ID_OFFSET, parkedVehicleEntity.getId());
+        table.putLong(slot + TIME_IN_SECONDS_OFFSET, parkedVehicleEntity.getTimeInSeconds());
+        table.putShort(slot + VEHICLE_NUMBER_LENGTH_OFFSET, (short) vehicleNumber.length);
+        for(int index = 0; index < vehicleNumber.length; index++) {
+            table.put(vehicleNumberOffset(slot, index), vehicleNumber[index]);
+        }
+        table.put(slot + OCCUPIED_OFFSET, OCCUPIED);
+        updateLastId(parkedVehicleEntity.getId());
+    }
+
+    /**
+     * Record vehicle left its lot. Lot is not changed if it is occupied by another session.
+     * @param vehicleType vehicle type
+     * @param lotNumber lot number
+     * @param id session Id
+     */
+    public void release(final VehicleType vehicleType, final int lotNumber, final long id) {
+        final int slot = slotOffset(vehicleType, lotNumber);
+        checkOpen();
+        if(table.get(slot + OCCUPIED_OFFSET) == OCCUPIED && table.getLong(slot + ID_OFFSET) == id) {
+            table.put(slot + OCCUPIED_OFFSET, FREE);
+        }
+    }
+
+    /**
+     * Check if lot is occupied.
+     * @param vehicleType vehicle type
+     * @param lotNumber lot number
+     * @return true if occupied
+     */
+    public boolean isOccupied(final VehicleType vehicleType, final int lotNumber) {
+        final int slot = slotOffset(vehicleType, lotNumber);
+        checkOpen();
+        return table.get(slot + OCCUPIED_OFFSET) == OCCUPIED;
+    }
+
+    /**
+     * Get vehicles parked in occupied lots.
+     * @return list of ParkedVehicleEntity, in order of vehicle type and lot number
+     */
+    public List<ParkedVehicleEntity> getParkedVehicles() {
+        checkOpen();
+        final List<ParkedVehicleEntity> parkedVehicles = new ArrayList<>();
+        for(Map.Entry<VehicleType, Integer> entry : numberOfLots.entrySet()) {
+            for(int lotNumber = 1; lotNumber <= entry.getValue(); lotNumber++) {
+                final int slot = slotOffset(entry.getKey(), lotNumber);
+                if(table.get(slot + OCCUPIED_OFFSET) == OCCUPIED) {
+                    parkedVehicles.add(readSlot(slot, entry.getKey(), lotNumber));
+                }
+            }
+        }
+        return parkedVehicles;
+    }
+
+    /**
+     * Force changes to disk.
+     */
+    public void force() {
+        checkOpen();
+        table.force();
+    }
+
+    /**
+     * Force changes to disk. The table cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        if(closed) {
+            return;
+        }
+        table.force();
+        closed = true;
+    }
+
+    private ParkedVehicleEntity readSlot(final int slot, final VehicleType vehicleType, final int lotNumber) {
+        final byte[] vehicleNumber = new byte[table.getShort(slot + VEHICLE_NUMBER_LENGTH_OFFSET)];
+        for(int index = 0; index < vehicleNumber.length; index++) {
+            vehicleNumber[index] = table.get(vehicleNumberOffset(slot, index));
+        }
+        return ParkedVehicleEntity.builder()
+                .id(table.getLong(slot + ID_OFFSET))
+                .vehicleType(vehicleType)
+                .vehicleNumber(new String(vehicleNumber, StandardCharsets.UTF_8))
+                .lotNumber(lotNumber)
+                .timeInSeconds(table.getLong(slot + TIME_IN_SECONDS_OFFSET))
+                .build();
+    }
+
+    /**
+     * Offset of a byte of vehicle number, in the slot or in the overflow area of the same lot.
+     */
+    private int vehicleNumberOffset(final int slot, final int index) {
+        if(index < SLOT_VEHICLE_NUMBER_BYTES) {
+            return slot + VEHICLE_NUMBER_OFFSET + index;
+        }
+        final int slotIndex = (slot - HEADER_BYTES) / SLOT_BYTES;
+        return overflowOffset + slotIndex * OVERFLOW_BYTES + index - SLOT_VEHICLE_NUMBER_BYTES;
+    }
+
+    private synchronized void updateLastId(final long id) {
+        if(id > table.getLong(LAST_ID_OFFSET)) {
+            table.putLong(LAST_ID_OFFSET, id);
+        }
+    }
+
+    private int slotOffset(final VehicleType vehicleType, final int lotNumber) {
+        if(vehicleType == null) {
+            throw new InvalidParameterException("Vehicle type cannot be null");
+        }
+        final Integer lots = numberOfLots.get(vehicleType);
+        if(lots == null) {
+            throw new InvalidParameterException("No parking lot configured for " + vehicleType.getLabel());
+        }
+        if(lotNumber < 1 || lotNumber > lots) {
+            throw new InvalidParameterException(MessageFormat.format(ERROR_LOT_NUMBER_IS_INVALID,
+                    String.valueOf(lotNumber)));
+        }
+        return HEADER_BYTES + (firstSlots.get(vehicleType) + lotNumber - 1) * SLOT_BYTES;
+    }
+
+    private void writeHeader() {
+        table.putInt(VERSION_OFFSET, VERSION);
+        table.putInt(SLOT_BYTES_OFFSET, SLOT_BYTES);
+        table.putInt(NUMBER_OF_TYPES_OFFSET, numberOfLots.size());
+        int offset = TYPES_OFFSET;
+        for(Map.Entry<VehicleType, Integer> entry : numberOfLots.entrySet()) {
+            table.putInt(offset, entry.getKey().ordinal());
+            table.putInt(offset + Integer.BYTES, entry.getValue());
+            offset += 2 * Integer.BYTES;
+        }
+        // file is only recognised once the header is complete
+        table.putInt(MAGIC_OFFSET, MAGIC);
+        table.force();
+    }
+
+    private void checkHeader() {
+        if(table.getInt(MAGIC_OFFSET) != MAGIC || table.getInt(VERSION_OFFSET) != VERSION
+                || table.getInt(SLOT_BYTES_OFFSET) != SLOT_BYTES
+                || table.getInt(NUMBER_OF_TYPES_OFFSET) != numberOfLots.size()) {
+            throw new IllegalStateException(MessageFormat.format(ERROR_TABLE_DOES_NOT_MATCH, path.getFileName()));
+        }
+        int offset = TYPES_OFFSET;
+        for(Map.Entry<VehicleType, Integer> entry : numberOfLots.entrySet()) {
+            if(table.getInt(offset) != entry.getKey().ordinal()
+                    || table.getInt(offset + Integer.BYTES) != entry.getValue()) {
+                throw new IllegalStateException(MessageFormat.format(ERROR_TABLE_DOES_NOT_MATCH,
+                        path.getFileName()));
+            }
+            offset += 2 * Integer.BYTES;
+        }
+    }
+
+    private void checkOpen() {
+        if(closed) {
+            throw new IllegalStateException("Occupancy table is closed");
+        }
+    }
+
+    private static byte[] encodeVehicleNumber(final String vehicleNumber) {
+        if(vehicleNumber == null) {
+            throw new InvalidParameterException("Vehicle number cannot be null");
+        }
+        final byte[] bytes = vehicleNumber.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > MAX_VEHICLE_NUMBER_BYTES) {
+            throw new InvalidParameterException("Vehicle number is too long");
+        }
+        return bytes;
+    }
+}
@@ -3,7 +3,6 @@ package org.richmondchng.automatedvalet.data.repository;
 import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
 
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Data repository representing parked vehicles.
@@ -19,6 +18,14 @@ public interface ParkedVehicleRepository {
      */
     ParkedVehicleEntity save(final ParkedVehicleEntity parkedVehicleEntity);
 
+    /**
+     * Record time out of a parked vehicle, so that it is no longer parked. Only one caller succeeds for a record.
+     * @param id record ID
+     * @param timeOutSeconds time out, in seconds since epoch
+     * @return updated object
+     */
+    ParkedVehicleEntity exitParkedVehicle(final Long id, final long timeOutSeconds);
+
     /**
      * Get list of parked vehicles by vehicle type. This returns entities that has vehicle number, time in, but without time out.
      * @return list of parked vehicles
@@ -37,5 +44,5 @@ public interface ParkedVehicleRepository {
      * @param id record ID
      * @return ParkedVehicleEntity or null
      */
-    ParkedVehicleEntity findById(final UUID id);
+    ParkedVehicleEntity findById(final Long id);
 }
@@ -5,7 +5,6 @@ import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
 import org.richmondchng.automatedvalet.data.storage.ParkedVehicleDataStorage;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -26,6 +25,12 @@ public class ParkedVehicleRepositoryImpl implements ParkedVehicleRepository {
         return copy(parkedVehicleDataStorage.save(parkedVehicleEntity));
     }
 
+    @Override
+    public ParkedVehicleEntity exitParkedVehicle(final Long id, final long timeOutSeconds) {
+        // return a copy so that we don't inadvertently modify the actual data
+        return copy(parkedVehicleDataStorage.exit(id, timeOutSeconds));
+    }
+
     @Override
     public List<ParkedVehicleEntity> findAllParkedVehicles() {
         return parkedVehicleDataStorage.getParkedVehicles().stream()
@@ -44,7 +49,7 @@ public class ParkedVehicleRepositoryImpl implements ParkedVehicleRepository {
     }
 
     @Override
-    public ParkedVehicleEntity findById(final UUID id) {
+    public ParkedVehicleEntity findById(final Long id) {
         final ParkedVehicleEntity entity = parkedVehicleDataStorage.getRecordById(id);
         if(entity != null) {
             // return a copy so that we don't inadvertently modify the actual data
@@ -64,8 +69,8 @@ public class ParkedVehicleRepositoryImpl implements ParkedVehicleRepository {
                 .vehicleType(src.getVehicleType())
                 .vehicleNumber(src.getVehicleNumber())
                 .lotNumber(src.getLotNumber())
-                .timeIn(src.getTimeIn())
-                .timeOut(src.getTimeOut())
+                .timeInSeconds(src.getTimeInSeconds())
+                .timeOutSeconds(src.getTimeOutSeconds())
                 .parkingFee(src.getParkingFee())
                 .build();
     }
@@ -18,4 +18,27 @@ public interface ParkingLotRepository {
      * @return
      */
     List<ParkingLotEntity> finalAllParkingLotsByVehicleTypeOrderByLotNumber(final VehicleType vehicleType);
+
+    /**
+     * Allocate the available parking lot with the lowest lot number for vehicle type. The lot is marked as occupied
+     * until it is released.
+     * @param vehicleType vehicle type
+     * @return ParkingLotEntity or null if no parking lot is available
+     */
+    ParkingLotEntity allocateAvailableParkingLot(final VehicleType vehicleType);
+
+    /**
+     * Release parking lot so that it is available again.
+     * @param vehicleType vehicle type
+     * @param lotNumber lot number
+     */
+    void releaseParkingLot(final VehicleType vehicleType, final int lotNumber);
+
+    /**
+     * Get label of parking lot.
+     * @param vehicleType vehicle type
+     * @param lotNumber lot number
+     * @return label e.g. CarLot1
+     */
+    String findParkingLotLabel(final VehicleType vehicleType, final int lotNumber);
 }
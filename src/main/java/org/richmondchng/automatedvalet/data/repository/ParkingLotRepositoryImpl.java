@@ -38,6 +38,26 @@ public class ParkingLotRepositoryImpl implements ParkingLotRepository {
                 .collect(Collectors.toUnmodifiableList());
     }
 
+    @Override
+    public ParkingLotEntity allocateAvailableParkingLot(final VehicleType vehicleType) {
+        final ParkingLotEntity entity = parkingLotDataStorage.allocateAvailableLot(vehicleType);
+        if(entity != null) {
+            // return a copy so that we don't inadvertently modify the actual data
+            return copy(entity);
+        }
+        return null;
+    }
+
+    @Override
+    public void releaseParkingLot(final VehicleType vehicleType, final int lotNumber) {
+        parkingLotDataStorage.releaseLot(vehicleType, lotNumber);
+    }
+
+    @Override
+    public String findParkingLotLabel(final VehicleType vehicleType, final int lotNumber) {
+        return parkingLotDataStorage.getLabel(vehicleType, lotNumber);
+    }
+
     /**
      * Make a copy of bean.
      * @param src source
@@ -47,6 +67,7 @@ public class ParkingLotRepositoryImpl implements ParkingLotRepository {
         return ParkingLotEntity.builder()
                 .vehicleType(src.getVehicleType())
                 .lotNumber(src.getLotNumber())
+                .label(src.getLabel())
                 .build();
     }
 }
@@ -0,0 +1,308 @@
+package org.richmondchng.automatedvalet.data.repository.jdbc;
+
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.data.id.SessionIdGenerator;
+import org.richmondchng.automatedvalet.data.repository.ParkedVehicleRepository;
+import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
+import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.security.InvalidParameterException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation for ParkedVehicleRepository.
+ *
+ * This uses the parked_vehicle table of an embedded database, with indexes on vehicle number and on lot. Saved
+ * sessions are held back and written together as one JDBC batch before the database commits, or before all parked
+ * vehicles are listed. Until then, sessions held back are found from memory, ahead of their older rows in the
+ * database.
+ *
+ * @author richmondchng
+ */
+public class JdbcParkedVehicleRepository implements ParkedVehicleRepository, ValetDatabase.BatchedWrites {
+
+    private static final String ERROR_ID_IS_INVALID = "Id {0} is invalid";
+
+    private static final String COLUMNS = "id, vehicle_type, vehicle_number, lot_number, time_in_seconds, "
+            + "time_out_seconds, parking_fee";
+    private static final String MERGE_SESSION = "MERGE INTO parked_vehicle (" + COLUMNS + ") KEY (id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM parked_vehicle WHERE id = ?";
+    private static final String SELECT_PARKED_BY_VEHICLE_NUMBER = "SELECT " + COLUMNS + " FROM parked_vehicle "
+            + "WHERE vehicle_number = ? AND time_out_seconds IS NULL";
+    private static final String SELECT_PARKED = "SELECT " + COLUMNS + " FROM parked_vehicle "
+            + "WHERE time_out_seconds IS NULL";
+
+    private final ValetDatabase database;
+    private final SessionIdGenerator sessionIdGenerator;
+    // sessions saved but not written yet, by Id
+    private final Map<Long, ParkedVehicleEntity> pendingSessions = new LinkedHashMap<>();
+    // latest of those sessions for each vehicle number
+    private final Map<String, ParkedVehicleEntity> pendingByVehicleNumber = new HashMap<>();
+
+    /**
+     * Constructor.
+     * @param database ValetDatabase
+     * @param sessionIdGenerator generator for Ids of new records, starting after the last Id in the database
+     */
+    public JdbcParkedVehicleRepository(final ValetDatabase database, final SessionIdGenerator sessionIdGenerator) {
+        if(database == null) {
+            throw new InvalidParameterException("Database cannot be null");
+        }
+        if(sessionIdGenerator == null) {
+            throw new InvalidParameterException("Session Id generator cannot be null");
+        }
+        this.database = database;
+        this.sessionIdGenerator = sessionIdGenerator;
+        database.addBatchedWrites(this);
+    }
+
+    @Override
+    public ParkedVehicleEntity save(final ParkedVehicleEntity parkedVehicleEntity) {
+        if(parkedVehicleEntity == null) {
+            throw new InvalidParameterException("ParkedVehicleEntity cannot be null");
+        }
+        synchronized(database) {
+            final ParkedVehicleEntity data;
+            if(parkedVehicleEntity.getId() == null) {
+                if(!parkedVehicleEntity.hasExited()) {
+                    final ParkedVehicleEntity existing = findParked(parkedVehicleEntity.getVehicleNumber());
+                    if(existing != null) {
+                        throw new VehicleAlreadyParkedException(existing.getVehicleType(),
+                                existing.getVehicleNumber());
+                    }
+                }
+                data = ParkedVehicleEntity.builder()
+                        .id(sessionIdGenerator.nextId())
+                        .vehicleType(parkedVehicleEntity.getVehicleType())
+                        .vehicleNumber(parkedVehicleEntity.getVehicleNumber())
+                        .lotNumber(parkedVehicleEntity.getLotNumber())
+                        .build();
+            } else {
+                final ParkedVehicleEntity existing = find(parkedVehicleEntity.getId());
+                if(existing == null) {
+                    throw new InvalidParameterException(MessageFormat.format(ERROR_ID_IS_INVALID,
+                            String.valueOf(parkedVehicleEntity.getId())));
+                }
+                // session held back is replaced, not changed, so that it can be put back
+                data = copy(existing);
+            }
+            data.setTimeInSeconds(parkedVehicleEntity.getTimeInSeconds());
+            data.setTimeOutSeconds(parkedVehicleEntity.getTimeOutSeconds());
+            data.setParkingFee(parkedVehicleEntity.getParkingFee());
+            hold(data);
+            return copy(data);
+        }
+    }
+
+    @Override
+    public ParkedVehicleEntity exitParkedVehicle(final Long id, final long timeOutSeconds) {
+        if(id == null) {
+            throw new InvalidParameterException("Id cannot be null");
+        }
+        if(timeOutSeconds == TimeUtil.NO_TIME) {
+            throw new InvalidParameterException("Time out cannot be null");
+        }
+        synchronized(database) {
+            final ParkedVehicleEntity existing = find(id);
+            if(existing == null) {
+                throw new InvalidParameterException(MessageFormat.format(ERROR_ID_IS_INVALID, String.valueOf(id)));
+            }
+            if(existing.hasExited()) {
+                throw new VehicleNotParkedException(existing.getVehicleNumber());
+            }
+            final ParkedVehicleEntity data = copy(existing);
+            data.setTimeOutSeconds(timeOutSeconds);
+            hold(data);
+            return copy(data);
+        }
+    }
+
+    @Override
+    public List<ParkedVehicleEntity> findAllParkedVehicles() {
+        synchronized(database) {
+            try {
+                executeBatch();
+                final List<ParkedVehicleEntity> parkedVehicles = new ArrayList<>();
+                try (final ResultSet resultSet = database.prepare(SELECT_PARKED).executeQuery()) {
+                    while(resultSet.next()) {
+                        parkedVehicles.add(toEntity(resultSet));
+                    }
+                }
+                return List.copyOf(parkedVehicles);
+            } catch(SQLException e) {
+                throw ValetDatabase.failed(e);
+            }
+        }
+    }
+
+    @Override
+    public ParkedVehicleEntity findParkedVehicleByVehicleNumber(final String vehicleNumber) {
+        if(vehicleNumber == null) {
+            throw new InvalidParameterException("Vehicle number cannot be null");
+        }
+        synchronized(database) {
+            final ParkedVehicleEntity data = findParked(vehicleNumber);
+            return data == null ? null : copy(data);
+        }
+    }
+
+    @Override
+    public ParkedVehicleEntity findById(final Long id) {
+        if(id == null) {
+            throw new InvalidParameterException("Id cannot be null");
+        }
+        synchronized(database) {
+            final ParkedVehicleEntity data = find(id);
+            return data == null ? null : copy(data);
+        }
+    }
+
+    /**
+     * Write sessions held back as one JDBC batch. Caller holds the lock of the database.
+     * @throws SQLException if sessions cannot be written
+     */
+    @Override
+    public void executeBatch() throws SQLException {
+        if(pendingSessions.isEmpty()) {
+            return;
+        }
+        final PreparedStatement merge = database.prepare(MERGE_SESSION);
+        for(ParkedVehicleEntity session : pendingSessions.values()) {
+            merge.setLong(1, session.getId());
+            merge.setString(2, session.getVehicleType().name());
+            merge.setString(3, session.getVehicleNumber());
+            merge.setInt(4, session.getLotNumber());
+            setTime(merge, 5, session.getTimeInSeconds());
+            setTime(merge, 6, session.getTimeOutSeconds());
+            merge.setLong(7, session.getParkingFee());
+            merge.addBatch();
+        }
+        merge.executeBatch();
+        pendingSessions.clear();
+        pendingByVehicleNumber.clear();
+    }
+
+    /**
+     * Hold session back until the next batch, or put back the sessions held before if the write cannot be counted.
+     * Caller holds the lock of the database.
+     */
+    private void hold(final ParkedVehicleEntity data) {
+        final ParkedVehicleEntity previous = pendingSessions.put(data.getId(), data);
+        final ParkedVehicleEntity latest = pendingByVehicleNumber.get(data.getVehicleNumber());
+        if(latest == null || latest.getId() <= data.getId()) {
+            pendingByVehicleNumber.put(data.getVehicleNumber(), data);
+        }
+        try {
+            database.written();
+        } catch(RuntimeException e) {
+            // caller undoes its change, so the session must not be found or written later
+            restore(pendingSessions, data.getId(), previous);
+            restore(pendingByVehicleNumber, data.getVehicleNumber(), latest);
+            throw e;
+        }
+    }
+
+    private static <K> void restore(final Map<K, ParkedVehicleEntity> sessions, final K key,
+                                    final ParkedVehicleEntity previous) {
+        if(previous == null) {
+            sessions.remove(key);
+        } else {
+            sessions.put(key, previous);
+        }
+    }
+
+    /**
+     * Find session by Id, held back or in the database. Caller holds the lock of the database.
+     */
+    private ParkedVehicleEntity find(final long id) {
+        final ParkedVehicleEntity pending = pendingSessions.get(id);
+        if(pending != null) {
+            return pending;
+        }
+        return selectOne(SELECT_BY_ID, id);
+    }
+
+    /**
+     * Find parked session by vehicle number, held back or in the database. Caller holds the lock of the database.
+     */
+    private ParkedVehicleEntity findParked(final String vehicleNumber) {
+        final ParkedVehicleEntity pending = pendingByVehicleNumber.get(vehicleNumber);
+        if(pending != null && !pending.hasExited()) {
+            return pending;
+        }
+        final ParkedVehicleEntity stored = selectOne(SELECT_PARKED_BY_VEHICLE_NUMBER, vehicleNumber);
+        if(stored == null) {
+            return null;
+        }
+        // session may have exited since it was written
+        final ParkedVehicleEntity latest = pendingSessions.getOrDefault(stored.getId(), stored);
+        return latest.hasExited() ? null : latest;
+    }
+
+    private ParkedVehicleEntity selectOne(final String sql, final Object key) {
+        try {
+            final PreparedStatement select = database.prepare(sql);
+            select.setObject(1, key);
+            try (final ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? toEntity(resultSet) : null;
+            }
+        } catch(SQLException e) {
+            throw ValetDatabase.failed(e);
+        }
+    }
+
+    private static ParkedVehicleEntity toEntity(final ResultSet resultSet) throws SQLException {
+        return ParkedVehicleEntity.builder()
+                .id(resultSet.getLong(1))
+                .vehicleType(VehicleType.valueOf(resultSet.getString(2)))
+                .vehicleNumber(resultSet.getString(3))
+                .lotNumber(resultSet.getInt(4))
+                .timeInSeconds(getTime(resultSet, 5))
+                .timeOutSeconds(getTime(resultSet, 6))
+                .parkingFee(resultSet.getLong(7))
+                .build();
+    }
+
+    private static void setTime(final PreparedStatement statement, final int index, final long seconds)
+            throws SQLException {
+        if(seconds == TimeUtil.NO_TIME) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, seconds);
+        }
+    }
+
+    private static long getTime(final ResultSet resultSet, final int index) throws SQLException {
+        final long seconds = resultSet.getLong(index);
+        return resultSet.wasNull() ? TimeUtil.NO_TIME : seconds;
+    }
+
+    /**
+     * Make a copy
+     * @param src ParkedVehicleEntity
+     * @return ParkedVehicleEntity
+     */
+    private static ParkedVehicleEntity copy(final ParkedVehicleEntity src) {
+        return ParkedVehicleEntity.builder()
+                .id(src.getId())
+                .vehicleType(src.getVehicleType())
+                .vehicleNumber(src.getVehicleNumber())
+                .lotNumber(src.getLotNumber())
+                .timeInSeconds(src.getTimeInSeconds())
+                .timeOutSeconds(src.getTimeOutSeconds())
+                .parkingFee(src.getParkingFee())
+                .build();
+    }
+}
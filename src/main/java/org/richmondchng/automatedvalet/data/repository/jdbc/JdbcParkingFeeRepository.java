@@ -0,0 +1,80 @@
+package org.richmondchng.automatedvalet.data.repository.jdbc;
+
+import org.richmondchng.automatedvalet.data.entity.ParkingFeeEntity;
+import org.richmondchng.automatedvalet.data.repository.ParkingFeeRepository;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.security.InvalidParameterException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Implementation for ParkingFeeRepository.
+ *
+ * This uses the parking_fee table of an embedded database.
+ *
+ * @author richmondchng
+ */
+public class JdbcParkingFeeRepository implements ParkingFeeRepository {
+
+    private static final String MERGE_FEE = "MERGE INTO parking_fee (vehicle_type, parking_fee_per_hour) "
+            + "KEY (vehicle_type) VALUES (?, ?)";
+    private static final String SELECT_FEE = "SELECT parking_fee_per_hour FROM parking_fee WHERE vehicle_type = ?";
+
+    private final ValetDatabase database;
+
+    /**
+     * Constructor. Parking fees in the table are replaced by the configured parking fees.
+     * @param database ValetDatabase
+     * @param configurations map containing key-value pair describing parking fee per hour by vehicle type.
+     */
+    public JdbcParkingFeeRepository(final ValetDatabase database, final Map<VehicleType, Integer> configurations) {
+        if(database == null) {
+            throw new InvalidParameterException("Database cannot be null");
+        }
+        if(configurations == null) {
+            throw new InvalidParameterException("Configurations is null");
+        }
+        this.database = database;
+        synchronized(database) {
+            try {
+                final PreparedStatement merge = database.prepare(MERGE_FEE);
+                for(Map.Entry<VehicleType, Integer> configuration : configurations.entrySet()) {
+                    merge.setString(1, configuration.getKey().name());
+                    merge.setInt(2, configuration.getValue());
+                    merge.addBatch();
+                }
+                merge.executeBatch();
+                database.commit();
+            } catch(SQLException e) {
+                throw ValetDatabase.failed(e);
+            }
+        }
+    }
+
+    @Override
+    public ParkingFeeEntity findByVehicleType(final VehicleType vehicleType) {
+        if(vehicleType == null) {
+            return null;
+        }
+        synchronized(database) {
+            try {
+                final PreparedStatement select = database.prepare(SELECT_FEE);
+                select.setString(1, vehicleType.name());
+                try (final ResultSet resultSet = select.executeQuery()) {
+                    if(!resultSet.next()) {
+                        return null;
+                    }
+                    return ParkingFeeEntity.builder()
+                            .vehicleType(vehicleType)
+                            .parkingFeePerHour(resultSet.getInt(1))
+                            .build();
+                }
+            } catch(SQLException e) {
+                throw ValetDatabase.failed(e);
+            }
+        }
+    }
+}
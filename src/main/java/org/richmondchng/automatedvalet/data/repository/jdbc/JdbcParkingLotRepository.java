@@ -0,0 +1,268 @@
+package org.richmondchng.automatedvalet.data.repository.jdbc;
+
+import org.richmondchng.automatedvalet.data.entity.ParkingLotEntity;
+import org.richmondchng.automatedvalet.data.repository.ParkingLotRepository;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.security.InvalidParameterException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Implementation for ParkingLotRepository.
+ *
+ * This uses the parking_lot table of an embedded database. Lots keep their occupied flag in the table, so lots
+ * occupied before a restart stay occupied. The lowest available lot is found through the index on vehicle type,
+ * occupied flag and lot number. Changes to the occupied flag are held back and written together as one JDBC batch
+ * before the database commits; until then, the lots held back are taken into account when a lot is allocated.
+ *
+ * @author richmondchng
+ */
+public class JdbcParkingLotRepository implements ParkingLotRepository, ValetDatabase.BatchedWrites {
+
+    // parking lot label e.g. CarLot1, CarLot2, etc..., MotorcycleLot1, MotorcycleLot2, etc...
+    private static final String LOT_LABEL_INFIX = "Lot";
+    private static final String ERROR_LOT_NUMBER_IS_INVALID = "Lot number {0} is invalid";
+    private static final String ERROR_LOT_IS_OCCUPIED = "{0} is occupied and cannot be removed";
+
+    private static final String MERGE_LOT = "MERGE INTO parking_lot (vehicle_type, lot_number, label) "
+            + "KEY (vehicle_type, lot_number) VALUES (?, ?, ?)";
+    private static final String SELECT_OCCUPIED_LOT_AFTER = "SELECT label FROM parking_lot WHERE vehicle_type = ? "
+            + "AND lot_number > ? AND occupied = TRUE ORDER BY lot_number LIMIT 1";
+    private static final String DELETE_LOTS_AFTER = "DELETE FROM parking_lot WHERE vehicle_type = ? AND lot_number > ?";
+    private static final String SELECT_LOTS = "SELECT lot_number, label FROM parking_lot WHERE vehicle_type = ? "
+            + "ORDER BY lot_number";
+    // lowest available lots, enough to skip the lots allocated but not written yet; ordered by every column of the
+    // index so that rows are read in index order and the scan stops at the limit
+    private static final String SELECT_AVAILABLE_LOTS = "SELECT lot_number, label FROM parking_lot "
+            + "WHERE vehicle_type = ? AND occupied = FALSE ORDER BY vehicle_type, occupied, lot_number LIMIT ?";
+    private static final String UPDATE_OCCUPIED = "UPDATE parking_lot SET occupied = ? "
+            + "WHERE vehicle_type = ? AND lot_number = ?";
+
+    private final ValetDatabase database;
+    private final Map<VehicleType, Integer> numberOfLots;
+    // occupied flag of lots changed but not written yet, by vehicle type and lot number
+    private final Map<VehicleType, TreeMap<Integer, Boolean>> pendingLots = new EnumMap<>(VehicleType.class);
+
+    /**
+     * Constructor. Lots are added to the table if they are not in it yet, and lots that are no longer configured are
+     * removed.
+     * @param database ValetDatabase
+     * @param configurations map containing key-value pair describing number of lots by vehicle type.
+     * @throws IllegalStateException if a lot that is no longer configured is occupied
+     */
+    public JdbcParkingLotRepository(final ValetDatabase database, final Map<VehicleType, Integer> configurations) {
+        if(database == null) {
+            throw new InvalidParameterException("Database cannot be null");
+        }
+        if(configurations == null) {
+            throw new InvalidParameterException("Configurations is null");
+        }
+        this.database = database;
+        this.numberOfLots = new EnumMap<>(configurations);
+        for(VehicleType vehicleType : numberOfLots.keySet()) {
+            pendingLots.put(vehicleType, new TreeMap<>());
+        }
+        synchronized(database) {
+            try {
+                // a lot is only removed once no vehicle is parked in it
+                final PreparedStatement occupied = database.prepare(SELECT_OCCUPIED_LOT_AFTER);
+                for(Map.Entry<VehicleType, Integer> configuration : numberOfLots.entrySet()) {
+                    occupied.setString(1, configuration.getKey().name());
+                    occupied.setInt(2, configuration.getValue());
+                    try (final ResultSet resultSet = occupied.executeQuery()) {
+                        if(resultSet.next()) {
+                            throw new IllegalStateException(MessageFormat.format(ERROR_LOT_IS_OCCUPIED,
+                                    resultSet.getString(1)));
+                        }
+                    }
+                }
+                final PreparedStatement merge = database.prepare(MERGE_LOT);
+                for(Map.Entry<VehicleType, Integer> configuration : numberOfLots.entrySet()) {
+                    final String labelPrefix = configuration.getKey().getLabel() + LOT_LABEL_INFIX;
+                    for(int lotNumber = 1; lotNumber <= configuration.getValue(); lotNumber++) {
+                        merge.setString(1, configuration.getKey().name());
+                        merge.setInt(2, lotNumber);
+                        merge.setString(3, labelPrefix + lotNumber);
+                        merge.addBatch();
+                    }
+                    merge.executeBatch();
+                    final PreparedStatement delete = database.prepare(DELETE_LOTS_AFTER);
+                    delete.setString(1, configuration.getKey().name());
+                    delete.setInt(2, configuration.getValue());
+                    delete.executeUpdate();
+                }
+                database.commit();
+            } catch(SQLException e) {
+                throw ValetDatabase.failed(e);
+            }
+            database.addBatchedWrites(this);
+        }
+    }
+
+    @Override
+    public List<ParkingLotEntity> finalAllParkingLotsByVehicleTypeOrderByLotNumber(final VehicleType vehicleType) {
+        checkVehicleType(vehicleType);
+        synchronized(database) {
+            try {
+                final PreparedStatement select = database.prepare(SELECT_LOTS);
+                select.setString(1, vehicleType.name());
+                final List<ParkingLotEntity> parkingLots = new ArrayList<>();
+                try (final ResultSet resultSet = select.executeQuery()) {
+                    while(resultSet.next()) {
+                        parkingLots.add(toEntity(vehicleType, resultSet));
+                    }
+                }
+                return Collections.unmodifiableList(parkingLots);
+            } catch(SQLException e) {
+                throw ValetDatabase.failed(e);
+            }
+        }
+    }
+
+    @Override
+    public ParkingLotEntity allocateAvailableParkingLot(final VehicleType vehicleType) {
+        checkVehicleType(vehicleType);
+        synchronized(database) {
+            try {
+                final TreeMap<Integer, Boolean> pending = pendingLots.get(vehicleType);
+                // lowest lot released but not written yet, and number of lots allocated but not written yet
+                Integer lotNumber = null;
+                int allocated = 0;
+                if(pending != null) {
+                    for(Map.Entry<Integer, Boolean> entry : pending.entrySet()) {
+                        if(entry.getValue()) {
+                            allocated++;
+                        } else if(lotNumber == null) {
+                            lotNumber = entry.getKey();
+                        }
+                    }
+                }
+                final PreparedStatement select = database.prepare(SELECT_AVAILABLE_LOTS);
+                select.setString(1, vehicleType.name());
+                select.setInt(2, allocated + 1);
+                try (final ResultSet resultSet = select.executeQuery()) {
+                    while(resultSet.next()) {
+                        final int available = resultSet.getInt(1);
+                        if(lotNumber != null && lotNumber < available) {
+                            break;
+                        }
+                        // skip lots allocated but not written yet
+                        if(pending == null || !Boolean.TRUE.equals(pending.get(available))) {
+                            lotNumber = available;
+                            break;
+                        }
+                    }
+                }
+                if(lotNumber == null) {
+                    // all lots are occupied, or no lot is configured
+                    return null;
+                }
+                hold(vehicleType, lotNumber, true);
+                return ParkingLotEntity.builder()
+                        .vehicleType(vehicleType)
+                        .lotNumber(lotNumber)
+                        .label(findParkingLotLabel(vehicleType, lotNumber))
+                        .build();
+            } catch(SQLException e) {
+                throw ValetDatabase.failed(e);
+            }
+        }
+    }
+
+    @Override
+    public void releaseParkingLot(final VehicleType vehicleType, final int lotNumber) {
+        checkLot(vehicleType, lotNumber);
+        synchronized(database) {
+            hold(vehicleType, lotNumber, false);
+        }
+    }
+
+    @Override
+    public String findParkingLotLabel(final VehicleType vehicleType, final int lotNumber) {
+        checkLot(vehicleType, lotNumber);
+        // label does not change, it is built the same way as when lots were added
+        return vehicleType.getLabel() + LOT_LABEL_INFIX + lotNumber;
+    }
+
+    /**
+     * Write occupied flags held back as one JDBC batch. Caller holds the lock of the database.
+     * @throws SQLException if lots cannot be written
+     */
+    @Override
+    public void executeBatch() throws SQLException {
+        PreparedStatement update = null;
+        for(Map.Entry<VehicleType, TreeMap<Integer, Boolean>> entry : pendingLots.entrySet()) {
+            for(Map.Entry<Integer, Boolean> lot : entry.getValue().entrySet()) {
+                if(update == null) {
+                    update = database.prepare(UPDATE_OCCUPIED);
+                }
+                update.setBoolean(1, lot.getValue());
+                update.setString(2, entry.getKey().name());
+                update.setInt(3, lot.getKey());
+                update.addBatch();
+            }
+        }
+        if(update == null) {
+            return;
+        }
+        update.executeBatch();
+        for(TreeMap<Integer, Boolean> pending : pendingLots.values()) {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Hold occupied flag back until the next batch, or put back the flag held before if the write cannot be counted.
+     * Caller holds the lock of the database.
+     */
+    private void hold(final VehicleType vehicleType, final int lotNumber, final boolean occupied) {
+        final TreeMap<Integer, Boolean> pending = pendingLots.get(vehicleType);
+        final Boolean previous = pending.put(lotNumber, occupied);
+        try {
+            database.written();
+        } catch(RuntimeException e) {
+            if(previous == null) {
+                pending.remove(lotNumber);
+            } else {
+                pending.put(lotNumber, previous);
+            }
+            throw e;
+        }
+    }
+
+    private void checkLot(final VehicleType vehicleType, final int lotNumber) {
+        checkVehicleType(vehicleType);
+        final Integer lots = numberOfLots.get(vehicleType);
+        if(lots == null) {
+            throw new InvalidParameterException("No parking lot configured for " + vehicleType.getLabel());
+        }
+        if(lotNumber < 1 || lotNumber > lots) {
+            throw new InvalidParameterException(MessageFormat.format(ERROR_LOT_NUMBER_IS_INVALID,
+                    String.valueOf(lotNumber)));
+        }
+    }
+
+    private static void checkVehicleType(final VehicleType vehicleType) {
+        if(vehicleType == null) {
+            throw new InvalidParameterException("Vehicle type cannot be null");
+        }
+    }
+
+    private static ParkingLotEntity toEntity(final VehicleType vehicleType, final ResultSet resultSet)
+            throws SQLException {
+        return ParkingLotEntity.builder()
+                .vehicleType(vehicleType)
+                .lotNumber(resultSet.getInt(1))
+                .label(resultSet.getString(2))
+                .build();
+    }
+}
@@ -0,0 +1,212 @@
+package org.richmondchng.automatedvalet.data.repository.jdbc;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded H2 database file shared by the JDBC repositories.
+ *
+ * All repositories use one connection, and every repository call holds the lock of this object for its whole
+ * duration, so statements of two gates never interleave. Writes are not committed one at a time: they are committed
+ * together after a number of writes, and on close. Statements are prepared once and reused.
+ *
+ * When a commit fails, the writes since the last commit are rolled back and the database fails: every later call is
+ * refused, so that part of a batch is never committed after the caller was told that its write failed.
+ *
+ * @author richmondchng
+ */
+public class ValetDatabase implements Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final String URL_PREFIX = "jdbc:h2:file:";
+    private static final String USER = "sa";
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS parking_lot (vehicle_type VARCHAR(16) NOT NULL, lot_number INT NOT NULL, "
+                    + "label VARCHAR(64) NOT NULL, occupied BOOLEAN DEFAULT FALSE NOT NULL, "
+                    + "PRIMARY KEY (vehicle_type, lot_number))",
+            // lowest available lot of a vehicle type
+            "CREATE INDEX IF NOT EXISTS parking_lot_available ON parking_lot (vehicle_type, occupied, lot_number)",
+            "CREATE TABLE IF NOT EXISTS parking_fee (vehicle_type VARCHAR(16) PRIMARY KEY, "
+                    + "parking_fee_per_hour INT NOT NULL)",
+            // time in and time out in seconds since epoch, null when not recorded
+            "CREATE TABLE IF NOT EXISTS parked_vehicle (id BIGINT PRIMARY KEY, vehicle_type VARCHAR(16) NOT NULL, "
+                    + "vehicle_number VARCHAR(256) NOT NULL, lot_number INT NOT NULL, time_in_seconds BIGINT, "
+                    + "time_out_seconds BIGINT, parking_fee BIGINT DEFAULT 0 NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS parked_vehicle_vehicle_number ON parked_vehicle "
+                    + "(vehicle_number, time_out_seconds)",
+            "CREATE INDEX IF NOT EXISTS parked_vehicle_lot ON parked_vehicle (vehicle_type, lot_number)"
+    };
+
+    private final Connection connection;
+    private final int batchSize;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    // writes held back by repositories, executed as JDBC batches before each commit
+    private final List<BatchedWrites> batchedWrites = new ArrayList<>();
+    private int uncommittedWrites;
+    private boolean closed;
+    // commit that failed, no call is accepted after it
+    private SQLException failure;
+
+    /**
+     * Writes that a repository holds back and executes as one JDBC batch.
+     */
+    interface BatchedWrites {
+
+        /**
+         * Execute writes held back so far.
+         * @throws SQLException if writes cannot be executed
+         */
+        void executeBatch() throws SQLException;
+    }
+
+    /**
+     * Constructor. Open database file, or create it if it does not exist.
+     * @param path database file, without the .mv.db extension added by H2
+     * @param batchSize number of writes committed together
+     * @throws SQLException if database cannot be opened
+     */
+    public ValetDatabase(final Path path, final int batchSize) throws SQLException {
+        if(path == null) {
+            throw new InvalidParameterException("Path cannot be null");
+        }
+        if(batchSize < 1) {
+            throw new InvalidParameterException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        this.connection = DriverManager.getConnection(URL_PREFIX + path.toAbsolutePath(), USER, "");
+        try (final Statement statement = connection.createStatement()) {
+            for(String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+        connection.setAutoCommit(false);
+    }
+
+    /**
+     * Open database file.
+     * @param filePath database file path
+     * @param batchSize number of writes committed together
+     * @return ValetDatabase
+     * @throws SQLException if database cannot be opened
+     */
+    public static ValetDatabase open(final String filePath, final int batchSize) throws SQLException {
+        return new ValetDatabase(Path.of(filePath), batchSize);
+    }
+
+    /**
+     * Get the highest parking session Id saved.
+     * @return last session Id, or 0 if no session was saved
+     */
+    public synchronized long getLastId() {
+        try (final ResultSet resultSet = prepare("SELECT COALESCE(MAX(id), 0) FROM parked_vehicle").executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        } catch(SQLException e) {
+            throw failed(e);
+        }
+    }
+
+    /**
+     * Commit every write made so far.
+     * @throws IllegalStateException if writes cannot be committed, or database is closed or failed
+     */
+    public synchronized void commit() {
+        checkOpen();
+        try {
+            for(BatchedWrites writes : batchedWrites) {
+                writes.executeBatch();
+            }
+            connection.commit();
+            uncommittedWrites = 0;
+        } catch(SQLException e) {
+            failure = e;
+            try {
+                connection.rollback();
+            } catch(SQLException suppressed) {
+                // uncommitted writes are dropped when the connection is closed
+                e.addSuppressed(suppressed);
+            }
+            throw failed(e);
+        }
+    }
+
+    /**
+     * Commit every write made so far, and close database. Nothing is committed if an earlier commit failed.
+     */
+    @Override
+    public synchronized void close() {
+        if(closed) {
+            return;
+        }
+        try {
+            if(failure == null) {
+                commit();
+            }
+        } finally {
+            closed = true;
+            try {
+                connection.close();
+            } catch(SQLException e) {
+                throw failed(e);
+            }
+        }
+    }
+
+    /**
+     * Register writes held back by a repository.
+     * @param writes BatchedWrites
+     */
+    synchronized void addBatchedWrites(final BatchedWrites writes) {
+        batchedWrites.add(writes);
+    }
+
+    /**
+     * Get prepared statement, prepared on first use.
+     * @param sql SQL
+     * @return PreparedStatement
+     * @throws SQLException if statement cannot be prepared
+     */
+    PreparedStatement prepare(final String sql) throws SQLException {
+        checkOpen();
+        PreparedStatement statement = statements.get(sql);
+        if(statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Count a write, and commit once the batch size is reached. Caller holds the lock of this object.
+     */
+    void written() {
+        if(++uncommittedWrites >= batchSize) {
+            commit();
+        }
+    }
+
+    static IllegalStateException failed(final SQLException e) {
+        return new IllegalStateException("Database cannot be accessed", e);
+    }
+
+    private void checkOpen() {
+        if(closed) {
+            throw new IllegalStateException("Database is closed");
+        }
+        if(failure != null) {
+            throw new IllegalStateException("Database has failed", failure);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.richmondchng.automatedvalet.data.storage;
+
+import java.security.InvalidParameterException;
+import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Index of available parking lots for one vehicle type.
+ *
+ * Bit (lotNumber - 1) is set when the lot is available. A lot is allocated by clearing the lowest set bit with
+ * compare-and-set, and released by setting its bit again, so gates never wait on a lock. When two gates race for the
+ * same lot, only one compare-and-set succeeds and the other moves on to the next available lot.
+ *
+ * The search starts from the first word that may have an available lot. A search that moves the hint past a full
+ * word checks the word again afterwards, so a lot released at the same time is never left behind the hint. A search
+ * that finds no lot after the hint still searches again from the start before reporting that all lots are occupied.
+ *
+ * @author richmondchng
+ */
+final class AvailableLotIndex {
+
+    private static final String ERROR_LOT_NUMBER_IS_INVALID = "Lot number {0} is invalid";
+    private static final String ERROR_LOT_NUMBER_IS_OCCUPIED = "Lot number {0} is already occupied";
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+
+    private final int numberOfLots;
+    private final AtomicLongArray availableLots;
+    // no word before this one has an available lot, unless a release is in progress
+    private final AtomicInteger firstAvailableWord = new AtomicInteger();
+
+    /**
+     * Constructor. All lots are available.
+     * @param numberOfLots number of lots
+     */
+    AvailableLotIndex(final int numberOfLots) {
+        this.numberOfLots = numberOfLots;
+        final int numberOfWords = (numberOfLots + BITS_PER_WORD - 1) >>> ADDRESS_BITS_PER_WORD;
+        this.availableLots = new AtomicLongArray(numberOfWords);
+        for(int word = 0; word < numberOfWords; word++) {
+            final int bits = Math.min(BITS_PER_WORD, numberOfLots - (word << ADDRESS_BITS_PER_WORD));
+            availableLots.set(word, bits == BITS_PER_WORD ? -1L : (1L << bits) - 1);
+        }
+    }
+
+    /**
+     * Allocate the lowest numbered available lot.
+     * @return lot number, or -1 if all lots are occupied
+     */
+    int allocate() {
+        final int start = firstAvailableWord.get();
+        final int lotNumber = allocate(start);
+        if(lotNumber > 0 || start == 0) {
+            return lotNumber;
+        }
+        // a lot before the hint may have been released while the hint was moved forward
+        return allocate(0);
+    }
+
+    /**
+     * Mark lot as available.
+     * @param lotNumber lot number
+     */
+    void release(final int lotNumber) {
+        final int index = toIndex(lotNumber);
+        final int word = index >>> ADDRESS_BITS_PER_WORD;
+        final long bit = 1L << index;
+        long current;
+        do {
+            current = availableLots.get(word);
+        } while((current & bit) == 0 && !availableLots.compareAndSet(word, current, current | bit));
+        firstAvailableWord.accumulateAndGet(word, Math::min);
+    }
+
+    /**
+     * Mark a given lot as occupied.
+     * @param lotNumber lot number
+     */
+    void occupy(final int lotNumber) {
+        final int index = toIndex(lotNumber);
+        final int word = index >>> ADDRESS_BITS_PER_WORD;
+        final long bit = 1L << index;
+        long current;
+        do {
+            current = availableLots.get(word);
+            if((current & bit) == 0) {
+                throw new InvalidParameterException(MessageFormat.format(ERROR_LOT_NUMBER_IS_OCCUPIED,
+                        String.valueOf(lotNumber)));
+            }
+        } while(!availableLots.compareAndSet(word, current, current & ~bit));
+    }
+
+    private int allocate(final int fromWord) {
+        final int numberOfWords = availableLots.length();
+        for(int word = fromWord; word < numberOfWords; word++) {
+            long current = availableLots.get(word);
+            while(current != 0) {
+                if(availableLots.compareAndSet(word, current, current & (current - 1))) {
+                    return (word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(current) + 1;
+                }
+                // lost the race, try the next available lot in the same word
+                current = availableLots.get(word);
+            }
+            // word is full, later searches can start after it
+            if(firstAvailableWord.compareAndSet(word, word + 1) && availableLots.get(word) != 0) {
+                // a lot was released before the hint was moved past it, move the hint back and search the word again
+                firstAvailableWord.accumulateAndGet(word, Math::min);
+                word--;
+            }
+        }
+        return -1;
+    }
+
+    private int toIndex(final int lotNumber) {
+        if(lotNumber < 1 || lotNumber > numberOfLots) {
+            throw new InvalidParameterException(MessageFormat.format(ERROR_LOT_NUMBER_IS_INVALID,
+                    String.valueOf(lotNumber)));
+        }
+        return lotNumber - 1;
+    }
+}
@@ -1,74 +1,316 @@
 package org.richmondchng.automatedvalet.data.storage;
 
 import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.data.id.SequenceSessionIdGenerator;
+import org.richmondchng.automatedvalet.data.id.SessionIdGenerator;
+import org.richmondchng.automatedvalet.data.journal.ParkedVehicleJournal;
+import org.richmondchng.automatedvalet.data.occupancy.LotOccupancyTable;
+import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
+import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.security.InvalidParameterException;
 import java.text.MessageFormat;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Data storage representing data storage for ParkedVehicleEntity.
  *
+ * Vehicles that are still parked (without time out) are kept apart from exited parking sessions, which are moved into
+ * ParkedVehicleHistoryDataStorage once time out is recorded.
+ *
+ * Safe to use from multiple threads.
+ *
+ * When a journal is supplied, every change is recorded in the journal before it is returned to the caller. A change
+ * that cannot be recorded is undone, and the journal exception is thrown. The journal refuses every change after
+ * that, so the undone change is never written later.
+ *
+ * When an occupancy table is supplied, vehicles parked in its occupied lots are parked again on construction, and
+ * every vehicle that parks or exits is recorded in the lot it occupies.
+ *
  * This can then be replaced with actual database, or other data storage.
  *
  * @author richmondchng
  */
 public class ParkedVehicleDataStorage {
 
-    private final List<ParkedVehicleEntity> parkedVehiclesEntities;
+    // vehicles that are still parked (without time out), keyed by vehicle number
+    private final Map<String, ParkedVehicleEntity> parkedVehiclesByVehicleNumber;
+    // same vehicles, keyed by record Id
+    private final Map<Long, ParkedVehicleEntity> parkedVehiclesById;
+    private final ParkedVehicleHistoryDataStorage historyDataStorage;
+    private final SessionIdGenerator sessionIdGenerator;
+    // null when changes are not journaled
+    private final ParkedVehicleJournal journal;
+    // null when lot occupancy is not persisted
+    private final LotOccupancyTable occupancyTable;
 
     private static final String ERROR_ID_IS_INVALID = "Id {0} is invalid";
 
+    /**
+     * Constructor. Exited parking sessions are kept in an unbounded history, Ids are a running sequence.
+     */
     public ParkedVehicleDataStorage() {
-        parkedVehiclesEntities = new LinkedList<>();
+        this(new ParkedVehicleHistoryDataStorage(), new SequenceSessionIdGenerator());
+    }
+
+    /**
+     * Constructor.
+     * @param historyDataStorage storage for exited parking sessions
+     * @param sessionIdGenerator generator for Ids of new records
+     */
+    public ParkedVehicleDataStorage(final ParkedVehicleHistoryDataStorage historyDataStorage,
+                                    final SessionIdGenerator sessionIdGenerator) {
+        this(historyDataStorage, sessionIdGenerator, null);
+    }
+
+    /**
+     * Constructor.
+     * @param historyDataStorage storage for exited parking sessions
+     * @param sessionIdGenerator generator for Ids of new records
+     * @param journal journal to record every change in, or null
+     */
+    public ParkedVehicleDataStorage(final ParkedVehicleHistoryDataStorage historyDataStorage,
+                                    final SessionIdGenerator sessionIdGenerator, final ParkedVehicleJournal journal) {
+        this(historyDataStorage, sessionIdGenerator, journal, null);
+    }
+
+    /**
+     * Constructor.
+     * @param historyDataStorage storage for exited parking sessions
+     * @param sessionIdGenerator generator for Ids of new records
+     * @param journal journal to record every change in, or null
+     * @param occupancyTable occupancy table to restore parked vehicles from and record lots in, or null
+     */
+    public ParkedVehicleDataStorage(final ParkedVehicleHistoryDataStorage historyDataStorage,
+                                    final SessionIdGenerator sessionIdGenerator, final ParkedVehicleJournal journal,
+                                    final LotOccupancyTable occupancyTable) {
+        if(historyDataStorage == null) {
+            throw new InvalidParameterException("History data storage cannot be null");
+        }
+        if(sessionIdGenerator == null) {
+            throw new InvalidParameterException("Session Id generator cannot be null");
+        }
+        this.parkedVehiclesByVehicleNumber = new ConcurrentHashMap<>();
+        this.parkedVehiclesById = new ConcurrentHashMap<>();
+        this.historyDataStorage = historyDataStorage;
+        this.sessionIdGenerator = sessionIdGenerator;
+        this.journal = journal;
+        this.occupancyTable = occupancyTable;
+        if(occupancyTable != null) {
+            for(ParkedVehicleEntity parkedVehicle : occupancyTable.getParkedVehicles()) {
+                restoreParkedVehicle(parkedVehicle);
+            }
+        }
     }
 
     /**
      * Save entity bean.
+     *
+     * A new parked vehicle is only added if the vehicle number is not already parked, and a parked vehicle is only
+     * moved to history once, even when called from several threads at the same time.
+     *
      * @param parkedVehicleEntity ParkedVehicleEntity
      * @return updated bean
+     * @throws VehicleAlreadyParkedException if new record is for a vehicle number that is already parked
+     * @throws VehicleNotParkedException if time out is saved for a vehicle that has already exited
      */
     public ParkedVehicleEntity save(final ParkedVehicleEntity parkedVehicleEntity) {
         if(parkedVehicleEntity == null) {
             throw new InvalidParameterException("ParkedVehicleEntity cannot be null");
         }
-        ParkedVehicleEntity data = null;
-        if(parkedVehicleEntity.getId() != null) {
-            // existing object
-            data = parkedVehiclesEntities.stream().filter(b -> b.getId().equals(parkedVehicleEntity.getId()))
-                    .findAny().orElse(null);
-            if(data == null) {
-                throw new InvalidParameterException(MessageFormat.format(ERROR_ID_IS_INVALID, parkedVehicleEntity.getId()));
+        if(parkedVehicleEntity.getId() == null) {
+            return saveNewRecord(parkedVehicleEntity);
+        }
+        // existing object
+        ParkedVehicleEntity data = parkedVehiclesById.get(parkedVehicleEntity.getId());
+        if(data != null) {
+            if(parkedVehicleEntity.hasExited()) {
+                // vehicle exited, only the thread that removes the record moves it to history
+                if(!parkedVehiclesById.remove(data.getId(), data)) {
+                    throw new VehicleNotParkedException(data.getVehicleNumber());
+                }
+                try {
+                    journalChanges(parkedVehicleEntity, data);
+                } catch(RuntimeException e) {
+                    parkedVehiclesById.put(data.getId(), data);
+                    throw e;
+                }
+                copyFields(parkedVehicleEntity, data);
+                parkedVehiclesByVehicleNumber.remove(data.getVehicleNumber(), data);
+                historyDataStorage.append(data);
+                releaseLot(data);
+            } else {
+                journalChanges(parkedVehicleEntity, data);
+                copyFields(parkedVehicleEntity, data);
+                if(occupancyTable != null) {
+                    occupancyTable.occupy(data);
+                }
+            }
+            return data;
+        }
+        data = historyDataStorage.getRecordById(parkedVehicleEntity.getId());
+        if(data == null) {
+            throw new InvalidParameterException(MessageFormat.format(ERROR_ID_IS_INVALID,
+                    String.valueOf(parkedVehicleEntity.getId())));
+        }
+        journalChanges(parkedVehicleEntity, data);
+        copyFields(parkedVehicleEntity, data);
+        return data;
+    }
+
+    /**
+     * Record time out of a parked vehicle, and move it to history. When called for the same vehicle from several
+     * threads at the same time, only one succeeds.
+     * @param id record Id
+     * @param timeOutSeconds time out, in seconds since epoch
+     * @return updated bean
+     * @throws VehicleNotParkedException if the vehicle has already exited
+     */
+    public ParkedVehicleEntity exit(final Long id, final long timeOutSeconds) {
+        if(id == null) {
+            throw new InvalidParameterException("Id cannot be null");
+        }
+        if(timeOutSeconds == TimeUtil.NO_TIME) {
+            throw new InvalidParameterException("Time out cannot be null");
+        }
+        final ParkedVehicleEntity data = parkedVehiclesById.get(id);
+        if(data == null || !parkedVehiclesById.remove(id, data)) {
+            final ParkedVehicleEntity exited = historyDataStorage.getRecordById(id);
+            if(exited == null) {
+                throw new InvalidParameterException(MessageFormat.format(ERROR_ID_IS_INVALID, String.valueOf(id)));
             }
-        } else {
-            // new object
-            data = ParkedVehicleEntity.builder()
-                    .id(UUID.randomUUID())
-                    .vehicleType(parkedVehicleEntity.getVehicleType())
-                    .vehicleNumber(parkedVehicleEntity.getVehicleNumber())
-                    .lotNumber(parkedVehicleEntity.getLotNumber())
-                    .build();
-            // add to list
-            parkedVehiclesEntities.add(data);
-        }
-        data.setTimeIn(parkedVehicleEntity.getTimeIn());
-        data.setTimeOut(parkedVehicleEntity.getTimeOut());
-        data.setParkingFee(parkedVehicleEntity.getParkingFee());
+            throw new VehicleNotParkedException(exited.getVehicleNumber());
+        }
+        if(journal != null) {
+            try {
+                journal.recordExit(id, timeOutSeconds);
+            } catch(RuntimeException e) {
+                parkedVehiclesById.put(id, data);
+                throw e;
+            }
+        }
+        data.setTimeOutSeconds(timeOutSeconds);
+        parkedVehiclesByVehicleNumber.remove(data.getVehicleNumber(), data);
+        historyDataStorage.append(data);
+        releaseLot(data);
+        return data;
+    }
+
+    private ParkedVehicleEntity saveNewRecord(final ParkedVehicleEntity parkedVehicleEntity) {
+        final ParkedVehicleEntity data = ParkedVehicleEntity.builder()
+                .id(sessionIdGenerator.nextId())
+                .vehicleType(parkedVehicleEntity.getVehicleType())
+                .vehicleNumber(parkedVehicleEntity.getVehicleNumber())
+                .lotNumber(parkedVehicleEntity.getLotNumber())
+                .build();
+        copyFields(parkedVehicleEntity, data);
+        if(data.hasExited()) {
+            // already exited
+            journalNewRecord(data);
+            historyDataStorage.append(data);
+            return data;
+        }
+        // new parked vehicle, added by Id first so that it can be updated as soon as it is found by vehicle number
+        parkedVehiclesById.put(data.getId(), data);
+        final ParkedVehicleEntity existing = parkedVehiclesByVehicleNumber.putIfAbsent(data.getVehicleNumber(), data);
+        if(existing != null) {
+            parkedVehiclesById.remove(data.getId(), data);
+            throw new VehicleAlreadyParkedException(existing.getVehicleType(), existing.getVehicleNumber());
+        }
+        try {
+            journalNewRecord(data);
+            if(occupancyTable != null) {
+                occupancyTable.occupy(data);
+            }
+        } catch(RuntimeException e) {
+            parkedVehiclesByVehicleNumber.remove(data.getVehicleNumber(), data);
+            parkedVehiclesById.remove(data.getId(), data);
+            throw e;
+        }
         return data;
     }
 
+    /**
+     * Put back a vehicle that was still parked when the application stopped, keeping its Id. Not recorded in journal
+     * or occupancy table.
+     * @param parkedVehicleEntity ParkedVehicleEntity recovered from journal
+     * @throws VehicleAlreadyParkedException if vehicle number is already parked
+     */
+    public void restoreParkedVehicle(final ParkedVehicleEntity parkedVehicleEntity) {
+        if(parkedVehicleEntity == null || parkedVehicleEntity.getId() == null) {
+            throw new InvalidParameterException("ParkedVehicleEntity with Id is required");
+        }
+        final ParkedVehicleEntity existing = parkedVehiclesByVehicleNumber.putIfAbsent(
+                parkedVehicleEntity.getVehicleNumber(), parkedVehicleEntity);
+        if(existing != null) {
+            throw new VehicleAlreadyParkedException(existing.getVehicleType(), existing.getVehicleNumber());
+        }
+        parkedVehiclesById.put(parkedVehicleEntity.getId(), parkedVehicleEntity);
+    }
+
+    private void releaseLot(final ParkedVehicleEntity data) {
+        if(occupancyTable != null) {
+            occupancyTable.release(data.getVehicleType(), data.getLotNumber(), data.getId());
+        }
+    }
+
+    private void journalNewRecord(final ParkedVehicleEntity data) {
+        if(journal == null) {
+            return;
+        }
+        journal.recordPark(data);
+        if(data.hasExited()) {
+            journal.recordExit(data.getId(), data.getTimeOutSeconds());
+        }
+        if(data.getParkingFee() != 0L) {
+            journal.recordFee(data.getId(), data.getParkingFee());
+        }
+    }
+
+    /**
+     * Record the fields that are about to be copied from src, before dest is changed.
+     */
+    private void journalChanges(final ParkedVehicleEntity src, final ParkedVehicleEntity dest) {
+        if(journal == null) {
+            return;
+        }
+        final boolean timeInChanged = src.getTimeInSeconds() != dest.getTimeInSeconds();
+        final boolean timeOutChanged = src.hasExited() && src.getTimeOutSeconds() != dest.getTimeOutSeconds();
+        // exit of a session in history follows a park record too, so that it is not taken for an exit before park
+        if(timeInChanged || (timeOutChanged && dest.hasExited())) {
+            journal.recordPark(ParkedVehicleEntity.builder()
+                    .id(dest.getId())
+                    .vehicleType(dest.getVehicleType())
+                    .vehicleNumber(dest.getVehicleNumber())
+                    .lotNumber(dest.getLotNumber())
+                    .timeInSeconds(src.getTimeInSeconds())
+                    .build());
+        }
+        // exit follows a new park record, so that an exited session is not parked again
+        if(src.hasExited() && (timeInChanged || timeOutChanged)) {
+            journal.recordExit(dest.getId(), src.getTimeOutSeconds());
+        }
+        if(src.getParkingFee() != dest.getParkingFee()) {
+            journal.recordFee(dest.getId(), src.getParkingFee());
+        }
+    }
+
+    private static void copyFields(final ParkedVehicleEntity src, final ParkedVehicleEntity dest) {
+        dest.setTimeInSeconds(src.getTimeInSeconds());
+        dest.setTimeOutSeconds(src.getTimeOutSeconds());
+        dest.setParkingFee(src.getParkingFee());
+    }
+
     /**
      * Get list of parked vehicles by vehicle type.
      * @return unmodifiable list of ParkedVehicleEntity beans
      */
     public List<ParkedVehicleEntity> getParkedVehicles() {
         // return an unmodifiable list
-        return parkedVehiclesEntities.stream()
-                .filter(b -> b.getTimeOut() == null)
-                .collect(Collectors.toUnmodifiableList());
+        return List.copyOf(parkedVehiclesByVehicleNumber.values());
     }
 
     /**
@@ -80,9 +322,7 @@ public class ParkedVehicleDataStorage {
         if(vehicleNumber == null) {
             throw new InvalidParameterException("Vehicle number cannot be null");
         }
-        return parkedVehiclesEntities.stream()
-                .filter(b -> vehicleNumber.equals(b.getVehicleNumber()) && b.getTimeOut() == null)
-                .findAny().orElse(null);
+        return parkedVehiclesByVehicleNumber.get(vehicleNumber);
     }
 
     /**
@@ -90,14 +330,14 @@ public class ParkedVehicleDataStorage {
      * @param id record Id
      * @return ParkedVehicleEntity or null
      */
-    public ParkedVehicleEntity getRecordById(final UUID id) {
+    public ParkedVehicleEntity getRecordById(final Long id) {
         if(id == null) {
             throw new InvalidParameterException("Id cannot be null");
         }
-        return parkedVehiclesEntities.stream()
-                .filter(b -> id.equals(b.getId()))
-                .findAny().orElse(null);
+        final ParkedVehicleEntity data = parkedVehiclesById.get(id);
+        if(data != null) {
+            return data;
+        }
+        return historyDataStorage.getRecordById(id);
     }
-
-
 }
@@ -0,0 +1,130 @@
+package org.richmondchng.automatedvalet.data.storage;
+
+import org.richmondchng.automatedvalet.data.archive.SessionArchiveWriter;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data storage for parking sessions that have exited (with time out).
+ *
+ * Records are only appended. When a maximum number of records is configured, the oldest record is dropped once the
+ * limit is reached. When an archive is supplied, the dropped record is appended to the archive instead of being lost.
+ *
+ * Safe to use from multiple threads.
+ *
+ * @author richmondchng
+ */
+public class ParkedVehicleHistoryDataStorage {
+
+    // records kept in memory before they are archived, when archive is supplied
+    public static final int DEFAULT_ARCHIVE_RECORDS = 4096;
+
+    // 0 = unbounded
+    private final int maxRecords;
+    private final Deque<ParkedVehicleEntity> exitedVehicleEntities;
+    private final Map<Long, ParkedVehicleEntity> exitedVehiclesById;
+    // null when dropped records are not archived
+    private final SessionArchiveWriter archive;
+
+    /**
+     * Constructor. History is unbounded.
+     */
+    public ParkedVehicleHistoryDataStorage() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     * @param maxRecords maximum number of records to keep, 0 to keep all records
+     */
+    public ParkedVehicleHistoryDataStorage(final int maxRecords) {
+        this(maxRecords, null);
+    }
+
+    /**
+     * Constructor. Records are kept until the maximum number of records is reached, then the oldest record is moved
+     * to the archive. The parking fee of a record must be saved before the record is moved.
+     * @param maxRecords maximum number of records to keep, 0 to keep all records
+     * @param archive archive of exited parking sessions, or null
+     */
+    public ParkedVehicleHistoryDataStorage(final int maxRecords, final SessionArchiveWriter archive) {
+        if(maxRecords < 0) {
+            throw new InvalidParameterException("Max records cannot be negative");
+        }
+        this.maxRecords = maxRecords;
+        this.exitedVehicleEntities = new ArrayDeque<>();
+        this.exitedVehiclesById = new HashMap<>();
+        this.archive = archive;
+    }
+
+    /**
+     * Append exited parking session.
+     * @param parkedVehicleEntity ParkedVehicleEntity
+     */
+    public synchronized void append(final ParkedVehicleEntity parkedVehicleEntity) {
+        if(parkedVehicleEntity == null) {
+            throw new InvalidParameterException("ParkedVehicleEntity cannot be null");
+        }
+        if(maxRecords > 0 && exitedVehicleEntities.size() >= maxRecords) {
+            // drop oldest record, record is kept if it cannot be archived
+            final ParkedVehicleEntity oldest = exitedVehicleEntities.peekFirst();
+            if(archive != null) {
+                archive.append(oldest);
+            }
+            exitedVehicleEntities.pollFirst();
+            exitedVehiclesById.remove(oldest.getId(), oldest);
+        }
+        exitedVehicleEntities.addLast(parkedVehicleEntity);
+        exitedVehiclesById.put(parkedVehicleEntity.getId(), parkedVehicleEntity);
+    }
+
+    /**
+     * Move all records to the archive, oldest first.
+     * @throws IllegalStateException if no archive is supplied
+     */
+    public synchronized void archiveAll() {
+        if(archive == null) {
+            throw new IllegalStateException("Archive is not supplied");
+        }
+        while(!exitedVehicleEntities.isEmpty()) {
+            final ParkedVehicleEntity oldest = exitedVehicleEntities.peekFirst();
+            archive.append(oldest);
+            exitedVehicleEntities.pollFirst();
+            exitedVehiclesById.remove(oldest.getId(), oldest);
+        }
+    }
+
+    /**
+     * Get exited parking sessions, oldest first.
+     * @return unmodifiable list of ParkedVehicleEntity beans
+     */
+    public synchronized List<ParkedVehicleEntity> getExitedVehicles() {
+        return List.copyOf(exitedVehicleEntities);
+    }
+
+    /**
+     * Find record by Id.
+     * @param id record Id
+     * @return ParkedVehicleEntity or null
+     */
+    public synchronized ParkedVehicleEntity getRecordById(final Long id) {
+        if(id == null) {
+            throw new InvalidParameterException("Id cannot be null");
+        }
+        return exitedVehiclesById.get(id);
+    }
+
+    /**
+     * Get number of exited parking sessions kept.
+     * @return number of records
+     */
+    public synchronized int size() {
+        return exitedVehicleEntities.size();
+    }
+}
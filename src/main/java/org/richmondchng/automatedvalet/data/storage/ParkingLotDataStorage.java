@@ -1,13 +1,14 @@
 package org.richmondchng.automatedvalet.data.storage;
 
 import org.richmondchng.automatedvalet.data.entity.ParkingLotEntity;
+import org.richmondchng.automatedvalet.data.occupancy.LotOccupancyTable;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 
 import java.security.InvalidParameterException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -16,32 +17,65 @@ import java.util.Map;
  *
  * This can then be replaced with actual database, or other data storage.
  *
+ * Safe to use from multiple threads, lots are only changed through the available lot index of each vehicle type.
+ *
+ * When an occupancy table is supplied, lots that are occupied in the table start as occupied.
+ *
  * @author richmondchng
  */
 public class ParkingLotDataStorage {
 
+    // parking lot label e.g. CarLot1, CarLot2, etc..., MotorcycleLot1, MotorcycleLot2, etc...
+    private static final String LOT_LABEL_INFIX = "Lot";
+    private static final String ERROR_LOT_NUMBER_IS_INVALID = "Lot number {0} is invalid";
+
     private final Map<VehicleType, List<ParkingLotEntity>> parkingLots;
+    private final Map<VehicleType, AvailableLotIndex> availableLots;
 
     /**
      * Constructor.
      * @param configurations map containing key-value pair describing number of lots by vehicle type.
      */
     public ParkingLotDataStorage(final Map<VehicleType, Integer> configurations) {
+        this(configurations, null);
+    }
+
+    /**
+     * Constructor.
+     * @param configurations map containing key-value pair describing number of lots by vehicle type.
+     * @param occupancyTable occupancy table to read occupied lots from, or null
+     */
+    public ParkingLotDataStorage(final Map<VehicleType, Integer> configurations,
+                                 final LotOccupancyTable occupancyTable) {
         super();
 
         if(configurations == null) {
             throw new InvalidParameterException("Configurations is null");
         }
         parkingLots = new HashMap<>(configurations.size());
+        availableLots = new HashMap<>(configurations.size());
         for(Map.Entry<VehicleType, Integer> configuration : configurations.entrySet()) {
-            final List<ParkingLotEntity> parkingList = new LinkedList<>();
+            // array backed, lot number N is at index N - 1
+            final List<ParkingLotEntity> parkingList = new ArrayList<>(configuration.getValue());
+            final String labelPrefix = configuration.getKey().getLabel() + LOT_LABEL_INFIX;
             for(int index = 1; index <= configuration.getValue(); index++) {
+                // label is built once here, and shared afterwards
                 parkingList.add(ParkingLotEntity.builder()
                         .vehicleType(configuration.getKey())
                         .lotNumber(index)
+                        .label(labelPrefix + index)
                         .build());
             }
             parkingLots.put(configuration.getKey(), Collections.unmodifiableList(parkingList));
+            final AvailableLotIndex index = new AvailableLotIndex(configuration.getValue());
+            if(occupancyTable != null) {
+                for(int lotNumber = 1; lotNumber <= configuration.getValue(); lotNumber++) {
+                    if(occupancyTable.isOccupied(configuration.getKey(), lotNumber)) {
+                        index.occupy(lotNumber);
+                    }
+                }
+            }
+            availableLots.put(configuration.getKey(), index);
         }
     }
 
@@ -57,4 +91,78 @@ public class ParkingLotDataStorage {
         List<ParkingLotEntity> results = parkingLots.getOrDefault(vehicleType, new ArrayList<>());
         return Collections.unmodifiableList(results);
     }
+
+    /**
+     * Allocate the available parking lot with the lowest lot number for vehicle type, and mark it as occupied.
+     * @param vehicleType vehicle type
+     * @return allocated parking lot, or null if no lot is available
+     */
+    public ParkingLotEntity allocateAvailableLot(final VehicleType vehicleType) {
+        if(vehicleType == null) {
+            throw new InvalidParameterException("Vehicle type cannot be null");
+        }
+        final AvailableLotIndex index = availableLots.get(vehicleType);
+        if(index == null) {
+            return null;
+        }
+        final int lotNumber = index.allocate();
+        if(lotNumber < 0) {
+            // all lots are occupied
+            return null;
+        }
+        return parkingLots.get(vehicleType).get(lotNumber - 1);
+    }
+
+    /**
+     * Get label of parking lot.
+     * @param vehicleType vehicle type
+     * @param lotNumber lot number
+     * @return label e.g. CarLot1
+     */
+    public String getLabel(final VehicleType vehicleType, final int lotNumber) {
+        if(vehicleType == null) {
+            throw new InvalidParameterException("Vehicle type cannot be null");
+        }
+        final List<ParkingLotEntity> parkingList = parkingLots.get(vehicleType);
+        if(parkingList == null) {
+            throw new InvalidParameterException("No parking lot configured for " + vehicleType.getLabel());
+        }
+        if(lotNumber < 1 || lotNumber > parkingList.size()) {
+            throw new InvalidParameterException(MessageFormat.format(ERROR_LOT_NUMBER_IS_INVALID,
+                    String.valueOf(lotNumber)));
+        }
+        return parkingList.get(lotNumber - 1).getLabel();
+    }
+
+    /**
+     * Mark a given parking lot of vehicle type as occupied, e.g. by a vehicle recovered from journal.
+     * @param vehicleType vehicle type
+     * @param lotNumber lot number
+     */
+    public void occupyLot(final VehicleType vehicleType, final int lotNumber) {
+        if(vehicleType == null) {
+            throw new InvalidParameterException("Vehicle type cannot be null");
+        }
+        final AvailableLotIndex index = availableLots.get(vehicleType);
+        if(index == null) {
+            throw new InvalidParameterException("No parking lot configured for " + vehicleType.getLabel());
+        }
+        index.occupy(lotNumber);
+    }
+
+    /**
+     * Mark parking lot of vehicle type as available.
+     * @param vehicleType vehicle type
+     * @param lotNumber lot number
+     */
+    public void releaseLot(final VehicleType vehicleType, final int lotNumber) {
+        if(vehicleType == null) {
+            throw new InvalidParameterException("Vehicle type cannot be null");
+        }
+        final AvailableLotIndex index = availableLots.get(vehicleType);
+        if(index == null) {
+            throw new InvalidParameterException("No parking lot configured for " + vehicleType.getLabel());
+        }
+        index.release(lotNumber);
+    }
 }
@@ -3,12 +3,15 @@ package org.richmondchng.automatedvalet.dto.instruction;
 import lombok.Builder;
 import lombok.Getter;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.time.LocalDateTime;
 
 /**
  * Object describing the valet operation.
  *
+ * Timestamp is kept as seconds since epoch.
+ *
  * @author richmondchng
  */
 @Getter
@@ -17,5 +20,29 @@ public class ValetInstruction {
     private final ValetAction action;
     private VehicleType vehicleType;
     private final String licensePlate;
-    private final LocalDateTime timestamp;
+    @Builder.Default
+    private final long timestampSeconds = TimeUtil.NO_TIME;
+
+    /**
+     * Get timestamp.
+     * @return LocalDateTime, or null if not recorded
+     */
+    public LocalDateTime getTimestamp() {
+        return TimeUtil.toLocalDateTime(timestampSeconds);
+    }
+
+    /**
+     * Builder, also accepts LocalDateTime timestamp.
+     */
+    public static class ValetInstructionBuilder {
+
+        /**
+         * Set timestamp.
+         * @param timestamp LocalDateTime, or null
+         * @return builder
+         */
+        public ValetInstructionBuilder timestamp(final LocalDateTime timestamp) {
+            return timestampSeconds(TimeUtil.toSeconds(timestamp));
+        }
+    }
 }
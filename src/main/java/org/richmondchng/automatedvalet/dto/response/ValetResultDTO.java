@@ -0,0 +1,23 @@
+package org.richmondchng.automatedvalet.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO describing the result of one instruction in a batch.
+ *
+ * Label is the parking lot when accepted. Parking fee is only set for an accepted exit. Error is the exception thrown
+ * for the instruction when it could not be processed.
+ *
+ * @author richmondchng
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class ValetResultDTO {
+    private ValetResultStatus status;
+    private String label;
+    private long parkingFee;
+    private RuntimeException error;
+}
@@ -0,0 +1,15 @@
+package org.richmondchng.automatedvalet.dto.response;
+
+/**
+ * Outcome of one instruction in a batch.
+ *
+ * @author richmondchng
+ */
+public enum ValetResultStatus {
+    // vehicle is parked, or has exited
+    ACCEPTED,
+    // no parking lot available
+    REJECTED,
+    // instruction could not be processed
+    ERROR
+}
@@ -0,0 +1,39 @@
+package org.richmondchng.automatedvalet.engine;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Enumeration of the ways an instruction file can be processed.
+ *
+ * @author richmondchng
+ */
+public enum ExecutionMode {
+    // parse, process and write each instruction in turn on the main thread
+    SERIAL,
+    // parse, process and write on separate threads, connected by bounded queues of batches
+    PIPELINE,
+    // process each vehicle type on its own thread, output in file order
+    PARTITIONED;
+
+    /**
+     * Get execution mode by name.
+     * @param name name
+     * @return ExecutionMode
+     */
+    public static ExecutionMode getExecutionMode(final String name) {
+        if(name == null) {
+            throw new InvalidParameterException("Input value is null");
+        }
+        ExecutionMode executionMode = null;
+        for(ExecutionMode em : values()) {
+            if(em.name().equalsIgnoreCase(name)) {
+                executionMode = em;
+                break;
+            }
+        }
+        if(executionMode == null) {
+            throw new IllegalArgumentException("Not a valid execution mode: " + name);
+        }
+        return executionMode;
+    }
+}
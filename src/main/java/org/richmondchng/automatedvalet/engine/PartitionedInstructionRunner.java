@@ -0,0 +1,268 @@
+package org.richmondchng.automatedvalet.engine;
+
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.file.InstructionSource;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.output.OutputWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Run instructions with one partition per vehicle type, each partition on its own thread.
+ *
+ * Parking lots of different vehicle types are independent, so instructions are read in batches and split by vehicle
+ * type: enter instructions by their vehicle type, exit instructions by the vehicle type the license plate last
+ * entered with. Each partition processes its instructions in file order. The only state shared between vehicle types
+ * is whether a license plate is parked, so when a license plate moves to another partition, its instruction waits for
+ * the previous instruction of the same license plate in the other partition. Results are written in file order after
+ * every partition has finished the batch.
+ *
+ * When an instruction fails, its position is published and every partition stops before it, so instructions after
+ * the failed line are not applied unless another partition was already processing them. Every result before it in
+ * the file is written, then the same exception is thrown as when the instructions are processed one at a time. The processor must be safe to call from multiple threads.
+ *
+ * @param <R> result of one instruction
+ * @author richmondchng
+ */
+public class PartitionedInstructionRunner<R> {
+
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 10_000L;
+    private static final int NO_DEPENDENCY = -1;
+
+    private final int batchSize;
+
+    /**
+     * Constructor.
+     * @param batchSize number of instructions split between partitions at a time
+     */
+    public PartitionedInstructionRunner(final int batchSize) {
+        if(batchSize < 1) {
+            throw new InvalidParameterException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Read, process and write every instruction. Returns when every partition has stopped.
+     * @param instructions instruction source, not closed
+     * @param processor processes one instruction, on the thread of its partition
+     * @param resultWriter writes one result, on the calling thread
+     * @param output output writer, not closed
+     * @throws IOException if output cannot be written
+     */
+    public void run(final InstructionSource instructions, final Function<ValetInstruction, R> processor,
+                    final ResultWriter<R> resultWriter, final OutputWriter output) throws IOException {
+        final VehicleType[] vehicleTypes = VehicleType.values();
+        final Partition[] partitions = new Partition[vehicleTypes.length];
+        for(int index = 0; index < partitions.length; index++) {
+            partitions[index] = new Partition(batchSize);
+        }
+        // license plate to the partition, batch and batch position of its last instruction
+        final Map<String, int[]> lastPositions = new HashMap<>();
+        int batchNumber = 0;
+        final ValetInstruction[] batch = new ValetInstruction[batchSize];
+        final Object[] results = new Object[batchSize];
+        // position of the first failed instruction of the batch
+        final AtomicInteger stopPosition = new AtomicInteger();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(partitions.length);
+        try {
+            RuntimeException readFailure = null;
+            while(readFailure == null && instructions.hasNext()) {
+                // read batch, stop at the failed line
+                int size = 0;
+                try {
+                    while(size < batchSize && instructions.hasNext()) {
+                        batch[size++] = instructions.next();
+                    }
+                } catch(RuntimeException e) {
+                    readFailure = e;
+                }
+                route(batch, size, batchNumber++, partitions, lastPositions);
+                stopPosition.set(Integer.MAX_VALUE);
+
+                final List<Future<?>> futures = new ArrayList<>(partitions.length);
+                for(Partition partition : partitions) {
+                    if(partition.size > 0) {
+                        futures.add(executor.submit(() -> partition.process(batch, processor, results,
+                                partitions, stopPosition)));
+                    }
+                }
+                waitFor(futures);
+
+                // write results in file order, up to the first failed instruction
+                int failedPosition = size;
+                Throwable failure = null;
+                for(Partition partition : partitions) {
+                    if(partition.failure != null && partition.failedPosition < failedPosition) {
+                        failedPosition = partition.failedPosition;
+                        failure = partition.failure;
+                    }
+                }
+                for(int position = 0; position < failedPosition; position++) {
+                    @SuppressWarnings("unchecked")
+                    final R result = (R) results[position];
+                    resultWriter.write(result, output);
+                }
+                if(failure != null) {
+                    rethrow(failure);
+                }
+                Arrays.fill(results, 0, size, null);
+                Arrays.fill(batch, 0, size, null);
+            }
+            if(readFailure != null) {
+                throw readFailure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Split batch between partitions.
+     */
+    private static void route(final ValetInstruction[] batch, final int size, final int batchNumber,
+                              final Partition[] partitions, final Map<String, int[]> lastPositions) {
+        for(Partition partition : partitions) {
+            partition.reset();
+        }
+        for(int position = 0; position < size; position++) {
+            final ValetInstruction instruction = batch[position];
+            final int[] last = lastPositions.get(instruction.getLicensePlate());
+            final int partitionIndex;
+            if(instruction.getAction() == ValetAction.ENTER && instruction.getVehicleType() != null) {
+                partitionIndex = instruction.getVehicleType().ordinal();
+            } else if(last != null) {
+                // exit where the license plate entered
+                partitionIndex = last[0];
+            } else {
+                partitionIndex = 0;
+            }
+            // every partition has finished earlier batches
+            final boolean moved = last != null && last[0] != partitionIndex && last[1] == batchNumber;
+            partitions[partitionIndex].add(position, moved ? last[0] : NO_DEPENDENCY, moved ? last[2] : 0);
+            if(last == null) {
+                lastPositions.put(instruction.getLicensePlate(), new int[]{partitionIndex, batchNumber, position});
+            } else {
+                last[0] = partitionIndex;
+                last[1] = batchNumber;
+                last[2] = position;
+            }
+        }
+    }
+
+    private static void waitFor(final List<Future<?>> futures) throws IOException {
+        for(Future<?> future : futures) {
+            try {
+                future.get();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Partitions interrupted");
+            } catch(ExecutionException e) {
+                rethrow(e.getCause());
+            }
+        }
+    }
+
+    private static void rethrow(final Throwable failure) throws IOException {
+        if(failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if(failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if(failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    /**
+     * Instructions of one vehicle type in a batch.
+     */
+    private static final class Partition {
+        private final int[] positions;
+        // partition and position each instruction waits for, or NO_DEPENDENCY
+        private final int[] dependencyPartitions;
+        private final int[] dependencyPositions;
+        private int size;
+        // every instruction of this partition before this batch position is processed
+        private volatile int processedPosition;
+        private int failedPosition;
+        private Throwable failure;
+
+        private Partition(final int batchSize) {
+            this.positions = new int[batchSize];
+            this.dependencyPartitions = new int[batchSize];
+            this.dependencyPositions = new int[batchSize];
+        }
+
+        private void reset() {
+            size = 0;
+            processedPosition = 0;
+            failure = null;
+        }
+
+        private void add(final int position, final int dependencyPartition, final int dependencyPosition) {
+            positions[size] = position;
+            dependencyPartitions[size] = dependencyPartition;
+            dependencyPositions[size] = dependencyPosition;
+            size++;
+        }
+
+        private <R> void process(final ValetInstruction[] batch, final Function<ValetInstruction, R> processor,
+                                 final Object[] results, final Partition[] partitions,
+                                 final AtomicInteger stopPosition) {
+            for(int index = 0; index < size; index++) {
+                final int position = positions[index];
+                try {
+                    if(dependencyPartitions[index] != NO_DEPENDENCY) {
+                        awaitProcessed(partitions[dependencyPartitions[index]], dependencyPositions[index]);
+                    }
+                    if(position > stopPosition.get()) {
+                        // an earlier instruction has failed in another partition
+                        break;
+                    }
+                    results[position] = processor.apply(batch[position]);
+                } catch(RuntimeException | Error e) {
+                    failedPosition = position;
+                    failure = e;
+                    stopPosition.accumulateAndGet(position, Math::min);
+                    break;
+                }
+                processedPosition = position + 1;
+            }
+            // let partitions waiting on this one move on, they stop at the failed position
+            processedPosition = Integer.MAX_VALUE;
+        }
+
+        private static void awaitProcessed(final Partition partition, final int position) {
+            int tries = 0;
+            while(partition.processedPosition <= position) {
+                if(tries++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.richmondchng.automatedvalet.engine;
+
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.file.InstructionSource;
+import org.richmondchng.automatedvalet.output.OutputWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Run instructions through three stages, each on its own thread: a reader thread parsing instructions, an engine
+ * thread processing them, and the calling thread writing the results. Stages hand over batches through bounded queues,
+ * so parsing and output overlap with the valet logic, and a slow stage holds up the ones before it instead of
+ * buffering without limit.
+ *
+ * Instructions are processed and written in file order. When a stage fails, the failure is passed down after the
+ * batch it happened in, so every result before the failed instruction is written, then the same exception is thrown as
+ * when the instructions are processed one at a time.
+ *
+ * @param <R> result of one instruction
+ * @author richmondchng
+ */
+public class PipelinedInstructionRunner<R> {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_QUEUE_BATCHES = 16;
+
+    private final int batchSize;
+    private final int queueBatches;
+
+    /**
+     * Constructor.
+     * @param batchSize number of instructions handed over at a time
+     * @param queueBatches number of batches waiting between two stages
+     */
+    public PipelinedInstructionRunner(final int batchSize, final int queueBatches) {
+        if(batchSize < 1) {
+            throw new InvalidParameterException("Batch size must be positive");
+        }
+        if(queueBatches < 1) {
+            throw new InvalidParameterException("Queue batches must be positive");
+        }
+        this.batchSize = batchSize;
+        this.queueBatches = queueBatches;
+    }
+
+    /**
+     * Read, process and write every instruction. Returns when every stage has stopped.
+     * @param instructions instruction source, not closed
+     * @param processor processes one instruction, on the engine thread
+     * @param resultWriter writes one result, on the calling thread
+     * @param output output writer, not closed
+     * @throws IOException if output cannot be written
+     */
+    public void run(final InstructionSource instructions, final Function<ValetInstruction, R> processor,
+                    final ResultWriter<R> resultWriter, final OutputWriter output) throws IOException {
+        final BlockingQueue<Batch<ValetInstruction>> instructionQueue = new ArrayBlockingQueue<>(queueBatches);
+        final BlockingQueue<Batch<R>> resultQueue = new ArrayBlockingQueue<>(queueBatches);
+
+        final Thread reader = new Thread(() -> read(instructions, instructionQueue), "valet-reader");
+        final Thread engine = new Thread(() -> process(instructionQueue, processor, resultQueue), "valet-engine");
+        final Thread[] threads = new Thread[]{reader, engine};
+        for(Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Throwable failure = null;
+        try {
+            // writer stage runs on the calling thread
+            failure = write(resultQueue, resultWriter, output);
+        } catch(IOException | RuntimeException | Error e) {
+            failure = e;
+        } finally {
+            // earlier stages may be waiting on a full queue after a failure
+            for(Thread thread : threads) {
+                thread.interrupt();
+            }
+            joinUninterruptibly(threads);
+        }
+        if(failure != null) {
+            rethrow(failure);
+        }
+    }
+
+    private void read(final InstructionSource instructions, final BlockingQueue<Batch<ValetInstruction>> queue) {
+        try {
+            List<ValetInstruction> items = new ArrayList<>(batchSize);
+            try {
+                while(instructions.hasNext()) {
+                    items.add(instructions.next());
+                    if(items.size() == batchSize) {
+                        queue.put(new Batch<>(items, null, false));
+                        items = new ArrayList<>(batchSize);
+                    }
+                }
+            } catch(RuntimeException | Error e) {
+                // instructions before the failed line are still processed
+                queue.put(new Batch<>(items, e, true));
+                return;
+            }
+            queue.put(new Batch<>(items, null, true));
+        } catch(InterruptedException e) {
+            // pipeline stopped
+        }
+    }
+
+    private void process(final BlockingQueue<Batch<ValetInstruction>> instructionQueue,
+                         final Function<ValetInstruction, R> processor, final BlockingQueue<Batch<R>> resultQueue) {
+        try {
+            while(true) {
+                final Batch<ValetInstruction> batch = instructionQueue.take();
+                final List<R> results = new ArrayList<>(batch.items.size());
+                try {
+                    for(ValetInstruction instruction : batch.items) {
+                        results.add(processor.apply(instruction));
+                    }
+                } catch(RuntimeException | Error e) {
+                    resultQueue.put(new Batch<>(results, e, true));
+                    return;
+                }
+                resultQueue.put(new Batch<>(results, batch.failure, batch.last));
+                if(batch.last) {
+                    return;
+                }
+            }
+        } catch(InterruptedException e) {
+            // pipeline stopped
+        }
+    }
+
+    private Throwable write(final BlockingQueue<Batch<R>> resultQueue, final ResultWriter<R> resultWriter,
+                            final OutputWriter output) throws IOException {
+        while(true) {
+            final Batch<R> batch;
+            try {
+                batch = resultQueue.take();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new InterruptedIOException("Pipeline interrupted");
+            }
+            for(R result : batch.items) {
+                resultWriter.write(result, output);
+            }
+            if(batch.last) {
+                return batch.failure;
+            }
+        }
+    }
+
+    private static void joinUninterruptibly(final Thread[] threads) {
+        boolean interrupted = false;
+        for(Thread thread : threads) {
+            while(thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rethrow(final Throwable failure) throws IOException {
+        if(failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if(failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if(failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    /**
+     * Items handed from one stage to the next. The last batch may carry the failure that stopped the stage.
+     * @param <T> item type
+     */
+    private static final class Batch<T> {
+        private final List<T> items;
+        private final Throwable failure;
+        private final boolean last;
+
+        private Batch(final List<T> items, final Throwable failure, final boolean last) {
+            this.items = items;
+            this.failure = failure;
+            this.last = last;
+        }
+    }
+}
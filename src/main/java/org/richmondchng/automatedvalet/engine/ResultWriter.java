@@ -0,0 +1,23 @@
+package org.richmondchng.automatedvalet.engine;
+
+import org.richmondchng.automatedvalet.output.OutputWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes the result of one processed instruction.
+ *
+ * @param <R> result of one instruction
+ * @author richmondchng
+ */
+@FunctionalInterface
+public interface ResultWriter<R> {
+
+    /**
+     * Write result.
+     * @param result result
+     * @param output output writer
+     * @throws IOException if output cannot be written
+     */
+    void write(R result, OutputWriter output) throws IOException;
+}
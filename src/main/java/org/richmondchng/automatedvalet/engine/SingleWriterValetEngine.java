@@ -0,0 +1,251 @@
+package org.richmondchng.automatedvalet.engine;
+
+import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.response.ParkedDTO;
+import org.richmondchng.automatedvalet.dto.response.ParkingFeeDTO;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Valet engine where gate threads publish enter and exit commands into a ring buffer, and one writer thread applies
+ * them to the controller in the order they were published.
+ *
+ * The ring buffer slots are created once. A gate claims the next sequence number, waits while the ring is full, fills
+ * the slot and publishes it. The writer thread takes slots in sequence order, so the storage is only ever changed by
+ * one thread. Each command returns a future completed by the writer thread, with the result or the exception thrown by
+ * the controller. Callbacks added with the non-async methods of the future run on the writer thread, and hold up every
+ * other gate.
+ *
+ * The writer thread spins, then yields, then parks for a short time while there is no command, so the first command
+ * after an idle period may wait up to PARK_NANOS.
+ *
+ * Safe to call from multiple threads. The controller must not be used directly while the engine is open.
+ *
+ * @author richmondchng
+ */
+public class SingleWriterValetEngine implements AutoCloseable {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 50_000L;
+
+    private final ParkingValetController parkingValetController;
+    private final Slot[] slots;
+    private final int mask;
+    // next sequence to claim; once closed, the bitwise complement of the first sequence that was not claimed
+    private final AtomicLong nextSequence = new AtomicLong();
+    // every sequence before this one has been processed
+    private final AtomicLong processedSequence = new AtomicLong();
+    private final Thread writerThread;
+
+    /**
+     * Constructor. Start writer thread.
+     * @param parkingValetController controller the commands are applied to
+     * @param capacity number of slots in ring buffer, a power of two
+     */
+    public SingleWriterValetEngine(final ParkingValetController parkingValetController, final int capacity) {
+        if(parkingValetController == null) {
+            throw new InvalidParameterException("Parking valet controller cannot be null");
+        }
+        if(capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new InvalidParameterException("Capacity must be a power of two");
+        }
+        this.parkingValetController = parkingValetController;
+        this.slots = new Slot[capacity];
+        for(int index = 0; index < capacity; index++) {
+            slots[index] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.writerThread = new Thread(this::applyCommands, "valet-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Vehicle entering parking.
+     * @param vehicleType vehicle type
+     * @param vehicleNumber vehicle number
+     * @param timestamp time stamp entering parking
+     * @return future of ParkedDTO with parking lot details
+     * @throws IllegalStateException if engine is closed
+     */
+    public CompletableFuture<ParkedDTO> enterParking(final VehicleType vehicleType, final String vehicleNumber,
+                                                     final LocalDateTime timestamp) {
+        return enterParking(vehicleType, vehicleNumber, TimeUtil.toSeconds(timestamp));
+    }
+
+    /**
+     * Vehicle entering parking.
+     * @param vehicleType vehicle type
+     * @param vehicleNumber vehicle number
+     * @param timestamp time stamp entering parking, in seconds since epoch
+     * @return future of ParkedDTO with parking lot details
+     * @throws IllegalStateException if engine is closed
+     */
+    public CompletableFuture<ParkedDTO> enterParking(final VehicleType vehicleType, final String vehicleNumber,
+                                                     final long timestamp) {
+        final CompletableFuture<ParkedDTO> future = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slots[(int) (sequence & mask)];
+        slot.action = ValetAction.ENTER;
+        slot.vehicleType = vehicleType;
+        slot.vehicleNumber = vehicleNumber;
+        slot.timestamp = timestamp;
+        slot.parked = future;
+        slot.published = sequence;
+        return future;
+    }
+
+    /**
+     * Vehicle exiting parking.
+     * @param vehicleNumber vehicle number
+     * @param timestamp time stamp exiting parking
+     * @return future of ParkingFeeDTO with parking fee details
+     * @throws IllegalStateException if engine is closed
+     */
+    public CompletableFuture<ParkingFeeDTO> exitParking(final String vehicleNumber, final LocalDateTime timestamp) {
+        return exitParking(vehicleNumber, TimeUtil.toSeconds(timestamp));
+    }
+
+    /**
+     * Vehicle exiting parking.
+     * @param vehicleNumber vehicle number
+     * @param timestamp time stamp exiting parking, in seconds since epoch
+     * @return future of ParkingFeeDTO with parking fee details
+     * @throws IllegalStateException if engine is closed
+     */
+    public CompletableFuture<ParkingFeeDTO> exitParking(final String vehicleNumber, final long timestamp) {
+        final CompletableFuture<ParkingFeeDTO> future = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slots[(int) (sequence & mask)];
+        slot.action = ValetAction.EXIT;
+        slot.vehicleNumber = vehicleNumber;
+        slot.timestamp = timestamp;
+        slot.fee = future;
+        slot.published = sequence;
+        return future;
+    }
+
+    /**
+     * Stop accepting commands, and wait for the writer thread to apply every command already published.
+     */
+    @Override
+    public void close() {
+        long sequence;
+        do {
+            sequence = nextSequence.get();
+        } while(sequence >= 0 && !nextSequence.compareAndSet(sequence, ~sequence));
+        boolean interrupted = false;
+        while(writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch(InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Claim next sequence, and wait until its slot is free.
+     * @return sequence
+     */
+    private long claim() {
+        long sequence;
+        do {
+            sequence = nextSequence.get();
+            if(sequence < 0) {
+                throw new IllegalStateException("Valet engine is closed");
+            }
+        } while(!nextSequence.compareAndSet(sequence, sequence + 1));
+        // ring is full until the writer has processed the command a lap behind
+        int idleCount = 0;
+        while(sequence - processedSequence.get() >= slots.length) {
+            idleCount = idle(idleCount);
+        }
+        return sequence;
+    }
+
+    /**
+     * Writer thread. Apply published commands in sequence order, until closed and every claimed command is applied.
+     */
+    private void applyCommands() {
+        long sequence = 0;
+        int idleCount = 0;
+        while(true) {
+            final Slot slot = slots[(int) (sequence & mask)];
+            if(slot.published == sequence) {
+                apply(slot);
+                processedSequence.lazySet(++sequence);
+                idleCount = 0;
+                continue;
+            }
+            final long claimed = nextSequence.get();
+            if(claimed < 0 && sequence == ~claimed) {
+                return;
+            }
+            idleCount = idle(idleCount);
+        }
+    }
+
+    private void apply(final Slot slot) {
+        try {
+            if(slot.action == ValetAction.ENTER) {
+                final CompletableFuture<ParkedDTO> future = slot.parked;
+                try {
+                    future.complete(parkingValetController.enterParking(slot.vehicleType, slot.vehicleNumber,
+                            slot.timestamp));
+                } catch(Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            } else {
+                final CompletableFuture<ParkingFeeDTO> future = slot.fee;
+                try {
+                    future.complete(parkingValetController.exitParking(slot.vehicleNumber, slot.timestamp));
+                } catch(Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        } finally {
+            // let the command be garbage collected while the slot waits for its next lap
+            slot.vehicleType = null;
+            slot.vehicleNumber = null;
+            slot.parked = null;
+            slot.fee = null;
+        }
+    }
+
+    private static int idle(final int idleCount) {
+        if(idleCount < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if(idleCount < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idleCount + 1;
+    }
+
+    /**
+     * One command in the ring buffer. Fields are written by the gate before the published sequence, and read by the
+     * writer thread after it.
+     */
+    private static final class Slot {
+        private volatile long published = -1L;
+        private ValetAction action;
+        private VehicleType vehicleType;
+        private String vehicleNumber;
+        private long timestamp;
+        private CompletableFuture<ParkedDTO> parked;
+        private CompletableFuture<ParkingFeeDTO> fee;
+    }
+}
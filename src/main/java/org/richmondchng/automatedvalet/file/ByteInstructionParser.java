@@ -0,0 +1,199 @@
+package org.richmondchng.automatedvalet.file;
+
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Build instruction from the bytes of one line, without creating a String per line or per token.
+ *
+ * The result (and any error) is the same as FileInstructionReader splitting the trimmed line on single spaces: only
+ * the license plate is decoded into a String. When a token does not match the expected ASCII form, it is decoded and
+ * handed to the same lookup used by FileInstructionReader, so that error messages are identical.
+ *
+ * Not thread safe, each thread should use its own instance.
+ *
+ * @author richmondchng
+ */
+final class ByteInstructionParser {
+
+    private static final byte SPACE = ' ';
+    // only the first 4 tokens are used by any instruction
+    private static final int MAX_TOKENS = 4;
+
+    private static final byte[] ENTER = ValetAction.ENTER.name().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXIT = ValetAction.EXIT.name().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CAR = VehicleType.CAR.name().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MOTORCYCLE = VehicleType.MOTORCYCLE.name().getBytes(StandardCharsets.US_ASCII);
+
+    private final Charset charset;
+    private final int[] tokenStart = new int[MAX_TOKENS];
+    private final int[] tokenEnd = new int[MAX_TOKENS];
+    private byte[] scratch = new byte[32];
+
+    /**
+     * Constructor. Decode with platform default charset, same as java.util.Scanner.
+     */
+    ByteInstructionParser() {
+        this(Charset.defaultCharset());
+    }
+
+    /**
+     * Constructor.
+     * @param charset charset of the file
+     */
+    ByteInstructionParser(final Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Build instruction from line.
+     * @param buffer buffer containing the line, position and limit are not used or changed
+     * @param start index of first byte of line
+     * @param end index after last byte of line, excluding line separator
+     * @return ValetInstruction
+     */
+    ValetInstruction parse(final ByteBuffer buffer, final int start, final int end) {
+        // trim
+        int from = start;
+        int to = end;
+        while(from < to && (buffer.get(from) & 0xff) <= SPACE) {
+            from++;
+        }
+        while(to > from && (buffer.get(to - 1) & 0xff) <= SPACE) {
+            to--;
+        }
+        // split on single space
+        int numberOfParts = 1;
+        tokenStart[0] = from;
+        for(int index = from; index < to; index++) {
+            if(buffer.get(index) == SPACE) {
+                if(numberOfParts <= MAX_TOKENS) {
+                    tokenEnd[numberOfParts - 1] = index;
+                }
+                if(numberOfParts < MAX_TOKENS) {
+                    tokenStart[numberOfParts] = index + 1;
+                }
+                numberOfParts++;
+            }
+        }
+        if(numberOfParts <= MAX_TOKENS) {
+            tokenEnd[numberOfParts - 1] = to;
+        }
+
+        final ValetAction action = parseAction(buffer, tokenStart[0], tokenEnd[0]);
+        switch(action) {
+            case ENTER:
+                if(numberOfParts != 4) {
+                    throw new RuntimeException("Enter instruction should contain 4 parts");
+                }
+                return ValetInstruction.builder()
+                        .action(action)
+                        .vehicleType(parseVehicleType(buffer, tokenStart[1], tokenEnd[1]))
+                        .licensePlate(decode(buffer, tokenStart[2], tokenEnd[2]))
+                        .timestampSeconds(parseTimestamp(buffer, tokenStart[3], tokenEnd[3], start, end))
+                        .build();
+            case EXIT:
+                if(numberOfParts != 3) {
+                    throw new RuntimeException("Exit instruction should contain 3 parts");
+                }
+                return ValetInstruction.builder()
+                        .action(action)
+                        .licensePlate(decode(buffer, tokenStart[1], tokenEnd[1]))
+                        .timestampSeconds(parseTimestamp(buffer, tokenStart[2], tokenEnd[2], start, end))
+                        .build();
+            default:
+                throw new RuntimeException("Unable to parse instruction: " + decode(buffer, start, end));
+        }
+    }
+
+    private ValetAction parseAction(final ByteBuffer buffer, final int start, final int end) {
+        if(equalsIgnoreCase(buffer, start, end, ENTER)) {
+            return ValetAction.ENTER;
+        }
+        if(equalsIgnoreCase(buffer, start, end, EXIT)) {
+            return ValetAction.EXIT;
+        }
+        // not plain ASCII, let the enum decide or throw
+        return ValetAction.getValetAction(decode(buffer, start, end));
+    }
+
+    private VehicleType parseVehicleType(final ByteBuffer buffer, final int start, final int end) {
+        if(equalsIgnoreCase(buffer, start, end, CAR)) {
+            return VehicleType.CAR;
+        }
+        if(equalsIgnoreCase(buffer, start, end, MOTORCYCLE)) {
+            return VehicleType.MOTORCYCLE;
+        }
+        // not plain ASCII, let the enum decide or throw
+        return VehicleType.getVehicleType(decode(buffer, start, end));
+    }
+
+    /**
+     * Parse timestamp in seconds since epoch, same as the scanner parser: NO_TIME and seconds that are not a valid
+     * timestamp are rejected.
+     */
+    private long parseTimestamp(final ByteBuffer buffer, final int start, final int end, final int lineStart,
+                                final int lineEnd) {
+        final long seconds = parseLong(buffer, start, end);
+        if(!TimeUtil.isValidSeconds(seconds)) {
+            throw new RuntimeException("Unable to parse instruction: " + decode(buffer, lineStart, lineEnd));
+        }
+        return seconds;
+    }
+
+    /**
+     * Parse decimal digits. Anything else (sign, overflow, empty) is handed to Long.valueOf to keep its exact
+     * behaviour and error message.
+     */
+    private long parseLong(final ByteBuffer buffer, final int start, final int end) {
+        if(start >= end || end - start > 18) {
+            // empty, or may overflow
+            return Long.valueOf(decode(buffer, start, end));
+        }
+        long value = 0;
+        for(int index = start; index < end; index++) {
+            final int digit = buffer.get(index) - '0';
+            if(digit < 0 || digit > 9) {
+                return Long.valueOf(decode(buffer, start, end));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String decode(final ByteBuffer buffer, final int start, final int end) {
+        final int length = end - start;
+        if(scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for(int index = 0; index < length; index++) {
+            scratch[index] = buffer.get(start + index);
+        }
+        return new String(scratch, 0, length, charset);
+    }
+
+    /**
+     * Compare bytes against upper case ASCII name.
+     */
+    private static boolean equalsIgnoreCase(final ByteBuffer buffer, final int start, final int end,
+                                            final byte[] name) {
+        if(end - start != name.length) {
+            return false;
+        }
+        for(int index = 0; index < name.length; index++) {
+            final int b = buffer.get(start + index);
+            // ASCII lower case to upper case
+            final int upper = (b >= 'a' && b <= 'z') ? b - ('a' - 'A') : b;
+            if(upper != name[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -7,11 +7,12 @@ import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.security.InvalidParameterException;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 /**
  * Read file, and translate its content into Valet instructions.
@@ -27,33 +28,93 @@ public final class FileInstructionReader {
      * @throws FileNotFoundException
      */
     public static FileInstructionsDTO readInstructions(final String filePath) throws FileNotFoundException {
+        try (final InstructionSource source = new ScannerInstructionSource(validateFile(filePath))) {
+            return drain(source);
+        }
+    }
+
+    /**
+     * Read file with the parser mode and build instructions from file content.
+     * @param filePath file path
+     * @param parserMode parser mode
+     * @return FileInstructionsDTO
+     * @throws IOException
+     */
+    public static FileInstructionsDTO readInstructions(final String filePath, final ParserMode parserMode)
+            throws IOException {
+        try (final InstructionSource source = openInstructions(filePath, parserMode)) {
+            return drain(source);
+        }
+    }
+
+    /**
+     * Open file with the parser mode. Instructions are parsed as they are read from the source, caller is responsible
+     * for closing the source.
+     * @param filePath file path
+     * @param parserMode parser mode
+     * @return InstructionSource
+     * @throws IOException
+     */
+    public static InstructionSource openInstructions(final String filePath, final ParserMode parserMode)
+            throws IOException {
+        if(parserMode == null) {
+            throw new InvalidParameterException("Parser mode is required");
+        }
+        final File file = validateFile(filePath);
+        switch(parserMode) {
+            case MAPPED:
+                return new MappedInstructionSource(filePath);
+            case PARALLEL:
+                return new ParallelInstructionSource(filePath);
+            case SCANNER:
+            default:
+                return new ScannerInstructionSource(file);
+        }
+    }
+
+    /**
+     * Read all remaining instructions from source.
+     * @param source InstructionSource
+     * @return FileInstructionsDTO
+     */
+    private static FileInstructionsDTO drain(final InstructionSource source) {
+        final List<ValetInstruction> instructionList = new LinkedList<>();
+        while(source.hasNext()) {
+            instructionList.add(source.next());
+        }
+        return new FileInstructionsDTO(source.getNumberOfLots(), instructionList);
+    }
+
+    /**
+     * Check that file path is a file.
+     * @param filePath file path
+     * @return File
+     */
+    private static File validateFile(final String filePath) {
         final File file = new File(filePath);
         if(!file.isFile()) {
             throw new RuntimeException("File is not valid: " + filePath);
         }
-        int numberOfCarLots = 0;
-        int numberOfMotorcycleLots = 0;
-        final List<ValetInstruction> instructionList = new LinkedList<>();
-        try (final Scanner scanner = new Scanner(file)) {
-            if(!scanner.hasNextLine()) {
-                throw new RuntimeException("File is empty: " + filePath);
-            }
-            final String config = scanner.nextLine();
-            final String[] numberOfLots = config.trim().split(" ");
-            if(numberOfLots == null || numberOfLots.length != 2) {
-                throw new RuntimeException("First line should contain 2 integer values");
-            }
-            numberOfCarLots = Integer.valueOf(numberOfLots[0]);
-            numberOfMotorcycleLots = Integer.valueOf(numberOfLots[1]);
+        return file;
+    }
 
-            while(scanner.hasNextLine()) {
-                instructionList.add(buildInstruction(scanner.nextLine()));
-            }
+    /**
+     * Build number of lots by vehicle type from first line of file.
+     * @param config first line
+     * @return map of vehicle type to number of lots
+     */
+    static Map<VehicleType, Integer> parseNumberOfLots(final String config) {
+        final String[] numberOfLots = config.trim().split(" ");
+        if(numberOfLots == null || numberOfLots.length != 2) {
+            throw new RuntimeException("First line should contain 2 integer values");
         }
-        final Map<VehicleType, Integer> numberOfLots = new HashMap<>();
-        numberOfLots.put(VehicleType.CAR, numberOfCarLots);
-        numberOfLots.put(VehicleType.MOTORCYCLE, numberOfMotorcycleLots);
-        return new FileInstructionsDTO(numberOfLots, instructionList);
+        final int numberOfCarLots = Integer.valueOf(numberOfLots[0]);
+        final int numberOfMotorcycleLots = Integer.valueOf(numberOfLots[1]);
+
+        final Map<VehicleType, Integer> results = new HashMap<>();
+        results.put(VehicleType.CAR, numberOfCarLots);
+        results.put(VehicleType.MOTORCYCLE, numberOfMotorcycleLots);
+        return results;
     }
 
     /**
@@ -61,7 +122,7 @@ public final class FileInstructionReader {
      * @param line instruction line
      * @return ValetInstruction
      */
-    private static ValetInstruction buildInstruction(final String line) {
+    static ValetInstruction buildInstruction(final String line) {
         final String[] instructionParts = line.trim().split(" ");
         if(instructionParts == null || instructionParts.length < 1) {
             // at least 1 item
@@ -79,7 +140,7 @@ public final class FileInstructionReader {
                         .action(action)
                         .vehicleType(VehicleType.getVehicleType(instructionParts[1]))
                         .licensePlate(instructionParts[2])
-                        .timestamp(TimeUtil.convertSecondsToLocalDateTime(Long.valueOf(instructionParts[3])))
+                        .timestampSeconds(parseTimestamp(instructionParts[3], line))
                         .build();
                 break;
             case EXIT:
@@ -89,7 +150,7 @@ public final class FileInstructionReader {
                 instruction = ValetInstruction.builder()
                         .action(action)
                         .licensePlate(instructionParts[1])
-                        .timestamp(TimeUtil.convertSecondsToLocalDateTime(Long.valueOf(instructionParts[2])))
+                        .timestampSeconds(parseTimestamp(instructionParts[2], line))
                         .build();
                 break;
         }
@@ -98,4 +159,15 @@ public final class FileInstructionReader {
         }
         return instruction;
     }
+
+    /**
+     * Parse timestamp in seconds since epoch. NO_TIME and seconds that are not a valid timestamp are rejected.
+     */
+    private static long parseTimestamp(final String part, final String line) {
+        final long seconds = Long.parseLong(part);
+        if(!TimeUtil.isValidSeconds(seconds)) {
+            throw new RuntimeException("Unable to parse instruction: " + line);
+        }
+        return seconds;
+    }
 }
@@ -0,0 +1,43 @@
+package org.richmondchng.automatedvalet.file;
+
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Source of valet instructions read from a file.
+ *
+ * Instructions are parsed one at a time as they are pulled, so only the current instruction is held in memory.
+ * Parsing errors are thrown from next() when the faulty line is reached.
+ *
+ * @author richmondchng
+ */
+public interface InstructionSource extends Iterator<ValetInstruction>, AutoCloseable {
+
+    /**
+     * Get number of lots by vehicle type, from first line of file.
+     * @return map of vehicle type to number of lots
+     */
+    Map<VehicleType, Integer> getNumberOfLots();
+
+    /**
+     * Sequential stream of remaining instructions.
+     * @return stream of ValetInstruction
+     */
+    default Stream<ValetInstruction> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Release the file.
+     */
+    @Override
+    void close();
+}
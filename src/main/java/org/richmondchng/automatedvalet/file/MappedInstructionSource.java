@@ -0,0 +1,189 @@
+package org.richmondchng.automatedvalet.file;
+
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Read instruction file through a memory mapped window, and tokenize each line as bytes.
+ *
+ * The file is mapped in windows of up to 64 MB so files larger than 2 GB can be read. A line is never split across
+ * windows; the next window starts at the beginning of the line that did not fit.
+ *
+ * Lines are separated by \n, \r\n or \r, same as java.util.Scanner for single byte separators.
+ *
+ * @author richmondchng
+ */
+final class MappedInstructionSource implements InstructionSource {
+
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private final ByteInstructionParser byteInstructionParser;
+    private final Map<VehicleType, Integer> numberOfLots;
+
+    private MappedByteBuffer window;
+    // file position of window
+    private long windowPosition;
+    // position within window of next line
+    private int position;
+    // bounds of the current line within window
+    private int lineStart;
+    private int lineEnd;
+    private boolean hasLine;
+
+    /**
+     * Open file, and read the first line containing number of lots.
+     * @param filePath file path
+     * @throws IOException if file cannot be read
+     */
+    MappedInstructionSource(final String filePath) throws IOException {
+        this(filePath, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Open file, and read the first line containing number of lots.
+     * @param filePath file path
+     * @param windowSize maximum number of bytes mapped at a time, this is also the maximum length of a line
+     * @throws IOException if file cannot be read
+     */
+    MappedInstructionSource(final String filePath, final int windowSize) throws IOException {
+        this.channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        this.byteInstructionParser = new ByteInstructionParser();
+        try {
+            mapWindow(0L);
+            if(!nextLine()) {
+                throw new RuntimeException("File is empty: " + filePath);
+            }
+            this.numberOfLots = FileInstructionReader.parseNumberOfLots(decodeLine());
+            this.hasLine = nextLine();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<VehicleType, Integer> getNumberOfLots() {
+        return numberOfLots;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasLine;
+    }
+
+    /**
+     * Get next instruction.
+     * @return ValetInstruction
+     * @throws UncheckedIOException if file cannot be read
+     */
+    @Override
+    public ValetInstruction next() {
+        if(!hasLine) {
+            throw new NoSuchElementException();
+        }
+        final ValetInstruction instruction = byteInstructionParser.parse(window, lineStart, lineEnd);
+        try {
+            hasLine = nextLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return instruction;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Find bounds of next line.
+     * @return false if end of file is reached
+     */
+    private boolean nextLine() throws IOException {
+        while(true) {
+            final int limit = window.limit();
+            final boolean lastWindow = windowPosition + limit >= fileSize;
+            if(position >= limit && lastWindow) {
+                // end of file, a trailing line separator does not start another line
+                return false;
+            }
+            int index = position;
+            while(index < limit) {
+                final byte b = window.get(index);
+                if(b == LF || b == CR) {
+                    break;
+                }
+                index++;
+            }
+            if(index < limit) {
+                if(window.get(index) == CR && index + 1 >= limit && !lastWindow) {
+                    // \r at end of window, need next byte to tell if it is \r\n
+                    remapAtPosition();
+                    continue;
+                }
+                lineStart = position;
+                lineEnd = index;
+                position = index + 1;
+                if(window.get(index) == CR && position < limit && window.get(position) == LF) {
+                    position++;
+                }
+                return true;
+            }
+            if(lastWindow) {
+                // last line without line separator
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                return true;
+            }
+            remapAtPosition();
+        }
+    }
+
+    /**
+     * Map the next window starting at current line.
+     */
+    private void remapAtPosition() throws IOException {
+        if(position == 0) {
+            // the whole window is a single line
+            throw new RuntimeException("Instruction line is longer than " + windowSize + " bytes");
+        }
+        mapWindow(windowPosition + position);
+    }
+
+    private void mapWindow(final long filePosition) throws IOException {
+        final long size = Math.min(windowSize, fileSize - filePosition);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, filePosition, size);
+        windowPosition = filePosition;
+        position = 0;
+    }
+
+    private String decodeLine() {
+        final byte[] bytes = new byte[lineEnd - lineStart];
+        for(int index = 0; index < bytes.length; index++) {
+            bytes[index] = window.get(lineStart + index);
+        }
+        return new String(bytes, Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,278 @@
+package org.richmondchng.automatedvalet.file;
+
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Read instruction file in chunks that are parsed in parallel on a fork-join pool.
+ *
+ * The file is split into chunks of about the configured size, each ending on a line boundary. Each chunk is memory
+ * mapped and tokenized by its own ByteInstructionParser. Instructions are handed out in the same order as the file,
+ * and only a bounded number of chunks are parsed ahead of the reader.
+ *
+ * When a line cannot be parsed, the instructions before it are still returned, and the error is thrown when the line
+ * is reached, same as the sequential parsers.
+ *
+ * Lines are separated by \n, \r\n or \r, same as java.util.Scanner for single byte separators.
+ *
+ * @author richmondchng
+ */
+final class ParallelInstructionSource implements InstructionSource {
+
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int PROBE_SIZE = 8 * 1024;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final int maxChunksAhead;
+    private final ByteBuffer probe;
+    private final Map<VehicleType, Integer> numberOfLots;
+
+    // chunks submitted to pool, in file order
+    private final Deque<ForkJoinTask<Chunk>> pendingChunks;
+    // file position of the next chunk to submit
+    private long nextChunkPosition;
+    private Chunk currentChunk;
+    private Iterator<ValetInstruction> currentInstructions;
+
+    /**
+     * Open file, and read the first line containing number of lots. Chunks are parsed on the common pool.
+     * @param filePath file path
+     * @throws IOException if file cannot be read
+     */
+    ParallelInstructionSource(final String filePath) throws IOException {
+        this(filePath, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Open file, and read the first line containing number of lots.
+     * @param filePath file path
+     * @param chunkSize approximate number of bytes parsed by each task
+     * @param pool pool to parse chunks on
+     * @throws IOException if file cannot be read
+     */
+    ParallelInstructionSource(final String filePath, final int chunkSize, final ForkJoinPool pool) throws IOException {
+        if(chunkSize < 1) {
+            throw new InvalidParameterException("Chunk size must be positive");
+        }
+        if(pool == null) {
+            throw new InvalidParameterException("Pool cannot be null");
+        }
+        this.channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        // enough to keep every worker busy while the reader consumes the head chunk
+        this.maxChunksAhead = pool.getParallelism() * 2;
+        this.probe = ByteBuffer.allocate(PROBE_SIZE);
+        this.pendingChunks = new ArrayDeque<>(maxChunksAhead);
+        try {
+            this.fileSize = channel.size();
+            if(fileSize == 0) {
+                throw new RuntimeException("File is empty: " + filePath);
+            }
+            final long configEnd = findSeparator(0L);
+            this.numberOfLots = FileInstructionReader.parseNumberOfLots(readString(0L, configEnd));
+            this.nextChunkPosition = skipSeparator(configEnd);
+            submitChunks();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<VehicleType, Integer> getNumberOfLots() {
+        return numberOfLots;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while(currentInstructions == null || !currentInstructions.hasNext()) {
+            if(currentChunk != null && currentChunk.failure != null) {
+                // error is thrown from next()
+                return true;
+            }
+            if(pendingChunks.isEmpty()) {
+                return false;
+            }
+            currentChunk = pendingChunks.pollFirst().join();
+            currentInstructions = currentChunk.instructions.iterator();
+            submitChunks();
+        }
+        return true;
+    }
+
+    /**
+     * Get next instruction.
+     * @return ValetInstruction
+     * @throws UncheckedIOException if file cannot be read
+     */
+    @Override
+    public ValetInstruction next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if(!currentInstructions.hasNext()) {
+            throw currentChunk.failure;
+        }
+        return currentInstructions.next();
+    }
+
+    @Override
+    public void close() {
+        for(ForkJoinTask<Chunk> task : pendingChunks) {
+            task.cancel(false);
+        }
+        pendingChunks.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Split and submit chunks until the number of chunks ahead of the reader is reached, or end of file.
+     */
+    private void submitChunks() {
+        try {
+            while(pendingChunks.size() < maxChunksAhead && nextChunkPosition < fileSize) {
+                final long start = nextChunkPosition;
+                final long end = start + chunkSize >= fileSize ? fileSize : skipSeparator(findSeparator(start + chunkSize));
+                pendingChunks.addLast(pool.submit(() -> parseChunk(start, end)));
+                nextChunkPosition = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse lines between start and end. Runs on the pool.
+     * @param start file position of first line
+     * @param end file position after last line separator, or end of file
+     * @return Chunk
+     */
+    private Chunk parseChunk(final long start, final long end) {
+        final List<ValetInstruction> instructions = new ArrayList<>();
+        try {
+            if(end - start > Integer.MAX_VALUE) {
+                throw new RuntimeException("Instruction line is longer than " + Integer.MAX_VALUE + " bytes");
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            final ByteInstructionParser parser = new ByteInstructionParser();
+            final int limit = buffer.limit();
+            int position = 0;
+            while(position < limit) {
+                int index = position;
+                while(index < limit && buffer.get(index) != LF && buffer.get(index) != CR) {
+                    index++;
+                }
+                instructions.add(parser.parse(buffer, position, index));
+                position = index + 1;
+                if(index < limit && buffer.get(index) == CR && position < limit && buffer.get(position) == LF) {
+                    position++;
+                }
+            }
+            return new Chunk(instructions, null);
+        } catch (IOException e) {
+            return new Chunk(instructions, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            return new Chunk(instructions, e);
+        }
+    }
+
+    /**
+     * Find position of the next line separator.
+     * @param from file position to search from
+     * @return position of \n or \r, or file size if there is none
+     */
+    private long findSeparator(final long from) throws IOException {
+        long position = from;
+        while(position < fileSize) {
+            probe.clear();
+            final int read = channel.read(probe, position);
+            if(read <= 0) {
+                break;
+            }
+            for(int index = 0; index < read; index++) {
+                final byte b = probe.get(index);
+                if(b == LF || b == CR) {
+                    return position + index;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Get position after the line separator.
+     * @param separator position of \n or \r, or file size
+     * @return position of the next line
+     */
+    private long skipSeparator(final long separator) throws IOException {
+        if(separator >= fileSize) {
+            return fileSize;
+        }
+        probe.clear().limit(2);
+        final int read = channel.read(probe, separator);
+        if(read == 2 && probe.get(0) == CR && probe.get(1) == LF) {
+            return separator + 2;
+        }
+        return separator + 1;
+    }
+
+    private String readString(final long start, final long end) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long position = start;
+        while(position < end) {
+            probe.clear();
+            probe.limit((int) Math.min(PROBE_SIZE, end - position));
+            final int read = channel.read(probe, position);
+            if(read <= 0) {
+                break;
+            }
+            bytes.write(probe.array(), 0, read);
+            position += read;
+        }
+        return new String(bytes.toByteArray(), Charset.defaultCharset());
+    }
+
+    /**
+     * Instructions parsed from one chunk, and the error that stopped parsing if any.
+     */
+    private static final class Chunk {
+        private final List<ValetInstruction> instructions;
+        private final RuntimeException failure;
+
+        private Chunk(final List<ValetInstruction> instructions, final RuntimeException failure) {
+            this.instructions = instructions;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.richmondchng.automatedvalet.file;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Enumeration of the ways an instruction file can be parsed.
+ *
+ * @author richmondchng
+ */
+public enum ParserMode {
+    // read line by line with java.util.Scanner
+    SCANNER,
+    // memory map the file and tokenize bytes directly
+    MAPPED,
+    // split the file into chunks that are parsed in parallel, instructions are returned in file order
+    PARALLEL;
+
+    /**
+     * Get parser mode by name.
+     * @param name name
+     * @return ParserMode
+     */
+    public static ParserMode getParserMode(final String name) {
+        if(name == null) {
+            throw new InvalidParameterException("Input value is null");
+        }
+        ParserMode parserMode = null;
+        for(ParserMode pm : values()) {
+            if(pm.name().equalsIgnoreCase(name)) {
+                parserMode = pm;
+                break;
+            }
+        }
+        if(parserMode == null) {
+            throw new IllegalArgumentException("Not a valid parser mode: " + name);
+        }
+        return parserMode;
+    }
+}
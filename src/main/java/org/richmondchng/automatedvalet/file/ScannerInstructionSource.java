@@ -0,0 +1,62 @@
+package org.richmondchng.automatedvalet.file;
+
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * Read instruction file line by line with java.util.Scanner.
+ *
+ * @author richmondchng
+ */
+final class ScannerInstructionSource implements InstructionSource {
+
+    private final Scanner scanner;
+    private final Map<VehicleType, Integer> numberOfLots;
+
+    /**
+     * Open file, and read the first line containing number of lots.
+     * @param file file
+     * @throws FileNotFoundException if file is not found
+     */
+    ScannerInstructionSource(final File file) throws FileNotFoundException {
+        this.scanner = new Scanner(file);
+        try {
+            if(!scanner.hasNextLine()) {
+                throw new RuntimeException("File is empty: " + file.getPath());
+            }
+            this.numberOfLots = FileInstructionReader.parseNumberOfLots(scanner.nextLine());
+        } catch (RuntimeException e) {
+            scanner.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<VehicleType, Integer> getNumberOfLots() {
+        return numberOfLots;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return scanner.hasNextLine();
+    }
+
+    @Override
+    public ValetInstruction next() {
+        if(!scanner.hasNextLine()) {
+            throw new NoSuchElementException();
+        }
+        return FileInstructionReader.buildInstruction(scanner.nextLine());
+    }
+
+    @Override
+    public void close() {
+        scanner.close();
+    }
+}
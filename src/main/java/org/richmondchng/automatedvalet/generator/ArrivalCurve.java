@@ -0,0 +1,78 @@
+package org.richmondchng.automatedvalet.generator;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Enumeration of arrival rate curves over the hours of a day.
+ *
+ * Each curve holds a relative rate for every hour, scaled so that the average over a day is 1. The arrival rate at an
+ * hour is the configured average arrival rate multiplied by the hour's rate.
+ *
+ * @author richmondchng
+ */
+public enum ArrivalCurve {
+    // same rate throughout the day
+    FLAT(new double[]{
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1}),
+    // office car park, morning arrival peak and little traffic at night
+    COMMUTER(new double[]{
+            0.1, 0.1, 0.1, 0.1, 0.2, 0.5, 1.5, 4.0, 5.0, 2.5, 1.0, 0.8,
+            1.2, 1.0, 0.8, 0.8, 1.0, 1.2, 1.0, 0.6, 0.4, 0.3, 0.2, 0.1}),
+    // shopping mall, builds up from late morning with lunch and dinner peaks
+    MALL(new double[]{
+            0.1, 0.05, 0.05, 0.05, 0.05, 0.1, 0.2, 0.4, 0.8, 1.2, 1.8, 2.2,
+            2.6, 2.2, 1.8, 1.6, 1.6, 2.0, 2.6, 2.4, 1.6, 0.9, 0.4, 0.2});
+
+    private final double[] hourlyRates;
+    private final double maxRate;
+
+    ArrivalCurve(final double[] relativeRates) {
+        double total = 0;
+        for(double rate : relativeRates) {
+            total += rate;
+        }
+        final double average = total / relativeRates.length;
+        this.hourlyRates = new double[relativeRates.length];
+        double max = 0;
+        for(int hour = 0; hour < relativeRates.length; hour++) {
+            hourlyRates[hour] = relativeRates[hour] / average;
+            max = Math.max(max, hourlyRates[hour]);
+        }
+        this.maxRate = max;
+    }
+
+    /**
+     * Get rate of hour relative to the daily average.
+     * @param hourOfDay hour of day, 0 to 23
+     * @return relative rate
+     */
+    public double getRate(final int hourOfDay) {
+        return hourlyRates[hourOfDay];
+    }
+
+    /**
+     * Get highest relative rate of the day.
+     * @return highest relative rate
+     */
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * Get arrival curve by name.
+     * @param name name
+     * @return ArrivalCurve
+     */
+    public static ArrivalCurve getArrivalCurve(final String name) {
+        if(name == null) {
+            throw new InvalidParameterException("Input value is null");
+        }
+        for(ArrivalCurve curve : values()) {
+            if(curve.name().equalsIgnoreCase(name)) {
+                return curve;
+            }
+        }
+        throw new IllegalArgumentException("Not a valid arrival curve: " + name);
+    }
+}
@@ -0,0 +1,69 @@
+package org.richmondchng.automatedvalet.generator;
+
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * Enumeration of distributions of how long a vehicle stays parked.
+ *
+ * @author richmondchng
+ */
+public enum DwellTimeDistribution {
+    // every vehicle stays for the mean
+    FIXED {
+        @Override
+        double sample(final Random random, final double meanSeconds) {
+            return meanSeconds;
+        }
+    },
+    // uniform between 0 and twice the mean
+    UNIFORM {
+        @Override
+        double sample(final Random random, final double meanSeconds) {
+            return random.nextDouble() * 2 * meanSeconds;
+        }
+    },
+    // many short stays and a long tail
+    EXPONENTIAL {
+        @Override
+        double sample(final Random random, final double meanSeconds) {
+            return -meanSeconds * Math.log(1 - random.nextDouble());
+        }
+    },
+    // most stays close to a typical length, with a long tail
+    LOGNORMAL {
+        @Override
+        double sample(final Random random, final double meanSeconds) {
+            // mean of lognormal is exp(mu + sigma^2 / 2)
+            final double mu = Math.log(meanSeconds) - LOGNORMAL_SIGMA * LOGNORMAL_SIGMA / 2;
+            return Math.exp(mu + LOGNORMAL_SIGMA * random.nextGaussian());
+        }
+    };
+
+    private static final double LOGNORMAL_SIGMA = 0.8;
+
+    /**
+     * Sample dwell time.
+     * @param random random
+     * @param meanSeconds mean dwell time in seconds
+     * @return dwell time in seconds
+     */
+    abstract double sample(final Random random, final double meanSeconds);
+
+    /**
+     * Get dwell time distribution by name.
+     * @param name name
+     * @return DwellTimeDistribution
+     */
+    public static DwellTimeDistribution getDwellTimeDistribution(final String name) {
+        if(name == null) {
+            throw new InvalidParameterException("Input value is null");
+        }
+        for(DwellTimeDistribution distribution : values()) {
+            if(distribution.name().equalsIgnoreCase(name)) {
+                return distribution;
+            }
+        }
+        throw new IllegalArgumentException("Not a valid dwell time distribution: " + name);
+    }
+}
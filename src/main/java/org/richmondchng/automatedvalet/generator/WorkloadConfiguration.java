@@ -0,0 +1,41 @@
+package org.richmondchng.automatedvalet.generator;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Configuration of a generated workload.
+ *
+ * @author richmondchng
+ */
+@Getter
+@Builder
+public class WorkloadConfiguration {
+    @Builder.Default
+    private int numberOfCarLots = 100;
+    @Builder.Default
+    private int numberOfMotorcycleLots = 50;
+    // number of instruction lines, excluding the first line
+    @Builder.Default
+    private long numberOfInstructions = 1000000L;
+    // average arrivals per hour over a day
+    @Builder.Default
+    private double arrivalsPerHour = 60;
+    @Builder.Default
+    private ArrivalCurve arrivalCurve = ArrivalCurve.FLAT;
+    @Builder.Default
+    private double meanDwellMinutes = 120;
+    @Builder.Default
+    private DwellTimeDistribution dwellTimeDistribution = DwellTimeDistribution.EXPONENTIAL;
+    // fraction of license plates that are motorcycles
+    @Builder.Default
+    private double motorcycleRatio = 0.3;
+    // number of distinct license plates
+    @Builder.Default
+    private int numberOfPlates = 10000;
+    @Builder.Default
+    private long seed = 1L;
+    // epoch seconds of the first arrival
+    @Builder.Default
+    private long startTimestamp = 1613541902L;
+}
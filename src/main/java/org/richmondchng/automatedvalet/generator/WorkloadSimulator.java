@@ -0,0 +1,226 @@
+package org.richmondchng.automatedvalet.generator;
+
+import org.richmondchng.automatedvalet.output.OutputWriter;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Simulate gate traffic of a car park, and write it as an instruction file.
+ *
+ * Arrivals follow the arrival rate curve, each arriving vehicle is a license plate that is not currently parked.
+ * Occupancy is tracked the same way as the valet: an enter instruction is rejected when all lots of its vehicle type
+ * are occupied, and only accepted vehicles get an exit instruction after their dwell time. Every generated file is
+ * therefore processed without error.
+ *
+ * The same configuration and seed always generate the same file.
+ *
+ * @author richmondchng
+ */
+public class WorkloadSimulator {
+
+    private static final String PLATE_PREFIX = "SG";
+    private static final String[] PLATE_SUFFIXES = new String[26];
+    private static final String ENTER_CAR = "Enter car ";
+    private static final String ENTER_MOTORCYCLE = "Enter motorcycle ";
+    private static final String EXIT = "Exit ";
+    private static final double SECONDS_PER_HOUR = 3600;
+    // separate sequence for the vehicle type of each plate
+    private static final long PLATE_TYPE_SEED_MIX = 0x9E3779B97F4A7C15L;
+
+    static {
+        for(int index = 0; index < PLATE_SUFFIXES.length; index++) {
+            PLATE_SUFFIXES[index] = String.valueOf((char) ('A' + index));
+        }
+    }
+
+    private final WorkloadConfiguration configuration;
+
+    /**
+     * Constructor.
+     * @param configuration workload configuration
+     */
+    public WorkloadSimulator(final WorkloadConfiguration configuration) {
+        if(configuration == null) {
+            throw new InvalidParameterException("Workload configuration cannot be null");
+        }
+        if(configuration.getNumberOfCarLots() < 0 || configuration.getNumberOfMotorcycleLots() < 0) {
+            throw new InvalidParameterException("Number of lots cannot be negative");
+        }
+        if(configuration.getNumberOfInstructions() < 0) {
+            throw new InvalidParameterException("Number of instructions cannot be negative");
+        }
+        if(!(configuration.getArrivalsPerHour() > 0)) {
+            throw new InvalidParameterException("Arrivals per hour must be positive");
+        }
+        if(configuration.getArrivalCurve() == null) {
+            throw new InvalidParameterException("Arrival curve is required");
+        }
+        if(!(configuration.getMeanDwellMinutes() > 0)) {
+            throw new InvalidParameterException("Mean dwell minutes must be positive");
+        }
+        if(configuration.getDwellTimeDistribution() == null) {
+            throw new InvalidParameterException("Dwell time distribution is required");
+        }
+        if(!(configuration.getMotorcycleRatio() >= 0 && configuration.getMotorcycleRatio() <= 1)) {
+            throw new InvalidParameterException("Motorcycle ratio must be between 0 and 1");
+        }
+        if(configuration.getNumberOfPlates() < 1) {
+            throw new InvalidParameterException("Number of plates must be positive");
+        }
+        this.configuration = configuration;
+    }
+
+    /**
+     * Generate instructions. The first line is the number of lots.
+     * @param output output writer, not closed
+     * @return WorkloadSummary
+     * @throws IOException if output cannot be written
+     */
+    public WorkloadSummary generate(final OutputWriter output) throws IOException {
+        final Random random = new Random(configuration.getSeed());
+        final int numberOfPlates = configuration.getNumberOfPlates();
+        final BitSet motorcyclePlates = motorcyclePlates(numberOfPlates);
+        // plates that are not parked are kept at the front, so a random one is picked in constant time
+        final int[] freePlates = new int[numberOfPlates];
+        final int[] freeIndex = new int[numberOfPlates];
+        for(int plate = 0; plate < numberOfPlates; plate++) {
+            freePlates[plate] = plate;
+            freeIndex[plate] = plate;
+        }
+        int numberOfFreePlates = numberOfPlates;
+        final PriorityQueue<Departure> departures = new PriorityQueue<>(
+                Comparator.comparingLong((Departure d) -> d.timestamp).thenComparingInt(d -> d.plate));
+        int occupiedCarLots = 0;
+        int occupiedMotorcycleLots = 0;
+
+        final long numberOfInstructions = configuration.getNumberOfInstructions();
+        final double meanDwellSeconds = configuration.getMeanDwellMinutes() * 60;
+        final double maxArrivalsPerSecond = configuration.getArrivalsPerHour()
+                * configuration.getArrivalCurve().getMaxRate() / SECONDS_PER_HOUR;
+        long lines = 0;
+        long accepted = 0;
+        long rejected = 0;
+        long exited = 0;
+        long timestamp = configuration.getStartTimestamp();
+        double time = configuration.getStartTimestamp();
+
+        output.append(configuration.getNumberOfCarLots()).append(" ")
+                .append(configuration.getNumberOfMotorcycleLots()).endLine();
+        while(lines < numberOfInstructions) {
+            // next arrival, thinned from the highest rate of the day
+            do {
+                time += -Math.log(1 - random.nextDouble()) / maxArrivalsPerSecond;
+            } while(random.nextDouble() * configuration.getArrivalCurve().getMaxRate()
+                    > configuration.getArrivalCurve().getRate(hourOfDay((long) time)));
+            final long arrival = (long) time;
+
+            // vehicles leaving before the arrival
+            while(!departures.isEmpty() && departures.peek().timestamp <= arrival && lines < numberOfInstructions) {
+                final Departure departure = departures.poll();
+                writeExit(output, departure.plate, departure.timestamp);
+                timestamp = departure.timestamp;
+                if(motorcyclePlates.get(departure.plate)) {
+                    occupiedMotorcycleLots--;
+                } else {
+                    occupiedCarLots--;
+                }
+                freeIndex[departure.plate] = numberOfFreePlates;
+                freePlates[numberOfFreePlates++] = departure.plate;
+                exited++;
+                lines++;
+            }
+            if(lines >= numberOfInstructions || numberOfFreePlates == 0) {
+                // every plate is parked, no one else can arrive
+                continue;
+            }
+
+            final int plate = freePlates[random.nextInt(numberOfFreePlates)];
+            final boolean motorcycle = motorcyclePlates.get(plate);
+            writeEnter(output, plate, motorcycle, arrival);
+            timestamp = arrival;
+            lines++;
+            final boolean available = motorcycle
+                    ? occupiedMotorcycleLots < configuration.getNumberOfMotorcycleLots()
+                    : occupiedCarLots < configuration.getNumberOfCarLots();
+            if(!available) {
+                // rejected, plate is not parked
+                rejected++;
+                continue;
+            }
+            if(motorcycle) {
+                occupiedMotorcycleLots++;
+            } else {
+                occupiedCarLots++;
+            }
+            // remove from free plates, last free plate takes its place
+            final int index = freeIndex[plate];
+            final int last = freePlates[--numberOfFreePlates];
+            freePlates[index] = last;
+            freeIndex[last] = index;
+            // stays at least 1 second
+            final long dwell = Math.max(1L, Math.round(
+                    configuration.getDwellTimeDistribution().sample(random, meanDwellSeconds)));
+            departures.add(new Departure(arrival + dwell, plate));
+            accepted++;
+        }
+        return new WorkloadSummary(lines, accepted, rejected, exited, departures.size(), timestamp);
+    }
+
+    /**
+     * Decide vehicle type of each plate.
+     * @param numberOfPlates number of plates
+     * @return set of plates that are motorcycles
+     */
+    private BitSet motorcyclePlates(final int numberOfPlates) {
+        final Random random = new Random(configuration.getSeed() ^ PLATE_TYPE_SEED_MIX);
+        final BitSet motorcyclePlates = new BitSet(numberOfPlates);
+        for(int plate = 0; plate < numberOfPlates; plate++) {
+            if(random.nextDouble() < configuration.getMotorcycleRatio()) {
+                motorcyclePlates.set(plate);
+            }
+        }
+        return motorcyclePlates;
+    }
+
+    private static int hourOfDay(final long timestamp) {
+        // same time zone as instructions are read in
+        return TimeUtil.convertSecondsToLocalDateTime(timestamp).getHour();
+    }
+
+    private static void writeEnter(final OutputWriter output, final int plate, final boolean motorcycle,
+                                   final long timestamp) throws IOException {
+        output.append(motorcycle ? ENTER_MOTORCYCLE : ENTER_CAR);
+        writePlate(output, plate);
+        output.append(" ").append(timestamp).endLine();
+    }
+
+    private static void writeExit(final OutputWriter output, final int plate, final long timestamp)
+            throws IOException {
+        output.append(EXIT);
+        writePlate(output, plate);
+        output.append(" ").append(timestamp).endLine();
+    }
+
+    private static void writePlate(final OutputWriter output, final int plate) throws IOException {
+        output.append(PLATE_PREFIX).append(plate).append(PLATE_SUFFIXES[plate % PLATE_SUFFIXES.length]);
+    }
+
+    /**
+     * Scheduled exit of a parked vehicle.
+     */
+    private static final class Departure {
+        private final long timestamp;
+        private final int plate;
+
+        private Departure(final long timestamp, final int plate) {
+            this.timestamp = timestamp;
+            this.plate = plate;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.richmondchng.automatedvalet.generator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Counts of a generated workload, as the valet is expected to process it.
+ *
+ * @author richmondchng
+ */
+@Getter
+@AllArgsConstructor
+public class WorkloadSummary {
+    private long numberOfInstructions;
+    // enter instructions that are given a lot
+    private long accepted;
+    // enter instructions rejected because all lots of the vehicle type are occupied
+    private long rejected;
+    private long exited;
+    // vehicles without exit instruction at end of file
+    private long stillParked;
+    private long lastTimestamp;
+}
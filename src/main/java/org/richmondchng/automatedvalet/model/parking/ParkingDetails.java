@@ -4,23 +4,83 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * Service bean describing a parked vehicle.
  *
+ * Time in and time out are kept as seconds since epoch, TimeUtil.NO_TIME when not recorded.
+ *
  * @author richmondchng
  */
 @Getter
 @Setter
 @Builder
 public class ParkingDetails {
-    private UUID id;
+    private Long id;
     private VehicleType vehicleType;
     private String label;
     private String vehicleNumber;
-    private LocalDateTime timeIn;
-    private LocalDateTime timeOut;
+    @Builder.Default
+    private long timeInSeconds = TimeUtil.NO_TIME;
+    @Builder.Default
+    private long timeOutSeconds = TimeUtil.NO_TIME;
+
+    /**
+     * Get time in.
+     * @return LocalDateTime, or null if not recorded
+     */
+    public LocalDateTime getTimeIn() {
+        return TimeUtil.toLocalDateTime(timeInSeconds);
+    }
+
+    /**
+     * Set time in.
+     * @param timeIn LocalDateTime, or null
+     */
+    public void setTimeIn(final LocalDateTime timeIn) {
+        this.timeInSeconds = TimeUtil.toSeconds(timeIn);
+    }
+
+    /**
+     * Get time out.
+     * @return LocalDateTime, or null if not recorded
+     */
+    public LocalDateTime getTimeOut() {
+        return TimeUtil.toLocalDateTime(timeOutSeconds);
+    }
+
+    /**
+     * Set time out.
+     * @param timeOut LocalDateTime, or null
+     */
+    public void setTimeOut(final LocalDateTime timeOut) {
+        this.timeOutSeconds = TimeUtil.toSeconds(timeOut);
+    }
+
+    /**
+     * Builder, also accepts LocalDateTime time in and time out.
+     */
+    public static class ParkingDetailsBuilder {
+
+        /**
+         * Set time in.
+         * @param timeIn LocalDateTime, or null
+         * @return builder
+         */
+        public ParkingDetailsBuilder timeIn(final LocalDateTime timeIn) {
+            return timeInSeconds(TimeUtil.toSeconds(timeIn));
+        }
+
+        /**
+         * Set time out.
+         * @param timeOut LocalDateTime, or null
+         * @return builder
+         */
+        public ParkingDetailsBuilder timeOut(final LocalDateTime timeOut) {
+            return timeOutSeconds(TimeUtil.toSeconds(timeOut));
+        }
+    }
 }
@@ -0,0 +1,234 @@
+package org.richmondchng.automatedvalet.output;
+
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.time.Clock;
+
+/**
+ * Write output lines into a reusable buffer, and write the buffer to a channel in large blocks.
+ *
+ * The buffer is written when it holds at least the flush size, when a line is completed after the flush interval has
+ * passed, and on flush or close. ASCII text is copied into the buffer without creating a String; other text is
+ * encoded with the platform default charset, same as System.out. Standard output is flushed but not closed on close,
+ * so the rest of the process can still print to it.
+ *
+ * Not thread safe.
+ *
+ * @author richmondchng
+ */
+public class OutputWriter implements Flushable, Closeable {
+
+    public static final int DEFAULT_FLUSH_BYTES = 64 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(Charset.defaultCharset());
+    // Long.MIN_VALUE has 20 characters
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private final WritableByteChannel channel;
+    // false for standard output, which belongs to the process
+    private final boolean closeChannel;
+    private final ByteBuffer buffer;
+    private final int flushBytes;
+    private final long flushMillis;
+    private final Clock clock;
+    private final Charset charset;
+    private long lastFlushMillis;
+
+    /**
+     * Constructor. Flush only when buffer is full, and on flush or close.
+     * @param channel channel to write to
+     */
+    public OutputWriter(final WritableByteChannel channel) {
+        this(channel, DEFAULT_FLUSH_BYTES, 0L, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor.
+     * @param channel channel to write to
+     * @param flushBytes number of bytes buffered before writing to channel
+     * @param flushMillis maximum milliseconds a completed line is buffered, 0 to flush by size only
+     * @param clock clock for flush interval
+     */
+    public OutputWriter(final WritableByteChannel channel, final int flushBytes, final long flushMillis,
+                        final Clock clock) {
+        this(channel, flushBytes, flushMillis, clock, true);
+    }
+
+    private OutputWriter(final WritableByteChannel channel, final int flushBytes, final long flushMillis,
+                         final Clock clock, final boolean closeChannel) {
+        if(channel == null) {
+            throw new InvalidParameterException("Channel cannot be null");
+        }
+        if(flushBytes < 1) {
+            throw new InvalidParameterException("Flush bytes must be positive");
+        }
+        if(flushMillis < 0) {
+            throw new InvalidParameterException("Flush millis cannot be negative");
+        }
+        if(clock == null) {
+            throw new InvalidParameterException("Clock cannot be null");
+        }
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        // room for a long or a line separator past the flush size
+        this.buffer = ByteBuffer.allocate(flushBytes + Math.max(MAX_LONG_LENGTH, LINE_SEPARATOR.length));
+        this.flushBytes = flushBytes;
+        this.flushMillis = flushMillis;
+        this.clock = clock;
+        this.charset = Charset.defaultCharset();
+        this.lastFlushMillis = clock.millis();
+    }
+
+    /**
+     * Open writer to standard output. Standard output stays open after the writer is closed.
+     * @param flushBytes number of bytes buffered before writing
+     * @param flushMillis maximum milliseconds a completed line is buffered, 0 to flush by size only
+     * @return OutputWriter
+     */
+    public static OutputWriter toStandardOutput(final int flushBytes, final long flushMillis) {
+        return new OutputWriter(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), flushBytes,
+                flushMillis, Clock.systemUTC(), false);
+    }
+
+    /**
+     * Open writer to file. File is created, or replaced if it exists.
+     * @param filePath file path
+     * @param flushBytes number of bytes buffered before writing
+     * @param flushMillis maximum milliseconds a completed line is buffered, 0 to flush by size only
+     * @return OutputWriter
+     * @throws IOException if file cannot be opened
+     */
+    public static OutputWriter toFile(final String filePath, final int flushBytes, final long flushMillis)
+            throws IOException {
+        return new OutputWriter(FileChannel.open(Path.of(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), flushBytes, flushMillis,
+                Clock.systemUTC());
+    }
+
+    /**
+     * Append text.
+     * @param text text
+     * @return this writer
+     * @throws IOException if buffer cannot be written
+     */
+    public OutputWriter append(final CharSequence text) throws IOException {
+        final int length = text.length();
+        for(int index = 0; index < length; index++) {
+            final char c = text.charAt(index);
+            if(c >= 0x80) {
+                // not ASCII, encode the rest of the text
+                return appendBytes(text.subSequence(index, length).toString().getBytes(charset));
+            }
+            if(buffer.position() >= flushBytes) {
+                writeBuffer();
+            }
+            buffer.put((byte) c);
+        }
+        return this;
+    }
+
+    /**
+     * Append decimal number.
+     * @param value value
+     * @return this writer
+     * @throws IOException if buffer cannot be written
+     */
+    public OutputWriter append(final long value) throws IOException {
+        if(buffer.position() >= flushBytes) {
+            writeBuffer();
+        }
+        if(value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        long remaining = value;
+        if(remaining < 0) {
+            buffer.put((byte) '-');
+            remaining = -remaining;
+        }
+        // write digits from the back
+        final int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + remaining % 10));
+            remaining /= 10;
+        } while(remaining > 0);
+        final byte[] array = buffer.array();
+        for(int left = start, right = buffer.position() - 1; left < right; left++, right--) {
+            final byte b = array[left];
+            array[left] = array[right];
+            array[right] = b;
+        }
+        return this;
+    }
+
+    /**
+     * Complete line. Buffer is written if it reached the flush size or flush interval.
+     * @throws IOException if buffer cannot be written
+     */
+    public void endLine() throws IOException {
+        if(buffer.position() >= flushBytes) {
+            writeBuffer();
+        }
+        buffer.put(LINE_SEPARATOR);
+        if(buffer.position() >= flushBytes
+                || (flushMillis > 0 && clock.millis() - lastFlushMillis >= flushMillis)) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Write buffered bytes to channel.
+     * @throws IOException if buffer cannot be written
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+    }
+
+    /**
+     * Flush and close channel. Standard output is only flushed.
+     * @throws IOException if buffer cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBuffer();
+        } finally {
+            if(closeChannel) {
+                channel.close();
+            }
+        }
+    }
+
+    private OutputWriter appendBytes(final byte[] bytes) throws IOException {
+        int offset = 0;
+        while(offset < bytes.length) {
+            if(buffer.position() >= flushBytes) {
+                writeBuffer();
+            }
+            final int length = Math.min(bytes.length - offset, flushBytes - buffer.position());
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        return this;
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        lastFlushMillis = clock.millis();
+    }
+}
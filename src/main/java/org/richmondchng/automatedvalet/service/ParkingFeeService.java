@@ -10,9 +10,14 @@ import org.richmondchng.automatedvalet.exception.ParkingTimeNotRecordedException
 import org.richmondchng.automatedvalet.exception.TimeOutBeforeTimeInException;
 import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
 import org.richmondchng.automatedvalet.model.parking.ParkingDetails;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Service to calculate parking fees.
@@ -31,27 +36,67 @@ public class ParkingFeeService {
      * @return parking fee
      */
     public long calculateParkingFee(final ParkingDetails parkingDetails) {
+        validate(parkingDetails);
+        final ParkingFeeEntity parkingFeeConfig = parkingFeeRepository.findByVehicleType(parkingDetails.getVehicleType());
+        if(parkingFeeConfig == null) {
+            // no parking fee configured
+            throw new ParkingFeeNotConfiguredException(parkingDetails.getVehicleType());
+        }
+        return chargeParkingFee(parkingDetails, parkingFeeConfig);
+    }
+
+    /**
+     * Calculate parking fees for a batch of parking details. Fee configuration of each vehicle type is looked up once,
+     * and every item is validated before any parking fee is updated.
+     * @param parkingDetailsList list of parking details
+     * @return parking fees, in the same order as parking details
+     */
+    public List<Long> calculateParkingFees(final List<ParkingDetails> parkingDetailsList) {
+        if(parkingDetailsList == null) {
+            throw new InvalidParameterException("Parking details list is required");
+        }
+        final Map<VehicleType, ParkingFeeEntity> parkingFeeConfigs = new EnumMap<>(VehicleType.class);
+        for(ParkingDetails parkingDetails : parkingDetailsList) {
+            validate(parkingDetails);
+            if(!parkingFeeConfigs.containsKey(parkingDetails.getVehicleType())) {
+                final ParkingFeeEntity parkingFeeConfig = parkingFeeRepository.findByVehicleType(
+                        parkingDetails.getVehicleType());
+                if(parkingFeeConfig == null) {
+                    // no parking fee configured
+                    throw new ParkingFeeNotConfiguredException(parkingDetails.getVehicleType());
+                }
+                parkingFeeConfigs.put(parkingDetails.getVehicleType(), parkingFeeConfig);
+            }
+        }
+        final List<Long> parkingFees = new ArrayList<>(parkingDetailsList.size());
+        for(ParkingDetails parkingDetails : parkingDetailsList) {
+            parkingFees.add(chargeParkingFee(parkingDetails, parkingFeeConfigs.get(parkingDetails.getVehicleType())));
+        }
+        return parkingFees;
+    }
+
+    private void validate(final ParkingDetails parkingDetails) {
         if(parkingDetails == null) {
             throw new InvalidParameterException("Parking details is required");
         }
-        if(parkingDetails.getTimeIn() == null || parkingDetails.getTimeOut() == null) {
+        if(parkingDetails.getTimeInSeconds() == TimeUtil.NO_TIME
+                || parkingDetails.getTimeOutSeconds() == TimeUtil.NO_TIME) {
             // time stamps not recorded
             throw new ParkingTimeNotRecordedException();
         }
-        if(parkingDetails.getTimeOut().compareTo(parkingDetails.getTimeIn()) < 0) {
+        if(parkingDetails.getTimeOutSeconds() < parkingDetails.getTimeInSeconds()) {
             // time out before time in
             throw new TimeOutBeforeTimeInException();
         }
-        final ParkingFeeEntity parkingFeeConfig = parkingFeeRepository.findByVehicleType(parkingDetails.getVehicleType());
-        if(parkingFeeConfig == null) {
-            // no parking fee configured
-            throw new ParkingFeeNotConfiguredException(parkingDetails.getVehicleType());
-        }
+    }
+
+    private long chargeParkingFee(final ParkingDetails parkingDetails, final ParkingFeeEntity parkingFeeConfig) {
         final ParkedVehicleEntity parkedVehicle = parkedVehicleRepository.findById(parkingDetails.getId());
         if(parkedVehicle == null) {
-            throw new VehicleNotParkedException(parkedVehicle.getVehicleNumber());
+            throw new VehicleNotParkedException(parkingDetails.getVehicleNumber());
         }
-        final long hours = TimeUtil.calculateHours(parkingDetails.getTimeIn(), parkingDetails.getTimeOut());
+        final long hours = TimeUtil.calculateHours(parkingDetails.getTimeInSeconds(),
+                parkingDetails.getTimeOutSeconds());
         final long parkingFees = hours * parkingFeeConfig.getParkingFeePerHour();
 
         // update parking fees
@@ -10,17 +10,16 @@ import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
 import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
 import org.richmondchng.automatedvalet.model.parking.ParkingDetails;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.security.InvalidParameterException;
-import java.text.MessageFormat;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Parking valet service.
  *
+ * Safe to call from multiple threads, as long as the repositories are.
+ *
  * @author richmondchng
  */
 @RequiredArgsConstructor
@@ -29,9 +28,6 @@ public class ParkingValetService {
     private final ParkingLotRepository parkingLotRepository;
     private final ParkedVehicleRepository parkedVehicleRepository;
 
-    // parking lot label e.g. CarLot1, CarLot2, etc..., MotorcycleLot1, MotorcycleLot2, etc...
-    private static final String PARKING_LOT_LABEL = "{0}Lot{1}";
-
     /**
      * Park vehicle.
      * @param vehicleType vehicle type
@@ -40,64 +36,59 @@ public class ParkingValetService {
      * @return ParkingLot describing parking lot details, null if not parked
      */
     public ParkingDetails parkVehicle(final VehicleType vehicleType, final String vehicleNumber, final LocalDateTime timestampIn) {
+        return parkVehicle(vehicleType, vehicleNumber, TimeUtil.toSeconds(timestampIn));
+    }
+
+    /**
+     * Park vehicle.
+     * @param vehicleType vehicle type
+     * @param vehicleNumber license plate
+     * @param timestampIn timestamp entering parking, in seconds since epoch
+     * @return ParkingLot describing parking lot details, null if not parked
+     */
+    public ParkingDetails parkVehicle(final VehicleType vehicleType, final String vehicleNumber, final long timestampIn) {
         if(vehicleType == null) {
             throw new InvalidParameterException("Vehicle type is required");
         }
         if(vehicleNumber == null) {
             throw new InvalidParameterException("License plate is required");
         }
-        if(timestampIn == null) {
+        if(timestampIn == TimeUtil.NO_TIME) {
             throw new InvalidParameterException("Time in is required");
         }
 
-        // get list of parked vehicles
-        final List<ParkedVehicleEntity> parkedVehicleList = parkedVehicleRepository.findAllParkedVehicles();
-        // set containing set of parked vehicle numbers (regardless of type)
-        final Set<String> parkedVehicleNumbers = parkedVehicleList.stream().map(ParkedVehicleEntity::getVehicleNumber)
-                .collect(Collectors.toSet());
-        // check if vehicle is already parked
-        if(parkedVehicleNumbers.contains(vehicleNumber)) {
+        // check if vehicle is already parked (regardless of type)
+        if(parkedVehicleRepository.findParkedVehicleByVehicleNumber(vehicleNumber) != null) {
             throw new VehicleAlreadyParkedException(vehicleType, vehicleNumber);
         }
 
-        // get list of parking lots for vehicle type
-        final List<ParkingLotEntity> parkingLotList = parkingLotRepository.finalAllParkingLotsByVehicleTypeOrderByLotNumber(
-                vehicleType);
-        // set containing lot numbers that are already occupied by vehicle type
-        final Set<Integer> parkedLotNumbers = parkedVehicleList.stream()
-                .filter(b -> vehicleType.equals(b.getVehicleType()))
-                .map(ParkedVehicleEntity::getLotNumber)
-                .collect(Collectors.toSet());
-        // find the first available parking lot
-        ParkingLotEntity availableLot = null;
-        for(ParkingLotEntity parkingLot : parkingLotList) {
-            if(parkedLotNumbers.contains(parkingLot.getLotNumber())) {
-                // parking lot is occupied
-                continue;
-            }
-            availableLot = parkingLot;
-            break;
-        }
-
+        // allocate the available parking lot with the lowest lot number
+        final ParkingLotEntity availableLot = parkingLotRepository.allocateAvailableParkingLot(vehicleType);
         if(availableLot == null) {
             return null;
         }
         // saved parked vehicle details
-        final ParkedVehicleEntity parkedVehicleEntity = parkedVehicleRepository.save(ParkedVehicleEntity.builder()
-                .vehicleType(vehicleType)
-                .vehicleNumber(vehicleNumber)
-                .lotNumber(availableLot.getLotNumber())
-                .timeIn(timestampIn)
-                .build());
+        final ParkedVehicleEntity parkedVehicleEntity;
+        try {
+            parkedVehicleEntity = parkedVehicleRepository.save(ParkedVehicleEntity.builder()
+                    .vehicleType(vehicleType)
+                    .vehicleNumber(vehicleNumber)
+                    .lotNumber(availableLot.getLotNumber())
+                    .timeInSeconds(timestampIn)
+                    .build());
+        } catch (RuntimeException e) {
+            // same vehicle was parked by another gate after the check, or vehicle cannot be saved, give up the lot
+            parkingLotRepository.releaseParkingLot(vehicleType, availableLot.getLotNumber());
+            throw e;
+        }
 
         // create service bean to return details
         return ParkingDetails.builder()
                 .id(parkedVehicleEntity.getId())
                 .vehicleType(parkedVehicleEntity.getVehicleType())
                 .vehicleNumber(parkedVehicleEntity.getVehicleNumber())
-                .label(MessageFormat.format(PARKING_LOT_LABEL, parkedVehicleEntity.getVehicleType().getLabel(),
-                        parkedVehicleEntity.getLotNumber()))
-                .timeIn(parkedVehicleEntity.getTimeIn())
+                .label(availableLot.getLabel())
+                .timeInSeconds(parkedVehicleEntity.getTimeInSeconds())
                 .build();
     }
 
@@ -108,10 +99,20 @@ public class ParkingValetService {
      * @return ParkingLot describing parking lot details
      */
     public ParkingDetails removeVehicle(final String vehicleNumber, final LocalDateTime timestampOut) {
+        return removeVehicle(vehicleNumber, TimeUtil.toSeconds(timestampOut));
+    }
+
+    /**
+     * Remove vehicle.
+     * @param vehicleNumber license plate
+     * @param timestampOut timestamp exiting parking, in seconds since epoch
+     * @return ParkingLot describing parking lot details
+     */
+    public ParkingDetails removeVehicle(final String vehicleNumber, final long timestampOut) {
         if(vehicleNumber == null) {
             throw new InvalidParameterException("Vehicle number is required");
         }
-        if(timestampOut == null) {
+        if(timestampOut == TimeUtil.NO_TIME) {
             throw new InvalidParameterException("Time out is required");
         }
         final ParkedVehicleEntity parkedVehicleEntity = parkedVehicleRepository.findParkedVehicleByVehicleNumber(vehicleNumber);
@@ -119,23 +120,25 @@ public class ParkingValetService {
             // not found = not parked
             throw new VehicleNotParkedException(vehicleNumber);
         }
-        if(parkedVehicleEntity.getTimeIn().compareTo(timestampOut) > 0) {
+        if(parkedVehicleEntity.getTimeInSeconds() > timestampOut) {
             // time out is before time in
             throw new TimeOutBeforeTimeInException();
         }
-        // update time out
-        parkedVehicleEntity.setTimeOut(timestampOut);
-        parkedVehicleRepository.save(parkedVehicleEntity);
+        // record time out, throws VehicleNotParkedException if another gate has already exited the vehicle
+        final ParkedVehicleEntity exitedVehicleEntity = parkedVehicleRepository.exitParkedVehicle(
+                parkedVehicleEntity.getId(), timestampOut);
+        // parking lot is available again
+        parkingLotRepository.releaseParkingLot(exitedVehicleEntity.getVehicleType(), exitedVehicleEntity.getLotNumber());
 
         // create service bean to return details
         return ParkingDetails.builder()
-                .id(parkedVehicleEntity.getId())
-                .vehicleType(parkedVehicleEntity.getVehicleType())
-                .vehicleNumber(parkedVehicleEntity.getVehicleNumber())
-                .label(MessageFormat.format(PARKING_LOT_LABEL, parkedVehicleEntity.getVehicleType().getLabel(),
-                        parkedVehicleEntity.getLotNumber()))
-                .timeIn(parkedVehicleEntity.getTimeIn())
-                .timeOut(parkedVehicleEntity.getTimeOut())
+                .id(exitedVehicleEntity.getId())
+                .vehicleType(exitedVehicleEntity.getVehicleType())
+                .vehicleNumber(exitedVehicleEntity.getVehicleNumber())
+                .label(parkingLotRepository.findParkingLotLabel(exitedVehicleEntity.getVehicleType(),
+                        exitedVehicleEntity.getLotNumber()))
+                .timeInSeconds(exitedVehicleEntity.getTimeInSeconds())
+                .timeOutSeconds(exitedVehicleEntity.getTimeOutSeconds())
                 .build();
     }
 }
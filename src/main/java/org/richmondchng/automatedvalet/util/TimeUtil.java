@@ -1,17 +1,31 @@
 package org.richmondchng.automatedvalet.util;
 
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.time.temporal.ChronoUnit;
 
 /**
  * Utility class to calculate time.
  *
+ * Time is kept as seconds since epoch, LocalDateTime is only created when it is needed.
+ *
  * @author richmondchng
  */
 public final class TimeUtil {
 
+    // time not recorded
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final long SECONDS_PER_HOUR = 60 * 60;
+    // default to SG timezone of +8 hours
+    private static final ZoneOffset ZONE_OFFSET = ZoneOffset.ofHours(8);
+    // range of seconds that can be converted to timestamp
+    private static final long MIN_SECONDS = LocalDateTime.MIN.toEpochSecond(ZONE_OFFSET);
+    private static final long MAX_SECONDS = LocalDateTime.MAX.toEpochSecond(ZONE_OFFSET);
+
+    private TimeUtil() {
+        // utility class
+    }
+
     /**
      * Calculate number of hours between 2 timestamp.
      * @param time1 timestamp 1
@@ -19,23 +33,67 @@ public final class TimeUtil {
      * @return number of hours
      */
     public static long calculateHours(final LocalDateTime time1, final LocalDateTime time2) {
-        final long secs = time1.until(time2, ChronoUnit.SECONDS);
-        long hours = secs / 60 / 60;
-        long additionalSec = secs - (hours * 60 * 60);
-        if(additionalSec > 0) {
+        return calculateHours(convertLocalDateTimeToSeconds(time1), convertLocalDateTimeToSeconds(time2));
+    }
+
+    /**
+     * Calculate number of hours between 2 timestamp, part of an hour is counted as an hour.
+     * @param seconds1 seconds since epoch of timestamp 1
+     * @param seconds2 seconds since epoch of timestamp 2
+     * @return number of hours
+     */
+    public static long calculateHours(final long seconds1, final long seconds2) {
+        final long secs = seconds2 - seconds1;
+        long hours = secs / SECONDS_PER_HOUR;
+        if(secs - (hours * SECONDS_PER_HOUR) > 0) {
             hours = hours + 1;
         }
         return hours;
     }
 
     /**
-     * Convert ms since epoch to timestamp
+     * Convert seconds since epoch to timestamp
      * @param seconds seconds
      * @return LocalDateTime
      */
     public static LocalDateTime convertSecondsToLocalDateTime(final long seconds) {
         // skip nanoseconds
-        // default to SG timezone of +8 hours
-        return LocalDateTime.ofInstant(Instant.ofEpochSecond(seconds, 0), ZoneOffset.ofHours(8));
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZONE_OFFSET);
+    }
+
+    /**
+     * Convert timestamp to seconds since epoch, nanoseconds are dropped.
+     * @param timestamp LocalDateTime
+     * @return seconds
+     */
+    public static long convertLocalDateTimeToSeconds(final LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZONE_OFFSET);
+    }
+
+    /**
+     * Check if seconds since epoch is a recorded time that can be converted to timestamp.
+     * @param seconds seconds
+     * @return false if seconds is NO_TIME, or out of the range of LocalDateTime
+     */
+    public static boolean isValidSeconds(final long seconds) {
+        return seconds != NO_TIME && seconds >= MIN_SECONDS && seconds <= MAX_SECONDS;
+    }
+
+    /**
+     * Convert seconds since epoch to timestamp, when time is recorded.
+     * @param seconds seconds, or NO_TIME
+     * @return LocalDateTime, or null if time is not recorded
+     */
+    public static LocalDateTime toLocalDateTime(final long seconds) {
+        return seconds == NO_TIME ? null : convertSecondsToLocalDateTime(seconds);
+    }
+
+    /**
+     * Convert timestamp to seconds since epoch, when time is recorded.
+     * @param timestamp LocalDateTime, or null
+     * @return seconds, or NO_TIME if timestamp is null
+     */
+    public static long toSeconds(final LocalDateTime timestamp) {
+        return timestamp == null ? NO_TIME : convertLocalDateTimeToSeconds(timestamp);
     }
 }
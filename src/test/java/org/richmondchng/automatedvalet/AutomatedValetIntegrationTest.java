@@ -3,15 +3,35 @@ package org.richmondchng.automatedvalet;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.richmondchng.automatedvalet.config.ParkingLotConfiguration;
+import org.richmondchng.automatedvalet.data.archive.SessionArchiveReader;
 import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
 import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
 import org.richmondchng.automatedvalet.exception.TimeOutBeforeTimeInException;
 import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
 import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
+import org.richmondchng.automatedvalet.generator.WorkloadConfiguration;
+import org.richmondchng.automatedvalet.generator.WorkloadSimulator;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.output.OutputWriter;
 import org.richmondchng.automatedvalet.util.TimeUtil;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -23,6 +43,8 @@ import static org.junit.jupiter.api.Assertions.fail;
  */
 class AutomatedValetIntegrationTest {
 
+    private static final String NEW_LINE = System.lineSeparator();
+
     // test instance
     private AutomatedValet automatedValet;
 
@@ -128,6 +150,210 @@ class AutomatedValetIntegrationTest {
         }
     }
 
+    /**
+     * Test instructions from several gates at the same time.
+     *
+     * A lot is never held by two vehicles, and every lot is available again after all vehicles exit.
+     *
+     * @throws Exception
+     */
+    @Test
+    void testInstructionsConcurrentGates() throws Exception {
+        final int numberOfGates = 6;
+        final Set<String> heldLots = ConcurrentHashMap.newKeySet();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfGates);
+        try {
+            final List<Future<?>> gates = new ArrayList<>();
+            for(int gate = 0; gate < numberOfGates; gate++) {
+                final String vehicleNumber = "SG" + gate + "G";
+                gates.add(executor.submit(() -> {
+                    start.await();
+                    for(int round = 0; round < 2000; round++) {
+                        final long timeIn = 1613541902L + round * 10L;
+                        final String result = automatedValet.enterParking(
+                                enter(VehicleType.CAR, vehicleNumber, timeIn));
+                        if("Reject".equals(result)) {
+                            continue;
+                        }
+                        final String label = result.substring("Accept ".length());
+                        assertTrue(heldLots.add(label), label + " is held by another vehicle");
+                        // release before exit, lot can be allocated again as soon as vehicle exits
+                        heldLots.remove(label);
+                        assertEquals(label + " 2", automatedValet.exitParking(exit(vehicleNumber, timeIn + 5L)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for(Future<?> gate : gates) {
+                gate.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Accept CarLot1", automatedValet.enterParking(enter(VehicleType.CAR, "SGF9283P", 1613641902L)));
+        assertEquals("Accept CarLot2", automatedValet.enterParking(enter(VehicleType.CAR, "SGP2937F", 1613641902L)));
+        assertEquals("Accept CarLot3", automatedValet.enterParking(enter(VehicleType.CAR, "SDW2111W", 1613641902L)));
+        assertEquals("Reject", automatedValet.enterParking(enter(VehicleType.CAR, "SSD9281L", 1613641902L)));
+    }
+
+    /**
+     * Test pipeline and partitioned modes. Output is identical to serial mode, with and without an error part way through the file.
+     *
+     * @throws Exception
+     */
+    @Test
+    void testConcurrentModesSameOutputAsSerial(@TempDir final Path tempDir) throws Exception {
+        final Path file = tempDir.resolve("workload.txt");
+        try (final OutputWriter output = OutputWriter.toFile(file.toString(), OutputWriter.DEFAULT_FLUSH_BYTES, 0L)) {
+            new WorkloadSimulator(WorkloadConfiguration.builder()
+                    .numberOfCarLots(20)
+                    .numberOfMotorcycleLots(10)
+                    .numberOfInstructions(20000)
+                    .numberOfPlates(100)
+                    .build()).generate(output);
+        }
+        final byte[] serial = runMain(tempDir, file, "serial");
+        assertTrue(serial.length > 0);
+        for(String parser : new String[]{"scanner", "parallel"}) {
+            assertArrayEquals(serial, runMain(tempDir, file, "pipeline", "--parser=" + parser, "--batch-size=7"));
+            assertArrayEquals(serial, runMain(tempDir, file, "partitioned", "--parser=" + parser, "--batch-size=100"));
+        }
+
+        // vehicle not parked part way through the file
+        final Path errorFile = tempDir.resolve("error.txt");
+        final List<String> lines = Files.readAllLines(file);
+        lines.add(10000, "Exit SGNOTPARKED 1613541902");
+        Files.write(errorFile, lines);
+        final byte[] serialError = runMain(tempDir, errorFile, "serial");
+        assertArrayEquals(serialError, runMain(tempDir, errorFile, "pipeline", "--batch-size=64"));
+        assertArrayEquals(serialError, runMain(tempDir, errorFile, "partitioned", "--batch-size=64"));
+        assertTrue(serialError.length < serial.length);
+    }
+
+    /**
+     * Test journal. Vehicles parked in an earlier run are restored from the journal, keep their lots and can exit.
+     *
+     * @throws Exception
+     */
+    @Test
+    void testJournalRestoreParkedVehicles(@TempDir final Path tempDir) throws Exception {
+        final Path journal = tempDir.resolve("journal");
+        final Path day1 = tempDir.resolve("day1.txt");
+        Files.write(day1, Arrays.asList("3 4",
+                "Enter motorcycle SGX1234A 1613541902",
+                "Enter car SGF9283P 1613541902",
+                "Exit SGX1234A 1613545602"));
+        final Path day2 = tempDir.resolve("day2.txt");
+        Files.write(day2, Arrays.asList("3 4",
+                "Enter car SGP2937F 1613546029",
+                "Enter motorcycle SGX1234A 1613546029",
+                "Exit SGF9283P 1613549730"));
+
+        assertEquals("Accept MotorcycleLot1" + NEW_LINE + "Accept CarLot1" + NEW_LINE + "MotorcycleLot1 2" + NEW_LINE,
+                new String(runMain(tempDir, day1, "serial", "--journal=" + journal, "--journal-sync-records=1"),
+                        StandardCharsets.US_ASCII));
+        assertEquals("Accept CarLot2" + NEW_LINE + "Accept MotorcycleLot1" + NEW_LINE + "CarLot1 6" + NEW_LINE,
+                new String(runMain(tempDir, day2, "serial", "--journal=" + journal),
+                        StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Test occupancy table. Vehicles parked in an earlier run are restored from the occupied lots, keep their lots and
+     * can exit.
+     *
+     * @throws Exception
+     */
+    @Test
+    void testOccupancyTableRestoreParkedVehicles(@TempDir final Path tempDir) throws Exception {
+        final Path occupancyTable = tempDir.resolve("occupancy.dat");
+        final Path day1 = tempDir.resolve("day1.txt");
+        Files.write(day1, Arrays.asList("3 4",
+                "Enter motorcycle SGX1234A 1613541902",
+                "Enter car SGF9283P 1613541902",
+                "Exit SGX1234A 1613545602"));
+        final Path day2 = tempDir.resolve("day2.txt");
+        Files.write(day2, Arrays.asList("3 4",
+                "Enter car SGP2937F 1613546029",
+                "Enter motorcycle SGX1234A 1613546029",
+                "Exit SGF9283P 1613549730"));
+
+        assertEquals("Accept MotorcycleLot1" + NEW_LINE + "Accept CarLot1" + NEW_LINE + "MotorcycleLot1 2" + NEW_LINE,
+                new String(runMain(tempDir, day1, "serial", "--occupancy-table=" + occupancyTable),
+                        StandardCharsets.US_ASCII));
+        assertEquals("Accept CarLot2" + NEW_LINE + "Accept MotorcycleLot1" + NEW_LINE + "CarLot1 6" + NEW_LINE,
+                new String(runMain(tempDir, day2, "partitioned", "--occupancy-table=" + occupancyTable),
+                        StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Test database. Vehicles parked in an earlier run are kept in the database, keep their lots and can exit.
+     *
+     * @throws Exception
+     */
+    @Test
+    void testDatabaseRestoreParkedVehicles(@TempDir final Path tempDir) throws Exception {
+        final Path database = tempDir.resolve("valet");
+        final Path day1 = tempDir.resolve("day1.txt");
+        Files.write(day1, Arrays.asList("3 4",
+                "Enter motorcycle SGX1234A 1613541902",
+                "Enter car SGF9283P 1613541902",
+                "Exit SGX1234A 1613545602"));
+        final Path day2 = tempDir.resolve("day2.txt");
+        Files.write(day2, Arrays.asList("3 4",
+                "Enter car SGP2937F 1613546029",
+                "Enter motorcycle SGX1234A 1613546029",
+                "Exit SGF9283P 1613549730"));
+
+        assertEquals("Accept MotorcycleLot1" + NEW_LINE + "Accept CarLot1" + NEW_LINE + "MotorcycleLot1 2" + NEW_LINE,
+                new String(runMain(tempDir, day1, "serial", "--database=" + database, "--database-batch-size=2"),
+                        StandardCharsets.US_ASCII));
+        assertEquals("Accept CarLot2" + NEW_LINE + "Accept MotorcycleLot1" + NEW_LINE + "CarLot1 6" + NEW_LINE,
+                new String(runMain(tempDir, day2, "pipeline", "--database=" + database),
+                        StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Test archive. Exited parking sessions are moved to the archive, older ones while instructions are processed and
+     * the rest at the end.
+     *
+     * @throws Exception
+     */
+    @Test
+    void testArchiveExitedSessions(@TempDir final Path tempDir) throws Exception {
+        final Path archive = tempDir.resolve("sessions.archive");
+        final Path file = tempDir.resolve("file.txt");
+        Files.write(file, Arrays.asList("3 4",
+                "Enter motorcycle SGX1234A 1613541902",
+                "Enter car SGF9283P 1613541902",
+                "Exit SGX1234A 1613545602",
+                "Exit SGF9283P 1613549730"));
+
+        assertEquals("Accept MotorcycleLot1" + NEW_LINE + "Accept CarLot1" + NEW_LINE + "MotorcycleLot1 2" + NEW_LINE
+                        + "CarLot1 6" + NEW_LINE,
+                new String(runMain(tempDir, file, "serial", "--archive=" + archive, "--archive-history-records=1"),
+                        StandardCharsets.US_ASCII));
+        try (final SessionArchiveReader reader = new SessionArchiveReader(archive)) {
+            assertEquals(2, reader.getNumberOfSessions());
+            assertEquals(8L, reader.sumParkingFees(LocalDateTime.MIN, LocalDateTime.MAX));
+        }
+    }
+
+    private byte[] runMain(final Path tempDir, final Path file, final String mode, final String... options)
+            throws Exception {
+        final Path output = Files.createTempFile(tempDir, mode, ".out");
+        final List<String> args = new ArrayList<>(Arrays.asList(file.toString(), "--mode=" + mode,
+                "--output=" + output));
+        args.addAll(Arrays.asList(options));
+        try {
+            AutomatedValet.main(args.toArray(new String[0]));
+        } catch(VehicleNotParkedException e) {
+            assertEquals("SGNOTPARKED is not found in parking", e.getMessage());
+        }
+        return Files.readAllBytes(output);
+    }
+
     private ValetInstruction enter(final VehicleType vehicleType, final String vehicleNumber, final long seconds) {
         return ValetInstruction.builder()
                 .action(ValetAction.ENTER)
@@ -0,0 +1,47 @@
+package org.richmondchng.automatedvalet.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.InvalidParameterException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test ApplicationArguments.
+ *
+ * @author richmondchng
+ */
+class ApplicationArgumentsTest {
+
+    /**
+     * Test getOption.
+     *
+     * Supported option is returned, default value is used when option is not supplied.
+     */
+    @Test
+    void getOption_supportedOption_returnValue() {
+        final ApplicationArguments arguments = new ApplicationArguments(new String[] {"input.txt", "--parallel=4"},
+                "parallel", "output");
+        assertEquals("input.txt", arguments.getFilePath());
+        assertEquals("4", arguments.getOption("parallel", "1"));
+        assertEquals("out.txt", arguments.getOption("output", "out.txt"));
+    }
+
+    /**
+     * Test constructor.
+     *
+     * Option is misspelled, throw exception.
+     */
+    @Test
+    void constructor_unknownOption_throwException() {
+        try {
+            new ApplicationArguments(new String[] {"input.txt", "--paralel=4"}, "parallel");
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Unknown option: --paralel", e.getMessage());
+        }
+    }
+}
@@ -6,22 +6,35 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
 import org.richmondchng.automatedvalet.dto.response.ParkedDTO;
 import org.richmondchng.automatedvalet.dto.response.ParkingFeeDTO;
+import org.richmondchng.automatedvalet.dto.response.ValetResultDTO;
+import org.richmondchng.automatedvalet.dto.response.ValetResultStatus;
+import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
+import org.richmondchng.automatedvalet.exception.ParkingFeeNotConfiguredException;
+import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
 import org.richmondchng.automatedvalet.model.parking.ParkingDetails;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 import org.richmondchng.automatedvalet.service.ParkingFeeService;
 import org.richmondchng.automatedvalet.service.ParkingValetService;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
+import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.times;
@@ -69,11 +82,11 @@ class ParkingValetControllerTest {
                 .label("CarLot1")
                 .build();
         doReturn(parked).when(parkingValetService)
-                .parkVehicle(any(VehicleType.class), anyString(), any(LocalDateTime.class));
+                .parkVehicle(any(VehicleType.class), anyString(), anyLong());
 
         final ParkedDTO result = parkingValetController.enterParking(VehicleType.CAR, vehicleNumber, timeIn);
 
-        verify(parkingValetService, times(1)).parkVehicle(VehicleType.CAR, vehicleNumber, timeIn);
+        verify(parkingValetService, times(1)).parkVehicle(VehicleType.CAR, vehicleNumber, seconds(timeIn));
 
         assertNotNull(result);
         assertTrue(result.isAccepted());
@@ -89,11 +102,11 @@ class ParkingValetControllerTest {
     void enterParking_parkingNotAvailable_returnFailed() {
         final String vehicleNumber = "ABC1234Z";
         final LocalDateTime timeIn = LocalDateTime.of(2021, 10, 8, 13, 10, 11);
-        when(parkingValetService.parkVehicle(any(VehicleType.class), anyString(), any(LocalDateTime.class))).thenReturn(null);
+        when(parkingValetService.parkVehicle(any(VehicleType.class), anyString(), anyLong())).thenReturn(null);
 
         final ParkedDTO result = parkingValetController.enterParking(VehicleType.CAR, vehicleNumber, timeIn);
 
-        verify(parkingValetService, times(1)).parkVehicle(VehicleType.CAR, vehicleNumber, timeIn);
+        verify(parkingValetService, times(1)).parkVehicle(VehicleType.CAR, vehicleNumber, seconds(timeIn));
 
         assertNotNull(result);
         assertFalse(result.isAccepted());
@@ -109,7 +122,7 @@ class ParkingValetControllerTest {
     void exitParking_vehicleFound_returnSuccess() {
         final String vehicleNumber = "ABC1234Z";
         final LocalDateTime timeOut = LocalDateTime.of(2021, 10, 8, 13, 10, 11);
-        when(parkingValetService.removeVehicle(anyString(), any(LocalDateTime.class))).thenReturn(ParkingDetails.builder()
+        when(parkingValetService.removeVehicle(anyString(), anyLong())).thenReturn(ParkingDetails.builder()
                         .vehicleType(VehicleType.CAR)
                         .vehicleNumber(vehicleNumber)
                         .label("CarLot2")
@@ -119,7 +132,7 @@ class ParkingValetControllerTest {
 
         final ParkingFeeDTO result = parkingValetController.exitParking(vehicleNumber, timeOut);
 
-        verify(parkingValetService, times(1)).removeVehicle(vehicleNumber, timeOut);
+        verify(parkingValetService, times(1)).removeVehicle(vehicleNumber, seconds(timeOut));
         verify(parkingFeeService, times(1)).calculateParkingFee(any(ParkingDetails.class));
 
         assertNotNull(result);
@@ -136,14 +149,129 @@ class ParkingValetControllerTest {
     void exitParking_vehicleNotFound_throwException() {
         final String vehicleNumber = "ABC1234Z";
         final LocalDateTime timeOut = LocalDateTime.of(2021, 10, 8, 13, 10, 11);
-        when(parkingValetService.removeVehicle(anyString(), any(LocalDateTime.class))).thenThrow(new RuntimeException());
+        when(parkingValetService.removeVehicle(anyString(), anyLong())).thenThrow(new RuntimeException());
 
         try {
             parkingValetController.exitParking(vehicleNumber, timeOut);
             fail("Expect exception to be thrown");
         } catch(RuntimeException e) {
-            verify(parkingValetService, times(1)).removeVehicle(vehicleNumber, timeOut);
+            verify(parkingValetService, times(1)).removeVehicle(vehicleNumber, seconds(timeOut));
             verifyNoInteractions(parkingFeeService);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test enterParkingBatch.
+     *
+     * Return result of each instruction in input order, with accepted, rejected and error items.
+     */
+    @Test
+    void enterParkingBatch_mixedResults_returnResultsInOrder() {
+        final LocalDateTime timeIn = LocalDateTime.of(2021, 10, 8, 13, 10, 11);
+        when(parkingValetService.parkVehicle(VehicleType.CAR, "ABC1234Z", seconds(timeIn))).thenReturn(ParkingDetails.builder()
+                .vehicleType(VehicleType.CAR).vehicleNumber("ABC1234Z").timeIn(timeIn).label("CarLot1").build());
+        when(parkingValetService.parkVehicle(VehicleType.CAR, "ABC1235Z", seconds(timeIn))).thenReturn(null);
+        final VehicleAlreadyParkedException exception = new VehicleAlreadyParkedException(VehicleType.CAR, "ABC1234Z");
+        when(parkingValetService.parkVehicle(VehicleType.MOTORCYCLE, "ABC1234Z", seconds(timeIn))).thenThrow(exception);
+
+        final List<ValetResultDTO> results = parkingValetController.enterParkingBatch(Arrays.asList(
+                enter(VehicleType.CAR, "ABC1234Z", timeIn),
+                enter(VehicleType.CAR, "ABC1235Z", timeIn),
+                enter(VehicleType.MOTORCYCLE, "ABC1234Z", timeIn),
+                ValetInstruction.builder().action(ValetAction.EXIT).licensePlate("ABC1236Z").timestamp(timeIn).build()));
+
+        assertEquals(4, results.size());
+        assertEquals(ValetResultStatus.ACCEPTED, results.get(0).getStatus());
+        assertEquals("CarLot1", results.get(0).getLabel());
+        assertEquals(ValetResultStatus.REJECTED, results.get(1).getStatus());
+        assertNull(results.get(1).getLabel());
+        assertEquals(ValetResultStatus.ERROR, results.get(2).getStatus());
+        assertSame(exception, results.get(2).getError());
+        assertEquals(ValetResultStatus.ERROR, results.get(3).getStatus());
+        assertTrue(results.get(3).getError() instanceof InvalidParameterException);
+        verify(parkingValetService, times(3)).parkVehicle(any(VehicleType.class), anyString(),
+                anyLong());
+    }
+
+    /**
+     * Test exitParkingBatch.
+     *
+     * Parking fees of exited vehicles are calculated together, vehicle not parked is an error item.
+     */
+    @Test
+    void exitParkingBatch_oneVehicleNotParked_returnResultsInOrder() {
+        final LocalDateTime timeOut = LocalDateTime.of(2021, 10, 8, 13, 10, 11);
+        final ParkingDetails exited1 = ParkingDetails.builder().vehicleType(VehicleType.CAR).vehicleNumber("ABC1234Z")
+                .label("CarLot2").timeIn(LocalDateTime.of(2021, 10, 8, 11, 10, 11)).timeOut(timeOut).build();
+        final ParkingDetails exited2 = ParkingDetails.builder().vehicleType(VehicleType.MOTORCYCLE)
+                .vehicleNumber("ABC1236Z").label("MotorcycleLot1").timeIn(LocalDateTime.of(2021, 10, 8, 12, 10, 11))
+                .timeOut(timeOut).build();
+        when(parkingValetService.removeVehicle("ABC1234Z", seconds(timeOut))).thenReturn(exited1);
+        when(parkingValetService.removeVehicle("ABC1235Z", seconds(timeOut))).thenThrow(new VehicleNotParkedException("ABC1235Z"));
+        when(parkingValetService.removeVehicle("ABC1236Z", seconds(timeOut))).thenReturn(exited2);
+        when(parkingFeeService.calculateParkingFees(Arrays.asList(exited1, exited2))).thenReturn(Arrays.asList(4L, 1L));
+
+        final List<ValetResultDTO> results = parkingValetController.exitParkingBatch(Arrays.asList(
+                exit("ABC1234Z", timeOut), exit("ABC1235Z", timeOut), exit("ABC1236Z", timeOut)));
+
+        verify(parkingFeeService, times(1)).calculateParkingFees(Arrays.asList(exited1, exited2));
+        assertEquals(3, results.size());
+        assertEquals(ValetResultStatus.ACCEPTED, results.get(0).getStatus());
+        assertEquals("CarLot2", results.get(0).getLabel());
+        assertEquals(4, results.get(0).getParkingFee());
+        assertEquals(ValetResultStatus.ERROR, results.get(1).getStatus());
+        assertTrue(results.get(1).getError() instanceof VehicleNotParkedException);
+        assertEquals(ValetResultStatus.ACCEPTED, results.get(2).getStatus());
+        assertEquals("MotorcycleLot1", results.get(2).getLabel());
+        assertEquals(1, results.get(2).getParkingFee());
+    }
+
+    /**
+     * Test exitParkingBatch.
+     *
+     * Parking fees cannot be calculated together, each vehicle is calculated on its own and only the vehicle that
+     * failed is an error item.
+     */
+    @Test
+    void exitParkingBatch_oneParkingFeeFailed_returnErrorForThatVehicleOnly() {
+        final LocalDateTime timeOut = LocalDateTime.of(2021, 10, 8, 13, 10, 11);
+        final ParkingDetails exited1 = ParkingDetails.builder().vehicleType(VehicleType.CAR).vehicleNumber("ABC1234Z")
+                .label("CarLot2").timeIn(LocalDateTime.of(2021, 10, 8, 11, 10, 11)).timeOut(timeOut).build();
+        final ParkingDetails exited2 = ParkingDetails.builder().vehicleType(VehicleType.MOTORCYCLE)
+                .vehicleNumber("ABC1236Z").label("MotorcycleLot1").timeIn(LocalDateTime.of(2021, 10, 8, 12, 10, 11))
+                .timeOut(timeOut).build();
+        final ParkingFeeNotConfiguredException exception = new ParkingFeeNotConfiguredException(VehicleType.MOTORCYCLE);
+        when(parkingValetService.removeVehicle("ABC1234Z", seconds(timeOut))).thenReturn(exited1);
+        when(parkingValetService.removeVehicle("ABC1236Z", seconds(timeOut))).thenReturn(exited2);
+        when(parkingFeeService.calculateParkingFees(Arrays.asList(exited1, exited2))).thenThrow(exception);
+        when(parkingFeeService.calculateParkingFee(exited1)).thenReturn(4L);
+        when(parkingFeeService.calculateParkingFee(exited2)).thenThrow(exception);
+
+        final List<ValetResultDTO> results = parkingValetController.exitParkingBatch(Arrays.asList(
+                exit("ABC1234Z", timeOut), exit("ABC1236Z", timeOut)));
+
+        assertEquals(2, results.size());
+        assertEquals(ValetResultStatus.ACCEPTED, results.get(0).getStatus());
+        assertEquals("CarLot2", results.get(0).getLabel());
+        assertEquals(4, results.get(0).getParkingFee());
+        assertEquals(ValetResultStatus.ERROR, results.get(1).getStatus());
+        assertEquals("MotorcycleLot1", results.get(1).getLabel());
+        assertEquals(0, results.get(1).getParkingFee());
+        assertEquals(exception, results.get(1).getError());
+    }
+
+    private ValetInstruction enter(final VehicleType vehicleType, final String vehicleNumber,
+                                   final LocalDateTime timestamp) {
+        return ValetInstruction.builder().action(ValetAction.ENTER).vehicleType(vehicleType)
+                .licensePlate(vehicleNumber).timestamp(timestamp).build();
+    }
+
+    private ValetInstruction exit(final String vehicleNumber, final LocalDateTime timestamp) {
+        return ValetInstruction.builder().action(ValetAction.EXIT).licensePlate(vehicleNumber).timestamp(timestamp)
+                .build();
+    }
+
+    private static long seconds(final LocalDateTime time) {
+        return TimeUtil.convertLocalDateTimeToSeconds(time);
+    }
+}
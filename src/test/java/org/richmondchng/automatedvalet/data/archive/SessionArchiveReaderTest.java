@@ -0,0 +1,134 @@
+package org.richmondchng.automatedvalet.data.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test SessionArchiveReader.
+ *
+ * @author richmondchng
+ */
+class SessionArchiveReaderTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2021, 2, 17, 6, 5, 2);
+
+    @TempDir
+    Path tempDir;
+
+    private Path path;
+
+    /**
+     * Archive 10 sessions in blocks of 4, exiting an hour apart. Odd sessions are motorcycles with the same vehicle
+     * number.
+     *
+     * @throws Exception
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        path = tempDir.resolve("archive");
+        try (final SessionArchiveWriter writer = new SessionArchiveWriter(path, 4)) {
+            for(int index = 0; index < 10; index++) {
+                final boolean motorcycle = index % 2 == 1;
+                writer.append(ParkedVehicleEntity.builder()
+                        .id(100L + index)
+                        .vehicleType(motorcycle ? VehicleType.MOTORCYCLE : VehicleType.CAR)
+                        .vehicleNumber(motorcycle ? "SGX1234A" : "SGF928" + index + "P")
+                        .lotNumber(index + 1)
+                        .timeIn(START.plusHours(index))
+                        .timeOut(START.plusHours(index + 1))
+                        .parkingFee(index)
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * Test scan. All sessions are read back with every column.
+     *
+     * @throws Exception
+     */
+    @Test
+    void scan_wholeArchive_returnAllSessions() throws Exception {
+        final List<ParkedVehicleEntity> results = new ArrayList<>();
+        try (final SessionArchiveReader reader = new SessionArchiveReader(path)) {
+            assertEquals(10, reader.getNumberOfSessions());
+            reader.scan(LocalDateTime.MIN, LocalDateTime.MAX, results::add);
+        }
+        assertEquals(10, results.size());
+        final ParkedVehicleEntity car = results.get(6);
+        assertEquals(106L, car.getId());
+        assertEquals(VehicleType.CAR, car.getVehicleType());
+        assertEquals("SGF9286P", car.getVehicleNumber());
+        assertEquals(7, car.getLotNumber());
+        assertEquals(START.plusHours(6), car.getTimeIn());
+        assertEquals(START.plusHours(7), car.getTimeOut());
+        assertEquals(6L, car.getParkingFee());
+        final ParkedVehicleEntity motorcycle = results.get(9);
+        assertEquals(VehicleType.MOTORCYCLE, motorcycle.getVehicleType());
+        assertEquals("SGX1234A", motorcycle.getVehicleNumber());
+    }
+
+    /**
+     * Test scan. Only sessions with time out in range are returned, from inclusive and to exclusive.
+     *
+     * @throws Exception
+     */
+    @Test
+    void scan_timeOutRange_returnSessionsInRange() throws Exception {
+        final List<Long> results = new ArrayList<>();
+        try (final SessionArchiveReader reader = new SessionArchiveReader(path)) {
+            reader.scan(START.plusHours(3), START.plusHours(6), e -> results.add(e.getId()));
+        }
+        assertEquals(List.of(102L, 103L, 104L), results);
+    }
+
+    /**
+     * Test sumParkingFees. Fees of sessions with time out in range are added up, including whole blocks in range.
+     *
+     * @throws Exception
+     */
+    @Test
+    void sumParkingFees_timeOutRange_returnTotal() throws Exception {
+        try (final SessionArchiveReader reader = new SessionArchiveReader(path)) {
+            assertEquals(45L, reader.sumParkingFees(LocalDateTime.MIN, LocalDateTime.MAX));
+            // sessions 1 to 8
+            assertEquals(36L, reader.sumParkingFees(START.plusHours(2), START.plusHours(10)));
+            // session 9 exits a nanosecond before the range
+            assertEquals(0L, reader.sumParkingFees(START.plusHours(10).plusNanos(1), START.plusHours(11)));
+        }
+    }
+
+    /**
+     * Test scan. Block body is changed, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void scan_corruptedBlock_throwException() throws Exception {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), ArchiveFormat.HEADER_BYTES + 2);
+        }
+        try (final SessionArchiveReader reader = new SessionArchiveReader(path)) {
+            reader.scan(LocalDateTime.MIN, LocalDateTime.MAX, e -> { });
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Archive block at 0 is corrupted", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.richmondchng.automatedvalet.data.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test SessionArchiveWriter.
+ *
+ * @author richmondchng
+ */
+class SessionArchiveWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test append. Session without time out, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void append_withoutTimeOut_throwException() throws Exception {
+        try (final SessionArchiveWriter writer = new SessionArchiveWriter(tempDir.resolve("archive"), 2)) {
+            writer.append(ParkedVehicleEntity.builder()
+                    .id(1L)
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("SGX1234A")
+                    .lotNumber(1)
+                    .timeIn(LocalDateTime.of(2021, 2, 17, 6, 5, 2))
+                    .build());
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Exited session requires time in and time out", e.getMessage());
+        }
+    }
+
+    /**
+     * Test append. Archive is closed, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void append_closed_throwException() throws Exception {
+        final SessionArchiveWriter writer = new SessionArchiveWriter(tempDir.resolve("archive"), 2);
+        writer.close();
+        try {
+            writer.append(exited(1L, "SGX1234A", 0));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Archive is closed", e.getMessage());
+        }
+    }
+
+    /**
+     * Test constructor. Block cut short by a crash is dropped, and sessions appended after reopening follow the last
+     * complete block.
+     *
+     * @throws Exception
+     */
+    @Test
+    void constructor_tornBlock_dropBlockAndAppend() throws Exception {
+        final Path path = tempDir.resolve("archive");
+        try (final SessionArchiveWriter writer = new SessionArchiveWriter(path, 2)) {
+            writer.append(exited(1L, "SGX1234A", 0));
+            writer.append(exited(2L, "SGX1234B", 60));
+            writer.append(exited(3L, "SGX1234C", 120));
+        }
+        // cut the second block short
+        final long completeBlock;
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final List<ArchiveFormat.Block> blocks = ArchiveFormat.readBlocks(channel);
+            assertEquals(2, blocks.size());
+            completeBlock = ArchiveFormat.validLength(blocks.subList(0, 1));
+            channel.truncate(completeBlock + 5);
+        }
+
+        try (final SessionArchiveWriter writer = new SessionArchiveWriter(path, 2)) {
+            assertEquals(completeBlock, Files.size(path));
+            writer.append(exited(4L, "SGX1234D", 180));
+        }
+        final List<Long> results = new ArrayList<>();
+        try (final SessionArchiveReader reader = new SessionArchiveReader(path)) {
+            reader.scan(LocalDateTime.MIN, LocalDateTime.MAX, e -> results.add(e.getId()));
+        }
+        assertEquals(List.of(1L, 2L, 4L), results);
+    }
+
+    /**
+     * Test append. Block cannot be written, throw exception for that block and refuse later sessions.
+     *
+     * @throws Exception
+     */
+    @Test
+    void append_writeFailed_refuseLaterSessions() throws Exception {
+        final Path path = tempDir.resolve("archive");
+        final SessionArchiveWriter writer = new SessionArchiveWriter(path, 2);
+        writer.append(exited(1L, "SGX1234A", 0));
+        writer.append(exited(2L, "SGX1234B", 60));
+        writer.append(exited(3L, "SGX1234C", 120));
+        // interrupted thread closes the channel on the next write
+        Thread.currentThread().interrupt();
+        try {
+            writer.append(exited(4L, "SGX1234D", 180));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof UncheckedIOException);
+        } finally {
+            Thread.interrupted();
+        }
+        try {
+            writer.append(exited(5L, "SGX1234E", 240));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Archive has failed", e.getMessage());
+        }
+        writer.close();
+
+        final List<Long> results = new ArrayList<>();
+        try (final SessionArchiveReader reader = new SessionArchiveReader(path)) {
+            reader.scan(LocalDateTime.MIN, LocalDateTime.MAX, e -> results.add(e.getId()));
+        }
+        assertEquals(List.of(1L, 2L), results);
+    }
+
+    private ParkedVehicleEntity exited(final long id, final String vehicleNumber, final long minutes) {
+        final LocalDateTime timeIn = LocalDateTime.of(2021, 2, 17, 6, 5, 2).plusMinutes(minutes);
+        return ParkedVehicleEntity.builder()
+                .id(id)
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber(vehicleNumber)
+                .lotNumber(1)
+                .timeIn(timeIn)
+                .timeOut(timeIn.plusHours(1))
+                .parkingFee(2L)
+                .build();
+    }
+}
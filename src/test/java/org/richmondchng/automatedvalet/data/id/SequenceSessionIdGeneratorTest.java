@@ -0,0 +1,51 @@
+package org.richmondchng.automatedvalet.data.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.InvalidParameterException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test SequenceSessionIdGenerator.
+ *
+ * @author richmondchng
+ */
+class SequenceSessionIdGeneratorTest {
+
+    /**
+     * Test constructor. Negative last Id, throw exception.
+     */
+    @Test
+    void constructor_negativeLastId_throwException() {
+        try {
+            new SequenceSessionIdGenerator(-1L);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Last Id cannot be negative", e.getMessage());
+        }
+    }
+
+    /**
+     * Test nextId. Default generator starts from 1.
+     */
+    @Test
+    void nextId_defaultGenerator_startFromOne() {
+        final SequenceSessionIdGenerator generator = new SequenceSessionIdGenerator();
+        assertEquals(1L, generator.nextId());
+        assertEquals(2L, generator.nextId());
+        assertEquals(3L, generator.nextId());
+    }
+
+    /**
+     * Test nextId. Continue after last Id.
+     */
+    @Test
+    void nextId_withLastId_continueFromLastId() {
+        final SequenceSessionIdGenerator generator = new SequenceSessionIdGenerator(41L);
+        assertEquals(42L, generator.nextId());
+    }
+}
@@ -0,0 +1,57 @@
+package org.richmondchng.automatedvalet.data.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit test TimeOrderedSessionIdGenerator.
+ *
+ * @author richmondchng
+ */
+class TimeOrderedSessionIdGeneratorTest {
+
+    /**
+     * Test nextId. Id is derived from clock time.
+     */
+    @Test
+    void nextId_fixedClock_idFromTime() {
+        // 1 second after 2021-01-01T00:00:00Z
+        final Clock clock = Clock.fixed(Instant.ofEpochMilli(1609459201000L), ZoneOffset.UTC);
+        final TimeOrderedSessionIdGenerator generator = new TimeOrderedSessionIdGenerator(clock);
+
+        assertEquals(1000L << 16, generator.nextId());
+    }
+
+    /**
+     * Test nextId. Clock does not move forward, Id still increases.
+     */
+    @Test
+    void nextId_sameMillisecond_increaseSequence() {
+        final Clock clock = Clock.fixed(Instant.ofEpochMilli(1609459201000L), ZoneOffset.UTC);
+        final TimeOrderedSessionIdGenerator generator = new TimeOrderedSessionIdGenerator(clock);
+
+        final long first = generator.nextId();
+        assertEquals(first + 1, generator.nextId());
+        assertEquals(first + 2, generator.nextId());
+    }
+
+    /**
+     * Test nextId. Ids from system clock are increasing.
+     */
+    @Test
+    void nextId_systemClock_increasingIds() {
+        final TimeOrderedSessionIdGenerator generator = new TimeOrderedSessionIdGenerator();
+        long previous = generator.nextId();
+        for(int i = 0; i < 1000; i++) {
+            final long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package org.richmondchng.automatedvalet.data.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test ParkedVehicleJournal.
+ *
+ * A crash is simulated by copying the journal directory after records are forced to disk, before the journal is
+ * closed.
+ *
+ * @author richmondchng
+ */
+class ParkedVehicleJournalTest {
+
+    private static final long TIME_OUT = TimeUtil.convertLocalDateTimeToSeconds(LocalDateTime.of(2021, 2, 17, 15, 6, 42));
+
+    private static final String FIRST_SEGMENT = "segment-00000000000000000001.log";
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test open. Journal has parked and exited sessions, recover both.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_recordedSessions_recoverParkedAndExitedVehicles() throws Exception {
+        final Path crashed;
+        try (final ParkedVehicleJournal journal = open(tempDir.resolve("journal"))) {
+            assertTrue(journal.getRecoveredSessions().getParkedVehicles().isEmpty());
+            journal.recordPark(park(1L, VehicleType.MOTORCYCLE, "SGX1234A", 1));
+            journal.recordPark(park(2L, VehicleType.CAR, "SGF9283P", 1));
+            journal.recordExit(1L, TIME_OUT);
+            journal.recordFee(1L, 2L);
+            journal.sync();
+            crashed = crash(tempDir.resolve("journal"));
+        }
+
+        try (final ParkedVehicleJournal journal = open(crashed)) {
+            final RecoveredSessions recoveredSessions = journal.getRecoveredSessions();
+            assertEquals(2L, recoveredSessions.getLastId());
+            final List<ParkedVehicleEntity> parkedVehicles = recoveredSessions.getParkedVehicles();
+            assertEquals(1, parkedVehicles.size());
+            assertEquals(2L, parkedVehicles.get(0).getId());
+            assertEquals(VehicleType.CAR, parkedVehicles.get(0).getVehicleType());
+            assertEquals("SGF9283P", parkedVehicles.get(0).getVehicleNumber());
+            assertEquals(1, parkedVehicles.get(0).getLotNumber());
+            assertEquals(LocalDateTime.of(2021, 2, 17, 14, 5, 2), parkedVehicles.get(0).getTimeIn());
+            assertNull(parkedVehicles.get(0).getTimeOut());
+            final List<ParkedVehicleEntity> exitedVehicles = recoveredSessions.getExitedVehicles();
+            assertEquals(1, exitedVehicles.size());
+            assertEquals("SGX1234A", exitedVehicles.get(0).getVehicleNumber());
+            assertEquals(LocalDateTime.of(2021, 2, 17, 15, 6, 42), exitedVehicles.get(0).getTimeOut());
+            assertEquals(2L, exitedVehicles.get(0).getParkingFee());
+        }
+    }
+
+    /**
+     * Test open. Exit record was appended before the park record of the same session by another gate, recover exited
+     * session.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_exitBeforeParkRecord_recoverExitedVehicle() throws Exception {
+        final Path crashed;
+        try (final ParkedVehicleJournal journal = open(tempDir.resolve("journal"))) {
+            journal.recordExit(1L, TIME_OUT);
+            journal.recordPark(park(1L, VehicleType.CAR, "SGF9283P", 1));
+            journal.sync();
+            crashed = crash(tempDir.resolve("journal"));
+        }
+
+        try (final ParkedVehicleJournal journal = open(crashed)) {
+            assertTrue(journal.getRecoveredSessions().getParkedVehicles().isEmpty());
+            assertEquals("SGF9283P", journal.getRecoveredSessions().getExitedVehicles().get(0).getVehicleNumber());
+        }
+    }
+
+    /**
+     * Test open. Last record was torn by a crash, drop it and append new records after the last complete record.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_tornLastRecord_dropRecordAndAppendAfterIt() throws Exception {
+        final Path crashed;
+        try (final ParkedVehicleJournal journal = open(tempDir.resolve("journal"))) {
+            journal.recordPark(park(1L, VehicleType.CAR, "SGF9283P", 1));
+            journal.recordPark(park(2L, VehicleType.CAR, "SGP2937F", 2));
+            journal.sync();
+            crashed = crash(tempDir.resolve("journal"));
+        }
+        final Path segment = crashed.resolve(FIRST_SEGMENT);
+        truncate(segment, Files.size(segment) - 3);
+
+        try (final ParkedVehicleJournal journal = open(crashed)) {
+            final List<ParkedVehicleEntity> parkedVehicles = journal.getRecoveredSessions().getParkedVehicles();
+            assertEquals(1, parkedVehicles.size());
+            assertEquals("SGF9283P", parkedVehicles.get(0).getVehicleNumber());
+            journal.recordPark(park(2L, VehicleType.CAR, "SDW2111W", 2));
+        }
+
+        try (final ParkedVehicleJournal journal = open(crashed)) {
+            final List<ParkedVehicleEntity> parkedVehicles = journal.getRecoveredSessions().getParkedVehicles();
+            assertEquals(2, parkedVehicles.size());
+            assertEquals("SDW2111W", journal.getRecoveredSessions().getParkedVehicles().stream()
+                    .filter(parkedVehicle -> parkedVehicle.getId() == 2L).findFirst().get().getVehicleNumber());
+        }
+    }
+
+    /**
+     * Test open. A record does not match its checksum, stop replay before it.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_corruptedRecord_stopBeforeCorruptedRecord() throws Exception {
+        final Path crashed;
+        final long recordLength;
+        try (final ParkedVehicleJournal journal = open(tempDir.resolve("journal"))) {
+            journal.recordPark(park(1L, VehicleType.CAR, "SGF9283P", 1));
+            journal.sync();
+            recordLength = Files.size(tempDir.resolve("journal").resolve(FIRST_SEGMENT));
+            journal.recordPark(park(2L, VehicleType.CAR, "SGP2937F", 2));
+            journal.recordPark(park(3L, VehicleType.CAR, "SDW2111W", 3));
+            journal.sync();
+            crashed = crash(tempDir.resolve("journal"));
+        }
+        final Path segment = crashed.resolve(FIRST_SEGMENT);
+        final byte[] bytes = Files.readAllBytes(segment);
+        // last byte of the second vehicle number
+        bytes[(int) recordLength * 2 - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        try (final ParkedVehicleJournal journal = open(crashed)) {
+            assertEquals(1, journal.getRecoveredSessions().getParkedVehicles().size());
+            assertEquals(1L, journal.getRecoveredSessions().getLastId());
+            assertEquals(recordLength, Files.size(segment));
+        }
+    }
+
+    /**
+     * Test close. Snapshot is taken, older segments are deleted, and reopening loads the snapshot.
+     *
+     * @throws Exception
+     */
+    @Test
+    void close_recordsAppended_recoverFromSnapshot() throws Exception {
+        final Path directory = tempDir.resolve("journal");
+        try (final ParkedVehicleJournal journal = open(directory)) {
+            journal.recordPark(park(1L, VehicleType.MOTORCYCLE, "SGX1234A", 1));
+            journal.recordPark(park(2L, VehicleType.CAR, "SGF9283P", 1));
+            journal.recordExit(1L, TIME_OUT);
+        }
+        assertEquals(List.of("segment-00000000000000000002.log", "snapshot-00000000000000000002.dat"),
+                list(directory));
+
+        try (final ParkedVehicleJournal journal = open(directory)) {
+            final RecoveredSessions recoveredSessions = journal.getRecoveredSessions();
+            assertEquals(2L, recoveredSessions.getLastId());
+            assertEquals(1, recoveredSessions.getParkedVehicles().size());
+            assertEquals("SGF9283P", recoveredSessions.getParkedVehicles().get(0).getVehicleNumber());
+            assertEquals(LocalDateTime.of(2021, 2, 17, 14, 5, 2), recoveredSessions.getParkedVehicles().get(0)
+                    .getTimeIn());
+            assertTrue(recoveredSessions.getExitedVehicles().isEmpty());
+        }
+    }
+
+    /**
+     * Test periodic snapshot. Snapshot plus the segments after it recover every parked vehicle, older segments are
+     * deleted.
+     *
+     * @throws Exception
+     */
+    @Test
+    void recordPark_snapshotRecordsReached_recoverFromSnapshotAndTail() throws Exception {
+        final Path directory = tempDir.resolve("journal");
+        final Path crashed;
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(directory, JournalConfiguration.builder()
+                .syncRecords(1)
+                .segmentBytes(64 * 1024)
+                .snapshotRecords(1000)
+                .build())) {
+            for(long id = 1; id <= 2500; id++) {
+                journal.recordPark(park(id, VehicleType.CAR, "SG" + id + "C", (int) id));
+                if(id % 2 == 0) {
+                    journal.recordExit(id, TIME_OUT);
+                }
+            }
+            crashed = crash(directory);
+        }
+        final List<String> files = list(crashed);
+        assertEquals(1, files.stream().filter(file -> file.startsWith("snapshot-")).count());
+        assertTrue(files.stream().noneMatch(file -> file.equals(FIRST_SEGMENT)));
+
+        try (final ParkedVehicleJournal journal = open(crashed)) {
+            final RecoveredSessions recoveredSessions = journal.getRecoveredSessions();
+            assertEquals(2500L, recoveredSessions.getLastId());
+            assertEquals(1250, recoveredSessions.getParkedVehicles().size());
+            assertTrue(recoveredSessions.getParkedVehicles().stream()
+                    .allMatch(parkedVehicle -> parkedVehicle.getId() % 2 == 1));
+        }
+    }
+
+    /**
+     * Test snapshot. Exit was appended before the snapshot and the park record of the same session after it, vehicle
+     * is not recovered as parked.
+     *
+     * @throws Exception
+     */
+    @Test
+    void snapshot_exitBeforeSnapshotParkAfter_notParked() throws Exception {
+        final Path directory = tempDir.resolve("journal");
+        final Path crashed;
+        try (final ParkedVehicleJournal journal = open(directory)) {
+            journal.recordExit(1L, TIME_OUT);
+            journal.snapshot();
+            journal.recordPark(park(1L, VehicleType.CAR, "SGF9283P", 1));
+            journal.sync();
+            crashed = crash(directory);
+        }
+
+        try (final ParkedVehicleJournal journal = open(crashed)) {
+            assertTrue(journal.getRecoveredSessions().getParkedVehicles().isEmpty());
+            assertEquals(1L, journal.getRecoveredSessions().getLastId());
+        }
+    }
+
+    /**
+     * Test open. Snapshot is corrupted, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_corruptedSnapshot_throwException() throws Exception {
+        final Path directory = tempDir.resolve("journal");
+        try (final ParkedVehicleJournal journal = open(directory)) {
+            journal.recordPark(park(1L, VehicleType.CAR, "SGF9283P", 1));
+        }
+        final Path snapshot = directory.resolve("snapshot-00000000000000000002.dat");
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 5] ^= 1;
+        Files.write(snapshot, bytes);
+        try {
+            open(directory);
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Snapshot snapshot-00000000000000000002.dat is corrupted", e.getMessage());
+        }
+    }
+
+    /**
+     * Test record after close, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void recordPark_journalClosed_throwException() throws Exception {
+        final ParkedVehicleJournal journal = open(tempDir.resolve("journal"));
+        journal.close();
+        try {
+            journal.recordPark(park(1L, VehicleType.CAR, "SGF9283P", 1));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Journal is closed", e.getMessage());
+        }
+    }
+
+    /**
+     * Test constructor. Sync records is not positive, throw exception.
+     */
+    @Test
+    void constructor_invalidSyncRecords_throwException() {
+        try {
+            new ParkedVehicleJournal(tempDir.resolve("journal"), JournalConfiguration.builder().syncRecords(0).build());
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Sync records must be positive", e.getMessage());
+        }
+    }
+
+    private static ParkedVehicleJournal open(final Path directory) throws IOException {
+        return new ParkedVehicleJournal(directory, JournalConfiguration.builder()
+                .syncRecords(2)
+                .snapshotRecords(0L)
+                .build());
+    }
+
+    private static ParkedVehicleEntity park(final long id, final VehicleType vehicleType, final String vehicleNumber,
+                                            final int lotNumber) {
+        return ParkedVehicleEntity.builder()
+                .id(id)
+                .vehicleType(vehicleType)
+                .vehicleNumber(vehicleNumber)
+                .lotNumber(lotNumber)
+                .timeIn(LocalDateTime.of(2021, 2, 17, 14, 5, 2))
+                .build();
+    }
+
+    /**
+     * Copy journal directory as it would be found after a crash.
+     */
+    private Path crash(final Path directory) throws IOException {
+        final Path crashed = Files.createTempDirectory(tempDir, "crashed");
+        for(String file : list(directory)) {
+            Files.copy(directory.resolve(file), crashed.resolve(file));
+        }
+        return crashed;
+    }
+
+    private static List<String> list(final Path directory) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void truncate(final Path path, final long size) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.richmondchng.automatedvalet.data.occupancy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test LotOccupancyTable.
+ *
+ * @author richmondchng
+ */
+class LotOccupancyTableTest {
+
+    private static final Map<VehicleType, Integer> CONFIGURATIONS = Map.of(VehicleType.CAR, 3,
+            VehicleType.MOTORCYCLE, 2);
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test open. New file has all lots free, with one slot per lot after the header, then one overflow area per lot.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_newFile_allLotsFree() throws Exception {
+        final Path path = tempDir.resolve("occupancy.dat");
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(path, CONFIGURATIONS)) {
+            assertTrue(occupancyTable.getParkedVehicles().isEmpty());
+            assertFalse(occupancyTable.isOccupied(VehicleType.MOTORCYCLE, 2));
+            assertEquals(0L, occupancyTable.getLastId());
+        }
+        assertEquals(4096 + 5 * (LotOccupancyTable.SLOT_BYTES + LotOccupancyTable.OVERFLOW_BYTES), Files.size(path));
+    }
+
+    /**
+     * Test open. Occupied lots are read back after the table is mapped again, released lots are not.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_occupiedLots_recoverParkedVehicles() throws Exception {
+        final Path path = tempDir.resolve("occupancy.dat");
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(path, CONFIGURATIONS)) {
+            occupancyTable.occupy(park(1L, VehicleType.MOTORCYCLE, "SGX1234A", 2));
+            occupancyTable.occupy(park(2L, VehicleType.CAR, "SGF9283P", 3));
+            occupancyTable.occupy(park(3L, VehicleType.CAR, "SGP2937F", 1));
+            occupancyTable.release(VehicleType.CAR, 1, 3L);
+        }
+
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(path, CONFIGURATIONS)) {
+            assertEquals(3L, occupancyTable.getLastId());
+            final List<ParkedVehicleEntity> parkedVehicles = occupancyTable.getParkedVehicles();
+            assertEquals(2, parkedVehicles.size());
+            // in order of vehicle type and lot number
+            assertEquals(2L, parkedVehicles.get(0).getId());
+            assertEquals(VehicleType.CAR, parkedVehicles.get(0).getVehicleType());
+            assertEquals("SGF9283P", parkedVehicles.get(0).getVehicleNumber());
+            assertEquals(3, parkedVehicles.get(0).getLotNumber());
+            assertEquals(LocalDateTime.of(2021, 2, 17, 14, 5, 2), parkedVehicles.get(0).getTimeIn());
+            assertNull(parkedVehicles.get(0).getTimeOut());
+            assertEquals(1L, parkedVehicles.get(1).getId());
+            assertEquals(VehicleType.MOTORCYCLE, parkedVehicles.get(1).getVehicleType());
+            assertEquals(2, parkedVehicles.get(1).getLotNumber());
+        }
+    }
+
+    /**
+     * Test occupy. Time in is written as the seconds kept by the session, in the slot after the session Id.
+     *
+     * @throws Exception
+     */
+    @Test
+    void occupy_timeIn_writeEpochSeconds() throws Exception {
+        final Path path = tempDir.resolve("occupancy.dat");
+        final ParkedVehicleEntity parkedVehicle = park(1L, VehicleType.CAR, "SGF9283P", 1);
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(path, CONFIGURATIONS)) {
+            occupancyTable.occupy(parkedVehicle);
+        }
+        // first slot follows the header page
+        assertEquals(parkedVehicle.getTimeInSeconds(), ByteBuffer.wrap(Files.readAllBytes(path)).getLong(4096 + 16));
+    }
+
+    /**
+     * Test release. Lot is occupied by another session, lot is not released.
+     *
+     * @throws Exception
+     */
+    @Test
+    void release_otherSession_lotStillOccupied() throws Exception {
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(tempDir.resolve("occupancy.dat"),
+                CONFIGURATIONS)) {
+            occupancyTable.occupy(park(2L, VehicleType.CAR, "SGF9283P", 1));
+            occupancyTable.release(VehicleType.CAR, 1, 1L);
+
+            assertTrue(occupancyTable.isOccupied(VehicleType.CAR, 1));
+        }
+    }
+
+    /**
+     * Test occupy. Vehicle number does not fit in slot, rest of it is kept in the overflow area and read back.
+     *
+     * @throws Exception
+     */
+    @Test
+    void occupy_longVehicleNumber_recoverWholeVehicleNumber() throws Exception {
+        final Path path = tempDir.resolve("occupancy.dat");
+        final String longVehicleNumber = "SGF9283P".repeat(32);
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(path, CONFIGURATIONS)) {
+            occupancyTable.occupy(park(1L, VehicleType.CAR, longVehicleNumber, 3));
+            occupancyTable.occupy(park(2L, VehicleType.MOTORCYCLE, "S".repeat(33), 1));
+            occupancyTable.occupy(park(3L, VehicleType.CAR, "SGP2937F", 2));
+        }
+
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(path, CONFIGURATIONS)) {
+            final List<ParkedVehicleEntity> parkedVehicles = occupancyTable.getParkedVehicles();
+            assertEquals(3, parkedVehicles.size());
+            assertEquals("SGP2937F", parkedVehicles.get(0).getVehicleNumber());
+            assertEquals(longVehicleNumber, parkedVehicles.get(1).getVehicleNumber());
+            assertEquals("S".repeat(33), parkedVehicles.get(2).getVehicleNumber());
+        }
+    }
+
+    /**
+     * Test occupy. Vehicle number does not fit in slot and overflow area, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void occupy_vehicleNumberTooLong_throwException() throws Exception {
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(tempDir.resolve("occupancy.dat"),
+                CONFIGURATIONS)) {
+            occupancyTable.occupy(park(1L, VehicleType.CAR, "S".repeat(257), 1));
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Vehicle number is too long", e.getMessage());
+        }
+    }
+
+    /**
+     * Test open. File was created for a different number of lots, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void open_differentConfiguration_throwException() throws Exception {
+        final Path path = tempDir.resolve("occupancy.dat");
+        new LotOccupancyTable(path, CONFIGURATIONS).close();
+        try {
+            new LotOccupancyTable(path, Map.of(VehicleType.CAR, 2, VehicleType.MOTORCYCLE, 3));
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Occupancy table occupancy.dat does not match parking lot configuration", e.getMessage());
+        }
+    }
+
+    private static ParkedVehicleEntity park(final long id, final VehicleType vehicleType, final String vehicleNumber,
+                                            final int lotNumber) {
+        return ParkedVehicleEntity.builder()
+                .id(id)
+                .vehicleType(vehicleType)
+                .vehicleNumber(vehicleNumber)
+                .lotNumber(lotNumber)
+                .timeIn(LocalDateTime.of(2021, 2, 17, 14, 5, 2))
+                .build();
+    }
+}
@@ -10,12 +10,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
 import org.richmondchng.automatedvalet.data.storage.ParkedVehicleDataStorage;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -23,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
@@ -79,7 +80,7 @@ class ParkedVehicleRepositoryImplTest {
 
         doAnswer(invocationOnMock -> {
             final ParkedVehicleEntity param = invocationOnMock.getArgument(0, ParkedVehicleEntity.class);
-            param.setId(UUID.randomUUID());
+            param.setId(100L);
             return param;
         }).when(parkedVehicleDataStorage).save(any(ParkedVehicleEntity.class));
 
@@ -102,6 +103,33 @@ class ParkedVehicleRepositoryImplTest {
         assertEquals(LocalDateTime.of(2021, 5, 4, 10, 20, 1), result.getTimeIn());
     }
 
+    /**
+     * Test exitParkedVehicle.
+     *
+     * Return copy of the exited record.
+     */
+    @Test
+    void exitParkedVehicle_validId_returnCopy() {
+        final ParkedVehicleEntity exited = ParkedVehicleEntity.builder()
+                .id(1L)
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(2)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .timeOut(LocalDateTime.of(2021, 5, 4, 11, 20, 1))
+                .build();
+        when(parkedVehicleDataStorage.exit(any(Long.class), anyLong())).thenReturn(exited);
+
+        final ParkedVehicleEntity result = parkedVehicleRepository.exitParkedVehicle(1L,
+                seconds(LocalDateTime.of(2021, 5, 4, 11, 20, 1)));
+        verify(parkedVehicleDataStorage, times(1)).exit(1L, seconds(LocalDateTime.of(2021, 5, 4, 11, 20, 1)));
+        assertTrue(result != exited);
+        assertEquals(1L, result.getId());
+        assertEquals("ABC3456U", result.getVehicleNumber());
+        assertEquals(2, result.getLotNumber());
+        assertEquals(LocalDateTime.of(2021, 5, 4, 11, 20, 1), result.getTimeOut());
+    }
+
     /**
      * Test findAllParkedVehicles.
      *
@@ -186,7 +214,7 @@ class ParkedVehicleRepositoryImplTest {
     @Test
     void findParkedVehicleByVehicleNumber_matchedVehicleNumber_returnEntity() {
         when(parkedVehicleDataStorage.getParkedVehicleByVehicleNumber(anyString())).thenReturn(ParkedVehicleEntity.builder()
-                .id(UUID.randomUUID())
+                .id(100L)
                 .vehicleType(VehicleType.CAR)
                 .vehicleNumber("ABC3456U")
                 .lotNumber(2)
@@ -212,9 +240,9 @@ class ParkedVehicleRepositoryImplTest {
      */
     @Test
     void findById_noMatch_returnNull() {
-        when(parkedVehicleDataStorage.getRecordById(any(UUID.class))).thenReturn(null);
+        when(parkedVehicleDataStorage.getRecordById(any(Long.class))).thenReturn(null);
 
-        final UUID id = UUID.randomUUID();
+        final Long id = 100L;
         final ParkedVehicleEntity result = parkedVehicleRepository.findById(id);
 
         verify(parkedVehicleDataStorage, times(1)).getRecordById(id);
@@ -228,8 +256,8 @@ class ParkedVehicleRepositoryImplTest {
      */
     @Test
     void findById_matchedID_returnEntity() {
-        final UUID id = UUID.randomUUID();
-        when(parkedVehicleDataStorage.getRecordById(any(UUID.class))).thenReturn(ParkedVehicleEntity.builder()
+        final Long id = 100L;
+        when(parkedVehicleDataStorage.getRecordById(any(Long.class))).thenReturn(ParkedVehicleEntity.builder()
                 .id(id)
                 .vehicleType(VehicleType.CAR)
                 .vehicleNumber("ABC3456U")
@@ -248,4 +276,8 @@ class ParkedVehicleRepositoryImplTest {
         assertNotNull(result.getTimeIn());
         assertNotNull(result.getTimeOut());
     }
-}
\ No newline at end of file
+
+    private static long seconds(final LocalDateTime time) {
+        return TimeUtil.convertLocalDateTimeToSeconds(time);
+    }
+}
@@ -17,9 +17,12 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -129,4 +132,66 @@ class ParkingLotRepositoryImplTest {
             verify(parkingLotDataStorage, times(1)).getByVehicleType(VehicleType.CAR);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test allocateAvailableParkingLot.
+     *
+     * No available lot in data storage, return null.
+     */
+    @Test
+    void allocateAvailableParkingLot_noAvailableLot_returnNull() {
+        when(parkingLotDataStorage.allocateAvailableLot(any(VehicleType.class))).thenReturn(null);
+
+        final ParkingLotEntity result = parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR);
+        assertNull(result);
+
+        verify(parkingLotDataStorage, times(1)).allocateAvailableLot(VehicleType.CAR);
+    }
+
+    /**
+     * Test allocateAvailableParkingLot.
+     *
+     * Has available lot in data storage, return a copy.
+     */
+    @Test
+    void allocateAvailableParkingLot_hasAvailableLot_returnCopy() {
+        final ParkingLotEntity entity = ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(3)
+                .label("CarLot3").build();
+        when(parkingLotDataStorage.allocateAvailableLot(any(VehicleType.class))).thenReturn(entity);
+
+        final ParkingLotEntity result = parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR);
+        assertNotNull(result);
+        assertNotSame(entity, result);
+        assertEquals(VehicleType.CAR, result.getVehicleType());
+        assertEquals(3, result.getLotNumber());
+        assertEquals("CarLot3", result.getLabel());
+
+        verify(parkingLotDataStorage, times(1)).allocateAvailableLot(VehicleType.CAR);
+    }
+
+    /**
+     * Test releaseParkingLot.
+     *
+     * Release lot in data storage.
+     */
+    @Test
+    void releaseParkingLot_releaseLot() {
+        parkingLotRepository.releaseParkingLot(VehicleType.MOTORCYCLE, 2);
+
+        verify(parkingLotDataStorage, times(1)).releaseLot(VehicleType.MOTORCYCLE, 2);
+    }
+
+    /**
+     * Test findParkingLotLabel.
+     *
+     * Return label from data storage.
+     */
+    @Test
+    void findParkingLotLabel_returnLabel() {
+        when(parkingLotDataStorage.getLabel(any(VehicleType.class), anyInt())).thenReturn("MotorcycleLot2");
+
+        assertEquals("MotorcycleLot2", parkingLotRepository.findParkingLotLabel(VehicleType.MOTORCYCLE, 2));
+
+        verify(parkingLotDataStorage, times(1)).getLabel(VehicleType.MOTORCYCLE, 2);
+    }
+}
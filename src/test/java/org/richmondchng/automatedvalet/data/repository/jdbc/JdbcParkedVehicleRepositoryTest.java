@@ -0,0 +1,256 @@
+package org.richmondchng.automatedvalet.data.repository.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.data.id.SequenceSessionIdGenerator;
+import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
+import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test JdbcParkedVehicleRepository.
+ *
+ * @author richmondchng
+ */
+class JdbcParkedVehicleRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ValetDatabase database;
+
+    // test instance
+    private JdbcParkedVehicleRepository parkedVehicleRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // commit every 2 writes, so that tests see sessions both held back and written
+        database = new ValetDatabase(tempDir.resolve("valet"), 2);
+        parkedVehicleRepository = new JdbcParkedVehicleRepository(database, new SequenceSessionIdGenerator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+        parkedVehicleRepository = null;
+    }
+
+    /**
+     * Test save.
+     *
+     * New vehicle is given an Id, and found by vehicle number and Id.
+     */
+    @Test
+    void save_newVehicle_findByVehicleNumberAndId() {
+        final ParkedVehicleEntity result = parkedVehicleRepository.save(park("SGX1234A", 1));
+        assertEquals(1L, result.getId());
+
+        assertEquals(1L, parkedVehicleRepository.findParkedVehicleByVehicleNumber("SGX1234A").getId());
+        assertEquals("SGX1234A", parkedVehicleRepository.findById(1L).getVehicleNumber());
+        assertEquals(LocalDateTime.of(2021, 2, 17, 14, 5, 2), parkedVehicleRepository.findById(1L).getTimeIn());
+        assertNull(parkedVehicleRepository.findParkedVehicleByVehicleNumber("SGF9283P"));
+    }
+
+    /**
+     * Test save.
+     *
+     * Vehicle number is already parked, throw exception.
+     */
+    @Test
+    void save_vehicleAlreadyParked_throwException() {
+        parkedVehicleRepository.save(park("SGX1234A", 1));
+        // written to the database
+        parkedVehicleRepository.save(park("SGF9283P", 2));
+        try {
+            parkedVehicleRepository.save(park("SGX1234A", 3));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof VehicleAlreadyParkedException);
+        }
+    }
+
+    /**
+     * Test exitParkedVehicle.
+     *
+     * Vehicle is no longer parked, and cannot exit again.
+     */
+    @Test
+    void exitParkedVehicle_parkedVehicle_noLongerParked() {
+        parkedVehicleRepository.save(park("SGX1234A", 1));
+        parkedVehicleRepository.save(park("SGF9283P", 2));
+
+        final ParkedVehicleEntity result = parkedVehicleRepository.exitParkedVehicle(1L,
+                seconds(LocalDateTime.of(2021, 2, 17, 16, 5, 2)));
+        assertEquals(LocalDateTime.of(2021, 2, 17, 16, 5, 2), result.getTimeOut());
+        assertNull(parkedVehicleRepository.findParkedVehicleByVehicleNumber("SGX1234A"));
+        final List<ParkedVehicleEntity> parkedVehicles = parkedVehicleRepository.findAllParkedVehicles();
+        assertEquals(1, parkedVehicles.size());
+        assertEquals("SGF9283P", parkedVehicles.get(0).getVehicleNumber());
+        try {
+            parkedVehicleRepository.exitParkedVehicle(1L, seconds(LocalDateTime.of(2021, 2, 17, 16, 5, 2)));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof VehicleNotParkedException);
+            assertEquals("SGX1234A is not found in parking", e.getMessage());
+        }
+    }
+
+    /**
+     * Test save.
+     *
+     * Vehicle parks again after its exited session is written, and the fee of the exited session is saved later.
+     * Vehicle is still parked in its new session.
+     */
+    @Test
+    void save_feeOfExitedSession_newSessionStillParked() {
+        parkedVehicleRepository.save(park("SGX1234A", 1));
+        parkedVehicleRepository.exitParkedVehicle(1L, seconds(LocalDateTime.of(2021, 2, 17, 16, 5, 2)));
+        parkedVehicleRepository.save(park("SGX1234A", 2));
+        parkedVehicleRepository.save(park("SGF9283P", 3));
+
+        final ParkedVehicleEntity exited = parkedVehicleRepository.findById(1L);
+        exited.setParkingFee(6L);
+        parkedVehicleRepository.save(exited);
+
+        assertEquals(2L, parkedVehicleRepository.findParkedVehicleByVehicleNumber("SGX1234A").getId());
+        assertEquals(6L, parkedVehicleRepository.findById(1L).getParkingFee());
+    }
+
+    /**
+     * Test restart. Sessions are written on close, and found after the database is opened again.
+     *
+     * @throws Exception
+     */
+    @Test
+    void close_sessionsHeldBack_foundAfterRestart() throws Exception {
+        parkedVehicleRepository.save(park("SGX1234A", 1));
+        database.close();
+
+        database = new ValetDatabase(tempDir.resolve("valet"), 2);
+        assertEquals(1L, database.getLastId());
+        parkedVehicleRepository = new JdbcParkedVehicleRepository(database,
+                new SequenceSessionIdGenerator(database.getLastId()));
+        assertEquals(1L, parkedVehicleRepository.findParkedVehicleByVehicleNumber("SGX1234A").getId());
+        assertEquals(2L, parkedVehicleRepository.save(park("SGF9283P", 2)).getId());
+    }
+
+    /**
+     * Test save. Time in and time out are written as the seconds kept by the session, and not recorded time is null.
+     *
+     * @throws Exception
+     */
+    @Test
+    void save_exitedSession_writeEpochSeconds() throws Exception {
+        parkedVehicleRepository.save(park("SGX1234A", 1));
+        parkedVehicleRepository.save(park("SGF9283P", 2));
+        parkedVehicleRepository.exitParkedVehicle(1L, seconds(LocalDateTime.of(2021, 2, 17, 16, 5, 2)));
+        database.commit();
+
+        synchronized(database) {
+            try (final ResultSet resultSet = database.prepare("SELECT time_in_seconds, time_out_seconds "
+                    + "FROM parked_vehicle ORDER BY id").executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals(seconds(LocalDateTime.of(2021, 2, 17, 14, 5, 2)), resultSet.getLong(1));
+                assertEquals(seconds(LocalDateTime.of(2021, 2, 17, 16, 5, 2)), resultSet.getLong(2));
+                assertTrue(resultSet.next());
+                resultSet.getLong(2);
+                assertTrue(resultSet.wasNull());
+            }
+        }
+        assertEquals(TimeUtil.NO_TIME, parkedVehicleRepository.findById(2L).getTimeOutSeconds());
+    }
+
+    /**
+     * Test save. Commit fails while the session is counted, session is not held back, database refuses later calls,
+     * and the session is not found after restart.
+     *
+     * @throws Exception
+     */
+    @Test
+    void save_commitFailed_sessionNotKept() throws Exception {
+        database.close();
+        database = new ValetDatabase(tempDir.resolve("valet"), 1);
+        database.addBatchedWrites(() -> {
+            throw new SQLException("Disk is full");
+        });
+        parkedVehicleRepository = new JdbcParkedVehicleRepository(database, new SequenceSessionIdGenerator());
+        try {
+            parkedVehicleRepository.save(park("SGX1234A", 1));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Database cannot be accessed", e.getMessage());
+        }
+        try {
+            parkedVehicleRepository.findParkedVehicleByVehicleNumber("SGX1234A");
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Database has failed", e.getMessage());
+        }
+        database.close();
+
+        database = new ValetDatabase(tempDir.resolve("valet"), 2);
+        parkedVehicleRepository = new JdbcParkedVehicleRepository(database, new SequenceSessionIdGenerator());
+        assertNull(parkedVehicleRepository.findParkedVehicleByVehicleNumber("SGX1234A"));
+    }
+
+    /**
+     * Test exitParkedVehicle. Commit fails while the exit is counted, session held back is still parked.
+     *
+     * @throws Exception
+     */
+    @Test
+    void exitParkedVehicle_commitFailed_sessionHeldBackUnchanged() throws Exception {
+        database.close();
+        database = new ValetDatabase(tempDir.resolve("valet"), 2);
+        final AtomicBoolean diskFull = new AtomicBoolean();
+        database.addBatchedWrites(() -> {
+            if(diskFull.get()) {
+                throw new SQLException("Disk is full");
+            }
+        });
+        parkedVehicleRepository = new JdbcParkedVehicleRepository(database, new SequenceSessionIdGenerator());
+        parkedVehicleRepository.save(park("SGX1234A", 1));
+        diskFull.set(true);
+        // exit is the second write, which commits
+        try {
+            parkedVehicleRepository.exitParkedVehicle(1L, seconds(LocalDateTime.of(2021, 2, 17, 16, 5, 2)));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Database cannot be accessed", e.getMessage());
+        }
+        // found from the sessions held back
+        assertEquals(TimeUtil.NO_TIME, parkedVehicleRepository.findById(1L).getTimeOutSeconds());
+    }
+
+    private static ParkedVehicleEntity park(final String vehicleNumber, final int lotNumber) {
+        return ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber(vehicleNumber)
+                .lotNumber(lotNumber)
+                .timeIn(LocalDateTime.of(2021, 2, 17, 14, 5, 2))
+                .build();
+    }
+
+    private static long seconds(final LocalDateTime time) {
+        return TimeUtil.convertLocalDateTimeToSeconds(time);
+    }
+}
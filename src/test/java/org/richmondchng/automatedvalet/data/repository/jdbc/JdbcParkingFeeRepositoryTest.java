@@ -0,0 +1,43 @@
+package org.richmondchng.automatedvalet.data.repository.jdbc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkingFeeEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit test JdbcParkingFeeRepository.
+ *
+ * @author richmondchng
+ */
+class JdbcParkingFeeRepositoryTest {
+
+    /**
+     * Test findByVehicleType.
+     *
+     * Configured parking fee replaces the parking fee in the database, and vehicle type without parking fee returns
+     * null.
+     *
+     * @throws Exception
+     */
+    @Test
+    void findByVehicleType_configuredFee_returnLatestFee(@TempDir final Path tempDir) throws Exception {
+        try (final ValetDatabase database = new ValetDatabase(tempDir.resolve("valet"),
+                ValetDatabase.DEFAULT_BATCH_SIZE)) {
+            new JdbcParkingFeeRepository(database, Map.of(VehicleType.CAR, 2));
+            final JdbcParkingFeeRepository parkingFeeRepository = new JdbcParkingFeeRepository(database,
+                    Map.of(VehicleType.CAR, 3));
+
+            final ParkingFeeEntity result = parkingFeeRepository.findByVehicleType(VehicleType.CAR);
+            assertEquals(VehicleType.CAR, result.getVehicleType());
+            assertEquals(3, result.getParkingFeePerHour());
+            assertNull(parkingFeeRepository.findByVehicleType(VehicleType.MOTORCYCLE));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.richmondchng.automatedvalet.data.repository.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkingLotEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.security.InvalidParameterException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test JdbcParkingLotRepository.
+ *
+ * @author richmondchng
+ */
+class JdbcParkingLotRepositoryTest {
+
+    private static final Map<VehicleType, Integer> CONFIGURATIONS = Map.of(VehicleType.CAR, 3,
+            VehicleType.MOTORCYCLE, 1);
+
+    @TempDir
+    Path tempDir;
+
+    private ValetDatabase database;
+
+    // test instance
+    private JdbcParkingLotRepository parkingLotRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new ValetDatabase(tempDir.resolve("valet"), ValetDatabase.DEFAULT_BATCH_SIZE);
+        parkingLotRepository = new JdbcParkingLotRepository(database, CONFIGURATIONS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+        parkingLotRepository = null;
+    }
+
+    /**
+     * Test finalAllParkingLotsByVehicleTypeOrderByLotNumber. Lots are listed in order with their labels.
+     */
+    @Test
+    void finalAllParkingLotsByVehicleTypeOrderByLotNumber_configuredLots_returnLots() {
+        final List<ParkingLotEntity> result = parkingLotRepository.finalAllParkingLotsByVehicleTypeOrderByLotNumber(
+                VehicleType.CAR);
+        assertEquals(3, result.size());
+        assertEquals(1, result.get(0).getLotNumber());
+        assertEquals("CarLot3", result.get(2).getLabel());
+        assertEquals(VehicleType.CAR, result.get(2).getVehicleType());
+    }
+
+    /**
+     * Test allocateAvailableParkingLot. Lowest available lot is allocated, released lot is allocated again, and null
+     * is returned when all lots are occupied.
+     */
+    @Test
+    void allocateAvailableParkingLot_lotsAllocatedAndReleased_allocateLowestAvailableLot() {
+        assertEquals(1, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        assertEquals(2, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        assertEquals(3, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        assertNull(parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR));
+
+        parkingLotRepository.releaseParkingLot(VehicleType.CAR, 2);
+        final ParkingLotEntity result = parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR);
+        assertEquals(2, result.getLotNumber());
+        assertEquals("CarLot2", result.getLabel());
+    }
+
+    /**
+     * Test restart. Occupied lots stay occupied after the database is opened again.
+     *
+     * @throws Exception
+     */
+    @Test
+    void allocateAvailableParkingLot_restart_occupiedLotsStayOccupied() throws Exception {
+        parkingLotRepository.allocateAvailableParkingLot(VehicleType.MOTORCYCLE);
+        database.close();
+
+        database = new ValetDatabase(tempDir.resolve("valet"), ValetDatabase.DEFAULT_BATCH_SIZE);
+        parkingLotRepository = new JdbcParkingLotRepository(database, CONFIGURATIONS);
+        assertNull(parkingLotRepository.allocateAvailableParkingLot(VehicleType.MOTORCYCLE));
+    }
+
+    /**
+     * Test allocateAvailableParkingLot. Lots allocated and released before commit are written in one batch on close.
+     *
+     * @throws Exception
+     */
+    @Test
+    void allocateAvailableParkingLot_heldBackBeforeCommit_writeOnClose() throws Exception {
+        database.close();
+        database = new ValetDatabase(tempDir.resolve("valet"), 100);
+        parkingLotRepository = new JdbcParkingLotRepository(database, CONFIGURATIONS);
+        assertEquals(1, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        assertEquals(2, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        parkingLotRepository.releaseParkingLot(VehicleType.CAR, 1);
+        assertEquals(1, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        parkingLotRepository.releaseParkingLot(VehicleType.CAR, 2);
+        database.close();
+
+        database = new ValetDatabase(tempDir.resolve("valet"), ValetDatabase.DEFAULT_BATCH_SIZE);
+        parkingLotRepository = new JdbcParkingLotRepository(database, CONFIGURATIONS);
+        assertEquals(2, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        assertEquals(3, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+        assertNull(parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR));
+    }
+
+    /**
+     * Test allocateAvailableParkingLot. Many lots are configured, each allocation reads only the lowest available lots
+     * instead of every available lot.
+     *
+     * @throws Exception
+     */
+    @Test
+    void allocateAvailableParkingLot_manyLots_allocateWithoutReadingEveryLot() throws Exception {
+        database.close();
+        database = new ValetDatabase(tempDir.resolve("valet"), 100);
+        parkingLotRepository = new JdbcParkingLotRepository(database, Map.of(VehicleType.CAR, 50000));
+        // reading every available lot takes milliseconds per allocation at this size
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            for(int lotNumber = 1; lotNumber <= 1000; lotNumber++) {
+                assertEquals(lotNumber, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR)
+                        .getLotNumber());
+            }
+        });
+    }
+
+    /**
+     * Test constructor. Lot no longer configured is occupied, throw exception and keep the lot.
+     *
+     * @throws Exception
+     */
+    @Test
+    void constructor_removedLotOccupied_throwException() throws Exception {
+        parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR);
+        parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR);
+        database.close();
+
+        database = new ValetDatabase(tempDir.resolve("valet"), ValetDatabase.DEFAULT_BATCH_SIZE);
+        try {
+            new JdbcParkingLotRepository(database, Map.of(VehicleType.CAR, 1, VehicleType.MOTORCYCLE, 1));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("CarLot2 is occupied and cannot be removed", e.getMessage());
+        }
+        parkingLotRepository = new JdbcParkingLotRepository(database, CONFIGURATIONS);
+        assertEquals(3, parkingLotRepository.finalAllParkingLotsByVehicleTypeOrderByLotNumber(VehicleType.CAR).size());
+        assertEquals(3, parkingLotRepository.allocateAvailableParkingLot(VehicleType.CAR).getLotNumber());
+    }
+
+    /**
+     * Test findParkingLotLabel. Lot number is invalid, throw exception.
+     */
+    @Test
+    void findParkingLotLabel_invalidLotNumber_throwException() {
+        assertEquals("MotorcycleLot1", parkingLotRepository.findParkingLotLabel(VehicleType.MOTORCYCLE, 1));
+        try {
+            parkingLotRepository.findParkingLotLabel(VehicleType.MOTORCYCLE, 2);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Lot number 2 is invalid", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.richmondchng.automatedvalet.data.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test AvailableLotIndex.
+ *
+ * @author richmondchng
+ */
+class AvailableLotIndexTest {
+
+    /**
+     * Test allocate. Lots span several words, always allocate the lowest available lot.
+     */
+    @Test
+    void allocate_lotsSpanSeveralWords_allocateLowestAvailableLot() {
+        final AvailableLotIndex index = new AvailableLotIndex(130);
+        for(int lotNumber = 1; lotNumber <= 130; lotNumber++) {
+            assertEquals(lotNumber, index.allocate());
+        }
+        assertEquals(-1, index.allocate());
+
+        index.release(129);
+        index.release(65);
+        index.release(3);
+        assertEquals(3, index.allocate());
+        assertEquals(65, index.allocate());
+        assertEquals(129, index.allocate());
+        assertEquals(-1, index.allocate());
+    }
+
+    /**
+     * Test release. Lot number out of range, throw exception.
+     */
+    @Test
+    void release_invalidLotNumber_throwException() {
+        final AvailableLotIndex index = new AvailableLotIndex(64);
+        try {
+            index.release(65);
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Lot number 65 is invalid", e.getMessage());
+        }
+    }
+
+    /**
+     * Test occupy. Lot number above a thousand is out of range, message has no grouping separator.
+     */
+    @Test
+    void occupy_largeInvalidLotNumber_throwException() {
+        final AvailableLotIndex index = new AvailableLotIndex(1000);
+        try {
+            index.occupy(1234);
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Lot number 1234 is invalid", e.getMessage());
+        }
+    }
+
+    /**
+     * Test allocate and release from many threads, each holding several lots at a time. A lot is never allocated to
+     * two threads, and all lots are available afterwards.
+     *
+     * @throws Exception
+     */
+    @Test
+    void allocate_contendedAcrossWords_neverDoubleAllocated() throws Exception {
+        final int numberOfLots = 200;
+        final int numberOfThreads = 8;
+        final AvailableLotIndex index = new AvailableLotIndex(numberOfLots);
+        final AtomicIntegerArray holders = new AtomicIntegerArray(numberOfLots + 1);
+        final AtomicInteger doubleAllocated = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for(int thread = 0; thread < numberOfThreads; thread++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    final List<Integer> held = new ArrayList<>();
+                    for(int round = 0; round < 50000; round++) {
+                        // hold up to 40 lots, so threads together fill the index
+                        if(held.size() < 40 && ThreadLocalRandom.current().nextBoolean()) {
+                            final int lotNumber = index.allocate();
+                            if(lotNumber > 0) {
+                                if(holders.incrementAndGet(lotNumber) != 1) {
+                                    doubleAllocated.incrementAndGet();
+                                }
+                                held.add(lotNumber);
+                            }
+                        } else if(!held.isEmpty()) {
+                            final int lotNumber = held.remove(ThreadLocalRandom.current().nextInt(held.size()));
+                            holders.decrementAndGet(lotNumber);
+                            index.release(lotNumber);
+                        }
+                    }
+                    for(int lotNumber : held) {
+                        holders.decrementAndGet(lotNumber);
+                        index.release(lotNumber);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for(Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, doubleAllocated.get());
+        for(int lotNumber = 1; lotNumber <= numberOfLots; lotNumber++) {
+            assertEquals(lotNumber, index.allocate());
+        }
+        assertEquals(-1, index.allocate());
+    }
+}
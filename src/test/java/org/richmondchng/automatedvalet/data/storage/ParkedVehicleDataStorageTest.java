@@ -3,17 +3,36 @@ package org.richmondchng.automatedvalet.data.storage;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.data.id.SequenceSessionIdGenerator;
+import org.richmondchng.automatedvalet.data.journal.JournalConfiguration;
+import org.richmondchng.automatedvalet.data.journal.ParkedVehicleJournal;
+import org.richmondchng.automatedvalet.data.occupancy.LotOccupancyTable;
+import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
+import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -24,16 +43,20 @@ import static org.junit.jupiter.api.Assertions.fail;
  */
 class ParkedVehicleDataStorageTest {
 
+    private ParkedVehicleHistoryDataStorage parkedVehicleHistoryDataStorage;
     private ParkedVehicleDataStorage parkedVehicleDataStorage;
 
     @BeforeEach
     void setUp() {
-        parkedVehicleDataStorage = new ParkedVehicleDataStorage();
+        parkedVehicleHistoryDataStorage = new ParkedVehicleHistoryDataStorage();
+        parkedVehicleDataStorage = new ParkedVehicleDataStorage(parkedVehicleHistoryDataStorage,
+                new SequenceSessionIdGenerator());
     }
 
     @AfterEach
     void tearDown() {
         parkedVehicleDataStorage = null;
+        parkedVehicleHistoryDataStorage = null;
     }
 
     /**
@@ -71,7 +94,7 @@ class ParkedVehicleDataStorageTest {
         assertEquals(1, parkedVehicleDataStorage.getParkedVehicles().size());
 
         assertNotNull(result);
-        assertNotNull(result.getId());
+        assertEquals(1L, result.getId());
         assertEquals(VehicleType.CAR, result.getVehicleType());
         assertEquals("ABC3456U", result.getVehicleNumber());
         assertEquals(2, result.getLotNumber());
@@ -104,6 +127,156 @@ class ParkedVehicleDataStorageTest {
         assertEquals(LocalDateTime.of(2021, 5, 4, 11, 20, 1), result.getTimeOut());
     }
 
+    /**
+     * Test save.
+     *
+     * New record for a vehicle number that is already parked. Throw exception, existing record is kept.
+     */
+    @Test
+    void save_vehicleNumberAlreadyParked_throwException() {
+        final ParkedVehicleEntity data = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(2)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .build());
+        try {
+            parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                    .vehicleType(VehicleType.MOTORCYCLE)
+                    .vehicleNumber("ABC3456U")
+                    .lotNumber(1)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 25, 1))
+                    .build());
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof VehicleAlreadyParkedException);
+            assertEquals("Car ABC3456U is already parked", e.getMessage());
+        }
+        assertEquals(1, parkedVehicleDataStorage.getParkedVehicles().size());
+        assertSame(data, parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U"));
+    }
+
+    /**
+     * Test exit.
+     *
+     * Vehicle is exited twice. Throw exception, vehicle is only moved to history once.
+     */
+    @Test
+    void exit_calledTwice_throwException() {
+        final ParkedVehicleEntity data = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(2)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .build());
+
+        final ParkedVehicleEntity result = parkedVehicleDataStorage.exit(data.getId(),
+                seconds(LocalDateTime.of(2021, 5, 4, 11, 20, 1)));
+        assertEquals(LocalDateTime.of(2021, 5, 4, 11, 20, 1), result.getTimeOut());
+        assertNull(parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U"));
+        try {
+            parkedVehicleDataStorage.exit(data.getId(), seconds(LocalDateTime.of(2021, 5, 4, 11, 30, 1)));
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof VehicleNotParkedException);
+        }
+        assertEquals(1, parkedVehicleHistoryDataStorage.size());
+        assertEquals(LocalDateTime.of(2021, 5, 4, 11, 20, 1),
+                parkedVehicleDataStorage.getRecordById(data.getId()).getTimeOut());
+    }
+
+    /**
+     * Test exit.
+     *
+     * Id is not found, throw exception.
+     */
+    @Test
+    void exit_idNotFound_throwException() {
+        try {
+            parkedVehicleDataStorage.exit(99L, seconds(LocalDateTime.of(2021, 5, 4, 11, 30, 1)));
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Id 99 is invalid", e.getMessage());
+        }
+    }
+
+    /**
+     * Test save.
+     *
+     * Many threads park the same vehicle number at the same time. Only one record is saved.
+     *
+     * @throws Exception
+     */
+    @Test
+    void save_concurrentSameVehicleNumber_onlyOneSaved() throws Exception {
+        final int numberOfThreads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            for(int round = 0; round < 200; round++) {
+                final String vehicleNumber = "SG" + round;
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<Boolean>> results = new ArrayList<>();
+                for(int thread = 0; thread < numberOfThreads; thread++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                                    .vehicleType(VehicleType.CAR)
+                                    .vehicleNumber(vehicleNumber)
+                                    .lotNumber(1)
+                                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                                    .build());
+                            return true;
+                        } catch(VehicleAlreadyParkedException e) {
+                            return false;
+                        }
+                    }));
+                }
+                start.countDown();
+                int saved = 0;
+                for(Future<Boolean> result : results) {
+                    if(result.get()) {
+                        saved++;
+                    }
+                }
+                assertEquals(1, saved, vehicleNumber);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(200, parkedVehicleDataStorage.getParkedVehicles().size());
+    }
+
+    /**
+     * Test save.
+     *
+     * Time out is recorded, vehicle is moved from parked vehicles into history.
+     */
+    @Test
+    void save_timeOutRecorded_moveToHistory() {
+        final ParkedVehicleEntity data = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(2)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .build());
+        assertEquals(1, parkedVehicleDataStorage.getParkedVehicles().size());
+        assertEquals(0, parkedVehicleHistoryDataStorage.size());
+
+        data.setTimeOut(LocalDateTime.of(2021, 5, 4, 11, 20, 1));
+        parkedVehicleDataStorage.save(data);
+        assertEquals(0, parkedVehicleDataStorage.getParkedVehicles().size());
+        assertEquals(1, parkedVehicleHistoryDataStorage.size());
+
+        // update exited record, e.g. parking fee
+        data.setParkingFee(4L);
+        parkedVehicleDataStorage.save(data);
+        assertEquals(0, parkedVehicleDataStorage.getParkedVehicles().size());
+        assertEquals(1, parkedVehicleHistoryDataStorage.size());
+        assertEquals(4L, parkedVehicleDataStorage.getRecordById(data.getId()).getParkingFee());
+    }
+
     /**
      * Test save.
      *
@@ -114,7 +287,7 @@ class ParkedVehicleDataStorageTest {
         // before save, ensure 0 items in list
         assertEquals(0, parkedVehicleDataStorage.getParkedVehicles().size());
 
-        final UUID id = UUID.randomUUID();
+        final Long id = 100L;
         try {
             parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
                     .id(id)
@@ -250,6 +423,38 @@ class ParkedVehicleDataStorageTest {
         assertEquals(1, result.getLotNumber());
     }
 
+    /**
+     * Test getParkedVehicleByVehicleNumber.
+     *
+     * Vehicle has exited and parked again, return the active record only.
+     */
+    @Test
+    void getParkedVehicleByVehicleNumber_vehicleExitedAndParkedAgain_returnActiveBean() {
+        final ParkedVehicleEntity first = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(2)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .build());
+        first.setTimeOut(LocalDateTime.of(2021, 5, 4, 11, 20, 1));
+        parkedVehicleDataStorage.save(first);
+        // vehicle has exited
+        assertNull(parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U"));
+
+        final ParkedVehicleEntity second = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(1)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 12, 20, 1))
+                .build());
+
+        final ParkedVehicleEntity result = parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U");
+        assertNotNull(result);
+        assertEquals(second.getId(), result.getId());
+        assertEquals(1, result.getLotNumber());
+        assertNull(result.getTimeOut());
+    }
+
     /**
      * Test getRecordById.
      *
@@ -288,7 +493,7 @@ class ParkedVehicleDataStorageTest {
                 .timeOut(LocalDateTime.of(2021, 5, 4, 11, 20, 1))
                 .build());
 
-        final ParkedVehicleEntity result = parkedVehicleDataStorage.getRecordById(UUID.randomUUID());
+        final ParkedVehicleEntity result = parkedVehicleDataStorage.getRecordById(100L);
         assertNull(result);
     }
 
@@ -320,4 +525,274 @@ class ParkedVehicleDataStorageTest {
         assertEquals("MMM3456U", result.getVehicleNumber());
         assertEquals(1, result.getLotNumber());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test getRecordById.
+     *
+     * Record is still parked or has exited, return bean from either.
+     */
+    @Test
+    void getRecordById_parkedAndExitedRecords_returnBeans() {
+        final ParkedVehicleEntity parked = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(2)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .build());
+        final ParkedVehicleEntity exited = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                .vehicleType(VehicleType.MOTORCYCLE)
+                .vehicleNumber("MMM3456U")
+                .lotNumber(1)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .timeOut(LocalDateTime.of(2021, 5, 4, 11, 20, 1))
+                .build());
+
+        assertEquals("ABC3456U", parkedVehicleDataStorage.getRecordById(parked.getId()).getVehicleNumber());
+        assertEquals("MMM3456U", parkedVehicleDataStorage.getRecordById(exited.getId()).getVehicleNumber());
+    }
+
+    /**
+     * Test save.
+     *
+     * Journal cannot be written, new record is not kept and throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void save_journalClosed_undoAndThrowException(@TempDir final Path tempDir) throws Exception {
+        final ParkedVehicleJournal journal = new ParkedVehicleJournal(tempDir.resolve("journal"),
+                JournalConfiguration.builder().syncRecords(1).build());
+        journal.close();
+        parkedVehicleDataStorage = new ParkedVehicleDataStorage(parkedVehicleHistoryDataStorage,
+                new SequenceSessionIdGenerator(), journal);
+        try {
+            parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("ABC3456U")
+                    .lotNumber(2)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                    .build());
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Journal is closed", e.getMessage());
+        }
+        assertNull(parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U"));
+        assertNull(parkedVehicleDataStorage.getRecordById(1L));
+    }
+
+    /**
+     * Test save.
+     *
+     * Journal write fails, new record is not kept, the record is not written later and the journal refuses later
+     * changes.
+     *
+     * @throws Exception
+     */
+    @Test
+    void save_journalWriteFailed_undoAndRefuseLaterChanges(@TempDir final Path tempDir) throws Exception {
+        final JournalConfiguration configuration = JournalConfiguration.builder().syncRecords(1).build();
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(tempDir.resolve("journal"),
+                configuration)) {
+            parkedVehicleDataStorage = new ParkedVehicleDataStorage(parkedVehicleHistoryDataStorage,
+                    new SequenceSessionIdGenerator(), journal);
+            // interrupted thread closes the journal file on write
+            Thread.currentThread().interrupt();
+            try {
+                parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                        .vehicleType(VehicleType.CAR)
+                        .vehicleNumber("ABC3456U")
+                        .lotNumber(2)
+                        .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                        .build());
+                fail("Expect exception to be thrown");
+            } catch(RuntimeException e) {
+                assertTrue(e instanceof UncheckedIOException);
+            } finally {
+                Thread.interrupted();
+            }
+            assertNull(parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U"));
+            try {
+                parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                        .vehicleType(VehicleType.CAR)
+                        .vehicleNumber("MMM3456U")
+                        .lotNumber(3)
+                        .timeIn(LocalDateTime.of(2021, 5, 4, 10, 30, 1))
+                        .build());
+                fail("Expect exception to be thrown");
+            } catch(RuntimeException e) {
+                assertTrue(e instanceof IllegalStateException);
+                assertEquals("Journal has failed", e.getMessage());
+            }
+            assertNull(parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("MMM3456U"));
+        }
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(tempDir.resolve("journal"),
+                configuration)) {
+            assertTrue(journal.getRecoveredSessions().getParkedVehicles().isEmpty());
+        }
+    }
+
+    /**
+     * Test save.
+     *
+     * Snapshot taken after the record is on disk cannot be written, change is kept, later changes are accepted, and
+     * recovery agrees with memory.
+     *
+     * @throws Exception
+     */
+    @Test
+    void save_snapshotWriteFailed_keepChange(@TempDir final Path tempDir) throws Exception {
+        final JournalConfiguration configuration = JournalConfiguration.builder()
+                .syncRecords(1)
+                .snapshotRecords(1L)
+                .build();
+        final Path crashed = tempDir.resolve("crashed");
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(tempDir.resolve("journal"),
+                configuration)) {
+            parkedVehicleDataStorage = new ParkedVehicleDataStorage(parkedVehicleHistoryDataStorage,
+                    new SequenceSessionIdGenerator(), journal);
+            // first snapshot follows segment 1, a directory in place of its temporary file cannot be written
+            Files.createDirectory(tempDir.resolve("journal").resolve("snapshot-00000000000000000002.dat.tmp"));
+            parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("ABC3456U")
+                    .lotNumber(2)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                    .build());
+            assertNotNull(journal.getLastSnapshotFailure());
+            assertNotNull(parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U"));
+            // copy journal as it would be found after a crash
+            Files.createDirectories(crashed);
+            try (final Stream<Path> files = Files.list(tempDir.resolve("journal"))) {
+                for(Path file : (Iterable<Path>) files::iterator) {
+                    Files.copy(file, crashed.resolve(file.getFileName()));
+                }
+            }
+
+            parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("MMM3456U")
+                    .lotNumber(3)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 30, 1))
+                    .build());
+            assertNull(journal.getLastSnapshotFailure());
+        }
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(crashed, configuration)) {
+            final List<ParkedVehicleEntity> parkedVehicles = journal.getRecoveredSessions().getParkedVehicles();
+            assertEquals(1, parkedVehicles.size());
+            assertEquals("ABC3456U", parkedVehicles.get(0).getVehicleNumber());
+        }
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(tempDir.resolve("journal"),
+                configuration)) {
+            assertEquals(2, journal.getRecoveredSessions().getParkedVehicles().size());
+        }
+    }
+
+    /**
+     * Test save.
+     *
+     * Time out of an exited session is changed after a snapshot, session is recovered with the new time out.
+     *
+     * @throws Exception
+     */
+    @Test
+    void save_historyTimeOutChangedAfterSnapshot_recoverExitedSession(@TempDir final Path tempDir) throws Exception {
+        final JournalConfiguration configuration = JournalConfiguration.builder()
+                .syncRecords(1)
+                .snapshotRecords(0L)
+                .build();
+        final Path crashed = tempDir.resolve("crashed");
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(tempDir.resolve("journal"),
+                configuration)) {
+            parkedVehicleDataStorage = new ParkedVehicleDataStorage(parkedVehicleHistoryDataStorage,
+                    new SequenceSessionIdGenerator(), journal);
+            final ParkedVehicleEntity parked = parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("ABC3456U")
+                    .lotNumber(2)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                    .build());
+            parkedVehicleDataStorage.exit(parked.getId(), seconds(LocalDateTime.of(2021, 5, 4, 11, 20, 1)));
+            journal.snapshot();
+            parkedVehicleDataStorage.save(ParkedVehicleEntity.builder()
+                    .id(parked.getId())
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("ABC3456U")
+                    .lotNumber(2)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                    .timeOut(LocalDateTime.of(2021, 5, 4, 12, 20, 1))
+                    .build());
+            journal.sync();
+            // copy journal as it would be found after a crash
+            Files.createDirectories(crashed);
+            try (final Stream<Path> files = Files.list(tempDir.resolve("journal"))) {
+                for(Path file : (Iterable<Path>) files::iterator) {
+                    Files.copy(file, crashed.resolve(file.getFileName()));
+                }
+            }
+        }
+        try (final ParkedVehicleJournal journal = new ParkedVehicleJournal(crashed, configuration)) {
+            final List<ParkedVehicleEntity> exitedVehicles = journal.getRecoveredSessions().getExitedVehicles();
+            assertEquals(1, exitedVehicles.size());
+            assertEquals("ABC3456U", exitedVehicles.get(0).getVehicleNumber());
+            assertEquals(LocalDateTime.of(2021, 5, 4, 12, 20, 1), exitedVehicles.get(0).getTimeOut());
+            assertTrue(journal.getRecoveredSessions().getParkedVehicles().isEmpty());
+        }
+    }
+
+    /**
+     * Test restoreParkedVehicle.
+     *
+     * Recovered vehicle is parked with its own Id.
+     */
+    @Test
+    void restoreParkedVehicle_recoveredVehicle_keepId() {
+        parkedVehicleDataStorage.restoreParkedVehicle(ParkedVehicleEntity.builder()
+                .id(41L)
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber("ABC3456U")
+                .lotNumber(2)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .build());
+
+        assertEquals(41L, parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U").getId());
+        assertEquals("ABC3456U", parkedVehicleDataStorage.getRecordById(41L).getVehicleNumber());
+    }
+
+    /**
+     * Test constructor.
+     *
+     * Vehicle parked in an earlier run is restored from occupancy table, and its lot is released when it exits.
+     *
+     * @throws Exception
+     */
+    @Test
+    void constructor_occupancyTable_restoreParkedVehicle(@TempDir final Path tempDir) throws Exception {
+        final Map<VehicleType, Integer> config = Map.of(VehicleType.CAR, 3);
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(tempDir.resolve("occupancy.dat"), config)) {
+            new ParkedVehicleDataStorage(new ParkedVehicleHistoryDataStorage(), new SequenceSessionIdGenerator(), null,
+                    occupancyTable).save(ParkedVehicleEntity.builder()
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("ABC3456U")
+                    .lotNumber(2)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                    .build());
+        }
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(tempDir.resolve("occupancy.dat"), config)) {
+            parkedVehicleDataStorage = new ParkedVehicleDataStorage(parkedVehicleHistoryDataStorage,
+                    new SequenceSessionIdGenerator(occupancyTable.getLastId()), null, occupancyTable);
+
+            final ParkedVehicleEntity result = parkedVehicleDataStorage.getParkedVehicleByVehicleNumber("ABC3456U");
+            assertEquals(1L, result.getId());
+            assertEquals(2, result.getLotNumber());
+            assertEquals(LocalDateTime.of(2021, 5, 4, 10, 20, 1), result.getTimeIn());
+
+            parkedVehicleDataStorage.exit(1L, seconds(LocalDateTime.of(2021, 5, 4, 12, 20, 1)));
+            assertFalse(occupancyTable.isOccupied(VehicleType.CAR, 2));
+        }
+    }
+
+    private static long seconds(final LocalDateTime time) {
+        return TimeUtil.convertLocalDateTimeToSeconds(time);
+    }
+}
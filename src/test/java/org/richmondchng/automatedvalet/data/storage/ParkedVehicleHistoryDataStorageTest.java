@@ -0,0 +1,179 @@
+package org.richmondchng.automatedvalet.data.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.archive.SessionArchiveReader;
+import org.richmondchng.automatedvalet.data.archive.SessionArchiveWriter;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test ParkedVehicleHistoryDataStorage.
+ *
+ * @author richmondchng
+ */
+class ParkedVehicleHistoryDataStorageTest {
+
+    private long lastId = 0L;
+
+    /**
+     * Test constructor. Negative max records, throw exception.
+     */
+    @Test
+    void constructor_negativeMaxRecords_throwException() {
+        try {
+            new ParkedVehicleHistoryDataStorage(-1);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Max records cannot be negative", e.getMessage());
+        }
+    }
+
+    /**
+     * Test append. Null object, throw exception.
+     */
+    @Test
+    void append_nullObject_throwException() {
+        final ParkedVehicleHistoryDataStorage historyDataStorage = new ParkedVehicleHistoryDataStorage();
+        try {
+            historyDataStorage.append(null);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("ParkedVehicleEntity cannot be null", e.getMessage());
+        }
+    }
+
+    /**
+     * Test append. Unbounded history keeps all records in order.
+     */
+    @Test
+    void append_unbounded_keepAllRecords() {
+        final ParkedVehicleHistoryDataStorage historyDataStorage = new ParkedVehicleHistoryDataStorage();
+        final ParkedVehicleEntity b1 = exited("ABC1234A");
+        final ParkedVehicleEntity b2 = exited("ABC1234B");
+        historyDataStorage.append(b1);
+        historyDataStorage.append(b2);
+
+        final List<ParkedVehicleEntity> results = historyDataStorage.getExitedVehicles();
+        assertEquals(2, historyDataStorage.size());
+        assertEquals(2, results.size());
+        assertSame(b1, results.get(0));
+        assertSame(b2, results.get(1));
+    }
+
+    /**
+     * Test append. Bounded history drops the oldest record.
+     */
+    @Test
+    void append_maxRecordsReached_dropOldestRecord() {
+        final ParkedVehicleHistoryDataStorage historyDataStorage = new ParkedVehicleHistoryDataStorage(2);
+        final ParkedVehicleEntity b1 = exited("ABC1234A");
+        final ParkedVehicleEntity b2 = exited("ABC1234B");
+        final ParkedVehicleEntity b3 = exited("ABC1234C");
+        historyDataStorage.append(b1);
+        historyDataStorage.append(b2);
+        historyDataStorage.append(b3);
+
+        final List<ParkedVehicleEntity> results = historyDataStorage.getExitedVehicles();
+        assertEquals(2, results.size());
+        assertSame(b2, results.get(0));
+        assertSame(b3, results.get(1));
+        assertNull(historyDataStorage.getRecordById(b1.getId()));
+    }
+
+    /**
+     * Test append. Oldest record is moved to archive when max records is reached, and archiveAll moves the rest.
+     *
+     * @throws Exception
+     */
+    @Test
+    void append_maxRecordsReachedWithArchive_archiveOldestRecord(@TempDir final Path tempDir) throws Exception {
+        final Path path = tempDir.resolve("history.archive");
+        try (final SessionArchiveWriter archive = new SessionArchiveWriter(path, 2)) {
+            final ParkedVehicleHistoryDataStorage historyDataStorage = new ParkedVehicleHistoryDataStorage(2, archive);
+            final ParkedVehicleEntity b1 = exited("ABC1234A");
+            historyDataStorage.append(b1);
+            historyDataStorage.append(exited("ABC1234B"));
+            historyDataStorage.append(exited("ABC1234C"));
+            assertEquals(2, historyDataStorage.size());
+            assertNull(historyDataStorage.getRecordById(b1.getId()));
+
+            historyDataStorage.archiveAll();
+            assertEquals(0, historyDataStorage.size());
+        }
+        final List<String> results = new ArrayList<>();
+        try (final SessionArchiveReader reader = new SessionArchiveReader(path)) {
+            assertEquals(3, reader.getNumberOfSessions());
+            reader.scan(LocalDateTime.MIN, LocalDateTime.MAX, e -> results.add(e.getVehicleNumber()));
+        }
+        assertEquals(List.of("ABC1234A", "ABC1234B", "ABC1234C"), results);
+    }
+
+    /**
+     * Test archiveAll. No archive, throw exception.
+     */
+    @Test
+    void archiveAll_noArchive_throwException() {
+        final ParkedVehicleHistoryDataStorage historyDataStorage = new ParkedVehicleHistoryDataStorage(2);
+        try {
+            historyDataStorage.archiveAll();
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Archive is not supplied", e.getMessage());
+        }
+    }
+
+    /**
+     * Test getExitedVehicles. Test unable to modify list.
+     */
+    @Test
+    void getExitedVehicles_addItemToList_throwException() {
+        final ParkedVehicleHistoryDataStorage historyDataStorage = new ParkedVehicleHistoryDataStorage();
+        try {
+            historyDataStorage.getExitedVehicles().add(exited("ABC1234A"));
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof UnsupportedOperationException);
+        }
+    }
+
+    /**
+     * Test getRecordById. Has matching Id, return bean.
+     */
+    @Test
+    void getRecordById_matchedId_returnBean() {
+        final ParkedVehicleHistoryDataStorage historyDataStorage = new ParkedVehicleHistoryDataStorage();
+        final ParkedVehicleEntity b1 = exited("ABC1234A");
+        historyDataStorage.append(b1);
+        historyDataStorage.append(exited("ABC1234B"));
+
+        assertSame(b1, historyDataStorage.getRecordById(b1.getId()));
+        assertNull(historyDataStorage.getRecordById(100L));
+    }
+
+    private ParkedVehicleEntity exited(final String vehicleNumber) {
+        return ParkedVehicleEntity.builder()
+                .id(++lastId)
+                .vehicleType(VehicleType.CAR)
+                .vehicleNumber(vehicleNumber)
+                .lotNumber(1)
+                .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                .timeOut(LocalDateTime.of(2021, 5, 4, 11, 20, 1))
+                .build();
+    }
+}
@@ -1,17 +1,30 @@
 package org.richmondchng.automatedvalet.data.storage;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.data.entity.ParkedVehicleEntity;
 import org.richmondchng.automatedvalet.data.entity.ParkingLotEntity;
+import org.richmondchng.automatedvalet.data.occupancy.LotOccupancyTable;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 
+import java.nio.file.Path;
 import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -84,4 +97,214 @@ class ParkingLotDataStorageTest {
             expectedIndex++;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test allocateAvailableLot. Lots are allocated by lowest lot number, return null when all lots are occupied.
+     */
+    @Test
+    void allocateAvailableLot_allocateAllLots_returnLowestLotNumberFirst() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 2);
+        config.put(VehicleType.MOTORCYCLE, 1);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+
+        final ParkingLotEntity result1 = parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR);
+        assertEquals(VehicleType.CAR, result1.getVehicleType());
+        assertEquals(1, result1.getLotNumber());
+        final ParkingLotEntity result2 = parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR);
+        assertEquals(VehicleType.CAR, result2.getVehicleType());
+        assertEquals(2, result2.getLotNumber());
+        // all car lots are occupied
+        assertNull(parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR));
+
+        // motorcycle lots are not affected
+        final ParkingLotEntity result3 = parkingLotDataStorage.allocateAvailableLot(VehicleType.MOTORCYCLE);
+        assertEquals(VehicleType.MOTORCYCLE, result3.getVehicleType());
+        assertEquals(1, result3.getLotNumber());
+    }
+
+    /**
+     * Test allocateAvailableLot. Vehicle type is not configured, return null.
+     */
+    @Test
+    void allocateAvailableLot_vehicleTypeNotConfigured_returnNull() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 2);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+
+        assertNull(parkingLotDataStorage.allocateAvailableLot(VehicleType.MOTORCYCLE));
+    }
+
+    /**
+     * Test releaseLot. Released lot is allocated again before higher lot numbers.
+     */
+    @Test
+    void releaseLot_releaseLowerLot_allocateReleasedLot() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 3);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+        parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR);
+        parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR);
+
+        parkingLotDataStorage.releaseLot(VehicleType.CAR, 1);
+
+        assertEquals(1, parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR).getLotNumber());
+        assertEquals(3, parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR).getLotNumber());
+    }
+
+    /**
+     * Test releaseLot. Lot number is out of range, throw exception.
+     */
+    @Test
+    void releaseLot_invalidLotNumber_throwException() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 3);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+        try {
+            parkingLotDataStorage.releaseLot(VehicleType.CAR, 4);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Lot number 4 is invalid", e.getMessage());
+        }
+    }
+
+    /**
+     * Test occupyLot. Occupied lot is skipped by allocation.
+     */
+    @Test
+    void occupyLot_occupyLowerLot_allocateNextLot() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 3);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+
+        parkingLotDataStorage.occupyLot(VehicleType.CAR, 2);
+
+        assertEquals(1, parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR).getLotNumber());
+        assertEquals(3, parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR).getLotNumber());
+        assertNull(parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR));
+    }
+
+    /**
+     * Test occupyLot. Lot is already occupied, throw exception.
+     */
+    @Test
+    void occupyLot_lotOccupied_throwException() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 3);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+        parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR);
+        try {
+            parkingLotDataStorage.occupyLot(VehicleType.CAR, 1);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Lot number 1 is already occupied", e.getMessage());
+        }
+    }
+
+    /**
+     * Test constructor. Lots occupied in occupancy table start as occupied.
+     *
+     * @throws Exception
+     */
+    @Test
+    void constructor_occupancyTable_occupyLotsFromTable(@TempDir final Path tempDir) throws Exception {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 3);
+        try (final LotOccupancyTable occupancyTable = new LotOccupancyTable(tempDir.resolve("occupancy.dat"), config)) {
+            occupancyTable.occupy(ParkedVehicleEntity.builder()
+                    .id(1L)
+                    .vehicleType(VehicleType.CAR)
+                    .vehicleNumber("ABC3456U")
+                    .lotNumber(1)
+                    .timeIn(LocalDateTime.of(2021, 5, 4, 10, 20, 1))
+                    .build());
+            final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config, occupancyTable);
+
+            assertEquals(2, parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR).getLotNumber());
+        }
+    }
+
+    /**
+     * Test getLabel. Label is built once per lot, and is the same instance as the allocated lot label.
+     */
+    @Test
+    void getLabel_validLot_returnSharedLabel() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 1000);
+        config.put(VehicleType.MOTORCYCLE, 1);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+
+        assertEquals("CarLot1000", parkingLotDataStorage.getLabel(VehicleType.CAR, 1000));
+        assertEquals("MotorcycleLot1", parkingLotDataStorage.getLabel(VehicleType.MOTORCYCLE, 1));
+        final ParkingLotEntity allocated = parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR);
+        assertEquals("CarLot1", allocated.getLabel());
+        assertSame(allocated.getLabel(), parkingLotDataStorage.getLabel(VehicleType.CAR, 1));
+    }
+
+    /**
+     * Test getLabel. Lot number is out of range, throw exception.
+     */
+    @Test
+    void getLabel_invalidLotNumber_throwException() {
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, 3);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+        try {
+            parkingLotDataStorage.getLabel(VehicleType.CAR, 0);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Lot number 0 is invalid", e.getMessage());
+        }
+    }
+
+    /**
+     * Test allocateAvailableLot. Many threads allocate and release lots at the same time, a lot is never allocated
+     * to two threads.
+     *
+     * @throws Exception
+     */
+    @Test
+    void allocateAvailableLot_concurrentAllocation_neverDoubleAllocated() throws Exception {
+        final int numberOfLots = 16;
+        final int numberOfThreads = 8;
+        final Map<VehicleType, Integer> config = new HashMap<>();
+        config.put(VehicleType.CAR, numberOfLots);
+        final ParkingLotDataStorage parkingLotDataStorage = new ParkingLotDataStorage(config);
+        final AtomicIntegerArray holders = new AtomicIntegerArray(numberOfLots + 1);
+        final AtomicInteger doubleAllocated = new AtomicInteger();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for(int thread = 0; thread < numberOfThreads; thread++) {
+                results.add(executor.submit(() -> {
+                    for(int index = 0; index < 10000; index++) {
+                        final ParkingLotEntity lot = parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR);
+                        if(lot == null) {
+                            continue;
+                        }
+                        if(holders.incrementAndGet(lot.getLotNumber()) != 1) {
+                            doubleAllocated.incrementAndGet();
+                        }
+                        holders.decrementAndGet(lot.getLotNumber());
+                        parkingLotDataStorage.releaseLot(VehicleType.CAR, lot.getLotNumber());
+                    }
+                }));
+            }
+            for(Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, doubleAllocated.get());
+        // all lots are available again
+        for(int lotNumber = 1; lotNumber <= numberOfLots; lotNumber++) {
+            assertEquals(lotNumber, parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR).getLotNumber());
+        }
+        assertNull(parkingLotDataStorage.allocateAvailableLot(VehicleType.CAR));
+    }
+}
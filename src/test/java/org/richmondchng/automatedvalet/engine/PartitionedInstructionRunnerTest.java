@@ -0,0 +1,244 @@
+package org.richmondchng.automatedvalet.engine;
+
+import org.junit.jupiter.api.Test;
+import org.richmondchng.automatedvalet.config.ContextConfig;
+import org.richmondchng.automatedvalet.config.ParkingLotConfiguration;
+import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.dto.response.ParkedDTO;
+import org.richmondchng.automatedvalet.dto.response.ParkingFeeDTO;
+import org.richmondchng.automatedvalet.exception.VehicleAlreadyParkedException;
+import org.richmondchng.automatedvalet.file.InstructionSource;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.output.OutputWriter;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test PartitionedInstructionRunner.
+ *
+ * @author richmondchng
+ */
+class PartitionedInstructionRunnerTest {
+
+    private static final String NEW_LINE = System.lineSeparator();
+
+    /**
+     * Test run. License plates switch between vehicle types, write same output as processing one at a time.
+     *
+     * @throws Exception
+     */
+    @Test
+    void run_platesSwitchVehicleType_writeSameOutputAsSerial() throws Exception {
+        final List<ValetInstruction> instructions = new ArrayList<>();
+        final Random random = new Random(3L);
+        final boolean[] parked = new boolean[40];
+        long timestamp = 1613541902L;
+        for(int index = 0; index < 20000; index++) {
+            final int plate = random.nextInt(parked.length);
+            timestamp += random.nextInt(600);
+            if(parked[plate]) {
+                instructions.add(exit("SG" + plate, timestamp));
+                parked[plate] = false;
+            } else {
+                final VehicleType vehicleType = random.nextBoolean() ? VehicleType.CAR : VehicleType.MOTORCYCLE;
+                instructions.add(enter(vehicleType, "SG" + plate, timestamp));
+                // rejected when lots are full, exit of a plate that is not parked is not generated
+                parked[plate] = true;
+            }
+        }
+        // drop exits of rejected vehicles by processing once
+        final List<ValetInstruction> valid = new ArrayList<>();
+        final ParkingValetController check = controller();
+        for(ValetInstruction instruction : instructions) {
+            if(instruction.getAction() == ValetAction.ENTER) {
+                valid.add(instruction);
+                check.enterParking(instruction.getVehicleType(), instruction.getLicensePlate(),
+                        instruction.getTimestamp());
+            } else {
+                try {
+                    check.exitParking(instruction.getLicensePlate(), instruction.getTimestamp());
+                    valid.add(instruction);
+                } catch(RuntimeException e) {
+                    // vehicle was rejected
+                }
+            }
+        }
+
+        final ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        final Function<ValetInstruction, Object> serialProcessor = processor(controller());
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(serial))) {
+            for(ValetInstruction instruction : valid) {
+                write(serialProcessor.apply(instruction), output);
+            }
+        }
+        for(int batchSize : new int[]{1, 64, 4096}) {
+            final ByteArrayOutputStream partitioned = new ByteArrayOutputStream();
+            try (final OutputWriter output = new OutputWriter(Channels.newChannel(partitioned))) {
+                new PartitionedInstructionRunner<Object>(batchSize).run(new ListSource(valid),
+                        processor(controller()), PartitionedInstructionRunnerTest::write, output);
+            }
+            assertEquals(new String(serial.toByteArray(), Charset.defaultCharset()),
+                    new String(partitioned.toByteArray(), Charset.defaultCharset()), "Batch size " + batchSize);
+        }
+    }
+
+    /**
+     * Test run. Vehicle enters as another vehicle type while parked, write results before it then throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void run_plateParkedAsOtherVehicleType_writeEarlierResultsThenThrowException() throws Exception {
+        final List<ValetInstruction> instructions = new ArrayList<>();
+        for(int index = 0; index < 8; index++) {
+            instructions.add(enter(VehicleType.CAR, "SG" + index + "C", 1613541902L + index));
+        }
+        instructions.add(enter(VehicleType.MOTORCYCLE, "SGX1234A", 1613541902L));
+        for(int index = 0; index < 8; index++) {
+            instructions.add(exit("SG" + index + "C", 1613551902L + index));
+        }
+        instructions.add(enter(VehicleType.CAR, "SGX1234A", 1613561902L));
+        instructions.add(exit("SGX1234A", 1613571902L));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(outputStream))) {
+            new PartitionedInstructionRunner<Object>(1000).run(new ListSource(instructions),
+                    processor(controller()), PartitionedInstructionRunnerTest::write, output);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof VehicleAlreadyParkedException);
+        }
+        final String[] lines = new String(outputStream.toByteArray(), Charset.defaultCharset()).split(NEW_LINE);
+        assertEquals(17, lines.length);
+        assertEquals("Accept MotorcycleLot1", lines[8]);
+    }
+
+    /**
+     * Test run. Instruction fails in one partition, the other partition stops before the failed line.
+     *
+     * @throws Exception
+     */
+    @Test
+    void run_instructionFailed_otherPartitionStopsBeforeFailedLine() throws Exception {
+        final List<ValetInstruction> instructions = new ArrayList<>();
+        instructions.add(enter(VehicleType.CAR, "SG0C", 1613541902L));
+        instructions.add(enter(VehicleType.MOTORCYCLE, "SGX1234A", 1613541902L));
+        for(int index = 1; index < 8; index++) {
+            instructions.add(enter(VehicleType.CAR, "SG" + index + "C", 1613541902L + index));
+        }
+        final CountDownLatch failing = new CountDownLatch(1);
+        final List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        final Function<ValetInstruction, Object> processor = instruction -> {
+            if(instruction.getVehicleType() == VehicleType.MOTORCYCLE) {
+                failing.countDown();
+                throw new IllegalStateException("Motorcycle failed");
+            }
+            if(applied.isEmpty()) {
+                // give the motorcycle partition time to publish its failure
+                try {
+                    failing.await();
+                    Thread.sleep(200L);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            applied.add(instruction.getLicensePlate());
+            return new ParkedDTO(true, "CarLot" + applied.size());
+        };
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(outputStream))) {
+            new PartitionedInstructionRunner<Object>(1000).run(new ListSource(instructions), processor,
+                    PartitionedInstructionRunnerTest::write, output);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertTrue(e instanceof IllegalStateException);
+        }
+        assertEquals(List.of("SG0C"), applied);
+        assertEquals("Accept CarLot1" + NEW_LINE, new String(outputStream.toByteArray(), Charset.defaultCharset()));
+    }
+
+    private static ParkingValetController controller() {
+        return new ContextConfig(new ParkingLotConfiguration[]{
+                new ParkingLotConfiguration(VehicleType.CAR, 10, 2),
+                new ParkingLotConfiguration(VehicleType.MOTORCYCLE, 5, 1)
+        }).parkingValetController();
+    }
+
+    private static Function<ValetInstruction, Object> processor(final ParkingValetController controller) {
+        return instruction -> instruction.getAction() == ValetAction.ENTER
+                ? controller.enterParking(instruction.getVehicleType(), instruction.getLicensePlate(),
+                instruction.getTimestamp())
+                : controller.exitParking(instruction.getLicensePlate(), instruction.getTimestamp());
+    }
+
+    private static void write(final Object result, final OutputWriter output) throws IOException {
+        if(result instanceof ParkedDTO) {
+            final ParkedDTO parked = (ParkedDTO) result;
+            output.append(parked.isAccepted() ? "Accept " + parked.getLotNumber() : "Reject").endLine();
+        } else {
+            final ParkingFeeDTO fee = (ParkingFeeDTO) result;
+            output.append(fee.getLabel()).append(" ").append(fee.getParkingFee()).endLine();
+        }
+    }
+
+    private static ValetInstruction enter(final VehicleType vehicleType, final String vehicleNumber,
+                                          final long seconds) {
+        return ValetInstruction.builder().action(ValetAction.ENTER).vehicleType(vehicleType)
+                .licensePlate(vehicleNumber).timestamp(TimeUtil.convertSecondsToLocalDateTime(seconds)).build();
+    }
+
+    private static ValetInstruction exit(final String vehicleNumber, final long seconds) {
+        return ValetInstruction.builder().action(ValetAction.EXIT).licensePlate(vehicleNumber)
+                .timestamp(TimeUtil.convertSecondsToLocalDateTime(seconds)).build();
+    }
+
+    /**
+     * Source of instructions from a list.
+     */
+    private static class ListSource implements InstructionSource {
+        private final Iterator<ValetInstruction> iterator;
+
+        ListSource(final List<ValetInstruction> instructions) {
+            this.iterator = instructions.iterator();
+        }
+
+        @Override
+        public Map<VehicleType, Integer> getNumberOfLots() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public ValetInstruction next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.richmondchng.automatedvalet.engine;
+
+import org.junit.jupiter.api.Test;
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.file.InstructionSource;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.output.OutputWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.security.InvalidParameterException;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test PipelinedInstructionRunner.
+ *
+ * @author richmondchng
+ */
+class PipelinedInstructionRunnerTest {
+
+    private static final String NEW_LINE = System.lineSeparator();
+
+    /**
+     * Test run. Many batches through small queues, write every result in order.
+     *
+     * @throws Exception
+     */
+    @Test
+    void run_manyBatches_writeResultsInOrder() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(outputStream))) {
+            new PipelinedInstructionRunner<String>(7, 1).run(new CountingSource(1000, -1),
+                    instruction -> instruction.getLicensePlate(), (result, writer) -> writer.append(result).endLine(),
+                    output);
+        }
+        final StringBuilder expected = new StringBuilder();
+        for(int index = 0; index < 1000; index++) {
+            expected.append("SG").append(index).append(NEW_LINE);
+        }
+        assertEquals(expected.toString(), new String(outputStream.toByteArray(), Charset.defaultCharset()));
+    }
+
+    /**
+     * Test run. Reading fails part way, results before the failed instruction are written, then throw the same
+     * exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void run_readFails_writeEarlierResultsThenThrowException() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(outputStream))) {
+            new PipelinedInstructionRunner<String>(4, 2).run(new CountingSource(1000, 10),
+                    instruction -> instruction.getLicensePlate(), (result, writer) -> writer.append(result).endLine(),
+                    output);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("Not a valid action: Parked", e.getMessage());
+        }
+        assertEquals(10, new String(outputStream.toByteArray(), Charset.defaultCharset()).split(NEW_LINE).length);
+    }
+
+    /**
+     * Test run. Processing fails before a later read failure, throw processing exception after earlier results.
+     *
+     * @throws Exception
+     */
+    @Test
+    void run_processFailsBeforeReadFails_throwProcessException() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(outputStream))) {
+            new PipelinedInstructionRunner<String>(4, 2).run(new CountingSource(1000, 500), instruction -> {
+                if("SG25".equals(instruction.getLicensePlate())) {
+                    throw new IllegalStateException("Failed SG25");
+                }
+                return instruction.getLicensePlate();
+            }, (result, writer) -> writer.append(result).endLine(), output);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("Failed SG25", e.getMessage());
+        }
+        assertEquals(25, new String(outputStream.toByteArray(), Charset.defaultCharset()).split(NEW_LINE).length);
+    }
+
+    /**
+     * Test run. Writing fails, earlier stages are stopped and throw the write exception.
+     */
+    @Test
+    void run_writeFails_stopAndThrowException() {
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(new ByteArrayOutputStream()))) {
+            new PipelinedInstructionRunner<String>(2, 1).run(new CountingSource(100000, -1),
+                    instruction -> instruction.getLicensePlate(), (result, writer) -> {
+                        throw new IOException("Disk full");
+                    }, output);
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof IOException);
+            assertEquals("Disk full", e.getMessage());
+        }
+    }
+
+    /**
+     * Test constructor. Invalid batch size, throw exception.
+     */
+    @Test
+    void constructor_invalidBatchSize_throwException() {
+        try {
+            new PipelinedInstructionRunner<String>(0, 1);
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Batch size must be positive", e.getMessage());
+        }
+    }
+
+    /**
+     * Source of enter instructions, failing at a given instruction like a parser reaching an invalid line.
+     */
+    private static class CountingSource implements InstructionSource {
+        private final int numberOfInstructions;
+        private final int failAt;
+        private int next;
+
+        CountingSource(final int numberOfInstructions, final int failAt) {
+            this.numberOfInstructions = numberOfInstructions;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public Map<VehicleType, Integer> getNumberOfLots() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < numberOfInstructions;
+        }
+
+        @Override
+        public ValetInstruction next() {
+            if(next == failAt) {
+                throw new IllegalArgumentException("Not a valid action: Parked");
+            }
+            return ValetInstruction.builder().action(ValetAction.ENTER).vehicleType(VehicleType.CAR)
+                    .licensePlate("SG" + next++).build();
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
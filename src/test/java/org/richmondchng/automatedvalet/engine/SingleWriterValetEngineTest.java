@@ -0,0 +1,234 @@
+package org.richmondchng.automatedvalet.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.richmondchng.automatedvalet.config.ContextConfig;
+import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.config.ParkingLotConfiguration;
+import org.richmondchng.automatedvalet.dto.response.ParkedDTO;
+import org.richmondchng.automatedvalet.dto.response.ParkingFeeDTO;
+import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test SingleWriterValetEngine.
+ *
+ * @author richmondchng
+ */
+class SingleWriterValetEngineTest {
+
+    // test instance
+    private SingleWriterValetEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // 3 car lots, at $2 per hour
+        // 4 motorcycle lots, at $1 per hour
+        engine = new ContextConfig(new ParkingLotConfiguration[]{
+                new ParkingLotConfiguration(VehicleType.CAR, 3, 2),
+                new ParkingLotConfiguration(VehicleType.MOTORCYCLE, 4, 1)
+        }).singleWriterValetEngine(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.close();
+        engine = null;
+    }
+
+    /**
+     * Test commands from one gate are applied in the order they were published.
+     *
+     * @throws Exception
+     */
+    @Test
+    void enterAndExit_oneGate_applyInOrder() throws Exception {
+        final CompletableFuture<ParkedDTO> result1 = engine.enterParking(VehicleType.MOTORCYCLE, "SGX1234A",
+                TimeUtil.convertSecondsToLocalDateTime(1613541902L));
+        final CompletableFuture<ParkedDTO> result2 = engine.enterParking(VehicleType.CAR, "SGF9283P",
+                TimeUtil.convertSecondsToLocalDateTime(1613541902L));
+        final CompletableFuture<ParkingFeeDTO> result3 = engine.exitParking("SGX1234A",
+                TimeUtil.convertSecondsToLocalDateTime(1613545602L));
+        final CompletableFuture<ParkedDTO> result4 = engine.enterParking(VehicleType.CAR, "SGP2937F",
+                TimeUtil.convertSecondsToLocalDateTime(1613546029L));
+        final CompletableFuture<ParkedDTO> result5 = engine.enterParking(VehicleType.CAR, "SDW2111W",
+                TimeUtil.convertSecondsToLocalDateTime(1613549730L));
+        final CompletableFuture<ParkedDTO> result6 = engine.enterParking(VehicleType.CAR, "SSD9281L",
+                TimeUtil.convertSecondsToLocalDateTime(1613549740L));
+        final CompletableFuture<ParkingFeeDTO> result7 = engine.exitParking("SDW2111W",
+                TimeUtil.convertSecondsToLocalDateTime(1613559745L));
+
+        assertEquals("MotorcycleLot1", result1.get().getLotNumber());
+        assertEquals("CarLot1", result2.get().getLotNumber());
+        assertEquals("MotorcycleLot1", result3.get().getLabel());
+        assertEquals(2, result3.get().getParkingFee());
+        assertEquals("CarLot2", result4.get().getLotNumber());
+        assertEquals("CarLot3", result5.get().getLotNumber());
+        assertFalse(result6.get().isAccepted());
+        assertEquals("CarLot3", result7.get().getLabel());
+        assertEquals(6, result7.get().getParkingFee());
+    }
+
+    /**
+     * Test exception thrown by controller completes the future of that command only.
+     *
+     * @throws Exception
+     */
+    @Test
+    void exitParking_vehicleNotParked_completeExceptionally() throws Exception {
+        final CompletableFuture<ParkingFeeDTO> result1 = engine.exitParking("SGX1234A",
+                TimeUtil.convertSecondsToLocalDateTime(1613545602L));
+        final CompletableFuture<ParkedDTO> result2 = engine.enterParking(VehicleType.CAR, "SGF9283P",
+                TimeUtil.convertSecondsToLocalDateTime(1613541902L));
+        try {
+            result1.get();
+            fail("Expect exception to be thrown");
+        } catch(ExecutionException e) {
+            assertTrue(e.getCause() instanceof VehicleNotParkedException);
+        }
+        assertEquals("CarLot1", result2.get().getLotNumber());
+    }
+
+    /**
+     * Test many gates publishing into a small ring. Every command is applied, and a lot is never held by two
+     * vehicles.
+     *
+     * @throws Exception
+     */
+    @Test
+    void enterAndExit_manyGates_applyEveryCommand() throws Exception {
+        final int numberOfGates = 6;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfGates);
+        try {
+            final List<Future<Integer>> gates = new ArrayList<>();
+            for(int gate = 0; gate < numberOfGates; gate++) {
+                final String vehicleNumber = "SG" + gate + "G";
+                gates.add(executor.submit(() -> {
+                    start.await();
+                    int accepted = 0;
+                    for(int round = 0; round < 1000; round++) {
+                        final long timeIn = 1613541902L + round * 10L;
+                        final ParkedDTO parked = engine.enterParking(VehicleType.CAR, vehicleNumber,
+                                TimeUtil.convertSecondsToLocalDateTime(timeIn)).get();
+                        if(parked.isAccepted()) {
+                            accepted++;
+                            final ParkingFeeDTO fee = engine.exitParking(vehicleNumber,
+                                    TimeUtil.convertSecondsToLocalDateTime(timeIn + 5L)).get();
+                            assertEquals(parked.getLotNumber(), fee.getLabel());
+                        }
+                    }
+                    return accepted;
+                }));
+            }
+            start.countDown();
+            int accepted = 0;
+            for(Future<Integer> gate : gates) {
+                accepted += gate.get();
+            }
+            assertTrue(accepted >= 3000);
+        } finally {
+            executor.shutdownNow();
+        }
+        // every lot is available again
+        assertEquals("CarLot1", engine.enterParking(VehicleType.CAR, "SGF9283P",
+                TimeUtil.convertSecondsToLocalDateTime(1613641902L)).get().getLotNumber());
+        assertEquals("CarLot2", engine.enterParking(VehicleType.CAR, "SGP2937F",
+                TimeUtil.convertSecondsToLocalDateTime(1613641902L)).get().getLotNumber());
+        assertEquals("CarLot3", engine.enterParking(VehicleType.CAR, "SDW2111W",
+                TimeUtil.convertSecondsToLocalDateTime(1613641902L)).get().getLotNumber());
+    }
+
+    /**
+     * Test close. Commands published before close are applied, commands after close throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void close_pendingCommands_applyThenRejectNewCommands() throws Exception {
+        final List<CompletableFuture<ParkedDTO>> results = new ArrayList<>();
+        for(int index = 0; index < 10; index++) {
+            results.add(engine.enterParking(VehicleType.MOTORCYCLE, "SG" + index + "M",
+                    TimeUtil.convertSecondsToLocalDateTime(1613541902L)));
+        }
+        engine.close();
+        for(CompletableFuture<ParkedDTO> result : results) {
+            assertTrue(result.isDone());
+        }
+        assertEquals("MotorcycleLot4", results.get(3).get().getLotNumber());
+        assertFalse(results.get(4).get().isAccepted());
+        try {
+            engine.exitParking("SG0M", TimeUtil.convertSecondsToLocalDateTime(1613545602L));
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof IllegalStateException);
+            assertEquals("Valet engine is closed", e.getMessage());
+        }
+    }
+
+    /**
+     * Test error thrown by controller completes the future of that command, and the writer thread keeps applying
+     * commands.
+     *
+     * @throws Exception
+     */
+    @Test
+    void enterParking_controllerThrowsError_completeExceptionally() throws Exception {
+        final ParkingValetController controller = mock(ParkingValetController.class);
+        final ParkedDTO parked = new ParkedDTO(true, "CarLot1");
+        when(controller.enterParking(any(VehicleType.class), anyString(), anyLong()))
+                .thenThrow(new StackOverflowError()).thenReturn(parked);
+        try (final SingleWriterValetEngine errorEngine = new SingleWriterValetEngine(controller, 2)) {
+            final CompletableFuture<ParkedDTO> result1 = errorEngine.enterParking(VehicleType.CAR, "SGF9283P",
+                    1613541902L);
+            final CompletableFuture<ParkedDTO> result2 = errorEngine.enterParking(VehicleType.CAR, "SGP2937F",
+                    1613541902L);
+            try {
+                result1.get(10, TimeUnit.SECONDS);
+                fail("Expect exception to be thrown");
+            } catch(ExecutionException e) {
+                assertTrue(e.getCause() instanceof StackOverflowError);
+            }
+            assertEquals("CarLot1", result2.get(10, TimeUnit.SECONDS).getLotNumber());
+        }
+    }
+
+    /**
+     * Test constructor. Capacity is not a power of two, throw exception.
+     */
+    @Test
+    void constructor_invalidCapacity_throwException() {
+        try {
+            new ContextConfig(new ParkingLotConfiguration[]{
+                    new ParkingLotConfiguration(VehicleType.CAR, 3, 2)
+            }).singleWriterValetEngine(6);
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Capacity must be a power of two", e.getMessage());
+        }
+    }
+}
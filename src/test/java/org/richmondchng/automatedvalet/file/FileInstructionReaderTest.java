@@ -7,8 +7,11 @@ import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 
 import java.time.LocalDateTime;
 import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -196,6 +199,44 @@ class FileInstructionReaderTest {
         }
     }
 
+    /**
+     * Test readInstructions.
+     *
+     * Enter instruction contain timestamp that is NO_TIME, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void readInstructions_enterTimestampNoTime_throwException() throws Exception {
+        final String filePath = this.getClass().getResource("/data/sample-data-enter-timestamp-no-time.txt").getPath();
+        try {
+            FileInstructionReader.readInstructions(filePath);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("Unable to parse instruction: Enter motorcycle SGX1234A -9223372036854775808",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Test readInstructions.
+     *
+     * Exit instruction contain timestamp out of the range of LocalDateTime, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void readInstructions_exitTimestampOutOfRange_throwException() throws Exception {
+        final String filePath = this.getClass().getResource("/data/sample-data-exit-timestamp-out-of-range.txt")
+                .getPath();
+        try {
+            FileInstructionReader.readInstructions(filePath);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("Unable to parse instruction: Exit SGX1234A 99999999999999999", e.getMessage());
+        }
+    }
+
     /**
      * Test readInstructions.
      *
@@ -231,4 +272,142 @@ class FileInstructionReaderTest {
             assertEquals("Not a valid vehicle type: van", e.getMessage(), e.getClass().getSimpleName());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Test readInstructions with mapped parser.
+     *
+     * File is valid, content is valid. Same instructions as scanner parser.
+     *
+     * @throws Exception
+     */
+    @Test
+    void readInstructions_mappedParserValidFile_returnInstructions() throws Exception {
+        final String filePath = this.getClass().getResource("/data/sample-data.txt").getPath();
+
+        final FileInstructionsDTO results = FileInstructionReader.readInstructions(filePath, ParserMode.MAPPED);
+        assertNotNull(results);
+        assertEquals(3, results.getNumberOfLots().get(VehicleType.CAR));
+        assertEquals(4, results.getNumberOfLots().get(VehicleType.MOTORCYCLE));
+
+        assertEquals(2, results.getInstructions().size());
+        final Iterator<ValetInstruction> iterator = results.getInstructions().iterator();
+
+        final ValetInstruction result1 = iterator.next();
+        assertEquals(ValetAction.ENTER, result1.getAction());
+        assertEquals(VehicleType.MOTORCYCLE, result1.getVehicleType());
+        assertEquals("SGX1234A", result1.getLicensePlate());
+        assertEquals(LocalDateTime.of(2021, 2, 17, 14, 5, 2), result1.getTimestamp());
+
+        final ValetInstruction result2 = iterator.next();
+        assertEquals(ValetAction.EXIT, result2.getAction());
+        assertNull(result2.getVehicleType());
+        assertEquals("SGX1234A", result2.getLicensePlate());
+        assertEquals(LocalDateTime.of(2021, 2, 17, 15, 6, 42), result2.getTimestamp());
+    }
+
+    /**
+     * Test readInstructions with mapped and parallel parsers.
+     *
+     * Invalid files, throw the same exceptions as scanner parser.
+     *
+     * @throws Exception
+     */
+    @Test
+    void readInstructions_byteParsersInvalidFiles_throwSameExceptionAsScanner() throws Exception {
+        final String[] files = {
+                "/data/sample-data-empty.txt",
+                "/data/sample-data-missing-motorcycle.txt",
+                "/data/sample-data-not-integer.txt",
+                "/data/sample-data-enter-missing-part.txt",
+                "/data/sample-data-enter-timestamp-not-numeric.txt",
+                "/data/sample-data-exit-missing-part.txt",
+                "/data/sample-data-exit-timestamp-not-numeric.txt",
+                "/data/sample-data-enter-timestamp-no-time.txt",
+                "/data/sample-data-exit-timestamp-out-of-range.txt",
+                "/data/sample-data-invalid-action.txt",
+                "/data/sample-data-invalid-vehicle-type.txt"
+        };
+        for(String file : files) {
+            final String filePath = this.getClass().getResource(file).getPath();
+            RuntimeException expected = null;
+            try {
+                FileInstructionReader.readInstructions(filePath, ParserMode.SCANNER);
+            } catch(RuntimeException e) {
+                expected = e;
+            }
+            assertNotNull(expected, file);
+            for(ParserMode parserMode : new ParserMode[]{ParserMode.MAPPED, ParserMode.PARALLEL}) {
+                try {
+                    FileInstructionReader.readInstructions(filePath, parserMode);
+                    fail("Expect exception to be thrown for " + file);
+                } catch(RuntimeException e) {
+                    assertEquals(expected.getClass(), e.getClass(), file);
+                    assertEquals(expected.getMessage(), e.getMessage(), file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test readInstructions with mapped parser.
+     *
+     * File path is invalid, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void readInstructions_mappedParserInvalidFilePath_throwException() throws Exception {
+        final String filePath = "/data/sample-data-does-not-exists.txt";
+        try {
+            FileInstructionReader.readInstructions(filePath, ParserMode.MAPPED);
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("File is not valid: /data/sample-data-does-not-exists.txt", e.getMessage());
+        }
+    }
+
+    /**
+     * Test openInstructions.
+     *
+     * Instructions are parsed as they are read, error is only thrown when the invalid line is reached.
+     *
+     * @throws Exception
+     */
+    @Test
+    void openInstructions_invalidLine_throwExceptionWhenLineIsRead() throws Exception {
+        final String filePath = this.getClass().getResource("/data/sample-data-invalid-action.txt").getPath();
+        for(ParserMode parserMode : ParserMode.values()) {
+            try (final InstructionSource source = FileInstructionReader.openInstructions(filePath, parserMode)) {
+                assertEquals(3, source.getNumberOfLots().get(VehicleType.CAR));
+                assertTrue(source.hasNext());
+                try {
+                    source.next();
+                    fail("Expect exception to be thrown");
+                } catch(RuntimeException e) {
+                    assertEquals("Not a valid action: Parked", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Test openInstructions.
+     *
+     * Stream of instructions is the same as readInstructions.
+     *
+     * @throws Exception
+     */
+    @Test
+    void openInstructions_validFile_streamInstructions() throws Exception {
+        final String filePath = this.getClass().getResource("/data/sample-data.txt").getPath();
+        for(ParserMode parserMode : ParserMode.values()) {
+            try (final InstructionSource source = FileInstructionReader.openInstructions(filePath, parserMode)) {
+                final List<ValetInstruction> results = source.stream().collect(Collectors.toList());
+                assertEquals(2, results.size());
+                assertEquals(ValetAction.ENTER, results.get(0).getAction());
+                assertEquals(ValetAction.EXIT, results.get(1).getAction());
+                assertFalse(source.hasNext());
+            }
+        }
+    }
+}
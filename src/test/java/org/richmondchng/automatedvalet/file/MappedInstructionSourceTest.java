@@ -0,0 +1,103 @@
+package org.richmondchng.automatedvalet.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test MappedInstructionSource.
+ *
+ * @author richmondchng
+ */
+class MappedInstructionSourceTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test small window, lines cross window boundaries. Return same instructions as scanner source.
+     *
+     * @throws Exception
+     */
+    @Test
+    void next_linesCrossWindows_returnSameInstructionsAsScanner() throws Exception {
+        final StringBuilder content = new StringBuilder("3 4\n");
+        for(int index = 0; index < 50; index++) {
+            content.append("Enter ").append(index % 2 == 0 ? "car" : "MOTORCYCLE").append(" SG").append(index)
+                    .append(' ').append(1613541902L + index).append(index % 3 == 0 ? "\r\n" : "\n");
+            content.append("Exit SG").append(index).append(' ').append(1613545602L + index).append('\n');
+        }
+        final Path file = write(content.toString());
+
+        final List<ValetInstruction> expected = FileInstructionReader.readInstructions(file.toString()).getInstructions();
+        final List<ValetInstruction> results = new ArrayList<>();
+        // window smaller than 2 lines
+        try (final MappedInstructionSource source = new MappedInstructionSource(file.toString(), 48)) {
+            assertEquals(3, source.getNumberOfLots().get(VehicleType.CAR));
+            assertEquals(4, source.getNumberOfLots().get(VehicleType.MOTORCYCLE));
+            while(source.hasNext()) {
+                results.add(source.next());
+            }
+        }
+        assertEquals(expected.size(), results.size());
+        for(int index = 0; index < expected.size(); index++) {
+            assertEquals(expected.get(index).getAction(), results.get(index).getAction());
+            assertEquals(expected.get(index).getVehicleType(), results.get(index).getVehicleType());
+            assertEquals(expected.get(index).getLicensePlate(), results.get(index).getLicensePlate());
+            assertEquals(expected.get(index).getTimestamp(), results.get(index).getTimestamp());
+        }
+    }
+
+    /**
+     * Test carriage return only line separator, and no separator at end of file.
+     *
+     * @throws Exception
+     */
+    @Test
+    void next_carriageReturnSeparator_returnInstructions() throws Exception {
+        final Path file = write("3 4\rEnter car SGX1234A 1613541902\rExit SGX1234A 1613545602");
+
+        try (final MappedInstructionSource source = new MappedInstructionSource(file.toString())) {
+            final ValetInstruction result1 = source.next();
+            assertEquals(ValetAction.ENTER, result1.getAction());
+            assertEquals("SGX1234A", result1.getLicensePlate());
+            final ValetInstruction result2 = source.next();
+            assertEquals(ValetAction.EXIT, result2.getAction());
+            assertEquals("SGX1234A", result2.getLicensePlate());
+            assertFalse(source.hasNext());
+        }
+    }
+
+    /**
+     * Test line longer than window, throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void constructor_lineLongerThanWindow_throwException() throws Exception {
+        final Path file = write("3 4\nEnter car SGX1234A 1613541902\n");
+        try (final MappedInstructionSource source = new MappedInstructionSource(file.toString(), 16)) {
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("Instruction line is longer than 16 bytes", e.getMessage());
+        }
+    }
+
+    private Path write(final String content) throws Exception {
+        final Path file = tempDir.resolve("instructions.txt");
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
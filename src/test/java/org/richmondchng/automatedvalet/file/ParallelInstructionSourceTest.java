@@ -0,0 +1,131 @@
+package org.richmondchng.automatedvalet.file;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.dto.instruction.ValetAction;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test ParallelInstructionSource.
+ *
+ * @author richmondchng
+ */
+class ParallelInstructionSourceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Test small chunks, many chunks parsed in parallel. Return same instructions in same order as scanner parser.
+     *
+     * @throws Exception
+     */
+    @Test
+    void next_manyChunks_returnSameInstructionsAsScanner() throws Exception {
+        final StringBuilder content = new StringBuilder("3 4\n");
+        for(int index = 0; index < 500; index++) {
+            content.append("Enter ").append(index % 2 == 0 ? "car" : "MOTORCYCLE").append(" SG").append(index)
+                    .append(' ').append(1613541902L + index).append(index % 3 == 0 ? "\r\n" : "\n");
+            content.append("Exit SG").append(index).append(' ').append(1613545602L + index).append('\n');
+        }
+        final Path file = write(content.toString());
+
+        final List<ValetInstruction> expected = FileInstructionReader.readInstructions(file.toString()).getInstructions();
+        final List<ValetInstruction> results = new ArrayList<>();
+        // chunk smaller than a line
+        try (final ParallelInstructionSource source = new ParallelInstructionSource(file.toString(), 20, pool)) {
+            assertEquals(3, source.getNumberOfLots().get(VehicleType.CAR));
+            assertEquals(4, source.getNumberOfLots().get(VehicleType.MOTORCYCLE));
+            while(source.hasNext()) {
+                results.add(source.next());
+            }
+        }
+        assertEquals(expected.size(), results.size());
+        for(int index = 0; index < expected.size(); index++) {
+            assertEquals(expected.get(index).getAction(), results.get(index).getAction());
+            assertEquals(expected.get(index).getVehicleType(), results.get(index).getVehicleType());
+            assertEquals(expected.get(index).getLicensePlate(), results.get(index).getLicensePlate());
+            assertEquals(expected.get(index).getTimestamp(), results.get(index).getTimestamp());
+        }
+    }
+
+    /**
+     * Test carriage return only line separator, and no separator at end of file.
+     *
+     * @throws Exception
+     */
+    @Test
+    void next_carriageReturnSeparator_returnInstructions() throws Exception {
+        final Path file = write("3 4\rEnter car SGX1234A 1613541902\rExit SGX1234A 1613545602");
+
+        try (final ParallelInstructionSource source = new ParallelInstructionSource(file.toString(), 8, pool)) {
+            final ValetInstruction result1 = source.next();
+            assertEquals(ValetAction.ENTER, result1.getAction());
+            assertEquals("SGX1234A", result1.getLicensePlate());
+            final ValetInstruction result2 = source.next();
+            assertEquals(ValetAction.EXIT, result2.getAction());
+            assertEquals("SGX1234A", result2.getLicensePlate());
+            assertFalse(source.hasNext());
+        }
+    }
+
+    /**
+     * Test invalid line in a later chunk. Instructions before the line are returned, then throw exception.
+     *
+     * @throws Exception
+     */
+    @Test
+    void next_invalidLineInLaterChunk_returnEarlierInstructionsThenThrowException() throws Exception {
+        final StringBuilder content = new StringBuilder("3 4\n");
+        for(int index = 0; index < 100; index++) {
+            content.append("Enter car SG").append(index).append(' ').append(1613541902L + index).append('\n');
+        }
+        content.append("Parked car SG100 1613542002\n");
+        content.append("Enter car SG101 1613542003\n");
+        final Path file = write(content.toString());
+
+        int count = 0;
+        try (final ParallelInstructionSource source = new ParallelInstructionSource(file.toString(), 64, pool)) {
+            while(source.hasNext()) {
+                source.next();
+                count++;
+            }
+            fail("Expect exception to be thrown");
+        } catch(RuntimeException e) {
+            assertEquals("Not a valid action: Parked", e.getMessage());
+        }
+        assertEquals(100, count);
+    }
+
+    private Path write(final String content) throws Exception {
+        final Path file = tempDir.resolve("instructions.txt");
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
@@ -0,0 +1,160 @@
+package org.richmondchng.automatedvalet.generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.richmondchng.automatedvalet.config.ContextConfig;
+import org.richmondchng.automatedvalet.config.ParkingLotConfiguration;
+import org.richmondchng.automatedvalet.controller.ParkingValetController;
+import org.richmondchng.automatedvalet.dto.instruction.ValetInstruction;
+import org.richmondchng.automatedvalet.file.FileInstructionReader;
+import org.richmondchng.automatedvalet.file.InstructionSource;
+import org.richmondchng.automatedvalet.file.ParserMode;
+import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.output.OutputWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test WorkloadSimulator.
+ *
+ * @author richmondchng
+ */
+class WorkloadSimulatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test generate. Same configuration and seed, generate the same instructions.
+     *
+     * @throws Exception
+     */
+    @Test
+    void generate_sameSeed_generateSameInstructions() throws Exception {
+        final WorkloadConfiguration configuration = WorkloadConfiguration.builder()
+                .numberOfInstructions(5000)
+                .arrivalCurve(ArrivalCurve.MALL)
+                .dwellTimeDistribution(DwellTimeDistribution.LOGNORMAL)
+                .seed(7L)
+                .build();
+
+        final byte[] result1 = generate(configuration);
+        final byte[] result2 = generate(configuration);
+        assertArrayEquals(result1, result2);
+
+        final byte[] result3 = generate(WorkloadConfiguration.builder()
+                .numberOfInstructions(5000)
+                .arrivalCurve(ArrivalCurve.MALL)
+                .dwellTimeDistribution(DwellTimeDistribution.LOGNORMAL)
+                .seed(8L)
+                .build());
+        assertFalse(Arrays.equals(result1, result3));
+    }
+
+    /**
+     * Test generate. Generated file is processed by the valet without error, with the same number of accepted and
+     * rejected vehicles as the summary.
+     *
+     * @throws Exception
+     */
+    @Test
+    void generate_fewLotsAndPlates_processedWithoutError() throws Exception {
+        final WorkloadConfiguration configuration = WorkloadConfiguration.builder()
+                .numberOfCarLots(5)
+                .numberOfMotorcycleLots(3)
+                .numberOfInstructions(20000)
+                .arrivalsPerHour(30)
+                .arrivalCurve(ArrivalCurve.COMMUTER)
+                .numberOfPlates(20)
+                .build();
+        final Path file = tempDir.resolve("workload.txt");
+        final WorkloadSummary summary;
+        try (final OutputWriter output = OutputWriter.toFile(file.toString(), 1024, 0L)) {
+            summary = new WorkloadSimulator(configuration).generate(output);
+        }
+        assertEquals(20000, summary.getNumberOfInstructions());
+        assertEquals(summary.getNumberOfInstructions(),
+                summary.getAccepted() + summary.getRejected() + summary.getExited());
+        assertEquals(summary.getAccepted() - summary.getExited(), summary.getStillParked());
+        assertTrue(summary.getRejected() > 0);
+
+        long accepted = 0;
+        long rejected = 0;
+        long exited = 0;
+        try (final InstructionSource source = FileInstructionReader.openInstructions(file.toString(),
+                ParserMode.MAPPED)) {
+            assertEquals(5, source.getNumberOfLots().get(VehicleType.CAR));
+            assertEquals(3, source.getNumberOfLots().get(VehicleType.MOTORCYCLE));
+            final ParkingValetController controller = new ContextConfig(new ParkingLotConfiguration[]{
+                    new ParkingLotConfiguration(VehicleType.CAR, 5, 2),
+                    new ParkingLotConfiguration(VehicleType.MOTORCYCLE, 3, 1)
+            }).parkingValetController();
+            while(source.hasNext()) {
+                final ValetInstruction instruction = source.next();
+                switch(instruction.getAction()) {
+                    case ENTER:
+                        if(controller.enterParking(instruction.getVehicleType(), instruction.getLicensePlate(),
+                                instruction.getTimestamp()).isAccepted()) {
+                            accepted++;
+                        } else {
+                            rejected++;
+                        }
+                        break;
+                    case EXIT:
+                        controller.exitParking(instruction.getLicensePlate(), instruction.getTimestamp());
+                        exited++;
+                        break;
+                }
+            }
+        }
+        assertEquals(summary.getAccepted(), accepted);
+        assertEquals(summary.getRejected(), rejected);
+        assertEquals(summary.getExited(), exited);
+    }
+
+    /**
+     * Test arrival curves. Average relative rate over a day is 1.
+     */
+    @Test
+    void arrivalCurve_averageRateIsOne() {
+        for(ArrivalCurve curve : ArrivalCurve.values()) {
+            double total = 0;
+            for(int hour = 0; hour < 24; hour++) {
+                total += curve.getRate(hour);
+            }
+            assertEquals(1.0, total / 24, 1e-9, curve.name());
+        }
+    }
+
+    /**
+     * Test constructor. Invalid configuration, throw exception.
+     */
+    @Test
+    void constructor_invalidMotorcycleRatio_throwException() {
+        try {
+            new WorkloadSimulator(WorkloadConfiguration.builder().motorcycleRatio(1.5).build());
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Motorcycle ratio must be between 0 and 1", e.getMessage());
+        }
+    }
+
+    private byte[] generate(final WorkloadConfiguration configuration) throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (final OutputWriter output = new OutputWriter(Channels.newChannel(outputStream))) {
+            new WorkloadSimulator(configuration).generate(output);
+        }
+        return outputStream.toByteArray();
+    }
+}
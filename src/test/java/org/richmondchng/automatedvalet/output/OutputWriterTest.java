@@ -0,0 +1,200 @@
+package org.richmondchng.automatedvalet.output;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.security.InvalidParameterException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Unit test OutputWriter.
+ *
+ * @author richmondchng
+ */
+class OutputWriterTest {
+
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private ByteArrayOutputStream outputStream;
+    private CountingChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        outputStream = new ByteArrayOutputStream();
+        channel = new CountingChannel(Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Test output lines are buffered until close.
+     *
+     * @throws Exception
+     */
+    @Test
+    void close_linesBelowFlushSize_writeOnceOnClose() throws Exception {
+        final OutputWriter writer = new OutputWriter(channel);
+        writer.append("Accept ").append("CarLot1").endLine();
+        writer.append("Reject").endLine();
+        writer.append("CarLot1").append(" ").append(4L).endLine();
+        assertEquals(0, channel.writes);
+
+        writer.close();
+        assertEquals(1, channel.writes);
+        assertEquals("Accept CarLot1" + NEW_LINE + "Reject" + NEW_LINE + "CarLot1 4" + NEW_LINE, output());
+    }
+
+    /**
+     * Test close. Standard output is not closed, and can still be printed to after the writer is closed.
+     *
+     * @throws Exception
+     */
+    @Test
+    void close_standardOutput_standardOutputStillOpen() throws Exception {
+        OutputWriter.toStandardOutput(OutputWriter.DEFAULT_FLUSH_BYTES, 0L).close();
+
+        assertTrue(FileDescriptor.out.valid());
+        System.out.println("Standard output is still open");
+        assertFalse(System.out.checkError());
+    }
+
+    /**
+     * Test buffer is written when flush size is reached.
+     *
+     * @throws Exception
+     */
+    @Test
+    void endLine_flushSizeReached_writeBuffer() throws Exception {
+        final OutputWriter writer = new OutputWriter(channel, 16, 0L, Clock.systemUTC());
+        final StringBuilder expected = new StringBuilder();
+        for(int index = 0; index < 100; index++) {
+            writer.append("CarLot").append(index).append(" ").append(index * 1000L).endLine();
+            expected.append("CarLot").append(index).append(' ').append(index * 1000L).append(NEW_LINE);
+        }
+        assertTrue(channel.writes > 10);
+        writer.close();
+        assertEquals(expected.toString(), output());
+    }
+
+    /**
+     * Test buffer is written when flush interval has passed.
+     *
+     * @throws Exception
+     */
+    @Test
+    void endLine_flushIntervalPassed_writeBuffer() throws Exception {
+        final MutableClock clock = new MutableClock();
+        final OutputWriter writer = new OutputWriter(channel, 1024, 100L, clock);
+        writer.append("Reject").endLine();
+        assertEquals(0, channel.writes);
+
+        clock.advance(Duration.ofMillis(100));
+        writer.append("Reject").endLine();
+        assertEquals(1, channel.writes);
+        assertEquals("Reject" + NEW_LINE + "Reject" + NEW_LINE, output());
+    }
+
+    /**
+     * Test numbers and non ASCII text.
+     *
+     * @throws Exception
+     */
+    @Test
+    void append_numbersAndNonAsciiText_writeSameAsString() throws Exception {
+        final OutputWriter writer = new OutputWriter(channel, 4, 0L, Clock.systemUTC());
+        writer.append(0L).append(" ").append(-123L).append(" ").append(Long.MIN_VALUE).append(" ")
+                .append(Long.MAX_VALUE).endLine();
+        writer.append("Lot\u00e9\u4e00").endLine();
+        writer.close();
+
+        final String expected = "0 -123 " + Long.MIN_VALUE + " " + Long.MAX_VALUE + NEW_LINE + "Lot\u00e9\u4e00"
+                + NEW_LINE;
+        assertArrayEquals(expected.getBytes(Charset.defaultCharset()), outputStream.toByteArray());
+    }
+
+    /**
+     * Test invalid flush size, throw exception.
+     */
+    @Test
+    void constructor_invalidFlushBytes_throwException() {
+        try {
+            new OutputWriter(channel, 0, 0L, Clock.systemUTC());
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            assertEquals("Flush bytes must be positive", e.getMessage());
+        }
+    }
+
+    private String output() {
+        return new String(outputStream.toByteArray(), Charset.defaultCharset());
+    }
+
+    /**
+     * Channel counting number of writes.
+     */
+    private static class CountingChannel implements WritableByteChannel {
+        private final WritableByteChannel delegate;
+        private int writes;
+
+        CountingChannel(final WritableByteChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            writes++;
+            return delegate.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Clock that only moves when advanced.
+     */
+    private static class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2021-02-17T06:05:02Z");
+
+        void advance(final Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
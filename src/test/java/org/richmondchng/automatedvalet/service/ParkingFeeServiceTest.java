@@ -20,7 +20,8 @@ import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
 
 import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -86,7 +87,7 @@ class ParkingFeeServiceTest {
         when(parkingFeeRepository.findByVehicleType(any(VehicleType.class))).thenReturn(null);
 
         final ParkingDetails input = ParkingDetails.builder()
-                .id(UUID.randomUUID())
+                .id(100L)
                 .vehicleType(VehicleType.CAR)
                 .vehicleNumber("ABC1234")
                 .timeIn(LocalDateTime.of(2021, 10, 9, 10, 30, 20))
@@ -111,7 +112,7 @@ class ParkingFeeServiceTest {
     @Test
     void calculateParkingFee_noTimestamps_throwException() {
         final ParkingDetails input = ParkingDetails.builder()
-                .id(UUID.randomUUID())
+                .id(100L)
                 .vehicleType(VehicleType.CAR)
                 .vehicleNumber("ABC1234")
                 .timeIn(LocalDateTime.of(2021, 10, 9, 10, 30, 20))
@@ -134,7 +135,7 @@ class ParkingFeeServiceTest {
     @Test
     void calculateParkingFee_timeOutIsBeforeTimeIn_throwException() {
         final ParkingDetails input = ParkingDetails.builder()
-                .id(UUID.randomUUID())
+                .id(100L)
                 .vehicleType(VehicleType.CAR)
                 .vehicleNumber("ABC1234")
                 .timeIn(LocalDateTime.of(2021, 10, 9, 10, 30, 20))
@@ -157,10 +158,10 @@ class ParkingFeeServiceTest {
      */
     @Test
     void calculateParkingFee_validObject_calculateParkingFee() {
-        final UUID id = UUID.randomUUID();
+        final Long id = 100L;
         when(parkingFeeRepository.findByVehicleType(any(VehicleType.class))).thenReturn(ParkingFeeEntity.builder()
                 .vehicleType(VehicleType.CAR).parkingFeePerHour(4).build());
-        when(parkedVehicleRepository.findById(any(UUID.class))).thenReturn(ParkedVehicleEntity.builder()
+        when(parkedVehicleRepository.findById(any(Long.class))).thenReturn(ParkedVehicleEntity.builder()
                 .id(id)
                 .vehicleType(VehicleType.CAR)
                 .vehicleNumber("ABC1234")
@@ -191,4 +192,59 @@ class ParkingFeeServiceTest {
         // 2 hours x $4 = $8
         assertEquals(8, result);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test calculateParkingFees.
+     *
+     * Many parking details of the same vehicle type, look up fee configuration once and return fees in order.
+     */
+    @Test
+    void calculateParkingFees_sameVehicleType_lookUpFeeOnce() {
+        when(parkingFeeRepository.findByVehicleType(any(VehicleType.class))).thenReturn(ParkingFeeEntity.builder()
+                .vehicleType(VehicleType.CAR).parkingFeePerHour(4).build());
+        when(parkedVehicleRepository.findById(any(Long.class))).thenAnswer(invocation -> ParkedVehicleEntity.builder()
+                .id(invocation.getArgument(0))
+                .vehicleType(VehicleType.CAR)
+                .build());
+
+        final List<Long> result = parkingFeeService.calculateParkingFees(Arrays.asList(
+                ParkingDetails.builder().id(100L).vehicleType(VehicleType.CAR).vehicleNumber("ABC1234")
+                        .timeIn(LocalDateTime.of(2021, 10, 9, 10, 30, 20))
+                        .timeOut(LocalDateTime.of(2021, 10, 9, 12, 30, 20)).build(),
+                ParkingDetails.builder().id(101L).vehicleType(VehicleType.CAR).vehicleNumber("ABC1235")
+                        .timeIn(LocalDateTime.of(2021, 10, 9, 10, 30, 20))
+                        .timeOut(LocalDateTime.of(2021, 10, 9, 10, 40, 20)).build()));
+
+        verify(parkingFeeRepository, times(1)).findByVehicleType(VehicleType.CAR);
+        verify(parkedVehicleRepository, times(1)).findById(100L);
+        verify(parkedVehicleRepository, times(1)).findById(101L);
+        verify(parkedVehicleRepository, times(2)).save(any(ParkedVehicleEntity.class));
+        // 2 hours x $4 = $8, 1 hour x $4 = $4
+        assertEquals(Arrays.asList(8L, 4L), result);
+    }
+
+    /**
+     * Test calculateParkingFees.
+     *
+     * One vehicle type has no parking fee configured, throw exception before any fee is updated.
+     */
+    @Test
+    void calculateParkingFees_noEntityForOneVehicleType_throwExceptionWithoutUpdate() {
+        when(parkingFeeRepository.findByVehicleType(VehicleType.CAR)).thenReturn(ParkingFeeEntity.builder()
+                .vehicleType(VehicleType.CAR).parkingFeePerHour(4).build());
+        when(parkingFeeRepository.findByVehicleType(VehicleType.MOTORCYCLE)).thenReturn(null);
+        try {
+            parkingFeeService.calculateParkingFees(Arrays.asList(
+                    ParkingDetails.builder().id(100L).vehicleType(VehicleType.CAR).vehicleNumber("ABC1234")
+                            .timeIn(LocalDateTime.of(2021, 10, 9, 10, 30, 20))
+                            .timeOut(LocalDateTime.of(2021, 10, 9, 12, 30, 20)).build(),
+                    ParkingDetails.builder().id(101L).vehicleType(VehicleType.MOTORCYCLE).vehicleNumber("ABC1235")
+                            .timeIn(LocalDateTime.of(2021, 10, 9, 10, 30, 20))
+                            .timeOut(LocalDateTime.of(2021, 10, 9, 10, 40, 20)).build()));
+            fail("Expect exception to be thrown");
+        } catch(VehicleParkingException e) {
+            assertTrue(e instanceof ParkingFeeNotConfiguredException, "Exception thrown " + e.getClass().getSimpleName());
+            verifyNoInteractions(parkedVehicleRepository);
+        }
+    }
+}
@@ -17,11 +17,10 @@ import org.richmondchng.automatedvalet.exception.VehicleNotParkedException;
 import org.richmondchng.automatedvalet.exception.VehicleParkingException;
 import org.richmondchng.automatedvalet.model.parking.ParkingDetails;
 import org.richmondchng.automatedvalet.model.vehicle.VehicleType;
+import org.richmondchng.automatedvalet.util.TimeUtil;
 
 import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -29,6 +28,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
@@ -116,30 +117,15 @@ class ParkingValetServiceTest {
      */
     @Test
     void parkVehicle_noAvailableParking_returnNull() {
-        when(parkingLotRepository.finalAllParkingLotsByVehicleTypeOrderByLotNumber(any(VehicleType.class))).thenReturn(
-                Arrays.asList(
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(1).build(),
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(2).build(),
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(3).build(),
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(4).build()
-                ));
-        when(parkedVehicleRepository.findAllParkedVehicles()).thenReturn(Arrays.asList(
-                ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("ABC1234X").lotNumber(1)
-                        .timeIn(LocalDateTime.now()).build(),
-                ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("DBC2234X").lotNumber(2)
-                        .timeIn(LocalDateTime.now()).build(),
-                ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("DBC1234X").lotNumber(3)
-                        .timeIn(LocalDateTime.now()).build(),
-                ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("ABC2234X").lotNumber(4)
-                        .timeIn(LocalDateTime.now()).build()
-        ));
+        // all parking lots are occupied
+        when(parkingLotRepository.allocateAvailableParkingLot(any(VehicleType.class))).thenReturn(null);
+        when(parkedVehicleRepository.findParkedVehicleByVehicleNumber(anyString())).thenReturn(null);
 
         final LocalDateTime timeIn = LocalDateTime.of(2021, 10, 7, 10, 40, 23);
         final ParkingDetails result = parkingValetService.parkVehicle(VehicleType.CAR, "YEE4562U", timeIn);
 
-        verify(parkingLotRepository, times(1)).finalAllParkingLotsByVehicleTypeOrderByLotNumber(
-                VehicleType.CAR);
-        verify(parkedVehicleRepository, times(1)).findAllParkedVehicles();
+        verify(parkingLotRepository, times(1)).allocateAvailableParkingLot(VehicleType.CAR);
+        verify(parkedVehicleRepository, times(1)).findParkedVehicleByVehicleNumber("YEE4562U");
         // no save action
         verify(parkedVehicleRepository, never()).save(any(ParkedVehicleEntity.class));
 
@@ -151,13 +137,10 @@ class ParkingValetServiceTest {
      */
     @Test
     void parkVehicle_hasAvailableParking_VehicleAlreadyParked_throwException() {
-        // vehicle is already parked in lot 2
-        when(parkedVehicleRepository.findAllParkedVehicles()).thenReturn(Arrays.asList(
-                ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("ABC1234X").lotNumber(1)
-                        .timeIn(LocalDateTime.now()).build(),
+        // vehicle is already parked in lot 3
+        when(parkedVehicleRepository.findParkedVehicleByVehicleNumber(anyString())).thenReturn(
                 ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("DBC1234X").lotNumber(3)
-                        .timeIn(LocalDateTime.now()).build()
-        ));
+                        .timeIn(LocalDateTime.now()).build());
 
         final LocalDateTime timeIn = LocalDateTime.of(2021, 10, 7, 10, 40, 23);
         try {
@@ -167,7 +150,7 @@ class ParkingValetServiceTest {
             assertTrue(e instanceof VehicleAlreadyParkedException, e.getClass().getSimpleName() + " is thrown");
             assertEquals("Car DBC1234X is already parked", e.getMessage());
             verifyNoInteractions(parkingLotRepository);
-            verify(parkedVehicleRepository, times(1)).findAllParkedVehicles();
+            verify(parkedVehicleRepository, times(1)).findParkedVehicleByVehicleNumber("DBC1234X");
             verify(parkedVehicleRepository, never()).save(any(ParkedVehicleEntity.class));
         }
     }
@@ -177,20 +160,10 @@ class ParkingValetServiceTest {
      */
     @Test
     void parkVehicle_hasAvailableParking_returnParkingLot() {
-        when(parkingLotRepository.finalAllParkingLotsByVehicleTypeOrderByLotNumber(any(VehicleType.class))).thenReturn(
-                Arrays.asList(
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(1).build(),
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(2).build(),
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(3).build(),
-                        ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(4).build()
-                ));
-        // lot 2 and 4 are empty
-        when(parkedVehicleRepository.findAllParkedVehicles()).thenReturn(Arrays.asList(
-                ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("ABC1234X").lotNumber(1)
-                        .timeIn(LocalDateTime.now()).build(),
-                ParkedVehicleEntity.builder().vehicleType(VehicleType.CAR).vehicleNumber("DBC1234X").lotNumber(3)
-                        .timeIn(LocalDateTime.now()).build()
-        ));
+        // lot 2 and 4 are empty, lowest available lot is 2
+        when(parkingLotRepository.allocateAvailableParkingLot(any(VehicleType.class))).thenReturn(
+                ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(2).label("CarLot2").build());
+        when(parkedVehicleRepository.findParkedVehicleByVehicleNumber(anyString())).thenReturn(null);
         doAnswer(invocationOnMock -> {
             // return bean
             return invocationOnMock.getArgument(0, ParkedVehicleEntity.class);
@@ -199,9 +172,8 @@ class ParkingValetServiceTest {
         final LocalDateTime timeIn = LocalDateTime.of(2021, 10, 7, 10, 40, 23);
         final ParkingDetails result = parkingValetService.parkVehicle(VehicleType.CAR, "YEE4562U", timeIn);
 
-        verify(parkingLotRepository, times(1)).finalAllParkingLotsByVehicleTypeOrderByLotNumber(
-                VehicleType.CAR);
-        verify(parkedVehicleRepository, times(1)).findAllParkedVehicles();
+        verify(parkingLotRepository, times(1)).allocateAvailableParkingLot(VehicleType.CAR);
+        verify(parkedVehicleRepository, times(1)).findParkedVehicleByVehicleNumber("YEE4562U");
         // save entity bean
         final ArgumentCaptor<ParkedVehicleEntity> captor = ArgumentCaptor.forClass(ParkedVehicleEntity.class);
         verify(parkedVehicleRepository, times(1)).save(captor.capture());
@@ -301,6 +273,72 @@ class ParkingValetServiceTest {
         }
     }
 
+    /**
+     * Test parkVehicle.
+     *
+     * Vehicle is parked by another gate after it was checked, release allocated lot and throw exception.
+     */
+    @Test
+    void parkVehicle_vehicleParkedConcurrently_releaseLotAndThrowException() {
+        when(parkingLotRepository.allocateAvailableParkingLot(any(VehicleType.class))).thenReturn(
+                ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(1).label("CarLot1").build());
+        when(parkedVehicleRepository.save(any(ParkedVehicleEntity.class)))
+                .thenThrow(new VehicleAlreadyParkedException(VehicleType.CAR, "YEE4562U"));
+        try {
+            parkingValetService.parkVehicle(VehicleType.CAR, "YEE4562U", LocalDateTime.now());
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof VehicleAlreadyParkedException);
+            verify(parkingLotRepository, times(1)).releaseParkingLot(VehicleType.CAR, 1);
+        }
+    }
+
+    /**
+     * Test parkVehicle.
+     *
+     * Vehicle cannot be saved, release allocated lot and throw exception.
+     */
+    @Test
+    void parkVehicle_saveFailed_releaseLotAndThrowException() {
+        when(parkingLotRepository.allocateAvailableParkingLot(any(VehicleType.class))).thenReturn(
+                ParkingLotEntity.builder().vehicleType(VehicleType.CAR).lotNumber(1).label("CarLot1").build());
+        when(parkedVehicleRepository.save(any(ParkedVehicleEntity.class)))
+                .thenThrow(new InvalidParameterException("Vehicle number is too long"));
+        try {
+            parkingValetService.parkVehicle(VehicleType.CAR, "YEE4562U", LocalDateTime.now());
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof InvalidParameterException);
+            verify(parkingLotRepository, times(1)).releaseParkingLot(VehicleType.CAR, 1);
+        }
+    }
+
+    /**
+     * Test removeVehicle.
+     *
+     * Vehicle is exited by another gate after it was found, throw exception without releasing lot.
+     */
+    @Test
+    void removeVehicle_vehicleExitedConcurrently_throwException() {
+        when(parkedVehicleRepository.findParkedVehicleByVehicleNumber(anyString())).thenReturn(
+                ParkedVehicleEntity.builder()
+                        .id(100L)
+                        .vehicleType(VehicleType.CAR)
+                        .lotNumber(2)
+                        .vehicleNumber("ABC1234Y")
+                        .timeIn(LocalDateTime.of(2021, 10, 4, 10, 11, 30))
+                        .build());
+        when(parkedVehicleRepository.exitParkedVehicle(any(Long.class), anyLong()))
+                .thenThrow(new VehicleNotParkedException("ABC1234Y"));
+        try {
+            parkingValetService.removeVehicle("ABC1234Y", LocalDateTime.of(2021, 10, 4, 12, 10, 30));
+            fail("Expect exception to be thrown");
+        } catch(Exception e) {
+            assertTrue(e instanceof VehicleNotParkedException);
+            verifyNoInteractions(parkingLotRepository);
+        }
+    }
+
     /**
      * Test removeVehicle.
      *
@@ -308,7 +346,7 @@ class ParkingValetServiceTest {
      */
     @Test
     void removeVehicle_validVehicle_removeAndUpdate() {
-        final UUID id = UUID.randomUUID();
+        final Long id = 100L;
         when(parkedVehicleRepository.findParkedVehicleByVehicleNumber(anyString())).thenReturn(
                 ParkedVehicleEntity.builder()
                         .id(id)
@@ -317,12 +355,27 @@ class ParkingValetServiceTest {
                         .vehicleNumber("ABC1234Y")
                         .timeIn(LocalDateTime.of(2021, 10, 4, 10, 11, 30))
                         .build());
+        when(parkedVehicleRepository.exitParkedVehicle(any(Long.class), anyLong())).thenReturn(
+                ParkedVehicleEntity.builder()
+                        .id(id)
+                        .vehicleType(VehicleType.CAR)
+                        .lotNumber(2)
+                        .vehicleNumber("ABC1234Y")
+                        .timeIn(LocalDateTime.of(2021, 10, 4, 10, 11, 30))
+                        .timeOut(LocalDateTime.of(2021, 10, 4, 12, 10, 30))
+                        .build());
+        when(parkingLotRepository.findParkingLotLabel(any(VehicleType.class), anyInt())).thenReturn("CarLot2");
 
         final ParkingDetails result = parkingValetService.removeVehicle("ABC1234Y",
                 LocalDateTime.of(2021, 10, 4, 12, 10, 30));
 
         verify(parkedVehicleRepository, times(1)).findParkedVehicleByVehicleNumber("ABC1234Y");
-        verify(parkedVehicleRepository, times(1)).save(any());
+        verify(parkedVehicleRepository, times(1)).exitParkedVehicle(id,
+                seconds(LocalDateTime.of(2021, 10, 4, 12, 10, 30)));
+        verify(parkedVehicleRepository, never()).save(any());
+        // parking lot is released
+        verify(parkingLotRepository, times(1)).releaseParkingLot(VehicleType.CAR, 2);
+        verify(parkingLotRepository, times(1)).findParkingLotLabel(VehicleType.CAR, 2);
 
         assertEquals(id, result.getId());
         assertEquals(VehicleType.CAR, result.getVehicleType());
@@ -331,4 +384,8 @@ class ParkingValetServiceTest {
         assertEquals(LocalDateTime.of(2021, 10, 4, 10, 11, 30), result.getTimeIn());
         assertEquals(LocalDateTime.of(2021, 10, 4, 12, 10, 30), result.getTimeOut());
     }
-}
\ No newline at end of file
+
+    private static long seconds(final LocalDateTime time) {
+        return TimeUtil.convertLocalDateTimeToSeconds(time);
+    }
+}
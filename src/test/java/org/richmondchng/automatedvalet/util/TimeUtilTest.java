@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Test;
 import java.time.LocalDateTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Unit test TimeUtil.
@@ -59,4 +62,44 @@ class TimeUtilTest {
         // this is currently fixed at SG+8 offset
         assertEquals(LocalDateTime.of(2021, 2, 17, 14, 5, 2), result);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test calculateHours with seconds since epoch.
+     *
+     * Part of an hour is rounded up.
+     */
+    @Test
+    void calculateHours_seconds_returnCalculatedHours() {
+        assertEquals(0, TimeUtil.calculateHours(1613541902L, 1613541902L));
+        assertEquals(1, TimeUtil.calculateHours(1613541902L, 1613541903L));
+        assertEquals(2, TimeUtil.calculateHours(1613541902L, 1613541902L + 7200L));
+    }
+
+    /**
+     * Test toSeconds and toLocalDateTime.
+     *
+     * Null timestamp is kept as NO_TIME.
+     */
+    @Test
+    void toSeconds_nullTimestamp_returnNoTime() {
+        assertEquals(TimeUtil.NO_TIME, TimeUtil.toSeconds(null));
+        assertNull(TimeUtil.toLocalDateTime(TimeUtil.NO_TIME));
+        assertEquals(1613541902L, TimeUtil.toSeconds(LocalDateTime.of(2021, 2, 17, 14, 5, 2)));
+    }
+
+    /**
+     * Test isValidSeconds.
+     *
+     * NO_TIME and seconds out of the range of LocalDateTime are not valid.
+     */
+    @Test
+    void isValidSeconds_noTimeOrOutOfRange_returnFalse() {
+        assertTrue(TimeUtil.isValidSeconds(1613541902L));
+        assertTrue(TimeUtil.isValidSeconds(TimeUtil.toSeconds(LocalDateTime.MAX)));
+        assertTrue(TimeUtil.isValidSeconds(TimeUtil.toSeconds(LocalDateTime.MIN)));
+        assertFalse(TimeUtil.isValidSeconds(TimeUtil.NO_TIME));
+        assertFalse(TimeUtil.isValidSeconds(TimeUtil.toSeconds(LocalDateTime.MAX) + 1));
+        assertFalse(TimeUtil.isValidSeconds(TimeUtil.toSeconds(LocalDateTime.MIN) - 1));
+        assertFalse(TimeUtil.isValidSeconds(Long.MAX_VALUE));
+    }
+}